@@ -0,0 +1,163 @@
+package InputSystem;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+
+/**
+ * The {@link ChannelCodeInput} class reads source code from a {@link ReadableByteChannel} through a large direct
+ * {@link ByteBuffer}, so that a pipe or a socket is drained with few system calls and without an intermediate heap
+ * buffer.
+ * <p>
+ * A read from a pipe usually returns fewer bytes than requested, so {@link #read(byte[], int, int)} keeps reading
+ * until the request is satisfied or the end of the input is reached, as required by {@link ICodeInput}.
+ * <p/>
+ * */
+public class ChannelCodeInput implements ICodeInput
+{
+    /** The default size of the direct buffer in bytes. */
+    public static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /** Size of the direct buffer in bytes. */
+    private final int bufferSize;
+
+    /** The channel to read. */
+    private ReadableByteChannel channel;
+
+    /** The direct buffer, whose remaining bytes are read from the channel but not consumed yet. */
+    private ByteBuffer directBuffer;
+
+    /** A boolean value indicating whether the end of the channel is reached. */
+    private boolean isEndOfInput;
+
+    /**
+     * Initializes a new instance of {@link ChannelCodeInput} with the specified channel and the default buffer size.
+     * @param channel The channel to read.
+     * @exception NullPointerException If {@code channel} is null.
+     * */
+    public ChannelCodeInput(ReadableByteChannel channel)
+    {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Initializes a new instance of {@link ChannelCodeInput} with the specified channel and buffer size.
+     * @param channel The channel to read.
+     * @param bufferSize Size of the direct buffer in bytes.
+     * @exception NullPointerException If {@code channel} is null.
+     * @exception IllegalArgumentException If {@code bufferSize} is not positive.
+     * */
+    public ChannelCodeInput(ReadableByteChannel channel, int bufferSize)
+    {
+        this(bufferSize);
+        if (channel == null)
+            throw new NullPointerException("Parameter \"channel\" cannot be null.");
+
+        this.channel = channel;
+    }
+
+    /**
+     * Initializes a new instance of {@link ChannelCodeInput} whose channel is provided by {@link #openChannel()}.
+     * @param bufferSize Size of the direct buffer in bytes.
+     * @exception IllegalArgumentException If {@code bufferSize} is not positive.
+     * */
+    protected ChannelCodeInput(int bufferSize)
+    {
+        if (bufferSize <= 0)
+            throw new IllegalArgumentException("Buffer size must be positive.");
+
+        this.bufferSize = bufferSize;
+        channel = null;
+        directBuffer = null;
+        isEndOfInput = false;
+    }
+
+    /**
+     * Gets the channel to read when this input is opened.
+     * @return The channel to read.
+     * @exception IOException If the channel cannot be opened.
+     * */
+    protected ReadableByteChannel openChannel() throws IOException
+    {
+        return channel;
+    }
+
+    /**
+     * Opens the channel and allocates the direct buffer.
+     * @exception IOException If the channel cannot be opened.
+     * */
+    @Override
+    public void open() throws IOException
+    {
+        channel = openChannel();
+        directBuffer = ByteBuffer.allocateDirect(bufferSize);
+        directBuffer.flip();
+        isEndOfInput = false;
+    }
+
+    /**
+     * Closes the channel.
+     * @exception IOException If an I/O error occurs.
+     * */
+    @Override
+    public void close() throws IOException
+    {
+        directBuffer = null;
+        if (channel != null)
+            closeChannel(channel);
+    }
+
+    /**
+     * Closes the channel read by this input.
+     * @param channel The channel to close.
+     * @exception IOException If an I/O error occurs.
+     * */
+    protected void closeChannel(ReadableByteChannel channel) throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Reads contents into the given buffer, reading the channel as many times as needed.
+     * @return the length of the content actually read, which is less than {@code length} only if the end of the input
+     * is reached, or -1 if the channel cannot be read.
+     * */
+    @Override
+    public int read(byte[] buffer, int begin, int length)
+    {
+        if (directBuffer == null)
+            return -1;
+
+        int totalRead = 0;
+        while (totalRead < length)
+        {
+            if (!directBuffer.hasRemaining())
+            {
+                if (isEndOfInput)
+                    break;
+
+                // Refill the direct buffer, a single read may return any number of bytes.
+                directBuffer.clear();
+                try
+                {
+                    isEndOfInput = (channel.read(directBuffer) < 0);
+                }
+                catch (IOException e)
+                {
+                    return -1;
+                }
+                finally
+                {
+                    directBuffer.flip();
+                }
+                continue;
+            }
+
+            int readAmount = Math.min(length - totalRead, directBuffer.remaining());
+            directBuffer.get(buffer, begin + totalRead, readAmount);
+            totalRead += readAmount;
+        }
+
+        return totalRead;
+    }
+}
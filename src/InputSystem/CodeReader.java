@@ -5,31 +5,78 @@ import org.jetbrains.annotations.NotNull;
 
 import java.io.IOException;
 import java.nio.charset.*;
-import java.util.*;
 
+/**
+ * The {@link CodeReader} class represents the input system of the compiler. It reads bytes from an {@link ICodeInput}
+ * into a buffer, and keeps the current lexeme, the previous lexeme and a fixed number of characters of look ahead in the
+ * buffer.
+ * <p>
+ * Lexemes are exposed as views over the buffer (see {@link #getCurrentLexView()}), a {@link String} is created only
+ * when {@link #getCurrentLex()} or {@link #getPreviousLex()} is called.
+ * <p/>
+ * Line numbers are not tracked character by character: the '\n' characters are indexed in bulk by a {@link LineIndex}
+ * whenever the buffer is filled, and lines and columns are computed from offsets on request.
+ * <p/>
+ * The input is UTF-8: {@link #nextChar()} returns bytes, and {@link #nextCodePoint()} decodes the characters which are
+ * not ASCII with a {@link Utf8Decoder}. Offsets are always byte offsets.
+ * <p/>
+ * The geometry of the buffer, i.e. the maximum length of a lexeme and the maximum number of characters to look ahead,
+ * can be specified on construction. In adaptive mode, the buffer is sized from the length of the input when it is
+ * known, and grows whenever a lexeme does not fit in it.
+ * */
 public class CodeReader
 {
     public static final int NO_MORE_CHARS = 0;
     public static final int FLUSH_SUCCESS = 1;
     public static final int FLUSH_FAILURE = -1;
 
+    /** The default maximum number of characters to look ahead. */
+    public static final int DEFAULT_MAX_LOOK_AHEAD = 16;
+
+    /** The default maximum length of a lex. */
+    public static final int DEFAULT_MAX_SYMBOL_LENGTH = 1024;
+
+    /** The maximum length of a lex that an adaptive {@link CodeReader} chooses from the length of the input. */
+    private static final int MAX_INITIAL_ADAPTIVE_SYMBOL_LENGTH = 1 << 20;
+
+    /** The maximum length of a lex that an adaptive {@link CodeReader} can grow to. */
+    private static final int MAX_ADAPTIVE_SYMBOL_LENGTH = 1 << 28;
+
+    /**
+     * The minimum number of bytes kept after the next character, which are the continuation bytes of the longest UTF-8
+     * character, so that {@link #nextCodePoint()} finds all the bytes of a character in the input buffer.
+     * */
+    private static final int MIN_DANGER_ZONE_LENGTH = 3;
+
     /** The maximum number of characters to look ahead. */
-    private static final int MAX_LOOK_AHEAD = 16;
+    private final int maxLookAhead;
 
-    /** The maximum length of a lex. */
-    private static final int MAX_SYMBOL_LENGTH = 1024;
+    /** Number of bytes kept after the next character, unless the input ends, which are the danger zone. */
+    private final int dangerZoneLength;
+
+    /** The maximum length of a lex specified on construction. */
+    private final int initialMaxSymbolLength;
 
-    /** Size of the input buffer of the input system. */
-    private static final int BUFFER_SIZE = (MAX_SYMBOL_LENGTH * 3) + (MAX_LOOK_AHEAD * 2);
+    /** A boolean value indicating whether the geometry of the input buffer adapts to the input. */
+    private final boolean isAdaptive;
 
-    /** The start index of the danger zone, which implies the input system to execute the fill buffer operation. */
-    private static final int DANGER = (BUFFER_SIZE - MAX_LOOK_AHEAD);
+    /** The maximum length of a lex. */
+    private int maxSymbolLength;
 
-    /** End index of the input buffer. */
-    private static final int END = BUFFER_SIZE;
+    /** Size of the input buffer of the input system, which is also the end index of the input buffer. */
+    private int bufferSize;
 
     /** The input buffer. */
-    private final char[] InputBuffer = new char[BUFFER_SIZE];
+    private byte[] InputBuffer;
+
+    /** Number of times the input buffer is shifted and filled, or grown. */
+    private long flushCount;
+
+    /** Offset in the input of the first byte of the input buffer. */
+    private int bufferOffset;
+
+    /** Offsets of the lines of the input read so far. */
+    private final LineIndex lineIndex;
 
     /** Logical end address of the input buffer. */
     private int bufferEnd;
@@ -46,35 +93,87 @@ public class CodeReader
     /** Start index of the symbol previously parsed. */
     private int previousSymbolStartIndex;
 
-    /** Line number of the symbol previously parsed. */
-    private int previousSymbolLineNumber;
+    /** Offset in the input of the symbol previously parsed. */
+    private int previousSymbolOffset;
 
     /** Length of the symbol previously parsed. */
     private int previousSymbolLength;
 
-    /** Line number of the symbol currently parsed. */
-    private int currentSymbolLineNumber;
+    /** A boolean value indicating whether the end of the input has been read into the input buffer. */
+    private boolean isEndOfInputRead;
 
-    /** Actually, I don't know the usage of this variable, which makes this variable will probably be removed. */
-    private int mLineNumber;
+    private ICodeInput codeInput;
 
-    private boolean hasNext;
+    /** The reusable view of the symbol currently parsed. */
+    private final Lexeme currentLexView;
 
-    private ICodeInput codeInput;
+    /** The reusable view of the symbol previously parsed. */
+    private final Lexeme previousLexView;
+
+    /** Number of the UTF-8 continuation bytes shifted out of the input buffer. */
+    private int shiftedContinuationCount;
 
+    /** Decodes the characters which are not ASCII. */
+    private final Utf8Decoder decoder;
+
+    /**
+     * Initializes a new instance of {@link CodeReader} with the default geometry of the input buffer.
+     * */
     public CodeReader()
     {
-        bufferEnd = BUFFER_SIZE;
-        nextCharIndex = END;
-        currentLexStartIndex = END;
-        currentSymbolEndIndex = END;
-        previousSymbolStartIndex = END;
-        previousSymbolLineNumber = 0;
+        this(DEFAULT_MAX_SYMBOL_LENGTH, DEFAULT_MAX_LOOK_AHEAD, false);
+    }
+
+    /**
+     * Initializes a new instance of {@link CodeReader} with the specified geometry of the input buffer.
+     * @param maxSymbolLength The maximum length of a lex.
+     * @param maxLookAhead The maximum number of characters to look ahead.
+     * @exception IllegalArgumentException If {@code maxSymbolLength} or {@code maxLookAhead} is not positive.
+     * */
+    public CodeReader(int maxSymbolLength, int maxLookAhead)
+    {
+        this(maxSymbolLength, maxLookAhead, false);
+    }
+
+    /**
+     * Initializes a new instance of {@link CodeReader} with the specified geometry of the input buffer.
+     * @param maxSymbolLength The maximum length of a lex. In adaptive mode, this is the minimum of it.
+     * @param maxLookAhead The maximum number of characters to look ahead.
+     * @param isAdaptive true to size the input buffer from the length of the input and grow it for long lexemes,
+     * otherwise, false.
+     * @exception IllegalArgumentException If {@code maxSymbolLength} or {@code maxLookAhead} is not positive, or
+     * {@code maxLookAhead} is greater than {@code maxSymbolLength}.
+     * */
+    public CodeReader(int maxSymbolLength, int maxLookAhead, boolean isAdaptive)
+    {
+        if (maxSymbolLength <= 0)
+            throw new IllegalArgumentException("The maximum length of a lex must be positive.");
+        if ((maxLookAhead <= 0) || (maxLookAhead > maxSymbolLength))
+            throw new IllegalArgumentException("The maximum number of characters to look ahead must be positive and " +
+                    "not greater than the maximum length of a lex.");
+
+        this.maxLookAhead = maxLookAhead;
+        dangerZoneLength = Math.max(maxLookAhead, MIN_DANGER_ZONE_LENGTH);
+        initialMaxSymbolLength = maxSymbolLength;
+        this.isAdaptive = isAdaptive;
+        resize(maxSymbolLength);
+        flushCount = 0;
+
+        lineIndex = new LineIndex();
+        bufferOffset = -bufferSize;
+        bufferEnd = bufferSize;
+        nextCharIndex = bufferSize;
+        currentLexStartIndex = bufferSize;
+        currentSymbolEndIndex = bufferSize;
+        previousSymbolStartIndex = bufferSize;
+        previousSymbolOffset = 0;
         previousSymbolLength = 0;
-        currentSymbolLineNumber = 1;
-        mLineNumber = 1;
-        hasNext = false;
+        isEndOfInputRead = false;
         codeInput = null;
+        currentLexView = new Lexeme();
+        previousLexView = new Lexeme();
+        shiftedContinuationCount = 0;
+        decoder = new Utf8Decoder();
     }
 
     /**
@@ -84,7 +183,7 @@ public class CodeReader
     @Contract(pure = true)
     private boolean noMoreContents()
     {
-        return (hasNext && (nextCharIndex >= bufferEnd));
+        return (isEndOfInputRead && (nextCharIndex >= bufferEnd));
     }
 
     @NotNull
@@ -96,32 +195,200 @@ public class CodeReader
     @NotNull
     private ICodeInput getInputHandler(String fileName) throws IOException
     {
-//        return new FileCodeInput(fileName);
-        return null;
+        return new FileCodeInput(fileName);
     }
 
     public void newFile(String fileName) throws IOException
     {
+        newFile(fileName, false);
+    }
+
+    /**
+     * Opens the specified file for reading, closing the input currently read.
+     * @param fileName The name of the file to read.
+     * @param readAhead true to read the file ahead in a background thread with {@link ReadAheadCodeInput}, so that I/O
+     * overlaps with the consumption of the input buffer, otherwise, false.
+     * @exception IOException If the file cannot be opened for reading.
+     * */
+    public void newFile(String fileName, boolean readAhead) throws IOException
+    {
+        ICodeInput fileInput = getInputHandler(fileName);
+        newInput(readAhead ? new ReadAheadCodeInput(fileInput) : fileInput);
+    }
+
+    /**
+     * Opens the standard input stream for reading, closing the input currently read.
+     * @exception IOException If the standard input stream cannot be opened for reading.
+     * */
+    public void newStdin() throws IOException
+    {
+        newInput(getCodeInput());
+    }
+
+    /**
+     * Opens the specified input for reading, closing the input currently read.
+     * @param input The input to read.
+     * @exception IOException If the input cannot be opened for reading.
+     * @exception NullPointerException If {@code input} is null.
+     * */
+    public void newInput(ICodeInput input) throws IOException
+    {
+        if (input == null)
+            throw new NullPointerException("Parameter \"input\" cannot be null.");
+
         if (codeInput != null)
             codeInput.close();
 
-        codeInput = getInputHandler(fileName);
+        codeInput = input;
         codeInput.open();
 
-        hasNext = false;
-        nextCharIndex = END;
-        currentLexStartIndex = END;
-        currentSymbolEndIndex = END;
-        bufferEnd = END;
-        currentSymbolLineNumber = 1;
-        mLineNumber = 1;
+        if (isAdaptive)
+            resize(getAdaptiveSymbolLength(codeInput.length()));
+
+        // The first flush shifts the whole (empty) buffer, which makes the offset of the buffer 0.
+        isEndOfInputRead = false;
+        bufferOffset = -bufferSize;
+        nextCharIndex = bufferSize;
+        currentLexStartIndex = bufferSize;
+        currentSymbolEndIndex = bufferSize;
+        previousSymbolStartIndex = bufferSize;
+        previousSymbolOffset = 0;
+        previousSymbolLength = 0;
+        bufferEnd = bufferSize;
+        lineIndex.clear();
+        shiftedContinuationCount = 0;
+    }
+
+    /**
+     * Chooses the maximum length of a lex for an input with the specified length, so that small inputs are read into
+     * the input buffer at once and large inputs are read with few flush operations.
+     * @param inputLength The length of the input in bytes, or -1 if it is unknown.
+     * @return The maximum length of a lex for the input.
+     * */
+    private int getAdaptiveSymbolLength(long inputLength)
+    {
+        long symbolLength = (inputLength / 3) + 1;
+        if (symbolLength < initialMaxSymbolLength)
+            return initialMaxSymbolLength;
+        else if (symbolLength > MAX_INITIAL_ADAPTIVE_SYMBOL_LENGTH)
+            return MAX_INITIAL_ADAPTIVE_SYMBOL_LENGTH;
+        else
+            return (int)symbolLength;
+    }
+
+    /**
+     * Replaces the input buffer with an empty one for the specified maximum length of a lex.
+     * @param maxSymbolLength The maximum length of a lex.
+     * */
+    private void resize(int maxSymbolLength)
+    {
+        this.maxSymbolLength = maxSymbolLength;
+        bufferSize = (maxSymbolLength * 3) + (dangerZoneLength * 2);
+        if ((InputBuffer == null) || (InputBuffer.length != bufferSize))
+            InputBuffer = new byte[bufferSize];
     }
 
+    /**
+     * Doubles the maximum length of a lex and enlarges the input buffer accordingly, keeping its contents and indexes.
+     * @return true if the input buffer is enlarged, false if the maximum length of a lex cannot grow any more.
+     * */
+    private boolean grow()
+    {
+        if (maxSymbolLength > MAX_ADAPTIVE_SYMBOL_LENGTH / 2)
+            return false;
+
+        byte[] oldBuffer = InputBuffer;
+        resize(maxSymbolLength * 2);
+        System.arraycopy(oldBuffer, 0, InputBuffer, 0, bufferEnd);
+        return true;
+    }
+
+    /**
+     * Gets the maximum length of a lex of the current input buffer.
+     * @return The maximum length of a lex.
+     * */
+    public int getMaxSymbolLength()
+    {
+        return maxSymbolLength;
+    }
+
+    /**
+     * Gets the maximum number of characters to look ahead.
+     * @return The maximum number of characters to look ahead.
+     * */
+    public int getMaxLookAhead()
+    {
+        return maxLookAhead;
+    }
+
+    /**
+     * Gets the size of the current input buffer.
+     * @return The size of the current input buffer.
+     * */
+    public int getBufferSize()
+    {
+        return bufferSize;
+    }
+
+    /**
+     * Gets the number of times the input buffer is shifted and filled, or grown, since this {@link CodeReader} is
+     * created.
+     * @return The number of flush operations.
+     * */
+    public long getFlushCount()
+    {
+        return flushCount;
+    }
+
+    /**
+     * Closes the input currently read.
+     * @exception IOException If an I/O error occurs.
+     * */
+    public void close() throws IOException
+    {
+        if (codeInput != null)
+        {
+            codeInput.close();
+            codeInput = null;
+        }
+    }
+
+    /**
+     * Gets the input buffer, which the indexes returned by this {@link CodeReader} refer to. An adaptive
+     * {@link CodeReader} replaces the input buffer when it grows.
+     * @return The input buffer.
+     * */
+    public byte[] getBuffer()
+    {
+        return InputBuffer;
+    }
+
+    /**
+     * Decodes the symbol currently parsed with UTF-8 and returns it as a new {@link String}.
+     * @return The text of the symbol currently parsed.
+     * */
     public String getCurrentLex()
     {
-//        byte[] currentLexBytes = Arrays.copyOfRange(InputBuffer, currentLexStartIndex, currentSymbolEndIndex);
-//        return new String(currentLexBytes, StandardCharsets.UTF_8);
-        return "";
+        return new String(InputBuffer, currentLexStartIndex, getCurrentLexLength(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets a view of the symbol currently parsed. The returned {@link Lexeme} is reused by subsequent calls and is only
+     * valid until the next character is read.
+     * @return A view of the symbol currently parsed.
+     * */
+    public Lexeme getCurrentLexView()
+    {
+        return currentLexView.set(InputBuffer, currentLexStartIndex, getCurrentLexLength());
+    }
+
+    /**
+     * Gets the index of the first character of the symbol currently parsed in the input buffer.
+     * @return The index of the first character of the symbol currently parsed in the input buffer.
+     * */
+    public int getCurrentLexStartIndex()
+    {
+        return currentLexStartIndex;
     }
 
     public int getCurrentLexLength()
@@ -129,21 +396,77 @@ public class CodeReader
         return currentSymbolEndIndex - currentLexStartIndex;
     }
 
+    /**
+     * Gets the offset in the input of the symbol currently parsed.
+     * @return The offset in the input of the symbol currently parsed.
+     * */
+    public int getCurrentLexOffset()
+    {
+        return bufferOffset + currentLexStartIndex;
+    }
+
+    /**
+     * Gets the number of the line where the symbol currently parsed starts.
+     * @return The line number of the symbol currently parsed.
+     * */
     public int getCurrentSymbolLineNumber()
     {
-        return currentSymbolLineNumber;
+        return lineIndex.getLineNumber(getCurrentLexOffset());
     }
 
+    /**
+     * Gets the column where the symbol currently parsed starts, counted in bytes.
+     * @return The column of the symbol currently parsed.
+     * */
+    public int getCurrentSymbolColumnNumber()
+    {
+        return lineIndex.getColumnNumber(getCurrentLexOffset());
+    }
+
+    /**
+     * Gets the column where the symbol currently parsed starts, counted in characters of the UTF-8 input.
+     * @return The column of the symbol currently parsed.
+     * */
+    public int getCurrentSymbolCharacterColumnNumber()
+    {
+        // The continuation bytes before the lexeme are the ones shifted out of the input buffer and the ones before it in
+        // the input buffer.
+        int continuationCount = shiftedContinuationCount +
+                                Utf8Decoder.countContinuationBytes(InputBuffer, 0, currentLexStartIndex);
+        return lineIndex.getCharacterColumnNumber(getCurrentLexOffset(), continuationCount);
+    }
+
+    /**
+     * Gets the index of the lines of the input read so far, which can map any offset up to the logical end of the input
+     * buffer to its line and column.
+     * @return The index of the lines of the input read so far.
+     * */
+    public LineIndex getLineIndex()
+    {
+        return lineIndex;
+    }
+
+    /**
+     * Decodes the symbol previously parsed with UTF-8 and returns it as a new {@link String}.
+     * @return The text of the symbol previously parsed.
+     * */
     public String getPreviousLex()
     {
-//        byte[] previousLexBytes = Arrays.copyOfRange(InputBuffer, previousSymbolStartIndex, previousSymbolStartIndex + previousSymbolLength);
-//        return new String(previousLexBytes, StandardCharsets.UTF_8);
-        return "";
+        return new String(InputBuffer, previousSymbolStartIndex, previousSymbolLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets a view of the symbol previously parsed. The returned {@link Lexeme} is reused by subsequent calls and is
+     * only valid until the next character is read.
+     * @return A view of the symbol previously parsed.
+     * */
+    public Lexeme getPreviousLexView()
+    {
+        return previousLexView.set(InputBuffer, previousSymbolStartIndex, previousSymbolLength);
     }
 
     public int markStart()
     {
-        mLineNumber = currentSymbolLineNumber;
         currentLexStartIndex = nextCharIndex;
         currentSymbolEndIndex = nextCharIndex;
         return currentLexStartIndex;
@@ -151,7 +474,6 @@ public class CodeReader
 
     public int markEnd()
     {
-        mLineNumber = currentSymbolLineNumber;
         currentSymbolEndIndex = nextCharIndex;
         return currentSymbolEndIndex;
     }
@@ -169,7 +491,6 @@ public class CodeReader
 
     public int toMark()
     {
-        currentSymbolLineNumber = mLineNumber;
         nextCharIndex = currentSymbolEndIndex;
         return nextCharIndex;
     }
@@ -181,18 +502,48 @@ public class CodeReader
 
     public int getPreviousSymbolLineNumber()
     {
-        return previousSymbolLineNumber;
+        return lineIndex.getLineNumber(previousSymbolOffset);
+    }
+
+    /**
+     * Returns a value indicating whether all the contents of the input are read. Called before {@link #nextChar()}, it
+     * tells the end of the input from a NUL character, which are both returned as 0. This operation may trigger the
+     * flush() operation.
+     * @return true if there are no more contents, otherwise, false.
+     * */
+    public boolean isEndOfInput()
+    {
+        if (!isEndOfInputRead)
+            flush(false);
+
+        return noMoreContents();
     }
 
+    /**
+     * Returns the next character in the input buffer without consuming it.
+     * @return The next character, or {@link #NO_MORE_CHARS} if there are no more contents.
+     * */
     public int peekNextChar()
     {
-        if (currentLexStartIndex >= currentSymbolEndIndex)
+        return lookAhead(1);
+    }
+
+    /**
+     * Returns the n-th character after the current position without consuming any character. lookAhead(1) returns the
+     * character that the next call of {@link #nextChar()} would return.
+     * @param n The distance to look ahead, which cannot be greater than {@link #getMaxLookAhead()}.
+     * @return The n-th character after the current position, or {@link #NO_MORE_CHARS} if the input ends before it.
+     * */
+    public int lookAhead(int n)
+    {
+        if ((n < 1) || (n > maxLookAhead))
+            throw new IllegalArgumentException("Cannot look ahead " + n + " characters.");
+
+        if ((!isEndOfInputRead) && (flush(false) == FLUSH_FAILURE))
             return -1;
-        else
-        {
-            currentLexStartIndex++;
-            return currentLexStartIndex;
-        }
+
+        int index = nextCharIndex + n - 1;
+        return (index < bufferEnd) ? (InputBuffer[index] & 0xFF) : NO_MORE_CHARS;
     }
 
     /**
@@ -201,7 +552,7 @@ public class CodeReader
     public int moveNext()
     {
         previousSymbolStartIndex = currentLexStartIndex;
-        previousSymbolLineNumber = currentSymbolLineNumber;
+        previousSymbolOffset = getCurrentLexOffset();
         previousSymbolLength = currentSymbolEndIndex - currentLexStartIndex;
         return previousSymbolStartIndex;
     }
@@ -209,37 +560,102 @@ public class CodeReader
     /**
      * Retrieves and returns the next character in the input buffer.
      * This operation may trigger the flush() operation.
+     * @return The next character as an unsigned byte, {@link #NO_MORE_CHARS} if there are no more contents, or -1 if
+     * the current lexeme is too long to be kept in the input buffer.
      * */
-    public byte nextChar()
+    public int nextChar()
     {
         if (noMoreContents())
-            return 0;
-        else if ((!hasNext) && (flush(false) == FLUSH_FAILURE))
+            return NO_MORE_CHARS;
+        else if ((!isEndOfInputRead) && (flush(false) == FLUSH_FAILURE))
             return -1;
-        else if (InputBuffer[nextCharIndex] == '\n')
-            currentSymbolLineNumber++;
+        else if (noMoreContents())
+            return NO_MORE_CHARS;
 
-//        return InputBuffer[nextCharIndex++];
-        return 0;
+        return InputBuffer[nextCharIndex++] & 0xFF;
+    }
+
+    /**
+     * Retrieves and returns the next character in the input buffer, decoding it from UTF-8. An ASCII character is
+     * returned as {@link #nextChar()} does, the other characters consume all their bytes. This operation may trigger
+     * the flush() operation.
+     * @return The code point of the next character, {@link Utf8Decoder#REPLACEMENT_CHARACTER} for a malformed byte,
+     * {@link #NO_MORE_CHARS} if there are no more contents, or -1 if the current lexeme is too long to be kept in the
+     * input buffer.
+     * */
+    public int nextCodePoint()
+    {
+        int c = nextChar();
+        if (c < 0x80)
+            return c;
+
+        // The danger zone keeps at least 3 bytes after the lead byte in the buffer, unless the input ends.
+        int codePoint = decoder.decode(InputBuffer, nextCharIndex - 1, bufferEnd);
+        nextCharIndex += decoder.getLength() - 1;
+        return codePoint;
     }
 
     /**
-     * Flushes the input buffer. If nextCharIndex < DANGER, nothing will happen.
+     * Skips the characters whose entries are true in the given table, scanning the input buffer in a tight loop
+     * instead of calling {@link #nextChar()} for each of them, and starts a new lexeme after them. The lexemes before
+     * cannot be found in the input buffer any more.
+     * @param table 256 entries indexed by the unsigned bytes of the input, true for the bytes to skip.
+     * @return The number of characters skipped, or -1 if the input buffer cannot be flushed.
+     * */
+    public int skip(boolean[] table)
+    {
+        int skippedCount = 0;
+        for (;;)
+        {
+            // Drop the lexemes, so that the input buffer can always be flushed.
+            moveNext();
+            markStart();
+            if ((!isEndOfInputRead) && (flush(false) == FLUSH_FAILURE))
+                return -1;
+
+            // Stop before the danger zone, where the input buffer must be flushed again.
+            int limit = isEndOfInputRead ? bufferEnd : bufferEnd - dangerZoneLength;
+            int i = nextCharIndex;
+            while ((i < limit) && table[InputBuffer[i] & 0xFF])
+                i++;
+
+            skippedCount += i - nextCharIndex;
+            nextCharIndex = i;
+            if ((i < limit) || isEndOfInputRead)
+            {
+                moveNext();
+                markStart();
+                return skippedCount;
+            }
+        }
+    }
+
+    /**
+     * Flushes the input buffer. If nextCharIndex is not in the danger zone, i.e. the last maxLookAhead characters, and
+     * at least the last 3 bytes, before the logical end of the input buffer, nothing will happen.
      * Otherwise, the un-processed contents will be moved and new contents will be filled into the input buffer.
      * */
     private int flush(boolean force)
     {
         if (noMoreContents())
             return NO_MORE_CHARS;
-        else if (hasNext)
+        else if (isEndOfInputRead)
             return FLUSH_SUCCESS;
 
-        if ((nextCharIndex >= DANGER) || force)
+        if ((nextCharIndex >= bufferEnd - dangerZoneLength) || force)
         {
             int shiftAmount = previousSymbolStartIndex < currentLexStartIndex ? previousSymbolStartIndex : currentLexStartIndex;
 
-            if (shiftAmount < MAX_SYMBOL_LENGTH)
+            if (shiftAmount < maxSymbolLength)
             {
+                // A lexeme is too long to be shifted, make room for it by enlarging the input buffer.
+                if ((!force) && isAdaptive && grow())
+                {
+                    flushCount++;
+                    fillBuffer(bufferEnd);
+                    return FLUSH_SUCCESS;
+                }
+
                 if (!force)
                     return FLUSH_FAILURE;
 
@@ -247,15 +663,19 @@ public class CodeReader
                 shiftAmount = markStart();
             }
 
+            // Nothing to count while the input is ASCII.
+            if (lineIndex.getContinuationCount() > shiftedContinuationCount)
+                shiftedContinuationCount += Utf8Decoder.countContinuationBytes(InputBuffer, 0, shiftAmount);
+
+            flushCount++;
             int copyAmount = bufferEnd - shiftAmount;
-            System.arraycopy(InputBuffer, 0, InputBuffer, shiftAmount, copyAmount);
+            System.arraycopy(InputBuffer, shiftAmount, InputBuffer, 0, copyAmount);
+            bufferOffset += shiftAmount;
 
-            if (fillBuffer(copyAmount) == 0)
+            if ((fillBuffer(copyAmount) == 0) && (!isEndOfInputRead))
                 System.err.println("Internal error (flush): CodeReader buffer is full, cannot read.");
 
-            if (previousSymbolStartIndex != 0)
-                previousSymbolStartIndex -= shiftAmount;
-
+            previousSymbolStartIndex -= shiftAmount;
             currentLexStartIndex -= shiftAmount;
             currentSymbolEndIndex -= shiftAmount;
             nextCharIndex -= shiftAmount;
@@ -270,22 +690,65 @@ public class CodeReader
      * */
     private int fillBuffer(int startIndex)
     {
-        int need = ((END - startIndex) / MAX_SYMBOL_LENGTH) * MAX_SYMBOL_LENGTH;
+        int need = ((bufferSize - startIndex) / maxSymbolLength) * maxSymbolLength;
         if (need < 0)
             System.err.println("Internal error (fillBuffer): Bad read-request start index.");
 
-        if (need == 0)
+        if (need <= 0)
             return 0;
 
-//        int addedLength = codeInput.read(InputBuffer, startIndex, need);
-//        if (addedLength == -1)
-//            System.err.println("Cannot read input contents.");
-//
-//        bufferEnd = startIndex + addedLength;
-//        if (addedLength < need)
-//            hasNext = true;
+        int addedLength = codeInput.read(InputBuffer, startIndex, need);
+        if (addedLength == -1)
+        {
+            System.err.println("Cannot read input contents.");
+            addedLength = 0;
+        }
+
+        lineIndex.scan(InputBuffer, startIndex, startIndex + addedLength, bufferOffset);
+        bufferEnd = startIndex + addedLength;
+        if (addedLength < need)
+            isEndOfInputRead = true;
 
-//        return addedLength;
-        return 0;
+        return addedLength;
+    }
+
+    /**
+     * A unit test method for the {@link CodeReader} class, reading characters of 1 to 4 bytes with all the geometries
+     * of the input buffer, so that the characters straddle the points where the input buffer is filled.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5100; i++)
+            text.append("a\u00E9\u20AC").appendCodePoint(0x1F600);
+        int[] codePoints = text.codePoints().toArray();
+
+        String path = java.io.File.createTempFile("CodeReader", ".txt").getPath();
+        try
+        {
+            File.writeAllText(path, text.toString(), StandardCharsets.UTF_8);
+            for (int maxLookAhead = 1; maxLookAhead <= 16; maxLookAhead++)
+            {
+                CodeReader reader = new CodeReader(16, maxLookAhead, false);
+                reader.newFile(path);
+                int count = 0;
+                int errorIndex = -1;
+                for (int c; (c = reader.nextCodePoint()) != NO_MORE_CHARS; count++)
+                {
+                    if ((errorIndex < 0) && ((count >= codePoints.length) || (c != codePoints[count])))
+                        errorIndex = count;
+                    reader.moveNext();
+                    reader.markStart();
+                }
+                reader.close();
+
+                System.out.println("Look ahead " + maxLookAhead + ": " + count + " code points" +
+                                   ((errorIndex < 0) ? "." : ", wrong code point at " + errorIndex + "."));
+            }
+        }
+        finally
+        {
+            File.delete(path);
+        }
     }
 }
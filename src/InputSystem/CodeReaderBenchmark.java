@@ -0,0 +1,166 @@
+package InputSystem;
+
+import java.io.*;
+
+/**
+ * The {@link CodeReaderBenchmark} class measures the throughput and the number of flush operations of
+ * {@link CodeReader} with different geometries of the input buffer.
+ * <p>
+ * Usage: CodeReaderBenchmark [source file]. If no source file is given, a generated file of about 64 MB with
+ * expression statements and some 4 KB long string literals is used.
+ * <p/>
+ * */
+public final class CodeReaderBenchmark
+{
+    /** Number of runs of each configuration that are not measured. */
+    private static final int WARM_UP_RUNS = 2;
+
+    /** Number of measured runs of each configuration. */
+    private static final int MEASURED_RUNS = 5;
+
+    /** Size of the generated source file in bytes. */
+    private static final long GENERATED_FILE_SIZE = 64L * 1024 * 1024;
+
+    /** Length of the long string literals in the generated source file. */
+    private static final int LONG_LITERAL_LENGTH = 4096;
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private CodeReaderBenchmark(){}
+
+    /**
+     * Generates a source file with expression statements, and a long string literal every 1000 lines.
+     * @param path The path of the file to generate.
+     * */
+    private static void generateSource(String path) throws IOException
+    {
+        StringBuilder longLiteral = new StringBuilder("s = \"");
+        for (int i = 0; i < LONG_LITERAL_LENGTH; i++)
+            longLiteral.append((char)('a' + (i % 26)));
+        longLiteral.append("\";\n");
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(File.openWrite(path))))
+        {
+            long written = 0;
+            for (int line = 0; written < GENERATED_FILE_SIZE; line++)
+            {
+                String statement = (line % 1000 == 999) ?
+                        longLiteral.toString() :
+                        "a" + line + " + " + (line % 97) + " * (b" + (line % 13) + " + 42);\n";
+                writer.write(statement);
+                written += statement.length();
+            }
+        }
+    }
+
+    /**
+     * Reads the whole file with the given {@link CodeReader}, splitting it into lexemes at white spaces.
+     * @return The number of lexemes read, or -1 if a lexeme is too long for the input buffer.
+     * */
+    private static long readLexemes(CodeReader reader, String path) throws IOException
+    {
+        reader.newFile(path);
+        long lexemeCount = 0;
+        try
+        {
+            for (;;)
+            {
+                reader.moveNext();
+                reader.markStart();
+
+                int c = reader.nextChar();
+                if (c == CodeReader.NO_MORE_CHARS)
+                    return lexemeCount;
+                else if (c < 0)
+                    return -1;
+                else if (isWhiteSpace(c))
+                    continue;
+
+                for (c = reader.peekNextChar(); (c != CodeReader.NO_MORE_CHARS) && (!isWhiteSpace(c)); c = reader.peekNextChar())
+                {
+                    if (reader.nextChar() < 0)
+                        return -1;
+                }
+
+                reader.markEnd();
+                lexemeCount++;
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    private static boolean isWhiteSpace(int c)
+    {
+        return (c == ' ') || (c == '\n') || (c == '\t') || (c == '\r');
+    }
+
+    /**
+     * Runs one configuration and prints its result.
+     * */
+    private static void run(String name, int maxSymbolLength, boolean isAdaptive, String path, long fileLength) throws IOException
+    {
+        long lexemeCount = 0;
+        long bestTime = Long.MAX_VALUE;
+        long flushCount = 0;
+        int bufferSize = 0;
+
+        for (int i = 0; i < WARM_UP_RUNS + MEASURED_RUNS; i++)
+        {
+            CodeReader reader = new CodeReader(maxSymbolLength, CodeReader.DEFAULT_MAX_LOOK_AHEAD, isAdaptive);
+            long start = System.nanoTime();
+            lexemeCount = readLexemes(reader, path);
+            long time = System.nanoTime() - start;
+
+            if (lexemeCount < 0)
+            {
+                System.out.printf("%-22s failed: a lexeme is longer than %d bytes.%n", name, reader.getMaxSymbolLength());
+                return;
+            }
+
+            if (i >= WARM_UP_RUNS)
+                bestTime = Math.min(bestTime, time);
+            flushCount = reader.getFlushCount();
+            bufferSize = reader.getBufferSize();
+        }
+
+        double megabytesPerSecond = (fileLength / (1024.0 * 1024.0)) / (bestTime / 1e9);
+        System.out.printf("%-22s buffer: %10d B, flushes: %8d, lexemes: %10d, throughput: %8.1f MB/s%n",
+                name, bufferSize, flushCount, lexemeCount, megabytesPerSecond);
+    }
+
+    /**
+     * Runs the benchmark.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String path;
+        boolean isGenerated = (args.length == 0);
+        if (isGenerated)
+        {
+            path = java.io.File.createTempFile("CodeReaderBenchmark", ".c").getPath();
+            generateSource(path);
+        }
+        else
+            path = args[0];
+
+        long fileLength = new java.io.File(path).length();
+        System.out.println("Input: " + path + ", " + fileLength + " bytes.");
+
+        try
+        {
+            run("default (1 KB lexeme)", CodeReader.DEFAULT_MAX_SYMBOL_LENGTH, false, path, fileLength);
+            run("8 KB lexeme", 8 * 1024, false, path, fileLength);
+            run("64 KB lexeme", 64 * 1024, false, path, fileLength);
+            run("adaptive", CodeReader.DEFAULT_MAX_SYMBOL_LENGTH, true, path, fileLength);
+        }
+        finally
+        {
+            if (isGenerated)
+                File.delete(path);
+        }
+    }
+}
@@ -138,7 +138,32 @@ public final class File
     public static String readAllText(String path) throws IOException
     {
         validatePath(path);
-        return readAllText(path, StandardCharsets.UTF_8);
+
+        // Decode with Utf8Decoder, and join the lines with "\n" as the Scanner does in readAllText(path, charset).
+        byte[] bytes = Files.readAllBytes(Paths.get(path));
+        char[] contents = new char[bytes.length];
+        Utf8Decoder decoder = new Utf8Decoder();
+        int length = decoder.decode(bytes, 0, bytes.length, contents, 0);
+        for (int i = decoder.getLength(); i < bytes.length; i++)
+            contents[length++] = (char)Utf8Decoder.REPLACEMENT_CHARACTER;
+
+        int newLength = 0;
+        for (int i = 0; i < length; i++)
+        {
+            char c = contents[i];
+            if ((c == '\r') && (i + 1 < length) && (contents[i + 1] == '\n'))
+                continue;
+            else if ((c == '\r') || (c == '\u2028') || (c == '\u2029') || (c == '\u0085'))
+                c = '\n';
+
+            contents[newLength++] = c;
+        }
+
+        // Discard the last line separator.
+        if ((newLength > 0) && (contents[newLength - 1] == '\n'))
+            newLength--;
+
+        return new String(contents, 0, newLength);
     }
 
     /**
@@ -1,40 +1,142 @@
 package InputSystem;
 
 import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 
+/**
+ * The {@link FileCodeInput} class reads source code from a file through a memory-mapped {@link FileChannel}, so that
+ * the contents are copied straight out of the page cache into the buffer of the {@link CodeReader}, without a system
+ * call per read or any intermediate {@link String}.
+ * @implNote A single {@link MappedByteBuffer} cannot exceed {@link Integer#MAX_VALUE} bytes, so larger files are mapped
+ * region by region. A region is released when the next one is mapped.
+ * */
 public class FileCodeInput implements ICodeInput
 {
-    private String inputBuffer;
-    private int currentPosition;
+    /** The maximum size of a single mapped region of the file. */
+    private static final long MAX_MAPPING_SIZE = 1L << 30;
 
-    public FileCodeInput()
+    /** Name of the file to read. */
+    private final String fileName;
+
+    /** The channel of the opened file. */
+    private FileChannel channel;
+
+    /** The mapped region of the file currently read. */
+    private MappedByteBuffer mappedRegion;
+
+    /** Offset of the first byte of the current mapped region in the file. */
+    private long mappedRegionStart;
+
+    /** Length of the file in bytes. */
+    private long fileLength;
+
+    /**
+     * Initializes a new instance of {@link FileCodeInput} with the specified file name.
+     * @param fileName The name of the file to read.
+     * @exception NullPointerException If {@code fileName} is null.
+     * */
+    public FileCodeInput(String fileName)
     {
-        currentPosition = 0;
+        if (fileName == null)
+            throw new NullPointerException("Parameter \"fileName\" cannot be null.");
+
+        this.fileName = fileName;
+        channel = null;
+        mappedRegion = null;
+        mappedRegionStart = 0;
+        fileLength = 0;
     }
 
+    /**
+     * Opens the file and maps its first region into memory.
+     * @exception IOException If the file does not exist, is a directory rather than a regular file, or for some other
+     * reason cannot be opened for reading.
+     * */
     @Override
-    public void open()
+    public void open() throws IOException
     {
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+        fileLength = channel.size();
+        mapRegion(0);
+    }
 
+    /**
+     * Closes the file. The mapped region is released when it is garbage collected.
+     * @exception IOException If an I/O error occurs.
+     * */
+    @Override
+    public void close() throws IOException
+    {
+        mappedRegion = null;
+        if (channel != null)
+        {
+            channel.close();
+            channel = null;
+        }
     }
 
+    /**
+     * Reads contents of the file into the given buffer.
+     * @param buffer The buffer to fill.
+     * @param begin The index of the first byte to fill in the buffer.
+     * @param length The maximum number of bytes to read.
+     * @return the length of the content actually read, which is less than {@code length} only if the end of the file
+     * is reached, or -1 if the file cannot be read.
+     * */
     @Override
-    public void close()
+    public int read(byte[] buffer, int begin, int length)
     {
+        if (mappedRegion == null)
+            return -1;
+
+        int totalRead = 0;
+        while (totalRead < length)
+        {
+            // Move to the next region if the current one is exhausted.
+            if (!mappedRegion.hasRemaining())
+            {
+                long nextRegionStart = mappedRegionStart + mappedRegion.capacity();
+                if (nextRegionStart >= fileLength)
+                    break;
+
+                try
+                {
+                    mapRegion(nextRegionStart);
+                }
+                catch (IOException e)
+                {
+                    return -1;
+                }
+            }
+
+            int readAmount = Math.min(length - totalRead, mappedRegion.remaining());
+            mappedRegion.get(buffer, begin + totalRead, readAmount);
+            totalRead += readAmount;
+        }
 
+        return totalRead;
     }
 
     /**
-     * Read contents from the given buffer.
-     *
-     * @param buffer
-     * @param begin
-     * @param length
-     * @return the length of the content actually read.
-     */
+     * Gets the length of the file in bytes.
+     * @return the length of the file in bytes, or -1 if the file is not opened.
+     * */
     @Override
-    public int read(byte[] buffer, int begin, int length)
+    public long length()
+    {
+        return (channel == null) ? -1 : fileLength;
+    }
+
+    /**
+     * Maps the region of the file starting at the specified offset.
+     * @param regionStart Offset of the first byte of the region in the file.
+     * */
+    private void mapRegion(long regionStart) throws IOException
     {
-        return 0;
+        long regionSize = Math.min(MAX_MAPPING_SIZE, fileLength - regionStart);
+        mappedRegion = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, regionSize);
+        mappedRegionStart = regionStart;
     }
 }
@@ -1,16 +1,37 @@
 package InputSystem;
 
+import java.io.*;
+
 /**
  * The {@link ICodeInput} interface provides a set of methods to retrieve contents from standard input stream or a file.
  * */
 public interface ICodeInput
 {
-    void open();
-    void close();
+    /**
+     * Opens the input source.
+     * @exception IOException If the input source cannot be opened for reading.
+     * */
+    void open() throws IOException;
 
     /**
-     * Read contents from the given buffer.
-     * @return the length of the content actually read.
+     * Closes the input source.
+     * @exception IOException If an I/O error occurs.
+     * */
+    void close() throws IOException;
+
+    /**
+     * Reads contents into the given buffer. Fewer than {@code length} bytes are read only if the end of the input is
+     * reached.
+     * @return the length of the content actually read, or -1 if an error occurs.
      * */
     int read(byte[] buffer, int begin, int length);
+
+    /**
+     * Gets the length of the input in bytes, if it is known after the input is opened.
+     * @return the length of the input in bytes, or -1 if it is unknown.
+     * */
+    default long length()
+    {
+        return -1;
+    }
 }
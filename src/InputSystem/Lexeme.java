@@ -0,0 +1,143 @@
+package InputSystem;
+
+import org.jetbrains.annotations.*;
+
+import java.nio.charset.*;
+
+/**
+ * The {@link Lexeme} class represents a lightweight (offset, length) view over a byte buffer, which is typically the
+ * input buffer of a {@link CodeReader}. No copy of the bytes is made, so a {@link Lexeme} is only valid until the
+ * underlying buffer is modified. Call {@link #toString()} to get a {@link String} that outlives the buffer.
+ * @implNote {@link #charAt(int)} and {@link #length()} work on bytes, which is exact for ASCII contents. The
+ * {@link #toString()} method decodes the bytes with UTF-8.
+ * */
+public final class Lexeme implements CharSequence
+{
+    /** The buffer containing the bytes of this lexeme. */
+    private byte[] buffer;
+
+    /** Index of the first byte of this lexeme in the buffer. */
+    private int offset;
+
+    /** Number of bytes of this lexeme. */
+    private int length;
+
+    /**
+     * Initializes a new instance of {@link Lexeme} that views nothing.
+     * */
+    public Lexeme()
+    {
+        this(null, 0, 0);
+    }
+
+    /**
+     * Initializes a new instance of {@link Lexeme} with the specified buffer, offset and length.
+     * @param buffer The buffer containing the bytes of the lexeme.
+     * @param offset Index of the first byte of the lexeme in the buffer.
+     * @param length Number of bytes of the lexeme.
+     * */
+    public Lexeme(byte[] buffer, int offset, int length)
+    {
+        set(buffer, offset, length);
+    }
+
+    /**
+     * Makes this {@link Lexeme} view another range of bytes, so that the same instance can be reused.
+     * @param buffer The buffer containing the bytes of the lexeme.
+     * @param offset Index of the first byte of the lexeme in the buffer.
+     * @param length Number of bytes of the lexeme.
+     * @return This {@link Lexeme}.
+     * */
+    @Contract("_, _, _ -> this")
+    public Lexeme set(byte[] buffer, int offset, int length)
+    {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    /**
+     * Gets the buffer containing the bytes of this lexeme.
+     * @return The buffer containing the bytes of this lexeme.
+     * */
+    public byte[] getBuffer()
+    {
+        return buffer;
+    }
+
+    /**
+     * Gets the index of the first byte of this lexeme in the buffer.
+     * @return The index of the first byte of this lexeme in the buffer.
+     * */
+    public int getOffset()
+    {
+        return offset;
+    }
+
+    /**
+     * Gets the byte at the specified index of this lexeme.
+     * @param index Index of the byte in this lexeme.
+     * @return The byte at the specified index, as an unsigned value.
+     * */
+    public int byteAt(int index)
+    {
+        return buffer[offset + index] & 0xFF;
+    }
+
+    @Override
+    public int length()
+    {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index)
+    {
+        if ((index < 0) || (index >= length))
+            throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+
+        return (char)byteAt(index);
+    }
+
+    @NotNull
+    @Override
+    public CharSequence subSequence(int start, int end)
+    {
+        if ((start < 0) || (end > length) || (start > end))
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length);
+
+        return new Lexeme(buffer, offset + start, end - start);
+    }
+
+    /**
+     * Returns a value indicating whether this lexeme consists of exactly the characters of the given ASCII string,
+     * without creating any {@link String}.
+     * @param text The ASCII string to compare with.
+     * @return true if the bytes of this lexeme equal the characters of {@code text}, otherwise, false.
+     * */
+    public boolean contentEquals(String text)
+    {
+        if (text.length() != length)
+            return false;
+
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer[offset + i] != text.charAt(i))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Decodes the bytes of this lexeme with UTF-8 and returns them as a new {@link String}.
+     * @return The text of this lexeme.
+     * */
+    @NotNull
+    @Override
+    public String toString()
+    {
+        return (length == 0) ? "" : new String(buffer, offset, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,172 @@
+package InputSystem;
+
+import java.util.*;
+
+/**
+ * The {@link LineIndex} class records the offset of the first character of every line of an input, so that the line
+ * and column of any offset are computed with a binary search only when they are needed, for example by a diagnostic,
+ * instead of being tracked character by character.
+ * <p>
+ * Offsets are byte offsets from the beginning of the input, lines and columns start from 1. Columns are counted in
+ * bytes by {@link #getColumnNumber(int)}, and in characters of the UTF-8 input by
+ * {@link #getCharacterColumnNumber(int, int)}. For the latter, the number of UTF-8 continuation bytes before each line
+ * is recorded by {@link #scan(byte[], int, int, int)}, so that the index takes an int per line whatever the input,
+ * and the caller counts the continuation bytes before the offset, for example in the bytes still in its buffer.
+ * <p/>
+ * */
+public class LineIndex
+{
+    /** The initial capacity of the index. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Offsets of the first characters of the lines, in ascending order. */
+    private int[] lineStarts;
+
+    /** Number of lines recorded. */
+    private int lineCount;
+
+    /** Numbers of the UTF-8 continuation bytes before the first characters of the lines. */
+    private int[] lineContinuationCounts;
+
+    /** Number of continuation bytes scanned. */
+    private int continuationCount;
+
+    /**
+     * Initializes a new instance of {@link LineIndex} that contains only the first line.
+     * */
+    public LineIndex()
+    {
+        lineStarts = new int[INITIAL_CAPACITY];
+        lineContinuationCounts = new int[INITIAL_CAPACITY];
+        clear();
+    }
+
+    /**
+     * Removes all lines but the first one, which starts at offset 0.
+     * */
+    public void clear()
+    {
+        lineStarts[0] = 0;
+        lineContinuationCounts[0] = 0;
+        lineCount = 1;
+        continuationCount = 0;
+    }
+
+    /**
+     * Gets the number of lines recorded.
+     * @return The number of lines recorded.
+     * */
+    public int getLineCount()
+    {
+        return lineCount;
+    }
+
+    /**
+     * Gets the number of UTF-8 continuation bytes scanned by {@link #scan(byte[], int, int, int)}.
+     * @return The number of continuation bytes scanned.
+     * */
+    public int getContinuationCount()
+    {
+        return continuationCount;
+    }
+
+    /**
+     * Records that a new line starts at the specified offset, after the continuation bytes scanned so far.
+     * @param offset Offset of the first character of the line, which must be greater than the ones recorded before.
+     * */
+    public void addLineStart(int offset)
+    {
+        if (lineCount == lineStarts.length)
+        {
+            lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+            lineContinuationCounts = Arrays.copyOf(lineContinuationCounts, lineCount * 2);
+        }
+
+        lineStarts[lineCount] = offset;
+        lineContinuationCounts[lineCount] = continuationCount;
+        lineCount++;
+    }
+
+    /**
+     * Records all lines started by the '\n' characters in the specified range of a buffer, and counts the UTF-8
+     * continuation bytes. Runs of ASCII bytes without '\n' are skipped 8 bytes at a time.
+     * @param buffer The buffer containing a part of the input.
+     * @param begin Index of the first byte to scan in the buffer.
+     * @param end Index after the last byte to scan in the buffer.
+     * @param bufferOffset Offset in the input of the first byte of the buffer.
+     * */
+    public void scan(byte[] buffer, int begin, int end, int bufferOffset)
+    {
+        int i = begin;
+        for (;;)
+        {
+            i = Utf8Decoder.skipAsciiTo(buffer, i, end, (byte)'\n');
+            if (i == end)
+                return;
+
+            if (buffer[i] == '\n')
+                addLineStart(bufferOffset + i + 1);
+            else if ((buffer[i] & 0xC0) == 0x80)
+                continuationCount++;
+            i++;
+        }
+    }
+
+    /**
+     * Gets the offset of the first character of the specified line.
+     * @param lineNumber The line number, starting from 1.
+     * @return The offset of the first character of the line.
+     * @exception IndexOutOfBoundsException If the line is not recorded.
+     * */
+    public int getLineStart(int lineNumber)
+    {
+        if ((lineNumber < 1) || (lineNumber > lineCount))
+            throw new IndexOutOfBoundsException("Line " + lineNumber + " is not recorded.");
+
+        return lineStarts[lineNumber - 1];
+    }
+
+    /**
+     * Gets the number of the line containing the specified offset.
+     * @param offset Offset of a character in the input.
+     * @return The number of the line containing the offset, starting from 1.
+     * */
+    public int getLineNumber(int offset)
+    {
+        // Find the last line starting at or before the offset.
+        int low = 0;
+        int high = lineCount - 1;
+        while (low < high)
+        {
+            int middle = (low + high + 1) >>> 1;
+            if (lineStarts[middle] <= offset)
+                low = middle;
+            else
+                high = middle - 1;
+        }
+
+        return low + 1;
+    }
+
+    /**
+     * Gets the column of the specified offset in its line, counted in bytes.
+     * @param offset Offset of a character in the input.
+     * @return The column of the offset, starting from 1.
+     * */
+    public int getColumnNumber(int offset)
+    {
+        return offset - lineStarts[getLineNumber(offset) - 1] + 1;
+    }
+
+    /**
+     * Gets the column of the specified offset in its line, counted in characters of the UTF-8 input.
+     * @param offset Offset of the first byte of a character in the input.
+     * @param continuationCount Number of the UTF-8 continuation bytes before the offset in the input.
+     * @return The column of the offset, starting from 1.
+     * */
+    public int getCharacterColumnNumber(int offset, int continuationCount)
+    {
+        int line = getLineNumber(offset) - 1;
+        return offset - lineStarts[line] - (continuationCount - lineContinuationCounts[line]) + 1;
+    }
+}
@@ -0,0 +1,236 @@
+package InputSystem;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@link ReadAheadCodeInput} class decorates an {@link ICodeInput} with asynchronous read ahead. A background thread
+ * fills a ring of segments from the decorated input while the {@link CodeReader} consumes the segment filled before, so
+ * that I/O overlaps with lexing instead of being serialized with it.
+ * @implNote The {@link CodeReader} still copies from the segments into its own buffer, so its look ahead and lexeme
+ * length guarantees do not depend on the read ahead.
+ * */
+public class ReadAheadCodeInput implements ICodeInput
+{
+    /** The default size of a segment in bytes. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    /** The default number of segments, 2 for double buffering. */
+    public static final int DEFAULT_SEGMENT_COUNT = 2;
+
+    /**
+     * The {@link Segment} class represents a part of the input read by the background thread.
+     * */
+    private static final class Segment
+    {
+        /** Contents of this segment. */
+        private final byte[] contents;
+
+        /** Number of valid bytes in {@link #contents}, or -1 if an error occurs when this segment is filled. */
+        private int length;
+
+        private Segment(int size)
+        {
+            contents = new byte[size];
+            length = 0;
+        }
+    }
+
+    /** The decorated input. */
+    private final ICodeInput codeInput;
+
+    /** Size of a segment in bytes. */
+    private final int segmentSize;
+
+    /** Number of segments in the ring. */
+    private final int segmentCount;
+
+    /** Segments filled by the background thread, in input order. */
+    private BlockingQueue<Segment> filledSegments;
+
+    /** Segments that can be filled by the background thread. */
+    private BlockingQueue<Segment> freeSegments;
+
+    /** The segment currently consumed. */
+    private Segment currentSegment;
+
+    /** Index of the next byte to consume in the current segment. */
+    private int currentPosition;
+
+    /** The background thread that fills the segments. */
+    private Thread readerThread;
+
+    /**
+     * Initializes a new instance of {@link ReadAheadCodeInput} that decorates the specified input with the default
+     * segment size and count.
+     * @param codeInput The input to read ahead.
+     * */
+    public ReadAheadCodeInput(ICodeInput codeInput)
+    {
+        this(codeInput, DEFAULT_SEGMENT_SIZE, DEFAULT_SEGMENT_COUNT);
+    }
+
+    /**
+     * Initializes a new instance of {@link ReadAheadCodeInput} that decorates the specified input.
+     * @param codeInput The input to read ahead.
+     * @param segmentSize Size of a segment in bytes.
+     * @param segmentCount Number of segments in the ring, which must be at least 2.
+     * @exception NullPointerException If {@code codeInput} is null.
+     * @exception IllegalArgumentException If {@code segmentSize} is not positive or {@code segmentCount} is less than 2.
+     * */
+    public ReadAheadCodeInput(ICodeInput codeInput, int segmentSize, int segmentCount)
+    {
+        if (codeInput == null)
+            throw new NullPointerException("Parameter \"codeInput\" cannot be null.");
+        if (segmentSize <= 0)
+            throw new IllegalArgumentException("Segment size must be positive.");
+        if (segmentCount < 2)
+            throw new IllegalArgumentException("There must be at least 2 segments.");
+
+        this.codeInput = codeInput;
+        this.segmentSize = segmentSize;
+        this.segmentCount = segmentCount;
+        readerThread = null;
+    }
+
+    /**
+     * Opens the decorated input and starts the background thread.
+     * @exception IOException If the decorated input cannot be opened for reading.
+     * */
+    @Override
+    public void open() throws IOException
+    {
+        codeInput.open();
+
+        filledSegments = new ArrayBlockingQueue<>(segmentCount);
+        freeSegments = new ArrayBlockingQueue<>(segmentCount);
+        for (int i = 0; i < segmentCount; i++)
+            freeSegments.add(new Segment(segmentSize));
+        currentSegment = null;
+        currentPosition = 0;
+
+        readerThread = new Thread(this::fillSegments, "CodeReader read ahead");
+        readerThread.setDaemon(true);
+        readerThread.start();
+    }
+
+    /**
+     * Stops the background thread and closes the decorated input.
+     * @exception IOException If an I/O error occurs.
+     * */
+    @Override
+    public void close() throws IOException
+    {
+        if (readerThread != null)
+        {
+            readerThread.interrupt();
+            try
+            {
+                readerThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            readerThread = null;
+        }
+
+        codeInput.close();
+    }
+
+    /**
+     * Reads contents into the given buffer from the segments filled by the background thread, waiting for the next
+     * segment if necessary.
+     * @return the length of the content actually read, or -1 if an error occurs.
+     * */
+    @Override
+    public int read(byte[] buffer, int begin, int length)
+    {
+        int totalRead = 0;
+        while (totalRead < length)
+        {
+            if ((currentSegment == null) || (currentPosition >= currentSegment.length))
+            {
+                // A segment shorter than the others is the last one.
+                if ((currentSegment != null) && (currentSegment.length < segmentSize))
+                    break;
+
+                if (!nextSegment())
+                    return -1;
+                continue;
+            }
+
+            int readAmount = Math.min(length - totalRead, currentSegment.length - currentPosition);
+            System.arraycopy(currentSegment.contents, currentPosition, buffer, begin + totalRead, readAmount);
+            currentPosition += readAmount;
+            totalRead += readAmount;
+        }
+
+        return totalRead;
+    }
+
+    /**
+     * Gets the length of the decorated input in bytes.
+     * @return the length of the decorated input in bytes, or -1 if it is unknown.
+     * */
+    @Override
+    public long length()
+    {
+        return codeInput.length();
+    }
+
+    /**
+     * Returns the current segment to the background thread and takes the next filled one.
+     * @return true if the next segment is taken, false if an error occurs.
+     * */
+    private boolean nextSegment()
+    {
+        if (currentSegment != null)
+            freeSegments.add(currentSegment);
+
+        try
+        {
+            currentSegment = filledSegments.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            currentSegment = null;
+            return false;
+        }
+
+        currentPosition = 0;
+        return currentSegment.length >= 0;
+    }
+
+    /**
+     * Body of the background thread: fills free segments from the decorated input until the input ends.
+     * */
+    private void fillSegments()
+    {
+        try
+        {
+            for (;;)
+            {
+                Segment segment = freeSegments.take();
+                try
+                {
+                    segment.length = codeInput.read(segment.contents, 0, segmentSize);
+                }
+                catch (RuntimeException e)
+                {
+                    // Report the failure to the consumer instead of leaving it waiting.
+                    segment.length = -1;
+                }
+                filledSegments.put(segment);
+
+                if (segment.length < segmentSize)
+                    return;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // The input is closed before it is read completely.
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package InputSystem;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link StdinBenchmark} class measures how fast the standard input stream can be read by different methods. Since
+ * the standard input stream can be read only once, each method runs in its own process, for example:
+ * <p>
+ * java InputSystem.StdinBenchmark generate 4 | java InputSystem.StdinBenchmark channel
+ * <p/>
+ * Methods: "scanner" ({@link Scanner#nextLine()}), "stream" ({@link InputStream#read(byte[])} on {@link System#in}),
+ * "channel" ({@link StdinCodeInput}) and "reader" ({@link CodeReader#nextChar()} over {@link StdinCodeInput}). The
+ * "generate" mode writes the given number of GB of expression statements to the standard output stream.
+ * */
+public final class StdinBenchmark
+{
+    /** Size of the buffer used by the "stream" and "channel" methods. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private StdinBenchmark(){}
+
+    /**
+     * Writes the specified number of GB of expression statements to the standard output stream.
+     * */
+    private static void generate(long gigabytes) throws IOException
+    {
+        byte[] block = new byte[BUFFER_SIZE * 16];
+        int length = 0;
+        for (int line = 0; ; line++)
+        {
+            byte[] statement = ("a" + line + " + " + (line % 97) + " * (b" + (line % 13) + " + 42);\n").getBytes();
+            if (length + statement.length > block.length)
+                break;
+
+            System.arraycopy(statement, 0, block, length, statement.length);
+            length += statement.length;
+        }
+
+        OutputStream output = new FileOutputStream(FileDescriptor.out);
+        long total = gigabytes * 1024 * 1024 * 1024;
+        for (long written = 0; written < total; written += length)
+            output.write(block, 0, length);
+        output.flush();
+    }
+
+    /**
+     * Counts the lines with {@link Scanner#nextLine()}.
+     * @return The number of lines.
+     * */
+    private static long readWithScanner()
+    {
+        Scanner input = new Scanner(System.in);
+        long lineCount = 0;
+        while (input.hasNextLine())
+        {
+            input.nextLine();
+            lineCount++;
+        }
+
+        return lineCount;
+    }
+
+    /**
+     * Counts the lines with {@link InputStream#read(byte[])}.
+     * @return The number of lines.
+     * */
+    private static long readWithStream() throws IOException
+    {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long lineCount = 0;
+        for (int length = System.in.read(buffer); length >= 0; length = System.in.read(buffer))
+            lineCount += countLines(buffer, length);
+
+        return lineCount;
+    }
+
+    /**
+     * Counts the lines with {@link StdinCodeInput}.
+     * @return The number of lines.
+     * */
+    private static long readWithChannel() throws IOException
+    {
+        StdinCodeInput input = new StdinCodeInput();
+        input.open();
+
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long lineCount = 0;
+        for (int length = input.read(buffer, 0, BUFFER_SIZE); length > 0; length = input.read(buffer, 0, BUFFER_SIZE))
+            lineCount += countLines(buffer, length);
+
+        input.close();
+        return lineCount;
+    }
+
+    /**
+     * Counts the lines with {@link CodeReader#nextChar()} over {@link StdinCodeInput}.
+     * @return The number of lines.
+     * */
+    private static long readWithCodeReader() throws IOException
+    {
+        CodeReader reader = new CodeReader();
+        reader.newStdin();
+
+        long lineCount = 0;
+        for (int c = reader.nextChar(); c > 0; c = reader.nextChar())
+        {
+            // Keep the current lexeme short so that the buffer can always be flushed.
+            reader.moveNext();
+            reader.markStart();
+            if (c == '\n')
+                lineCount++;
+        }
+
+        reader.close();
+        return lineCount;
+    }
+
+    private static long countLines(byte[] buffer, int length)
+    {
+        long lineCount = 0;
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer[i] == '\n')
+                lineCount++;
+        }
+
+        return lineCount;
+    }
+
+    /**
+     * Runs the benchmark.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String method = (args.length > 0) ? args[0] : "channel";
+        if (method.equals("generate"))
+        {
+            generate((args.length > 1) ? Long.parseLong(args[1]) : 1);
+            return;
+        }
+
+        long start = System.nanoTime();
+        long lineCount;
+        switch (method)
+        {
+            case "scanner":
+                lineCount = readWithScanner();
+                break;
+            case "stream":
+                lineCount = readWithStream();
+                break;
+            case "channel":
+                lineCount = readWithChannel();
+                break;
+            case "reader":
+                lineCount = readWithCodeReader();
+                break;
+            default:
+                System.err.println("Unknown method: " + method + ".");
+                return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.err.printf("%s: %d lines in %.2f s.%n", method, lineCount, seconds);
+    }
+}
@@ -1,33 +1,34 @@
 package InputSystem;
 
-public class StdinCodeInput implements ICodeInput
+import java.io.*;
+import java.nio.channels.*;
+
+/**
+ * The {@link StdinCodeInput} class reads source code from the standard input stream through its {@link FileChannel},
+ * so that the compiler can run as a filter in a pipeline.
+ * */
+public class StdinCodeInput extends ChannelCodeInput
 {
     public StdinCodeInput()
-    {}
-
-    @Override
-    public void open()
     {
-
+        super(DEFAULT_BUFFER_SIZE);
     }
 
+    /**
+     * Gets the channel of the standard input stream.
+     * @return The channel of the standard input stream.
+     * */
     @Override
-    public void close()
+    protected ReadableByteChannel openChannel()
     {
-
+        return new FileInputStream(FileDescriptor.in).getChannel();
     }
 
     /**
-     * Read contents from the given buffer.
-     *
-     * @param buffer
-     * @param begin
-     * @param length
-     * @return the length of the content actually read.
-     */
+     * Leaves the standard input stream open, since it is not owned by this input.
+     * */
     @Override
-    public int read(byte[] buffer, int begin, int length)
+    protected void closeChannel(ReadableByteChannel channel)
     {
-        return 0;
     }
 }
@@ -0,0 +1,282 @@
+package InputSystem;
+
+import java.lang.invoke.*;
+import java.nio.*;
+
+/**
+ * The {@link Utf8Decoder} class decodes UTF-8 bytes. Runs of ASCII bytes, which are most of the bytes of a source, are
+ * processed 8 bytes at a time, and only the other bytes go through a full UTF-8 decoder.
+ * <p>
+ * Malformed sequences, including sequences cut by the end of the range to decode, are decoded as one
+ * {@link #REPLACEMENT_CHARACTER} per byte, so that the decoder always moves forward, and byte offsets are never lost:
+ * {@link #getLength()} returns the number of bytes of the last character decoded.
+ * <p/>
+ * */
+public final class Utf8Decoder
+{
+    /** The character decoded from a malformed sequence. */
+    public static final int REPLACEMENT_CHARACTER = 0xFFFD;
+
+    /** Reads 8 bytes of a byte array as a long. */
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** The high bits of the 8 bytes of a long, which are all 0 if the bytes are ASCII. */
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /** The low bits of the 8 bytes of a long. */
+    private static final long LOW_BITS = 0x0101010101010101L;
+
+    /** Number of bytes of the last character decoded, or of the bytes decoded by a bulk decoding. */
+    private int length;
+
+    /**
+     * Gets the number of bytes of the last character decoded by {@link #decode(byte[], int, int)}, or the number of
+     * bytes consumed by {@link #decode(byte[], int, int, char[], int)}.
+     * @return The number of bytes decoded.
+     * */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Returns the index of the first byte which is not ASCII in the specified range.
+     * @param buffer The buffer to scan.
+     * @param begin Index of the first byte to scan.
+     * @param end Index after the last byte to scan.
+     * @return The index of the first byte which is not ASCII, or {@code end} if all the bytes are ASCII.
+     * */
+    public static int skipAscii(byte[] buffer, int begin, int end)
+    {
+        int i = begin;
+        for (; i + Long.BYTES <= end; i += Long.BYTES)
+        {
+            if (((long)LONG_VIEW.get(buffer, i) & HIGH_BITS) != 0)
+                break;
+        }
+
+        for (; (i < end) && (buffer[i] >= 0); i++)
+            ;
+
+        return i;
+    }
+
+    /**
+     * Returns the index of the first byte which is not ASCII or equals the specified ASCII byte in the specified range.
+     * @param buffer The buffer to scan.
+     * @param begin Index of the first byte to scan.
+     * @param end Index after the last byte to scan.
+     * @param stop The ASCII byte to stop at.
+     * @return The index of the first byte which is not ASCII or equals {@code stop}, or {@code end} if there is none.
+     * */
+    public static int skipAsciiTo(byte[] buffer, int begin, int end, byte stop)
+    {
+        long stops = (stop & 0xFFL) * LOW_BITS;
+        int i = begin;
+        for (; i + Long.BYTES <= end; i += Long.BYTES)
+        {
+            // A byte of x is 0 where the byte of the word equals stop.
+            long word = (long)LONG_VIEW.get(buffer, i);
+            long x = word ^ stops;
+            if (((word | ((x - LOW_BITS) & ~x)) & HIGH_BITS) != 0)
+                break;
+        }
+
+        for (; (i < end) && (buffer[i] >= 0) && (buffer[i] != stop); i++)
+            ;
+
+        return i;
+    }
+
+    /**
+     * Counts the UTF-8 continuation bytes, 10xxxxxx, in the specified range. Runs of ASCII bytes are skipped 8 bytes at
+     * a time.
+     * @param buffer The buffer containing the bytes.
+     * @param begin Index of the first byte.
+     * @param end Index after the last byte.
+     * @return The number of continuation bytes.
+     * */
+    public static int countContinuationBytes(byte[] buffer, int begin, int end)
+    {
+        int count = 0;
+        for (int i = skipAscii(buffer, begin, end); i < end; i = skipAscii(buffer, i + 1, end))
+        {
+            if ((buffer[i] & 0xC0) == 0x80)
+                count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Counts the characters (code points) encoded in the specified range. A malformed byte is counted as 1 character,
+     * as it is decoded.
+     * @param buffer The buffer containing the bytes.
+     * @param begin Index of the first byte.
+     * @param end Index after the last byte.
+     * @return The number of characters.
+     * */
+    public int countCharacters(byte[] buffer, int begin, int end)
+    {
+        int count = 0;
+        for (int i = begin; i < end; )
+        {
+            int asciiEnd = skipAscii(buffer, i, end);
+            count += asciiEnd - i;
+            if (asciiEnd == end)
+                break;
+
+            decode(buffer, asciiEnd, end);
+            count++;
+            i = asciiEnd + length;
+        }
+
+        return count;
+    }
+
+    /**
+     * Decodes the character at the specified index, and sets the number of its bytes, returned by {@link #getLength()}.
+     * @param buffer The buffer containing the bytes.
+     * @param offset Index of the first byte of the character.
+     * @param end Index after the last byte that can be decoded.
+     * @return The code point of the character, or {@link #REPLACEMENT_CHARACTER} if the byte at {@code offset} does not
+     * start a well-formed sequence ending before {@code end}.
+     * */
+    public int decode(byte[] buffer, int offset, int end)
+    {
+        int lead = buffer[offset] & 0xFF;
+        length = 1;
+        if (lead < 0x80)
+            return lead;
+
+        // The number of bytes, the bits of the lead byte, and the range of the second byte (Unicode table 3-7).
+        int sequenceLength;
+        int codePoint;
+        int secondMin = 0x80;
+        int secondMax = 0xBF;
+        if ((lead >= 0xC2) && (lead <= 0xDF))
+        {
+            sequenceLength = 2;
+            codePoint = lead & 0x1F;
+        }
+        else if ((lead >= 0xE0) && (lead <= 0xEF))
+        {
+            sequenceLength = 3;
+            codePoint = lead & 0x0F;
+            if (lead == 0xE0)
+                secondMin = 0xA0;
+            else if (lead == 0xED)
+                secondMax = 0x9F;
+        }
+        else if ((lead >= 0xF0) && (lead <= 0xF4))
+        {
+            sequenceLength = 4;
+            codePoint = lead & 0x07;
+            if (lead == 0xF0)
+                secondMin = 0x90;
+            else if (lead == 0xF4)
+                secondMax = 0x8F;
+        }
+        else
+            return REPLACEMENT_CHARACTER;
+
+        if (offset + sequenceLength > end)
+            return REPLACEMENT_CHARACTER;
+
+        int second = buffer[offset + 1] & 0xFF;
+        if ((second < secondMin) || (second > secondMax))
+            return REPLACEMENT_CHARACTER;
+        codePoint = (codePoint << 6) | (second & 0x3F);
+
+        for (int i = 2; i < sequenceLength; i++)
+        {
+            int next = buffer[offset + i] & 0xFF;
+            if ((next & 0xC0) != 0x80)
+                return REPLACEMENT_CHARACTER;
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+
+        length = sequenceLength;
+        return codePoint;
+    }
+
+    /**
+     * Decodes the bytes in the specified range into UTF-16 characters. A sequence cut by the end of the range is not
+     * decoded, so that it can be decoded with the next bytes, and the number of bytes consumed is returned by
+     * {@link #getLength()}.
+     * @param source The buffer containing the bytes.
+     * @param begin Index of the first byte to decode.
+     * @param end Index after the last byte to decode.
+     * @param destination The buffer to store the characters, which must hold at least {@code end - begin} characters.
+     * @param destinationBegin Index in {@code destination} of the first character.
+     * @return The number of characters stored.
+     * */
+    public int decode(byte[] source, int begin, int end, char[] destination, int destinationBegin)
+    {
+        int i = begin;
+        int j = destinationBegin;
+        while (i < end)
+        {
+            // Copy a run of ASCII bytes, 8 bytes at a time.
+            for (; i + Long.BYTES <= end; i += Long.BYTES, j += Long.BYTES)
+            {
+                if (((long)LONG_VIEW.get(source, i) & HIGH_BITS) != 0)
+                    break;
+
+                for (int k = 0; k < Long.BYTES; k++)
+                    destination[j + k] = (char)source[i + k];
+            }
+            for (; (i < end) && (source[i] >= 0); i++, j++)
+                destination[j] = (char)source[i];
+            if (i == end)
+                break;
+
+            // Leave a cut sequence to the next call.
+            int lead = source[i] & 0xFF;
+            int sequenceLength = (lead >= 0xF0) ? 4 : (lead >= 0xE0) ? 3 : 2;
+            if ((lead >= 0xC2) && (lead <= 0xF4) && (i + sequenceLength > end) && isPrefix(source, i, end))
+                break;
+
+            int codePoint = decode(source, i, end);
+            i += length;
+            j += Character.toChars(codePoint, destination, j);
+        }
+
+        length = i - begin;
+        return j - destinationBegin;
+    }
+
+    /**
+     * Returns a value indicating whether the bytes after the lead byte at the specified index are continuation bytes.
+     * */
+    private static boolean isPrefix(byte[] buffer, int offset, int end)
+    {
+        for (int i = offset + 1; i < end; i++)
+        {
+            if ((buffer[i] & 0xC0) != 0x80)
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Decodes all the bytes in the specified range into a {@link String}.
+     * @param buffer The buffer containing the bytes.
+     * @param begin Index of the first byte to decode.
+     * @param end Index after the last byte to decode.
+     * @return The decoded {@link String}.
+     * */
+    public static String toString(byte[] buffer, int begin, int end)
+    {
+        Utf8Decoder decoder = new Utf8Decoder();
+        char[] characters = new char[end - begin];
+        int count = decoder.decode(buffer, begin, end, characters, 0);
+
+        // Decode the last cut sequence.
+        for (int i = begin + decoder.length; i < end; i++)
+            characters[count++] = (char)REPLACEMENT_CHARACTER;
+
+        return new String(characters, 0, count);
+    }
+}
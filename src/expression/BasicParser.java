@@ -45,7 +45,7 @@ public class BasicParser
             System.out.println("The statement is " + (isLegalStatement ? "legal" : "illegal"));
             isLegalStatement = true;
         }
-        else if (lexer.match(TokenType.UNKNOWN_SYMBOL) ||
+        else if (lexer.matchUnknownSymbol() ||
                 lexer.match(TokenType.MINUS) ||
                 lexer.match(TokenType.DIVIDE))
         {
@@ -90,7 +90,7 @@ public class BasicParser
             term();
             addExpression();
         }
-        else if (lexer.match(TokenType.UNKNOWN_SYMBOL))
+        else if (lexer.matchUnknownSymbol())
         {
             isLegalStatement = false;
             System.out.println("Line " + lexer.getLineNumber() + ": unknown symbol: " + lexer.getSymbolText());
@@ -136,12 +136,12 @@ public class BasicParser
     /**
      * Parses a "factor" with following production.
      * <p>
-     * factor -> NUMBER_OR_ID | ( expression )
+     * factor -> NUMBER | IDENTIFIER | ( expression )
      * <p/>
      * */
     private void factor()
     {
-        if (lexer.match(TokenType.NUMBER_OR_IDENTIFIER))
+        if (lexer.match(TokenType.NUMBER) || lexer.match(TokenType.IDENTIFIER))
             lexer.lookNextToken();
         else if (lexer.match(TokenType.LEFT_PARENTHESES))
         {
@@ -0,0 +1,810 @@
+package expression;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * The {@link BytecodeGenerator} class compiles the statements of a {@link SyntaxTree} to a Java class file, so that they
+ * run as JVM bytecode instead of being printed as the pseudo assembly of {@link CodeGenerator}. The values are
+ * {@code long}s, with the wrapping arithmetic of the JVM, and a statement is compiled if its expression is made of
+ * integer constants, identifiers, and the operators of C on them: the arithmetic, bitwise, shift, relational, equality
+ * and logical operators, "?:", the comma, the assignments, "++" and "--". A division by zero throws an
+ * {@link ArithmeticException}, and a shift count is taken modulo 64.
+ * <p>
+ * The generated class has a {@code public static long} field for each identifier, so that the identifiers keep their
+ * values from a statement to the next, and can be set before and read after the statements run. The statements are
+ * compiled to batches of private methods of at most {@link #MAX_BATCH_LENGTH} bytes of code, since HotSpot does not
+ * compile a larger method, called in order by the {@code public static long[] run()} method, which returns the value of
+ * each compiled statement. A {@code main} method prints the values of {@code run()}.
+ * {@link #generateFunction(String, int, Class, String...)} compiles the statements to a class implementing a functional
+ * interface instead, whose identifiers are the locals of its method.
+ * <p>
+ * The statements which the parser reports as errors are skipped, as well as the statements using an operator which is
+ * not supported and the expressions nested more than 1024 levels deep, which are reported to the specified stream.
+ * <p/>
+ * */
+public class BytecodeGenerator
+{
+    /** The maximum length of the code of a batch, which is the largest method HotSpot compiles. */
+    public static final int MAX_BATCH_LENGTH = 8000;
+
+    /** The maximum length of the code of a node of an expression. */
+    private static final int MAX_NODE_LENGTH = 12;
+
+    /** The maximum depth of an expression, since the expressions are compiled by recursion. */
+    private static final int MAX_DEPTH = 1024;
+
+    /** The maximum length of the code storing the value of a statement in the results. */
+    private static final int MAX_STATEMENT_LENGTH = 8;
+
+    /** The descriptor of a batch method. */
+    private static final String BATCH_DESCRIPTOR = "([J)V";
+
+    /** The tokens the tree is parsed from. */
+    private final TokenBuffer tokens;
+
+    /** The tree of the statements. */
+    private final SyntaxTree tree;
+
+    /** The stream to write the diagnostics to. */
+    private final PrintStream out;
+
+    /** The identifiers of the statements. */
+    private final SymbolTable symbols;
+
+    /** The literal converting the numbers. */
+    private final NumberLiteral number;
+
+    /** The class being generated. */
+    private ClassWriter classWriter;
+
+    /** The code of the current method. */
+    private CodeWriter code;
+
+    /** The fields added for the identifiers, indexed by the ids of the identifiers. */
+    private boolean[] hasFields;
+
+    /** The slots of the locals of the identifiers indexed by their ids, -1 for an identifier without local, or null if
+     * the identifiers are fields. */
+    private int[] identifierSlots;
+
+    /** The nodes to check by {@link #measure(int)}. */
+    private int[] pendingNodes;
+
+    /** The depths of the nodes to check by {@link #measure(int)}. */
+    private int[] pendingDepths;
+
+    /**
+     * Initializes a new instance of {@link BytecodeGenerator}.
+     * @param tokens The tokens the tree is parsed from.
+     * @param tree The tree of the statements.
+     * @param out The stream to write the diagnostics to.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public BytecodeGenerator(TokenBuffer tokens, SyntaxTree tree, PrintStream out)
+    {
+        if ((tokens == null) || (tree == null) || (out == null))
+            throw new NullPointerException("Tokens, tree and output stream cannot be null.");
+
+        this.tokens = tokens;
+        this.tree = tree;
+        this.out = out;
+        symbols = new SymbolTable();
+        number = new NumberLiteral();
+        pendingNodes = new int[64];
+        pendingDepths = new int[64];
+    }
+
+    /**
+     * Compiles the statements of a {@link NodeKind#STATEMENTS} node to a class.
+     * @param className The internal name of the class, such as {@code "Program"}.
+     * @param root The handle of the {@link NodeKind#STATEMENTS} node.
+     * @return The class file.
+     * @exception NullPointerException If {@code className} is null.
+     * @exception IllegalArgumentException If {@code root} is not a {@link NodeKind#STATEMENTS} node.
+     * */
+    public byte[] generate(String className, int root)
+    {
+        if (tree.getKind(root) != NodeKind.STATEMENTS)
+            throw new IllegalArgumentException("The root must be a statements node.");
+
+        classWriter = new ClassWriter(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_FINAL, className, "java/lang/Object");
+        symbols.clear();
+        hasFields = new boolean[16];
+        identifierSlots = null;
+
+        // Pack the statements into batches.
+        int resultCount = 0;
+        int batchCount = 0;
+        code = null;
+        for (int i = 0; i < tree.getChildCount(root); i++)
+        {
+            int statement = tree.getChild(root, i);
+            if (tree.getKind(statement) != NodeKind.STATEMENT)
+                continue;
+
+            int expression = tree.getChild(statement, 0);
+            int nodeCount = measure(expression);
+            if (nodeCount < 0)
+                continue;
+
+            int maxLength = nodeCount * MAX_NODE_LENGTH + MAX_STATEMENT_LENGTH;
+            if ((code == null) || (code.getLength() + maxLength > MAX_BATCH_LENGTH))
+            {
+                if (code != null)
+                    code.insn(CodeWriter.RETURN);
+                if (maxLength > CodeWriter.MAX_CODE_LENGTH)
+                {
+                    out.println("Line: " + tokens.getLine(tree.getToken(statement)) + ", the expression is too complicated.");
+                    code = null;
+                    continue;
+                }
+
+                code = classWriter.addMethod(ClassWriter.ACC_PRIVATE | ClassWriter.ACC_STATIC, "batch" + batchCount++,
+                                             BATCH_DESCRIPTOR);
+            }
+
+            // results[resultCount] = expression;
+            code.load(0);
+            code.pushInt(resultCount++);
+            value(expression);
+            code.insn(CodeWriter.LASTORE);
+        }
+        if (code != null)
+            code.insn(CodeWriter.RETURN);
+
+        writeRun(className, resultCount, batchCount);
+        writeMain(className);
+        return classWriter.toByteArray();
+    }
+
+    /**
+     * Compiles the statements of a {@link NodeKind#STATEMENTS} node to a class implementing a functional interface,
+     * whose method returns the value of the last statement. The identifiers are locals of the method: the parameters
+     * are the operands of a {@link LongBinaryOperator}, or the elements of the array of a {@link ToLongFunction} in the
+     * order of {@code parameters}, and the other identifiers start at 0. The class has a public constructor without
+     * parameters.
+     * @param className The internal name of the class.
+     * @param root The handle of the {@link NodeKind#STATEMENTS} node.
+     * @param functionInterface {@link LongBinaryOperator} or {@link ToLongFunction}, whose argument is a
+     * {@code long[]}.
+     * @param parameters The names of the parameters, 2 for a {@link LongBinaryOperator}.
+     * @return The class file.
+     * @exception NullPointerException If an argument is null.
+     * @exception IllegalArgumentException If an argument is not valid, or if a statement cannot be compiled, which is
+     * reported to the stream of the diagnostics.
+     * */
+    public byte[] generateFunction(String className, int root, Class<?> functionInterface, String... parameters)
+    {
+        if ((functionInterface == null) || (parameters == null))
+            throw new NullPointerException("Function interface and parameters cannot be null.");
+        if (tree.getKind(root) != NodeKind.STATEMENTS)
+            throw new IllegalArgumentException("The root must be a statements node.");
+        if (tree.getChildCount(root) == 0)
+            throw new IllegalArgumentException("There is no statement.");
+
+        boolean isBinary = (functionInterface == LongBinaryOperator.class);
+        if (!isBinary && (functionInterface != ToLongFunction.class))
+            throw new IllegalArgumentException("Unsupported function interface: " + functionInterface.getName() + ".");
+        if (isBinary && (parameters.length != 2))
+            throw new IllegalArgumentException("A LongBinaryOperator has 2 parameters.");
+
+        classWriter = new ClassWriter(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_FINAL, className, "java/lang/Object",
+                                      functionInterface.getName().replace('.', '/'));
+        symbols.clear();
+        identifierSlots = new int[Math.max(16, parameters.length)];
+        Arrays.fill(identifierSlots, -1);
+        writeConstructor();
+
+        // Copy the parameters to their locals.
+        code = classWriter.addMethod(ClassWriter.ACC_PUBLIC, "applyAsLong", isBinary ? "(JJ)J" : "(Ljava/lang/Object;)J");
+        int array = -1;
+        if (!isBinary)
+        {
+            array = code.newLocal(code.objectType("[J"));
+            code.load(1);
+            code.typeInsn(CodeWriter.CHECKCAST, "[J");
+            code.store(array);
+        }
+        for (int i = 0; i < parameters.length; i++)
+        {
+            int id = symbols.intern(parameters[i]);
+            if (identifierSlots[id] >= 0)
+                throw new IllegalArgumentException("Duplicate parameter: " + parameters[i] + ".");
+
+            if (isBinary)
+                identifierSlots[id] = 1 + i * 2;
+            else
+            {
+                identifierSlots[id] = code.newLocal(CodeWriter.LONG);
+                code.load(array);
+                code.pushInt(i);
+                code.insn(CodeWriter.LALOAD);
+                code.store(identifierSlots[id]);
+            }
+        }
+
+        // Check all the statements first, which initializes the locals of the other identifiers before any branch.
+        int statementCount = tree.getChildCount(root);
+        for (int i = 0; i < statementCount; i++)
+        {
+            int statement = tree.getChild(root, i);
+            if ((tree.getKind(statement) != NodeKind.STATEMENT) || (measure(tree.getChild(statement, 0)) < 0))
+                throw new IllegalArgumentException("The statement at line " + tokens.getLine(tree.getToken(statement)) +
+                                                   " cannot be compiled.");
+        }
+
+        for (int i = 0; i < statementCount; i++)
+        {
+            value(tree.getChild(tree.getChild(root, i), 0));
+            code.insn((i < statementCount - 1) ? CodeWriter.POP2 : CodeWriter.LRETURN);
+        }
+        return classWriter.toByteArray();
+    }
+
+    /**
+     * Writes the public constructor without parameters.
+     * */
+    private void writeConstructor()
+    {
+        code = classWriter.addMethod(ClassWriter.ACC_PUBLIC, "<init>", "()V");
+        code.load(0);
+        code.invoke(CodeWriter.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+        code.insn(CodeWriter.RETURN);
+    }
+
+    /**
+     * Writes the {@code run} method, which calls the batches with the array of the results.
+     * */
+    private void writeRun(String className, int resultCount, int batchCount)
+    {
+        code = classWriter.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "run", "()[J");
+        int results = code.newLocal(code.objectType("[J"));
+        code.pushInt(resultCount);
+        code.newLongArray();
+        code.store(results);
+        for (int i = 0; i < batchCount; i++)
+        {
+            code.load(results);
+            code.invoke(CodeWriter.INVOKESTATIC, className, "batch" + i, BATCH_DESCRIPTOR);
+        }
+        code.load(results);
+        code.insn(CodeWriter.ARETURN);
+    }
+
+    /**
+     * Writes the {@code main} method, which prints the values of the statements.
+     * */
+    private void writeMain(String className)
+    {
+        code = classWriter.addMethod(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, "main", "([Ljava/lang/String;)V");
+        int results = code.newLocal(code.objectType("[J"));
+        int index = code.newLocal(CodeWriter.INTEGER);
+        code.invoke(CodeWriter.INVOKESTATIC, className, "run", "()[J");
+        code.store(results);
+        code.pushInt(0);
+        code.store(index);
+
+        // for (int i = 0; i < results.length; i++) System.out.println(results[i]);
+        CodeWriter.Label condition = new CodeWriter.Label();
+        CodeWriter.Label end = new CodeWriter.Label();
+        code.mark(condition);
+        code.load(index);
+        code.load(results);
+        code.insn(CodeWriter.ARRAYLENGTH);
+        code.branch(CodeWriter.IF_ICMPGE, end);
+        code.field(CodeWriter.GETSTATIC, "java/lang/System", "out", "Ljava/io/PrintStream;");
+        code.load(results);
+        code.load(index);
+        code.insn(CodeWriter.LALOAD);
+        code.invoke(CodeWriter.INVOKEVIRTUAL, "java/io/PrintStream", "println", "(J)V");
+        code.iinc(index, 1);
+        code.branch(CodeWriter.GOTO, condition);
+        code.mark(end);
+        code.insn(CodeWriter.RETURN);
+    }
+
+    /**
+     * Counts the nodes of an expression, and checks that they can be compiled, with a stack instead of recursion, so
+     * that an expression which is too deep is reported before it is compiled.
+     * @return The number of nodes, or -1 if the expression cannot be compiled.
+     * */
+    private int measure(int expression)
+    {
+        int count = 0;
+        int stackSize = 0;
+        pendingNodes[stackSize] = expression;
+        pendingDepths[stackSize++] = 1;
+        while (stackSize > 0)
+        {
+            int node = pendingNodes[--stackSize];
+            int depth = pendingDepths[stackSize];
+            NodeKind kind = tree.getKind(node);
+            int token = tree.getToken(node);
+            count++;
+            switch (kind)
+            {
+                case NUMBER:
+                    if (tokens.getNumber(token, number).isFloating())
+                        return unsupported(node, "the floating constant");
+                    continue;
+                case IDENTIFIER:
+                    if (identifierSlots != null)
+                        declareLocal(node);
+                    continue;
+                case ERROR:
+                    return -1;
+                case BINARY:
+                case UNARY:
+                case POSTFIX:
+                case CONDITIONAL:
+                    if (!isSupported(kind, tokens.getType(token)))
+                        return unsupported(node, "the operator \"" + tokens.getText(token) + "\"");
+                    if (isAssignment(kind, tokens.getType(token)) &&
+                        (tree.getKind(tree.getChild(node, 0)) != NodeKind.IDENTIFIER))
+                        return unsupported(node, "the assignment to an expression");
+                    break;
+                case CALL:
+                    return unsupported(node, "the call");
+                case CAST:
+                    return unsupported(node, "the cast");
+                default:
+                    return unsupported(node, "the expression");
+            }
+
+            if (depth == MAX_DEPTH)
+            {
+                out.println("Line: " + tokens.getLine(token) + ", the expression is too complicated.");
+                return -1;
+            }
+
+            int childCount = tree.getChildCount(node);
+            if (stackSize + childCount > pendingNodes.length)
+            {
+                pendingNodes = Arrays.copyOf(pendingNodes, pendingNodes.length * 2);
+                pendingDepths = Arrays.copyOf(pendingDepths, pendingDepths.length * 2);
+            }
+            for (int i = 0; i < childCount; i++)
+            {
+                pendingNodes[stackSize] = tree.getChild(node, i);
+                pendingDepths[stackSize++] = depth + 1;
+            }
+        }
+
+        return count;
+    }
+
+    private int unsupported(int node, String what)
+    {
+        int token = tree.getToken(node);
+        out.println("Line: " + tokens.getLine(token) + ", cannot compile " + what + ".");
+        return -1;
+    }
+
+    /**
+     * Returns a value indicating whether an operator is supported.
+     * */
+    private static boolean isSupported(NodeKind kind, TokenType operator)
+    {
+        switch (kind)
+        {
+            case UNARY:
+                return (operator == TokenType.PLUS) || (operator == TokenType.MINUS) ||
+                       (operator == TokenType.BITWISE_NOT) || (operator == TokenType.LOGICAL_NOT) ||
+                       (operator == TokenType.INCREMENT) || (operator == TokenType.DECREMENT);
+            case POSTFIX:
+            case CONDITIONAL:
+                return true;
+            default:
+                return (getArithmeticOpcode(operator) != 0) || isComparison(operator) ||
+                       (operator == TokenType.LOGICAL_AND) || (operator == TokenType.LOGICAL_OR) ||
+                       (operator == TokenType.COMMA) || (operator == TokenType.ASSIGN) ||
+                       (getCompoundOperator(operator) != null);
+        }
+    }
+
+    /**
+     * Returns a value indicating whether an operator stores to its first operand.
+     * */
+    private static boolean isAssignment(NodeKind kind, TokenType operator)
+    {
+        return (kind == NodeKind.POSTFIX) || (operator == TokenType.INCREMENT) || (operator == TokenType.DECREMENT) ||
+               ((kind == NodeKind.BINARY) && ((operator == TokenType.ASSIGN) || (getCompoundOperator(operator) != null)));
+    }
+
+    /**
+     * Gets the opcode of a binary arithmetic operator, or 0 if the operator is not arithmetic.
+     * */
+    private static int getArithmeticOpcode(TokenType operator)
+    {
+        switch (operator)
+        {
+            case PLUS:
+                return CodeWriter.LADD;
+            case MINUS:
+                return CodeWriter.LSUB;
+            case TIMES:
+                return CodeWriter.LMUL;
+            case DIVIDE:
+                return CodeWriter.LDIV;
+            case MODULO:
+                return CodeWriter.LREM;
+            case SHIFT_LEFT:
+                return CodeWriter.LSHL;
+            case SHIFT_RIGHT:
+                return CodeWriter.LSHR;
+            case BITWISE_AND:
+                return CodeWriter.LAND;
+            case BITWISE_OR:
+                return CodeWriter.LOR;
+            case BITWISE_XOR:
+                return CodeWriter.LXOR;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the operator of a compound assignment, such as "+" for "+=", or null if the operator is not a compound
+     * assignment.
+     * */
+    private static TokenType getCompoundOperator(TokenType operator)
+    {
+        switch (operator)
+        {
+            case PLUS_ASSIGN:
+                return TokenType.PLUS;
+            case MINUS_ASSIGN:
+                return TokenType.MINUS;
+            case TIMES_ASSIGN:
+                return TokenType.TIMES;
+            case DIVIDE_ASSIGN:
+                return TokenType.DIVIDE;
+            case MODULO_ASSIGN:
+                return TokenType.MODULO;
+            case SHIFT_LEFT_ASSIGN:
+                return TokenType.SHIFT_LEFT;
+            case SHIFT_RIGHT_ASSIGN:
+                return TokenType.SHIFT_RIGHT;
+            case AND_ASSIGN:
+                return TokenType.BITWISE_AND;
+            case OR_ASSIGN:
+                return TokenType.BITWISE_OR;
+            case XOR_ASSIGN:
+                return TokenType.BITWISE_XOR;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isComparison(TokenType operator)
+    {
+        return getComparisonBranch(operator) != 0;
+    }
+
+    /**
+     * Gets the branch taken by the result of {@link CodeWriter#LCMP} when a comparison is true, or 0 if the operator is
+     * not a comparison.
+     * */
+    private static int getComparisonBranch(TokenType operator)
+    {
+        switch (operator)
+        {
+            case EQUAL:
+                return CodeWriter.IFEQ;
+            case NOT_EQUAL:
+                return CodeWriter.IFNE;
+            case LESS:
+                return CodeWriter.IFLT;
+            case GREATER_OR_EQUAL:
+                return CodeWriter.IFGE;
+            case GREATER:
+                return CodeWriter.IFGT;
+            case LESS_OR_EQUAL:
+                return CodeWriter.IFLE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Gets the branch taken when the condition of a branch is false: IFEQ and IFNE, IFLT and IFGE, and IFGT and IFLE
+     * are pairs of opposite branches.
+     * */
+    private static int negate(int branch)
+    {
+        return ((branch - CodeWriter.IFEQ) % 2 == 0) ? branch + 1 : branch - 1;
+    }
+
+    /**
+     * Writes the code pushing the value of an expression.
+     * */
+    private void value(int node)
+    {
+        int token = tree.getToken(node);
+        switch (tree.getKind(node))
+        {
+            case NUMBER:
+                code.pushLong(tokens.getNumber(token, number).getLongValue());
+                return;
+            case IDENTIFIER:
+                loadIdentifier(node);
+                return;
+            case CONDITIONAL:
+            {
+                CodeWriter.Label otherwise = new CodeWriter.Label();
+                CodeWriter.Label end = new CodeWriter.Label();
+                branch(tree.getChild(node, 0), false, otherwise);
+                value(tree.getChild(node, 1));
+                code.branch(CodeWriter.GOTO, end);
+                code.mark(otherwise);
+                value(tree.getChild(node, 2));
+                code.mark(end);
+                return;
+            }
+            case POSTFIX:
+            {
+                // The value is the value of the operand before it is incremented.
+                int operand = tree.getChild(node, 0);
+                loadIdentifier(operand);
+                code.insn(CodeWriter.DUP2);
+                code.insn(CodeWriter.LCONST_1);
+                code.insn((tokens.getType(token) == TokenType.INCREMENT) ? CodeWriter.LADD : CodeWriter.LSUB);
+                storeIdentifier(operand);
+                return;
+            }
+            default:
+                break;
+        }
+
+        TokenType operator = tokens.getType(token);
+        if (tree.getKind(node) == NodeKind.UNARY)
+        {
+            int operand = tree.getChild(node, 0);
+            switch (operator)
+            {
+                case PLUS:
+                    value(operand);
+                    break;
+                case MINUS:
+                    value(operand);
+                    code.insn(CodeWriter.LNEG);
+                    break;
+                case BITWISE_NOT:
+                    value(operand);
+                    code.pushLong(-1);
+                    code.insn(CodeWriter.LXOR);
+                    break;
+                case LOGICAL_NOT:
+                    booleanValue(node);
+                    break;
+                default:
+                    // Prefix "++" and "--", whose value is the value of the operand after it is incremented.
+                    loadIdentifier(operand);
+                    code.insn(CodeWriter.LCONST_1);
+                    code.insn((operator == TokenType.INCREMENT) ? CodeWriter.LADD : CodeWriter.LSUB);
+                    code.insn(CodeWriter.DUP2);
+                    storeIdentifier(operand);
+                    break;
+            }
+            return;
+        }
+
+        int left = tree.getChild(node, 0);
+        int right = tree.getChild(node, 1);
+        if (isComparison(operator) || (operator == TokenType.LOGICAL_AND) || (operator == TokenType.LOGICAL_OR))
+            booleanValue(node);
+        else if (operator == TokenType.COMMA)
+        {
+            value(left);
+            code.insn(CodeWriter.POP2);
+            value(right);
+        }
+        else if (operator == TokenType.ASSIGN)
+        {
+            value(right);
+            code.insn(CodeWriter.DUP2);
+            storeIdentifier(left);
+        }
+        else if (getCompoundOperator(operator) != null)
+        {
+            loadIdentifier(left);
+            value(right);
+            arithmetic(getCompoundOperator(operator));
+            code.insn(CodeWriter.DUP2);
+            storeIdentifier(left);
+        }
+        else
+        {
+            value(left);
+            value(right);
+            arithmetic(operator);
+        }
+    }
+
+    /**
+     * Writes a binary arithmetic operator, whose operands are on the stack.
+     * */
+    private void arithmetic(TokenType operator)
+    {
+        // The shift count is an int.
+        int opcode = getArithmeticOpcode(operator);
+        if ((opcode == CodeWriter.LSHL) || (opcode == CodeWriter.LSHR))
+            code.insn(CodeWriter.L2I);
+        code.insn(opcode);
+    }
+
+    /**
+     * Writes the code pushing 1 if a condition is true, otherwise, 0.
+     * */
+    private void booleanValue(int node)
+    {
+        CodeWriter.Label isFalse = new CodeWriter.Label();
+        CodeWriter.Label end = new CodeWriter.Label();
+        branch(node, false, isFalse);
+        code.insn(CodeWriter.LCONST_1);
+        code.branch(CodeWriter.GOTO, end);
+        code.mark(isFalse);
+        code.insn(CodeWriter.LCONST_0);
+        code.mark(end);
+    }
+
+    /**
+     * Writes the code jumping to a label if the value of a condition is the specified value, and going on otherwise.
+     * The logical operators are compiled to branches, so that their operands are evaluated only when they are needed.
+     * */
+    private void branch(int node, boolean condition, CodeWriter.Label target)
+    {
+        NodeKind kind = tree.getKind(node);
+        TokenType operator = (kind == NodeKind.BINARY) || (kind == NodeKind.UNARY) ? tokens.getType(tree.getToken(node)) : null;
+        if ((kind == NodeKind.UNARY) && (operator == TokenType.LOGICAL_NOT))
+            branch(tree.getChild(node, 0), !condition, target);
+        else if ((kind == NodeKind.BINARY) && isComparison(operator))
+        {
+            value(tree.getChild(node, 0));
+            value(tree.getChild(node, 1));
+            code.insn(CodeWriter.LCMP);
+            int branch = getComparisonBranch(operator);
+            code.branch(condition ? branch : negate(branch), target);
+        }
+        else if ((kind == NodeKind.BINARY) && ((operator == TokenType.LOGICAL_AND) || (operator == TokenType.LOGICAL_OR)))
+        {
+            // "a && b" is false if a is false, "a || b" is true if a is true.
+            boolean shortCircuit = (operator == TokenType.LOGICAL_OR);
+            if (condition == shortCircuit)
+            {
+                branch(tree.getChild(node, 0), condition, target);
+                branch(tree.getChild(node, 1), condition, target);
+            }
+            else
+            {
+                CodeWriter.Label skip = new CodeWriter.Label();
+                branch(tree.getChild(node, 0), shortCircuit, skip);
+                branch(tree.getChild(node, 1), condition, target);
+                code.mark(skip);
+            }
+        }
+        else
+        {
+            value(node);
+            code.insn(CodeWriter.LCONST_0);
+            code.insn(CodeWriter.LCMP);
+            code.branch(condition ? CodeWriter.IFNE : CodeWriter.IFEQ, target);
+        }
+    }
+
+    /**
+     * Pushes the value of the identifier of a node.
+     * */
+    private void loadIdentifier(int node)
+    {
+        if (identifierSlots != null)
+            code.load(identifierSlots[tokens.getSymbolId(tree.getToken(node), symbols)]);
+        else
+            code.field(CodeWriter.GETSTATIC, classWriter.getName(), getFieldName(node), "J");
+    }
+
+    /**
+     * Pops the value on the stack to the identifier of a node.
+     * */
+    private void storeIdentifier(int node)
+    {
+        if (identifierSlots != null)
+            code.store(identifierSlots[tokens.getSymbolId(tree.getToken(node), symbols)]);
+        else
+            code.field(CodeWriter.PUTSTATIC, classWriter.getName(), getFieldName(node), "J");
+    }
+
+    /**
+     * Adds the local of the identifier of a node, initialized to 0, when the identifier is first used.
+     * */
+    private void declareLocal(int node)
+    {
+        int id = tokens.getSymbolId(tree.getToken(node), symbols);
+        if (id >= identifierSlots.length)
+        {
+            int length = identifierSlots.length;
+            identifierSlots = Arrays.copyOf(identifierSlots, Math.max(length * 2, id + 1));
+            Arrays.fill(identifierSlots, length, identifierSlots.length, -1);
+        }
+
+        if (identifierSlots[id] < 0)
+        {
+            identifierSlots[id] = code.newLocal(CodeWriter.LONG);
+            code.insn(CodeWriter.LCONST_0);
+            code.store(identifierSlots[id]);
+        }
+    }
+
+    /**
+     * Gets the name of the field of the identifier of a node, and adds the field when the identifier is first used.
+     * */
+    private String getFieldName(int node)
+    {
+        int id = tokens.getSymbolId(tree.getToken(node), symbols);
+        if (id >= hasFields.length)
+            hasFields = Arrays.copyOf(hasFields, Math.max(hasFields.length * 2, id + 1));
+
+        String name = symbols.getName(id);
+        if (!hasFields[id])
+        {
+            classWriter.addField(ClassWriter.ACC_PUBLIC | ClassWriter.ACC_STATIC, name, "J");
+            hasFields[id] = true;
+        }
+        return name;
+    }
+
+    /**
+     * Compiles a source file to a class file, or runs the unit test without arguments.
+     * */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length == 3)
+        {
+            TokenBuffer tokens = TokenBuffer.tokenize(args[0]);
+            SyntaxTree tree = new SyntaxTree();
+            int root = new PrattParser(tokens, tree, System.out).statements();
+            byte[] classFile = new BytecodeGenerator(tokens, tree, System.out).generate(args[1], root);
+            Files.write(Paths.get(args[2], args[1] + ".class"), classFile);
+            return;
+        }
+        if (args.length != 0)
+        {
+            System.out.println("Usage: BytecodeGenerator [source file] [class name] [output directory]");
+            return;
+        }
+
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        String operators = "x = 6; y = x * 7;\n" +
+                           "x++ + ++x, x--, x;\n" +
+                           "y / 5 - y % 5 * 3 << 2 >> 1;\n" +
+                           "(x & 12 | 3) ^ ~y;\n" +
+                           "x < y && y <= 42 || !x, x == 8 ? y != 42 : -y;\n" +
+                           "y -= (y *= 2) ? 1 : 2, y >>= 1, y <<= 2, y /= 3, y %= 10, y &= 7, y |= 16, y ^= 1;\n" +
+                           "f(x); 1.5;\n";
+
+        for (byte[] input : new byte[][] { InputSystem.File.readAllBytes(sourceFilePath), operators.getBytes() })
+        {
+            TokenBuffer tokens = TokenBuffer.tokenize(input);
+            SyntaxTree tree = new SyntaxTree();
+            int root = new PrattParser(tokens, tree, new PrintStream(new ByteArrayOutputStream())).statements();
+            byte[] classFile = new BytecodeGenerator(tokens, tree, System.out).generate("Program", root);
+
+            // Define the class, which is checked by the verifier, and run it.
+            Class<?> program = new ClassLoader()
+            {
+                @Override
+                protected Class<?> findClass(String name) throws ClassNotFoundException
+                {
+                    if (!name.equals("Program"))
+                        throw new ClassNotFoundException(name);
+                    return defineClass(name, classFile, 0, classFile.length);
+                }
+            }.loadClass("Program");
+            long[] results = (long[])program.getMethod("run").invoke(null);
+            System.out.println(classFile.length + " bytes: " + Arrays.toString(results));
+        }
+    }
+}
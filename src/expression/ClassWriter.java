@@ -0,0 +1,354 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link ClassWriter} class builds a Java class file in memory: the constant pool, the fields, and the methods whose
+ * code is written by {@link CodeWriter}s. The constants are shared, so that a constant used by several methods is in
+ * the pool once.
+ * <p>
+ * The class file has the version of Java 8, so that it runs on any JVM from Java 8 and is checked by the type checking
+ * verifier, which requires the StackMapTable frames computed by {@link CodeWriter}.
+ * <p/>
+ * */
+public final class ClassWriter
+{
+    // Access flags.
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_PRIVATE = 0x0002;
+    public static final int ACC_STATIC = 0x0008;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    // Tags of the constants.
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    /** The version of the class file, which is the version of Java 8. */
+    private static final int MAJOR_VERSION = 52;
+
+    /** The maximum number of entries of the constant pool. */
+    private static final int MAX_CONSTANT_COUNT = 0xFFFF;
+
+    /** The access flags of the class. */
+    private final int access;
+
+    /** The index of the class in the constant pool. */
+    private final int thisClass;
+
+    /** The index of the super class in the constant pool. */
+    private final int superClass;
+
+    /** The internal name of the class. */
+    private final String name;
+
+    /** The indexes of the interfaces in the constant pool. */
+    private final List<Integer> interfaces;
+
+    /** The constants in the format of the class file. */
+    private final ByteArrayOutputStream constantBytes;
+
+    /** The stream writing to {@link #constantBytes}. */
+    private final DataOutputStream constantPool;
+
+    /** Indexes of the constants keyed by their tags and values. */
+    private final Map<String, Integer> constants;
+
+    /** Number of entries of the constant pool, the unused entry 0 included. */
+    private int constantCount;
+
+    /** The fields in the format of the class file. */
+    private final ByteArrayOutputStream fieldBytes;
+
+    /** Number of fields. */
+    private int fieldCount;
+
+    /** The methods. */
+    private final List<CodeWriter> methods;
+
+    /**
+     * Initializes a new instance of {@link ClassWriter}.
+     * @param access The access flags of the class.
+     * @param name The internal name of the class, such as {@code "expression/Program"}.
+     * @param superName The internal name of the super class.
+     * @param interfaceNames The internal names of the interfaces implemented by the class.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public ClassWriter(int access, String name, String superName, String... interfaceNames)
+    {
+        if ((name == null) || (superName == null) || (interfaceNames == null))
+            throw new NullPointerException("Class name, super class name and interface names cannot be null.");
+
+        constantBytes = new ByteArrayOutputStream();
+        constantPool = new DataOutputStream(constantBytes);
+        constants = new HashMap<>();
+        constantCount = 1;
+        fieldBytes = new ByteArrayOutputStream();
+        fieldCount = 0;
+        methods = new ArrayList<>();
+
+        this.access = access | ACC_SUPER;
+        this.name = name;
+        thisClass = newClass(name);
+        superClass = newClass(superName);
+        interfaces = new ArrayList<>();
+        for (String interfaceName : interfaceNames)
+            interfaces.add(newClass(interfaceName));
+    }
+
+    /**
+     * Gets the internal name of the class.
+     * @return The internal name of the class.
+     * */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Adds a field to the class.
+     * @param access The access flags of the field.
+     * @param name The name of the field.
+     * @param descriptor The descriptor of the type of the field, such as {@code "J"}.
+     * */
+    public void addField(int access, String name, String descriptor)
+    {
+        DataOutputStream out = new DataOutputStream(fieldBytes);
+        try
+        {
+            out.writeShort(access);
+            out.writeShort(newUtf8(name));
+            out.writeShort(newUtf8(descriptor));
+            out.writeShort(0);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        fieldCount++;
+    }
+
+    /**
+     * Adds a method to the class, whose code is written by the returned {@link CodeWriter}. The code must be complete
+     * when {@link #toByteArray()} is called.
+     * @param access The access flags of the method.
+     * @param name The name of the method.
+     * @param descriptor The descriptor of the method, such as {@code "(J)J"}.
+     * @return The writer of the code of the method.
+     * */
+    public CodeWriter addMethod(int access, String name, String descriptor)
+    {
+        CodeWriter method = new CodeWriter(this, access, name, descriptor);
+        methods.add(method);
+        return method;
+    }
+
+    /**
+     * Gets the class file.
+     * @return The bytes of the class file.
+     * @exception IllegalArgumentException If the code of a method or the constant pool is too large.
+     * */
+    public byte[] toByteArray()
+    {
+        try
+        {
+            // The methods add their attribute names to the constant pool, which is written after them.
+            ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+            DataOutputStream methodOut = new DataOutputStream(methodBytes);
+            for (CodeWriter method : methods)
+                method.write(methodOut);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(constantBytes.size() + fieldBytes.size() +
+                                                                    methodBytes.size() + 64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(constantCount);
+            constantBytes.writeTo(out);
+            out.writeShort(access);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(interfaces.size());
+            for (int index : interfaces)
+                out.writeShort(index);
+            out.writeShort(fieldCount);
+            fieldBytes.writeTo(out);
+            out.writeShort(methods.size());
+            methodBytes.writeTo(out);
+            out.writeShort(0);
+            return bytes.toByteArray();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the index of a {@code CONSTANT_Utf8} constant, adding it if it is not in the pool.
+     * @param value The string.
+     * @return The index of the constant.
+     * */
+    public int newUtf8(String value)
+    {
+        String key = CONSTANT_UTF8 + ":" + value;
+        Integer index = constants.get(key);
+        if (index != null)
+            return index;
+
+        try
+        {
+            constantPool.writeByte(CONSTANT_UTF8);
+            constantPool.writeUTF(value);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalArgumentException("The string constant is too long.", e);
+        }
+        return add(key, 1);
+    }
+
+    /**
+     * Gets the index of a {@code CONSTANT_Integer} constant, adding it if it is not in the pool.
+     * @param value The value of the constant.
+     * @return The index of the constant.
+     * */
+    public int newInteger(int value)
+    {
+        return newConstant(CONSTANT_INTEGER, Integer.toString(value), value, 1);
+    }
+
+    /**
+     * Gets the index of a {@code CONSTANT_Long} constant, adding it if it is not in the pool.
+     * @param value The value of the constant.
+     * @return The index of the constant.
+     * */
+    public int newLong(long value)
+    {
+        return newConstant(CONSTANT_LONG, Long.toString(value), value, 2);
+    }
+
+    /**
+     * Gets the index of a {@code CONSTANT_Class} constant, adding it if it is not in the pool.
+     * @param internalName The internal name of the class, or the descriptor of an array type.
+     * @return The index of the constant.
+     * */
+    public int newClass(String internalName)
+    {
+        return newReference(CONSTANT_CLASS, internalName, newUtf8(internalName), -1);
+    }
+
+    /**
+     * Gets the index of a {@code CONSTANT_String} constant, adding it if it is not in the pool.
+     * @param value The string.
+     * @return The index of the constant.
+     * */
+    public int newString(String value)
+    {
+        return newReference(CONSTANT_STRING, value, newUtf8(value), -1);
+    }
+
+    /**
+     * Gets the index of a {@code CONSTANT_Fieldref} constant, adding it if it is not in the pool.
+     * @param owner The internal name of the class of the field.
+     * @param name The name of the field.
+     * @param descriptor The descriptor of the type of the field.
+     * @return The index of the constant.
+     * */
+    public int newField(String owner, String name, String descriptor)
+    {
+        return newMember(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    /**
+     * Gets the index of a {@code CONSTANT_Methodref} or {@code CONSTANT_InterfaceMethodref} constant, adding it if it
+     * is not in the pool.
+     * @param owner The internal name of the class of the method.
+     * @param name The name of the method.
+     * @param descriptor The descriptor of the method.
+     * @param isInterface true if the owner is an interface, otherwise, false.
+     * @return The index of the constant.
+     * */
+    public int newMethod(String owner, String name, String descriptor, boolean isInterface)
+    {
+        return newMember(isInterface ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    private int newMember(int tag, String owner, String name, String descriptor)
+    {
+        int nameAndType = newReference(CONSTANT_NAME_AND_TYPE, name + ' ' + descriptor, newUtf8(name), newUtf8(descriptor));
+        return newReference(tag, owner + ' ' + name + ' ' + descriptor, newClass(owner), nameAndType);
+    }
+
+    /**
+     * Adds a constant referring to 1 or 2 other constants, if it is not in the pool.
+     * */
+    private int newReference(int tag, String value, int first, int second)
+    {
+        String key = tag + ":" + value;
+        Integer index = constants.get(key);
+        if (index != null)
+            return index;
+
+        try
+        {
+            constantPool.writeByte(tag);
+            constantPool.writeShort(first);
+            if (second >= 0)
+                constantPool.writeShort(second);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return add(key, 1);
+    }
+
+    /**
+     * Adds a numeric constant, if it is not in the pool.
+     * */
+    private int newConstant(int tag, String text, long value, int size)
+    {
+        String key = tag + ":" + text;
+        Integer index = constants.get(key);
+        if (index != null)
+            return index;
+
+        try
+        {
+            constantPool.writeByte(tag);
+            if (size == 2)
+                constantPool.writeLong(value);
+            else
+                constantPool.writeInt((int)value);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return add(key, size);
+    }
+
+    /**
+     * Registers the constant just written, a long taking 2 entries of the pool.
+     * */
+    private int add(String key, int size)
+    {
+        if (constantCount + size > MAX_CONSTANT_COUNT)
+            throw new IllegalArgumentException("The constant pool of " + name + " is full.");
+
+        int index = constantCount;
+        constants.put(key, index);
+        constantCount += size;
+        return index;
+    }
+}
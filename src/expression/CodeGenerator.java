@@ -1,58 +1,231 @@
 package expression;
 
 import java.io.*;
+import java.util.*;
 
 /**
  * The {@link CodeGenerator} class represents a simple code generator for the expression containing only numbers,
- * operators such as "+", "*" and parentheses and ending with ";".
+ * operators such as "+", "*" and parentheses and ending with ";". It prints pseudo assembly, while
+ * {@link BytecodeGenerator} compiles the statements to a Java class file.
+ * <p>
+ * The expression of a statement is parsed to a tree first, whose nodes are labeled by the Sethi-Ullman numbering: the
+ * number of registers needed to evaluate a node without storing to memory. The tree is lowered to a three-address
+ * code over virtual registers, v0, v1 and so on, evaluating the operand needing more registers first, since "+" and
+ * "*" are commutative. A number or an identifier is loaded once for all the statements, since the statements do not
+ * change the values of the identifiers, and its virtual register is reused by the next statements. The virtual
+ * registers of the identifiers are indexed by their symbol ids, so that their names are only needed for the output.
+ * <p>
+ * When all the statements are lowered, the virtual registers are mapped onto the physical registers by a
+ * {@link LinearScanAllocator}, whose live intervals span the whole sequence of statements. A spilled number or
+ * identifier is not loaded, and is an operand of the instructions using it, while a spilled value is stored to a memory
+ * temporary, m0, m1 and so on, the temporaries whose intervals do not overlap sharing their memory. The errors found
+ * while parsing a statement are printed before its code, and no code is printed for a statement which cannot be
+ * parsed.
+ * <p/>
  * */
 public class CodeGenerator
 {
-    /** The register stack of this simple compiler. */
-    private final String[] registers = { "t0", "t1", "t2", "t3", "t4", "t5", "t6", "t7" };
+    /** The physical registers used by default. */
+    private static final String[] DEFAULT_REGISTERS = { "t0", "t1", "t2", "t3", "t4", "t5", "t6", "t7" };
+
+    /** The physical registers of this simple compiler. */
+    private final String[] registers;
 
     /** The lexer to tokenize text in the input stream. */
     private Lexer lexer;
 
-    /** The pointer that points the next register can be allocated. */
-    private int registerPointer;
+    /** The identifiers of the input, which are referred to by their ids. */
+    private final SymbolTable symbols;
+
+    /** The operators of the nodes of the tree of the current statement, null for an operand. */
+    private TokenType[] operators;
+
+    /** The first operands of the nodes. */
+    private int[] lefts;
+
+    /** The second operands of the nodes. */
+    private int[] rights;
+
+    /** The texts of the numbers, null for the other nodes. */
+    private String[] operands;
+
+    /** The ids of the identifiers, -1 for the other nodes. */
+    private int[] symbolIds;
+
+    /** The Sethi-Ullman numbers of the nodes. */
+    private int[] labels;
+
+    /** Number of nodes of the tree of the current statement. */
+    private int nodeCount;
+
+    /** A boolean value indicating whether a factor of the current statement cannot be parsed. */
+    private boolean hasError;
+
+    /** The operators of the instructions, null for a load or a message. */
+    private TokenType[] instructionOperators;
+
+    /** The virtual registers written by the instructions, -1 for a message. */
+    private int[] instructionTargets;
+
+    /** The virtual registers of the first operands of the instructions. */
+    private int[] instructionFirsts;
+
+    /** The virtual registers of the second operands of the instructions. */
+    private int[] instructionSeconds;
+
+    /** The texts of the messages, null for the other instructions. */
+    private String[] instructionTexts;
+
+    /** Number of instructions. */
+    private int instructionCount;
+
+    /** The positions of the instructions writing the virtual registers, where their live intervals start. */
+    private int[] valueStarts;
+
+    /** The positions of the last instructions reading the virtual registers, where their live intervals end. */
+    private int[] valueEnds;
+
+    /** The texts of the numbers loaded into the virtual registers, null for the other virtual registers. */
+    private String[] valueOperands;
+
+    /** The ids of the identifiers loaded into the virtual registers, -1 for the other virtual registers. */
+    private int[] valueSymbolIds;
+
+    /** Number of virtual registers. */
+    private int valueCount;
+
+    /** The virtual registers of the numbers loaded, keyed by their texts. */
+    private final Map<String, Integer> numberValues;
+
+    /** The virtual registers of the identifiers loaded indexed by their symbol ids, -1 for an identifier not loaded. */
+    private int[] identifierValues;
 
     /**
-     * Initializes a new instance of {@link CodeGenerator} with the specified {@link Lexer}.
+     * Initializes a new instance of {@link CodeGenerator} with the specified {@link Lexer}, which uses the 8 registers
+     * t0 to t7.
      * @param lexer The specified {@link Lexer}.
      * */
     public CodeGenerator(Lexer lexer)
     {
-        registerPointer = 0;
+        this(lexer, DEFAULT_REGISTERS);
+    }
+
+    /**
+     * Initializes a new instance of {@link CodeGenerator} with the specified {@link Lexer} and physical registers.
+     * @param lexer The specified {@link Lexer}.
+     * @param registers The names of the physical registers.
+     * @exception IllegalArgumentException If there is no register.
+     * */
+    public CodeGenerator(Lexer lexer, String... registers)
+    {
+        if (registers.length == 0)
+            throw new IllegalArgumentException("At least one register is needed.");
+
         this.lexer = lexer;
+        this.registers = registers.clone();
+        symbols = lexer.getSymbolTable();
+        operators = new TokenType[16];
+        lefts = new int[16];
+        rights = new int[16];
+        operands = new String[16];
+        symbolIds = new int[16];
+        labels = new int[16];
+        nodeCount = 0;
+        instructionOperators = new TokenType[64];
+        instructionTargets = new int[64];
+        instructionFirsts = new int[64];
+        instructionSeconds = new int[64];
+        instructionTexts = new String[64];
+        instructionCount = 0;
+        valueStarts = new int[64];
+        valueEnds = new int[64];
+        valueOperands = new String[64];
+        valueSymbolIds = new int[64];
+        valueCount = 0;
+        numberValues = new HashMap<>();
+        identifierValues = new int[0];
     }
 
     /**
-     * Allocates a new register from the register stack.
+     * Adds a node to the tree of the current statement, and computes its Sethi-Ullman number.
      * */
-    private String allocateRegister()
+    private int addNode(TokenType operator, int left, int right, String operand, int symbolId)
     {
-        if (registerPointer >= registers.length)
+        if (nodeCount == operators.length)
         {
-            System.out.println("Line: " + lexer.getLineNumber() + ", the expression is too complicated.");
-            System.exit(-1);
+            int capacity = nodeCount * 2;
+            operators = Arrays.copyOf(operators, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            operands = Arrays.copyOf(operands, capacity);
+            symbolIds = Arrays.copyOf(symbolIds, capacity);
+            labels = Arrays.copyOf(labels, capacity);
         }
 
-        return registers[registerPointer++];
+        operators[nodeCount] = operator;
+        lefts[nodeCount] = left;
+        rights[nodeCount] = right;
+        operands[nodeCount] = operand;
+        symbolIds[nodeCount] = symbolId;
+        if (operator == null)
+            labels[nodeCount] = 1;
+        else if (labels[left] == labels[right])
+            labels[nodeCount] = labels[left] + 1;
+        else
+            labels[nodeCount] = Math.max(labels[left], labels[right]);
+        return nodeCount++;
     }
 
     /**
-     * Frees a register to the register stack.
+     * Adds an instruction. The virtual register it writes, if any, starts at it.
      * */
-    private void freeRegister()
+    private void addInstruction(TokenType operator, int target, int first, int second, String text)
     {
-        if (registerPointer > 0)
-            registerPointer--;
-        else
+        if (instructionCount == instructionOperators.length)
         {
-            System.out.println("Line: " + lexer.getLineNumber() + ", internal error: stack underflow.");
-            System.exit(-2);
+            int capacity = instructionCount * 2;
+            instructionOperators = Arrays.copyOf(instructionOperators, capacity);
+            instructionTargets = Arrays.copyOf(instructionTargets, capacity);
+            instructionFirsts = Arrays.copyOf(instructionFirsts, capacity);
+            instructionSeconds = Arrays.copyOf(instructionSeconds, capacity);
+            instructionTexts = Arrays.copyOf(instructionTexts, capacity);
         }
+
+        instructionOperators[instructionCount] = operator;
+        instructionTargets[instructionCount] = target;
+        instructionFirsts[instructionCount] = first;
+        instructionSeconds[instructionCount] = second;
+        instructionTexts[instructionCount] = text;
+        instructionCount++;
+    }
+
+    /**
+     * Adds a message, which is printed in the order of the code.
+     * */
+    private void addMessage(String message)
+    {
+        addInstruction(null, -1, -1, -1, message);
+    }
+
+    /**
+     * Adds a virtual register written by the next instruction.
+     * */
+    private int addValue(String operand, int symbolId)
+    {
+        if (valueCount == valueStarts.length)
+        {
+            int capacity = valueCount * 2;
+            valueStarts = Arrays.copyOf(valueStarts, capacity);
+            valueEnds = Arrays.copyOf(valueEnds, capacity);
+            valueOperands = Arrays.copyOf(valueOperands, capacity);
+            valueSymbolIds = Arrays.copyOf(valueSymbolIds, capacity);
+        }
+
+        valueStarts[valueCount] = instructionCount;
+        valueEnds[valueCount] = instructionCount;
+        valueOperands[valueCount] = operand;
+        valueSymbolIds[valueCount] = symbolId;
+        return valueCount++;
     }
 
     /**
@@ -63,29 +236,182 @@ public class CodeGenerator
      * */
     public void statements()
     {
-        String allocatedRegister = allocateRegister();
-
+        instructionCount = 0;
+        valueCount = 0;
+        numberValues.clear();
+        Arrays.fill(identifierValues, -1);
         while (!lexer.match(TokenType.END_OF_FILE))
         {
-            expression(allocatedRegister);
+            nodeCount = 0;
+            hasError = false;
+            int root = expression();
+            if (!hasError)
+                generate(root);
+
             if (lexer.match(TokenType.SEMICOLON))
                 lexer.lookNextToken();
-            else if (lexer.match(TokenType.UNKNOWN_SYMBOL) ||
+            else if (lexer.matchUnknownSymbol() ||
                     lexer.match(TokenType.MINUS) ||
                     lexer.match(TokenType.DIVIDE))
             {
-                System.out.println("Error: unknown symbol: " + lexer.getSymbolText() + " at line: " + lexer.getLineNumber() + ".");
+                addMessage("Error: unknown symbol: " + lexer.getSymbolText() + " at line: " + lexer.getLineNumber() + ".");
                 lexer.clearLine();
             }
             else
-                System.out.println("Line: " + lexer.getLineNumber() + ", missing \";\"");
+                addMessage("Line: " + lexer.getLineNumber() + ", missing \";\"");
         }
 
-        freeRegister();
+        print(allocate());
     }
 
     /**
-     * Parses an "expression" with following production and generate corresponding target code.
+     * Generates the three-address code of a node.
+     * @param node The node.
+     * @return The virtual register holding the value of the node.
+     * */
+    private int generate(int node)
+    {
+        if (operators[node] == null)
+        {
+            int symbolId = symbolIds[node];
+            if (symbolId < 0)
+            {
+                Integer value = numberValues.get(operands[node]);
+                if (value == null)
+                {
+                    value = addValue(operands[node], -1);
+                    addInstruction(null, value, -1, -1, null);
+                    numberValues.put(operands[node], value);
+                }
+                return value;
+            }
+
+            if (symbolId >= identifierValues.length)
+            {
+                int length = identifierValues.length;
+                identifierValues = Arrays.copyOf(identifierValues, Math.max(symbols.size(), symbolId + 1));
+                Arrays.fill(identifierValues, length, identifierValues.length, -1);
+            }
+            if (identifierValues[symbolId] < 0)
+            {
+                identifierValues[symbolId] = addValue(null, symbolId);
+                addInstruction(null, identifierValues[symbolId], -1, -1, null);
+            }
+            return identifierValues[symbolId];
+        }
+
+        // The operand needing more registers first, so that fewer values are live while the other one is evaluated.
+        int left;
+        int right;
+        if (labels[lefts[node]] >= labels[rights[node]])
+        {
+            left = generate(lefts[node]);
+            right = generate(rights[node]);
+        }
+        else
+        {
+            right = generate(rights[node]);
+            left = generate(lefts[node]);
+        }
+
+        int value = addValue(null, -1);
+        valueEnds[left] = instructionCount;
+        valueEnds[right] = instructionCount;
+        addInstruction(operators[node], value, left, right, null);
+        return value;
+    }
+
+    /**
+     * Allocates the physical registers of the virtual registers, and the memory temporaries of the spilled values.
+     * @return The locations of the virtual registers: the indexes of their physical registers, or -1 minus the indexes
+     * of their memory temporaries, or {@link LinearScanAllocator#SPILLED} for a spilled number or identifier.
+     * */
+    private int[] allocate()
+    {
+        int[] locations = new LinearScanAllocator(registers.length).allocate(valueStarts, valueEnds, valueCount);
+
+        // The spilled values share the memory temporaries whose intervals do not overlap, as unbounded registers.
+        int[] spilledValues = new int[valueCount];
+        int[] spilledStarts = new int[valueCount];
+        int[] spilledEnds = new int[valueCount];
+        int spilledCount = 0;
+        for (int i = 0; i < valueCount; i++)
+        {
+            if ((locations[i] == LinearScanAllocator.SPILLED) && !isOperand(i))
+            {
+                spilledValues[spilledCount] = i;
+                spilledStarts[spilledCount] = valueStarts[i];
+                spilledEnds[spilledCount] = valueEnds[i];
+                spilledCount++;
+            }
+        }
+
+        LinearScanAllocator temporaryAllocator = new LinearScanAllocator(Integer.MAX_VALUE);
+        int[] temporaries = temporaryAllocator.allocate(spilledStarts, spilledEnds, spilledCount);
+        for (int i = 0; i < spilledCount; i++)
+            locations[spilledValues[i]] = -1 - temporaries[i];
+
+        return locations;
+    }
+
+    /**
+     * Prints the code with the physical registers and memory temporaries of its virtual registers.
+     * */
+    private void print(int[] locations)
+    {
+        for (int i = 0; i < instructionCount; i++)
+        {
+            int target = instructionTargets[i];
+            if (target < 0)
+                System.out.println(instructionTexts[i]);
+            else if (instructionOperators[i] == null)
+            {
+                // A spilled number or identifier is an operand of the instructions using it.
+                if (locations[target] != LinearScanAllocator.SPILLED)
+                    System.out.println(registers[locations[target]] + " = " + getOperandText(target));
+            }
+            else
+            {
+                String operator = (instructionOperators[i] == TokenType.PLUS) ? " + " : " * ";
+                System.out.println(getLocation(target, locations) + " = " +
+                                   getLocation(instructionFirsts[i], locations) + operator +
+                                   getLocation(instructionSeconds[i], locations));
+            }
+        }
+    }
+
+    /**
+     * Gets the name of the location of a virtual register.
+     * */
+    private String getLocation(int value, int[] locations)
+    {
+        int location = locations[value];
+        if (location >= 0)
+            return registers[location];
+        else if (isOperand(value))
+            return getOperandText(value);
+        else
+            return "m" + (-1 - location);
+    }
+
+    /**
+     * Returns a value indicating whether a virtual register holds a number or an identifier.
+     * */
+    private boolean isOperand(int value)
+    {
+        return (valueOperands[value] != null) || (valueSymbolIds[value] >= 0);
+    }
+
+    /**
+     * Gets the text of the number or identifier held by a virtual register.
+     * */
+    private String getOperandText(int value)
+    {
+        return (valueOperands[value] != null) ? valueOperands[value] : symbols.getName(valueSymbolIds[value]);
+    }
+
+    /**
+     * Parses an "expression" with following production and builds its tree.
      * <p>
      * expression -> term addExpression
      * <p/>
@@ -94,70 +420,77 @@ public class CodeGenerator
      * addExpression -> + term addExpression | Empty
      * <p/>
      * */
-    private void expression(String allocatedRegister)
+    private int expression()
     {
-        String allocatedRegister2;
-        term(allocatedRegister);
+        int node = term();
 
         while (lexer.match(TokenType.PLUS))
         {
             lexer.lookNextToken();
-            allocatedRegister2 = allocateRegister();
-            term(allocatedRegister2);
-            System.out.println(allocatedRegister + " += " + allocatedRegister2);
-            freeRegister();
+            node = addNode(TokenType.PLUS, node, term(), null, -1);
         }
+
+        return node;
     }
 
     /**
-     * Parses an "term" with following production and generate corresponding target code.
+     * Parses an "term" with following production and builds its tree.
      * <p>
      * term -> factor * term
      * <p/>
      * */
-    private void term(String allocatedRegister)
+    private int term()
     {
-        String allocatedRegister2;
-        factor(allocatedRegister);
+        int node = factor();
 
         while (lexer.match(TokenType.TIMES))
         {
             lexer.lookNextToken();
-            allocatedRegister2 = allocateRegister();
-            factor(allocatedRegister2);
-            System.out.println(allocatedRegister + " *=" + allocatedRegister2);
-            freeRegister();
+            node = addNode(TokenType.TIMES, node, factor(), null, -1);
         }
+
+        return node;
     }
 
     /**
-     * Parses a "factor" with following production and generate corresponding target code.
+     * Parses a "factor" with following production and builds its tree.
      * <p>
-     * factor -> NUMBER_OR_ID | ( expression )
+     * factor -> NUMBER | IDENTIFIER | ( expression )
      * <p/>
      * */
-    private void factor(String allocatedRegister)
+    private int factor()
     {
-        if (lexer.match(TokenType.NUMBER_OR_IDENTIFIER))
+        int node;
+        if (lexer.match(TokenType.NUMBER))
+        {
+            node = addNode(null, -1, -1, lexer.getSymbolText(), -1);
+            lexer.lookNextToken();
+        }
+        else if (lexer.match(TokenType.IDENTIFIER))
         {
-            System.out.println(allocatedRegister + " = " + lexer.getSymbolText());
+            int symbolId = lexer.getSymbolId();
             lexer.lookNextToken();
+            node = addNode(null, -1, -1, null, symbolId);
         }
         else if (lexer.match(TokenType.LEFT_PARENTHESES))
         {
             lexer.lookNextToken();
-            expression(allocatedRegister);
+            node = expression();
 
             if (lexer.match(TokenType.RIGHT_PARENTHESES))
                 lexer.lookNextToken();
             else
-                System.out.println("Line: " + lexer.getLineNumber() + ", missing\")\"");
+                addMessage("Line: " + lexer.getLineNumber() + ", missing\")\"");
         }
         else
         {
-            System.out.println("Line: " + lexer.getLineNumber() + ", unexpected symbol: " + lexer.getSymbolText());
+            addMessage("Line: " + lexer.getLineNumber() + ", unexpected symbol: " + lexer.getSymbolText());
             lexer.clearLine();
+            node = addNode(null, -1, -1, null, -1);
+            hasError = true;
         }
+
+        return node;
     }
 
     /**
@@ -172,5 +505,44 @@ public class CodeGenerator
         codeGen.statements();
         lexer.close();
         sourceFile.close();
+
+        // Statements of balanced trees of depth 10 with distinct identifiers need 11 registers, so that values are
+        // spilled to memory, and the identifiers of a statement are reused by the next one.
+        StringBuilder source = new StringBuilder();
+        for (int statement = 0; statement < 16; statement++)
+        {
+            String[] expressions = new String[1024];
+            for (int i = 0; i < expressions.length; i++)
+                expressions[i] = "x" + (statement * 512 + i);
+            for (int length = expressions.length; length > 1; length /= 2)
+            {
+                for (int i = 0; i < length / 2; i++)
+                    expressions[i] = "(" + expressions[2 * i] + (((length & 0x555) != 0) ? " + " : " * ") +
+                                     expressions[2 * i + 1] + ")";
+            }
+            source.append(expressions[0]).append(";\n");
+        }
+
+        ByteArrayOutputStream code = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(code));
+        lexer = new Lexer(new ByteArrayInputStream(source.toString().getBytes()));
+        new CodeGenerator(lexer, "r0", "r1", "r2", "r3").statements();
+        System.setOut(out);
+
+        int instructionCount = 0;
+        int storeCount = 0;
+        int loadCount = 0;
+        for (String line : code.toString().split("\n"))
+        {
+            instructionCount++;
+            if (line.startsWith("m"))
+                storeCount++;
+            else if (!line.contains(" + ") && !line.contains(" * "))
+                loadCount++;
+        }
+        System.out.println();
+        System.out.println(instructionCount + " instructions, " + loadCount + " loads, " + storeCount +
+                           " stores to memory with 4 registers.");
     }
 }
@@ -0,0 +1,899 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link CodeWriter} class writes the bytecode of a method of a {@link ClassWriter}. While the instructions are
+ * written, it simulates the types on the operand stack and in the local variables, so that it computes
+ * {@code max_stack} and {@code max_locals}, and the StackMapTable frames of the targets of the branches, which the
+ * verifier requires.
+ * <p>
+ * A type is a verification type of the StackMapTable: one of the constants below, or {@link #OBJECT} combined with the
+ * index of the class in the constant pool by {@link #objectType(String)}. A long takes one entry of the stack and the
+ * locals, whose size in slots is counted separately. Code following a {@link #GOTO} or a return is reachable only from a
+ * branch, so that a {@link Label} must be marked right after it.
+ * <p/>
+ * */
+public final class CodeWriter
+{
+    // Opcodes of the instructions supported.
+    public static final int ACONST_NULL = 0x01;
+    public static final int LCONST_0 = 0x09;
+    public static final int LCONST_1 = 0x0A;
+    public static final int LALOAD = 0x2F;
+    public static final int AALOAD = 0x32;
+    public static final int LASTORE = 0x50;
+    public static final int POP = 0x57;
+    public static final int POP2 = 0x58;
+    public static final int DUP = 0x59;
+    public static final int DUP2 = 0x5C;
+    public static final int LADD = 0x61;
+    public static final int LSUB = 0x65;
+    public static final int LMUL = 0x69;
+    public static final int LDIV = 0x6D;
+    public static final int LREM = 0x71;
+    public static final int LNEG = 0x75;
+    public static final int LSHL = 0x79;
+    public static final int LSHR = 0x7B;
+    public static final int LUSHR = 0x7D;
+    public static final int LAND = 0x7F;
+    public static final int LOR = 0x81;
+    public static final int LXOR = 0x83;
+    public static final int I2L = 0x85;
+    public static final int L2I = 0x88;
+    public static final int LCMP = 0x94;
+    public static final int IFEQ = 0x99;
+    public static final int IFNE = 0x9A;
+    public static final int IFLT = 0x9B;
+    public static final int IFGE = 0x9C;
+    public static final int IFGT = 0x9D;
+    public static final int IFLE = 0x9E;
+    public static final int IF_ICMPLT = 0xA1;
+    public static final int IF_ICMPGE = 0xA2;
+    public static final int GOTO = 0xA7;
+    public static final int IRETURN = 0xAC;
+    public static final int LRETURN = 0xAD;
+    public static final int ARETURN = 0xB0;
+    public static final int RETURN = 0xB1;
+    public static final int GETSTATIC = 0xB2;
+    public static final int PUTSTATIC = 0xB3;
+    public static final int GETFIELD = 0xB4;
+    public static final int PUTFIELD = 0xB5;
+    public static final int INVOKEVIRTUAL = 0xB6;
+    public static final int INVOKESPECIAL = 0xB7;
+    public static final int INVOKESTATIC = 0xB8;
+    public static final int INVOKEINTERFACE = 0xB9;
+    public static final int NEWARRAY = 0xBC;
+    public static final int ARRAYLENGTH = 0xBE;
+    public static final int CHECKCAST = 0xC0;
+
+    // Opcodes used internally.
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ICONST_0 = 0x03;
+    private static final int ILOAD = 0x15;
+    private static final int LLOAD = 0x16;
+    private static final int ALOAD = 0x19;
+    private static final int ISTORE = 0x36;
+    private static final int LSTORE = 0x37;
+    private static final int ASTORE = 0x3A;
+    private static final int IINC = 0x84;
+    private static final int WIDE = 0xC4;
+    private static final int T_LONG = 11;
+
+    // Verification types.
+    public static final int TOP = 0;
+    public static final int INTEGER = 1;
+    public static final int LONG = 4;
+    public static final int NULL = 5;
+    public static final int OBJECT = 7;
+
+    /** The maximum length of the code of a method. */
+    public static final int MAX_CODE_LENGTH = 0xFFFF;
+
+    /**
+     * The {@link Label} class is a position in the code, which is the target of branches. The frame of a label is the
+     * types on the stack and in the locals at its position, and is given by the first branch to it or by its position.
+     * <p/>
+     * */
+    public static final class Label
+    {
+        /** The position of the label in the code, or -1 if it is not marked yet. */
+        private int offset = -1;
+
+        /** A boolean value indicating whether a branch goes to the label. */
+        private boolean isTarget;
+
+        /** The types on the stack at the label, or null if they are not known yet. */
+        private int[] stack;
+
+        /** The types in the locals at the label, indexed by slot. */
+        private int[] locals;
+
+        /** Positions of the branches to the label written before it is marked. */
+        private int[] branches = new int[2];
+
+        /** Number of positions in {@link #branches}. */
+        private int branchCount;
+    }
+
+    /** The class of the method. */
+    private final ClassWriter owner;
+
+    /** The access flags of the method. */
+    private final int access;
+
+    /** Index of the name of the method in the constant pool. */
+    private final int nameIndex;
+
+    /** Index of the descriptor of the method in the constant pool. */
+    private final int descriptorIndex;
+
+    /** The code. */
+    private byte[] code;
+
+    /** Length of the code. */
+    private int length;
+
+    /** The types on the stack. */
+    private int[] stack;
+
+    /** Number of types on the stack. */
+    private int stackSize;
+
+    /** Number of slots taken by the types on the stack. */
+    private int stackSlots;
+
+    /** The maximum number of slots of the stack. */
+    private int maxStack;
+
+    /** The types in the locals, indexed by slot, the second slot of a long being {@link #TOP}. */
+    private int[] locals;
+
+    /** Number of slots of the locals. */
+    private int localSlots;
+
+    /** The types in the locals when the method is entered. */
+    private final int[] initialLocals;
+
+    /** A boolean value indicating whether the next instruction is reachable. */
+    private boolean isReachable;
+
+    /** The labels marked in the code, in order. */
+    private final List<Label> labels;
+
+    /**
+     * Initializes a new instance of {@link CodeWriter}, whose locals are the parameters of the method.
+     * @param owner The class of the method.
+     * @param access The access flags of the method.
+     * @param name The name of the method.
+     * @param descriptor The descriptor of the method.
+     * */
+    CodeWriter(ClassWriter owner, int access, String name, String descriptor)
+    {
+        this.owner = owner;
+        this.access = access;
+        nameIndex = owner.newUtf8(name);
+        descriptorIndex = owner.newUtf8(descriptor);
+        code = new byte[256];
+        length = 0;
+        stack = new int[16];
+        stackSize = 0;
+        stackSlots = 0;
+        maxStack = 0;
+        locals = new int[16];
+        localSlots = 0;
+        isReachable = true;
+        labels = new ArrayList<>();
+
+        // The parameters are initialized when the method is entered.
+        if ((access & ClassWriter.ACC_STATIC) == 0)
+            addLocal(objectType(owner.getName()), objectType(owner.getName()));
+        for (int i = 1; descriptor.charAt(i) != ')'; i++)
+        {
+            int begin = i;
+            while (descriptor.charAt(i) == '[')
+                i++;
+            if (descriptor.charAt(i) == 'L')
+                i = descriptor.indexOf(';', i);
+            int type = getType(descriptor.substring(begin, i + 1));
+            addLocal(type, type);
+        }
+        initialLocals = Arrays.copyOf(locals, localSlots);
+    }
+
+    /**
+     * Gets the verification type of an object of the specified class.
+     * @param internalName The internal name of the class, or the descriptor of an array type.
+     * @return The verification type.
+     * */
+    public int objectType(String internalName)
+    {
+        return OBJECT | (owner.newClass(internalName) << 8);
+    }
+
+    /**
+     * Gets the verification type of a value of the specified descriptor.
+     * */
+    private int getType(String descriptor)
+    {
+        switch (descriptor.charAt(0))
+        {
+            case 'J':
+                return LONG;
+            case 'L':
+                return objectType(descriptor.substring(1, descriptor.length() - 1));
+            case '[':
+                return objectType(descriptor);
+            case 'F':
+            case 'D':
+                throw new IllegalArgumentException("Unsupported type: " + descriptor + ".");
+            default:
+                return INTEGER;
+        }
+    }
+
+    private static int getSize(int type)
+    {
+        return (type == LONG) ? 2 : 1;
+    }
+
+    /**
+     * Gets the length of the code written.
+     * @return The length of the code in bytes.
+     * */
+    public int getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Gets the type on the top of the stack.
+     * @return The type on the top of the stack.
+     * */
+    public int getStackTop()
+    {
+        return stack[stackSize - 1];
+    }
+
+    /**
+     * Reserves a local, whose type is {@link #TOP} until a value is stored in it.
+     * @param type The type of the values of the local, which gives its size.
+     * @return The slot of the local.
+     * */
+    public int newLocal(int type)
+    {
+        return addLocal(type, TOP);
+    }
+
+    private int addLocal(int type, int initialType)
+    {
+        int slot = localSlots;
+        localSlots += getSize(type);
+        if (localSlots > locals.length)
+            locals = Arrays.copyOf(locals, Math.max(locals.length * 2, localSlots));
+
+        locals[slot] = initialType;
+        if (getSize(type) == 2)
+            locals[slot + 1] = TOP;
+        return slot;
+    }
+
+    /**
+     * Writes an instruction without operand.
+     * @param opcode The opcode of the instruction.
+     * @exception IllegalArgumentException If the instruction is not supported.
+     * */
+    public void insn(int opcode)
+    {
+        switch (opcode)
+        {
+            case ACONST_NULL:
+                push(NULL);
+                break;
+            case LCONST_0:
+            case LCONST_1:
+                push(LONG);
+                break;
+            case LALOAD:
+                pop(2);
+                push(LONG);
+                break;
+            case LASTORE:
+                pop(3);
+                break;
+            case POP:
+            case POP2:
+                pop(1);
+                break;
+            case DUP:
+            case DUP2:
+                push(stack[stackSize - 1]);
+                break;
+            case LADD:
+            case LSUB:
+            case LMUL:
+            case LDIV:
+            case LREM:
+            case LAND:
+            case LOR:
+            case LXOR:
+            case LSHL:
+            case LSHR:
+            case LUSHR:
+                pop(2);
+                push(LONG);
+                break;
+            case LNEG:
+            case I2L:
+                pop(1);
+                push(LONG);
+                break;
+            case L2I:
+            case ARRAYLENGTH:
+                pop(1);
+                push(INTEGER);
+                break;
+            case LCMP:
+                pop(2);
+                push(INTEGER);
+                break;
+            case IRETURN:
+            case LRETURN:
+            case ARETURN:
+                pop(1);
+                isReachable = false;
+                break;
+            case RETURN:
+                isReachable = false;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported opcode: " + opcode + ".");
+        }
+        writeByte(opcode);
+    }
+
+    /**
+     * Pushes an {@code int} constant, with the shortest instruction.
+     * @param value The constant.
+     * */
+    public void pushInt(int value)
+    {
+        if ((value >= -1) && (value <= 5))
+            writeByte(ICONST_0 + value);
+        else if (value == (byte)value)
+        {
+            writeByte(BIPUSH);
+            writeByte(value);
+        }
+        else if (value == (short)value)
+        {
+            writeByte(SIPUSH);
+            writeShort(value);
+        }
+        else
+            writeConstant(owner.newInteger(value));
+        push(INTEGER);
+    }
+
+    /**
+     * Pushes a {@code long} constant, with the shortest instruction.
+     * @param value The constant.
+     * */
+    public void pushLong(long value)
+    {
+        if ((value == 0) || (value == 1))
+        {
+            insn((value == 0) ? LCONST_0 : LCONST_1);
+            return;
+        }
+
+        if (value == (byte)value)
+        {
+            writeByte(BIPUSH);
+            writeByte((int)value);
+        }
+        else if (value == (short)value)
+        {
+            writeByte(SIPUSH);
+            writeShort((int)value);
+        }
+        else
+        {
+            writeByte(LDC2_W);
+            writeShort(owner.newLong(value));
+            push(LONG);
+            return;
+        }
+        writeByte(I2L);
+        push(LONG);
+    }
+
+    /**
+     * Pushes a {@link String} constant.
+     * @param value The string.
+     * */
+    public void pushString(String value)
+    {
+        writeConstant(owner.newString(value));
+        push(objectType("java/lang/String"));
+    }
+
+    private void writeConstant(int index)
+    {
+        if (index <= 0xFF)
+        {
+            writeByte(LDC);
+            writeByte(index);
+        }
+        else
+        {
+            writeByte(LDC_W);
+            writeShort(index);
+        }
+    }
+
+    /**
+     * Loads a local on the stack.
+     * @param slot The slot of the local.
+     * @exception IllegalArgumentException If no value is stored in the local.
+     * */
+    public void load(int slot)
+    {
+        int type = locals[slot];
+        switch (type & 0xFF)
+        {
+            case INTEGER:
+                writeLocal(ILOAD, slot);
+                break;
+            case LONG:
+                writeLocal(LLOAD, slot);
+                break;
+            case OBJECT:
+            case NULL:
+                writeLocal(ALOAD, slot);
+                break;
+            default:
+                throw new IllegalArgumentException("The local " + slot + " is not initialized.");
+        }
+        push(type);
+    }
+
+    /**
+     * Pops the value on the top of the stack to a local.
+     * @param slot The slot of the local.
+     * */
+    public void store(int slot)
+    {
+        int type = stack[stackSize - 1];
+        switch (type & 0xFF)
+        {
+            case INTEGER:
+                writeLocal(ISTORE, slot);
+                break;
+            case LONG:
+                writeLocal(LSTORE, slot);
+                break;
+            default:
+                writeLocal(ASTORE, slot);
+                break;
+        }
+        pop(1);
+        locals[slot] = type;
+    }
+
+    /**
+     * Adds a constant to an {@code int} local.
+     * @param slot The slot of the local.
+     * @param increment The constant to add.
+     * */
+    public void iinc(int slot, int increment)
+    {
+        if ((slot <= 0xFF) && (increment == (byte)increment))
+        {
+            writeByte(IINC);
+            writeByte(slot);
+            writeByte(increment);
+        }
+        else
+        {
+            writeByte(WIDE);
+            writeByte(IINC);
+            writeShort(slot);
+            writeShort(increment);
+        }
+    }
+
+    /**
+     * Writes a load or a store, with the short form for the first 4 slots.
+     * */
+    private void writeLocal(int opcode, int slot)
+    {
+        // The short forms follow the long forms, 4 opcodes each: ILOAD_0 = 0x1A, LLOAD_0 = 0x1E, ... ASTORE_0 = 0x4B.
+        int shortBase = (opcode < ISTORE) ? 0x1A + (opcode - ILOAD) * 4 : 0x3B + (opcode - ISTORE) * 4;
+        if (slot <= 3)
+            writeByte(shortBase + slot);
+        else if (slot <= 0xFF)
+        {
+            writeByte(opcode);
+            writeByte(slot);
+        }
+        else
+        {
+            writeByte(WIDE);
+            writeByte(opcode);
+            writeShort(slot);
+        }
+    }
+
+    /**
+     * Writes an access to a field.
+     * @param opcode {@link #GETSTATIC}, {@link #PUTSTATIC}, {@link #GETFIELD} or {@link #PUTFIELD}.
+     * @param owner The internal name of the class of the field.
+     * @param name The name of the field.
+     * @param descriptor The descriptor of the type of the field.
+     * */
+    public void field(int opcode, String owner, String name, String descriptor)
+    {
+        int type = getType(descriptor);
+        if ((opcode == GETFIELD) || (opcode == PUTFIELD))
+            pop(1);
+        if ((opcode == GETSTATIC) || (opcode == GETFIELD))
+            push(type);
+        else
+            pop(1);
+
+        writeByte(opcode);
+        writeShort(this.owner.newField(owner, name, descriptor));
+    }
+
+    /**
+     * Writes a call of a method.
+     * @param opcode {@link #INVOKEVIRTUAL}, {@link #INVOKESPECIAL}, {@link #INVOKESTATIC} or {@link #INVOKEINTERFACE}.
+     * @param owner The internal name of the class of the method.
+     * @param name The name of the method.
+     * @param descriptor The descriptor of the method.
+     * */
+    public void invoke(int opcode, String owner, String name, String descriptor)
+    {
+        int argumentSlots = (opcode == INVOKESTATIC) ? 0 : 1;
+        int argumentCount = argumentSlots;
+        int i = 1;
+        for (; descriptor.charAt(i) != ')'; i++)
+        {
+            while (descriptor.charAt(i) == '[')
+                i++;
+            if (descriptor.charAt(i) == 'L')
+                i = descriptor.indexOf(';', i);
+            argumentSlots += (((descriptor.charAt(i) == 'J') || (descriptor.charAt(i) == 'D')) &&
+                              (descriptor.charAt(i - 1) != '[')) ? 2 : 1;
+            argumentCount++;
+        }
+        pop(argumentCount);
+        if (descriptor.charAt(i + 1) != 'V')
+            push(getType(descriptor.substring(i + 1)));
+
+        writeByte(opcode);
+        writeShort(this.owner.newMethod(owner, name, descriptor, opcode == INVOKEINTERFACE));
+        if (opcode == INVOKEINTERFACE)
+        {
+            writeByte(argumentSlots);
+            writeByte(0);
+        }
+    }
+
+    /**
+     * Creates a {@code long} array, whose length is on the stack.
+     * */
+    public void newLongArray()
+    {
+        writeByte(NEWARRAY);
+        writeByte(T_LONG);
+        pop(1);
+        push(objectType("[J"));
+    }
+
+    /**
+     * Writes an instruction whose operand is a class, such as {@link #CHECKCAST}.
+     * @param opcode The opcode of the instruction.
+     * @param internalName The internal name of the class, or the descriptor of an array type.
+     * */
+    public void typeInsn(int opcode, String internalName)
+    {
+        if (opcode != CHECKCAST)
+            throw new IllegalArgumentException("Unsupported opcode: " + opcode + ".");
+
+        writeByte(opcode);
+        writeShort(owner.newClass(internalName));
+        pop(1);
+        push(objectType(internalName));
+    }
+
+    /**
+     * Writes a branch to a label, which is a conditional branch or a {@link #GOTO}.
+     * @param opcode The opcode of the branch.
+     * @param label The target of the branch.
+     * */
+    public void branch(int opcode, Label label)
+    {
+        if ((opcode >= IFEQ) && (opcode <= IFLE))
+            pop(1);
+        else if ((opcode >= IF_ICMPLT) && (opcode <= IF_ICMPGE))
+            pop(2);
+        else if (opcode != GOTO)
+            throw new IllegalArgumentException("Unsupported opcode: " + opcode + ".");
+
+        label.isTarget = true;
+        mergeFrame(label);
+
+        int position = length;
+        writeByte(opcode);
+        writeShort(0);
+        if (label.offset >= 0)
+            patch(position, label.offset);
+        else
+        {
+            if (label.branchCount == label.branches.length)
+                label.branches = Arrays.copyOf(label.branches, label.branchCount * 2);
+            label.branches[label.branchCount++] = position;
+        }
+
+        if (opcode == GOTO)
+            isReachable = false;
+    }
+
+    /**
+     * Marks the position of a label at the end of the code.
+     * @param label The label.
+     * @exception IllegalStateException If the label is marked, or if the code is not reachable.
+     * */
+    public void mark(Label label)
+    {
+        if (label.offset >= 0)
+            throw new IllegalStateException("The label is already marked.");
+
+        if (isReachable)
+            mergeFrame(label);
+        else if (label.stack == null)
+            throw new IllegalStateException("The code at " + length + " is not reachable.");
+
+        // Go on with the frame of all the paths to the label.
+        stackSize = label.stack.length;
+        System.arraycopy(label.stack, 0, stack, 0, stackSize);
+        stackSlots = 0;
+        for (int i = 0; i < stackSize; i++)
+            stackSlots += getSize(stack[i]);
+        System.arraycopy(label.locals, 0, locals, 0, label.locals.length);
+        Arrays.fill(locals, label.locals.length, localSlots, TOP);
+        isReachable = true;
+
+        label.offset = length;
+        for (int i = 0; i < label.branchCount; i++)
+            patch(label.branches[i], length);
+        labels.add(label);
+    }
+
+    /**
+     * Merges the current types to the frame of a label: the first path gives the frame, and a local whose type is not
+     * the same on another path is unusable at the label.
+     * */
+    private void mergeFrame(Label label)
+    {
+        if (label.stack == null)
+        {
+            label.stack = Arrays.copyOf(stack, stackSize);
+            label.locals = Arrays.copyOf(locals, localSlots);
+            return;
+        }
+
+        if (label.stack.length != stackSize)
+            throw new IllegalStateException("The stack at the label has " + label.stack.length + " values instead of " +
+                                            stackSize + ".");
+        if (label.offset >= 0)
+            return;
+
+        for (int i = 0; i < label.locals.length; i++)
+        {
+            if ((i >= localSlots) || (label.locals[i] != locals[i]))
+                label.locals[i] = TOP;
+        }
+    }
+
+    private void patch(int position, int target)
+    {
+        int offset = target - position;
+        if (offset != (short)offset)
+            throw new IllegalArgumentException("The branch at " + position + " is too far.");
+
+        code[position + 1] = (byte)(offset >> 8);
+        code[position + 2] = (byte)offset;
+    }
+
+    private void push(int type)
+    {
+        if (stackSize == stack.length)
+            stack = Arrays.copyOf(stack, stackSize * 2);
+
+        stack[stackSize++] = type;
+        stackSlots += getSize(type);
+        maxStack = Math.max(maxStack, stackSlots);
+    }
+
+    private void pop(int count)
+    {
+        if (count > stackSize)
+            throw new IllegalStateException("Stack underflow at " + length + ".");
+
+        for (int i = 0; i < count; i++)
+            stackSlots -= getSize(stack[--stackSize]);
+    }
+
+    private void writeByte(int value)
+    {
+        if (length == code.length)
+            code = Arrays.copyOf(code, length * 2);
+
+        code[length++] = (byte)value;
+    }
+
+    private void writeShort(int value)
+    {
+        writeByte(value >> 8);
+        writeByte(value);
+    }
+
+    /**
+     * Writes the method in the format of the class file.
+     * @param out The stream to write the method to.
+     * @exception IllegalArgumentException If the code is too large.
+     * @exception IOException If an I/O error occurs.
+     * */
+    void write(DataOutputStream out) throws IOException
+    {
+        if (length > MAX_CODE_LENGTH)
+            throw new IllegalArgumentException("The code of a method of " + owner.getName() + " is too large.");
+        if (isReachable)
+            throw new IllegalStateException("The code of a method of " + owner.getName() + " does not return.");
+
+        byte[] frames = writeFrames();
+        int codeAttributeName = owner.newUtf8("Code");
+        int frameAttributeName = (frames.length > 0) ? owner.newUtf8("StackMapTable") : 0;
+
+        out.writeShort(access);
+        out.writeShort(nameIndex);
+        out.writeShort(descriptorIndex);
+        out.writeShort(1);
+
+        out.writeShort(codeAttributeName);
+        out.writeInt(12 + length + ((frames.length > 0) ? 6 + frames.length : 0));
+        out.writeShort(maxStack);
+        out.writeShort(localSlots);
+        out.writeInt(length);
+        out.write(code, 0, length);
+        out.writeShort(0);
+        if (frames.length > 0)
+        {
+            out.writeShort(1);
+            out.writeShort(frameAttributeName);
+            out.writeInt(frames.length);
+            out.write(frames);
+        }
+        else
+            out.writeShort(0);
+    }
+
+    /**
+     * Writes the StackMapTable frames of the targets of the branches, each frame being written as a difference with the
+     * previous frame when it is possible.
+     * @return The content of the StackMapTable attribute, which is empty if there is no branch.
+     * */
+    private byte[] writeFrames() throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        int frameCount = 0;
+        int previousOffset = -1;
+        int[] previousLocals = toEntries(initialLocals, initialLocals.length);
+        for (Label label : labels)
+        {
+            if (!label.isTarget || (label.offset == previousOffset))
+                continue;
+
+            int[] frameLocals = toEntries(label.locals, label.locals.length);
+            int delta = label.offset - previousOffset - 1;
+            int common = 0;
+            while ((common < frameLocals.length) && (common < previousLocals.length) &&
+                   (frameLocals[common] == previousLocals[common]))
+                common++;
+
+            boolean isSameLocals = (common == frameLocals.length) && (common == previousLocals.length);
+            if (isSameLocals && (label.stack.length == 0))
+            {
+                if (delta < 64)
+                    out.writeByte(delta);
+                else
+                {
+                    out.writeByte(251);
+                    out.writeShort(delta);
+                }
+            }
+            else if (isSameLocals && (label.stack.length == 1))
+            {
+                if (delta < 64)
+                    out.writeByte(64 + delta);
+                else
+                {
+                    out.writeByte(247);
+                    out.writeShort(delta);
+                }
+                writeType(out, label.stack[0]);
+            }
+            else if ((label.stack.length == 0) && (common == previousLocals.length) &&
+                     (frameLocals.length - common <= 3))
+            {
+                out.writeByte(251 + frameLocals.length - common);
+                out.writeShort(delta);
+                for (int i = common; i < frameLocals.length; i++)
+                    writeType(out, frameLocals[i]);
+            }
+            else if ((label.stack.length == 0) && (common == frameLocals.length) &&
+                     (previousLocals.length - common <= 3))
+            {
+                out.writeByte(251 - (previousLocals.length - common));
+                out.writeShort(delta);
+            }
+            else
+            {
+                out.writeByte(255);
+                out.writeShort(delta);
+                out.writeShort(frameLocals.length);
+                for (int type : frameLocals)
+                    writeType(out, type);
+                out.writeShort(label.stack.length);
+                for (int type : label.stack)
+                    writeType(out, type);
+            }
+
+            previousOffset = label.offset;
+            previousLocals = frameLocals;
+            frameCount++;
+        }
+
+        if (frameCount == 0)
+            return new byte[0];
+
+        byte[] entries = bytes.toByteArray();
+        byte[] frames = new byte[entries.length + 2];
+        frames[0] = (byte)(frameCount >> 8);
+        frames[1] = (byte)frameCount;
+        System.arraycopy(entries, 0, frames, 2, entries.length);
+        return frames;
+    }
+
+    /**
+     * Converts the types of the locals indexed by slot to the entries of a frame, where a long takes one entry, and
+     * drops the unusable locals at the end.
+     * */
+    private static int[] toEntries(int[] slots, int slotCount)
+    {
+        int[] entries = new int[slotCount];
+        int count = 0;
+        for (int i = 0; i < slotCount; i += getSize(slots[i]))
+            entries[count++] = slots[i];
+        while ((count > 0) && (entries[count - 1] == TOP))
+            count--;
+
+        return Arrays.copyOf(entries, count);
+    }
+
+    private static void writeType(DataOutputStream out, int type) throws IOException
+    {
+        out.writeByte(type & 0xFF);
+        if ((type & 0xFF) == OBJECT)
+            out.writeShort(type >>> 8);
+    }
+}
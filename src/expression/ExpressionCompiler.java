@@ -0,0 +1,326 @@
+package expression;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * The {@link ExpressionCompiler} class compiles the source of an expression to JVM bytecode by
+ * {@link BytecodeGenerator}, and returns a {@link LongBinaryOperator} or a {@link ToLongFunction} of a {@code long[]}
+ * evaluating it, which runs at the speed of compiled Java code. The source is one expression, or several statements
+ * separated by ";" whose last statement gives the value, the identifiers which are not parameters being temporaries.
+ * <p>
+ * The functions are kept in a cache of at most the specified number of entries, evicting the least recently used one,
+ * keyed by the source and by the source normalized as its tokens separated by single spaces, so that compiling a
+ * source again costs a lookup, and a source differing only by its spaces costs a scan. Each class is defined by its own
+ * {@link ClassLoader}, so that the class is unloaded when its function is evicted and no longer used. The compiler
+ * can be used by several threads, and the functions are stateless.
+ * <p/>
+ * */
+public class ExpressionCompiler
+{
+    /** The default number of entries of the cache. */
+    public static final int DEFAULT_CACHE_CAPACITY = 4096;
+
+    /** The beginning of the diagnostic saying whether a statement is legal, which is not an error itself. */
+    private static final String STATEMENT_DIAGNOSTIC = "The statement is ";
+
+    /**
+     * The {@link FunctionLoader} class defines the class of a single function.
+     * */
+    private static final class FunctionLoader extends ClassLoader
+    {
+        FunctionLoader()
+        {
+            super(ExpressionCompiler.class.getClassLoader());
+        }
+
+        Class<?> define(String name, byte[] classFile)
+        {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * The {@link Key} class is the key of a function in the cache. It is not a concatenation of its parts, so that a
+     * lookup does not copy the source, and uses the hash codes cached by the strings.
+     * */
+    private static final class Key
+    {
+        final Class<?> functionInterface;
+        final String source;
+        final String[] parameters;
+        final int hash;
+
+        Key(Class<?> functionInterface, String source, String[] parameters)
+        {
+            this.functionInterface = functionInterface;
+            this.source = source;
+            this.parameters = parameters;
+            hash = (functionInterface.hashCode() * 31 + source.hashCode()) * 31 + Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof Key))
+                return false;
+
+            Key key = (Key)obj;
+            return (hash == key.hash) && (functionInterface == key.functionInterface) && source.equals(key.source) &&
+                   Arrays.equals(parameters, key.parameters);
+        }
+    }
+
+    /** The functions keyed by their interfaces, parameters and sources, in the order of their last use. */
+    private final LinkedHashMap<Key, Object> cache;
+
+    /** Number of functions compiled, which numbers the classes. */
+    private long compileCount;
+
+    /** Number of functions found in the cache. */
+    private long hitCount;
+
+    /**
+     * Initializes a new instance of {@link ExpressionCompiler} with a cache of {@link #DEFAULT_CACHE_CAPACITY} entries.
+     * */
+    public ExpressionCompiler()
+    {
+        this(DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Initializes a new instance of {@link ExpressionCompiler}.
+     * @param cacheCapacity The maximum number of entries of the cache, 0 for no cache.
+     * @exception IllegalArgumentException If {@code cacheCapacity} is negative.
+     * */
+    public ExpressionCompiler(int cacheCapacity)
+    {
+        if (cacheCapacity < 0)
+            throw new IllegalArgumentException("Cache capacity cannot be negative.");
+
+        cache = new LinkedHashMap<Key, Object>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest)
+            {
+                return size() > cacheCapacity;
+            }
+        };
+        compileCount = 0;
+        hitCount = 0;
+    }
+
+    /**
+     * Compiles an expression of the specified parameters to a function of an array of their values.
+     * @param source The source of the expression.
+     * @param parameters The names of the parameters, in the order of their values in the array.
+     * @return The function evaluating the expression.
+     * @exception NullPointerException If an argument is null.
+     * @exception IllegalArgumentException If the source cannot be compiled.
+     * */
+    @SuppressWarnings("unchecked")
+    public ToLongFunction<long[]> compile(String source, String... parameters)
+    {
+        return (ToLongFunction<long[]>)get(ToLongFunction.class, source, parameters);
+    }
+
+    /**
+     * Compiles an expression of 2 parameters to a {@link LongBinaryOperator}.
+     * @param source The source of the expression.
+     * @param left The name of the first operand.
+     * @param right The name of the second operand.
+     * @return The function evaluating the expression.
+     * @exception NullPointerException If an argument is null.
+     * @exception IllegalArgumentException If the source cannot be compiled.
+     * */
+    public LongBinaryOperator compileBinary(String source, String left, String right)
+    {
+        return (LongBinaryOperator)get(LongBinaryOperator.class, source, new String[] { left, right });
+    }
+
+    /**
+     * Gets the number of entries of the cache.
+     * @return The number of entries of the cache.
+     * */
+    public synchronized int getCacheSize()
+    {
+        return cache.size();
+    }
+
+    /**
+     * Gets the number of functions compiled, which are not found in the cache.
+     * @return The number of functions compiled.
+     * */
+    public synchronized long getCompileCount()
+    {
+        return compileCount;
+    }
+
+    /**
+     * Gets the number of functions found in the cache.
+     * @return The number of functions found in the cache.
+     * */
+    public synchronized long getHitCount()
+    {
+        return hitCount;
+    }
+
+    /**
+     * Gets the function of a source from the cache, or compiles it. The lock is not held while a source is compiled,
+     * so that a source may be compiled twice by 2 threads, which get equivalent functions.
+     * */
+    private Object get(Class<?> functionInterface, String source, String[] parameters)
+    {
+        if ((source == null) || (parameters == null))
+            throw new NullPointerException("Source and parameters cannot be null.");
+        for (String parameter : parameters)
+        {
+            if (parameter == null)
+                throw new NullPointerException("Parameter cannot be null.");
+        }
+
+        Key key = new Key(functionInterface, source, parameters);
+        synchronized (this)
+        {
+            Object function = cache.get(key);
+            if (function != null)
+            {
+                hitCount++;
+                return function;
+            }
+        }
+
+        // The statements end with a ";", which is optional after the last statement.
+        String statements = source.trim().endsWith(";") ? source : source + " ;";
+        TokenBuffer tokens = TokenBuffer.tokenize(statements.getBytes(StandardCharsets.UTF_8));
+        Key normalizedKey = new Key(functionInterface, normalize(tokens), parameters.clone());
+        key = new Key(functionInterface, source, normalizedKey.parameters);
+        synchronized (this)
+        {
+            Object function = cache.get(normalizedKey);
+            if (function != null)
+            {
+                hitCount++;
+                cache.put(key, function);
+                return function;
+            }
+        }
+
+        Object function = define(functionInterface, source, tokens, parameters);
+        synchronized (this)
+        {
+            cache.put(normalizedKey, function);
+            cache.put(key, function);
+        }
+        return function;
+    }
+
+    /**
+     * Formats the tokens separated by single spaces.
+     * */
+    private static String normalize(TokenBuffer tokens)
+    {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; tokens.getType(i) != TokenType.END_OF_FILE; i++)
+            builder.append((i == 0) ? "" : " ").append(tokens.getText(i));
+
+        return builder.toString();
+    }
+
+    /**
+     * Parses and compiles the tokens of a source, and creates the function.
+     * */
+    private Object define(Class<?> functionInterface, String source, TokenBuffer tokens, String[] parameters)
+    {
+        ByteArrayOutputStream diagnostics = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(diagnostics);
+        SyntaxTree tree = new SyntaxTree(Math.max(16, tokens.size()));
+        int root = new PrattParser(tokens, tree, out).statements();
+
+        String className;
+        synchronized (this)
+        {
+            className = "CompiledExpression" + compileCount++;
+        }
+
+        byte[] classFile = null;
+        String error = null;
+        try
+        {
+            classFile = new BytecodeGenerator(tokens, tree, out).generateFunction(className, root, functionInterface,
+                                                                                  parameters);
+        }
+        catch (IllegalArgumentException e)
+        {
+            error = e.getMessage();
+        }
+
+        // The diagnostics explain why a statement cannot be compiled, except the diagnostics of legal statements.
+        StringBuilder errors = new StringBuilder();
+        out.flush();
+        for (String line : diagnostics.toString().split("\n"))
+        {
+            if (!line.isEmpty() && !line.startsWith(STATEMENT_DIAGNOSTIC))
+                errors.append(' ').append(line);
+        }
+        if ((errors.length() == 0) && (error != null))
+            errors.append(' ').append(error);
+        if (errors.length() > 0)
+            throw new IllegalArgumentException("Cannot compile \"" + source + "\":" + errors);
+
+        try
+        {
+            return new FunctionLoader().define(className, classFile).getConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException e)
+        {
+            throw new IllegalStateException("Cannot create the function of \"" + source + "\".", e);
+        }
+    }
+
+    /**
+     * A unit test method for the {@link ExpressionCompiler} class.
+     * */
+    public static void main(String[] args)
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler(4);
+        LongBinaryOperator distance = compiler.compileBinary("a > b ? a - b : b - a", "a", "b");
+        System.out.println(distance.applyAsLong(3, 10) + " " + distance.applyAsLong(10, 3));
+
+        ToLongFunction<long[]> polynomial = compiler.compile("t = x * x; 3 * t * t - 2 * t + y", "x", "y");
+        System.out.println(polynomial.applyAsLong(new long[] { 2, 1 }));
+
+        // The same source with other spaces is in the cache, but not with other parameters.
+        System.out.println("Cached: " + (compiler.compileBinary("a>b?a-b:b-a", "a", "b") == distance));
+        System.out.println("Cached: " + (compiler.compileBinary("a > b ? a - b : b - a", "b", "a") == distance));
+
+        for (String source : new String[] { "a +", "f(a)", "a = ; b", "1.5 * a" })
+        {
+            try
+            {
+                compiler.compile(source, "a");
+            }
+            catch (IllegalArgumentException e)
+            {
+                System.out.println(e.getMessage());
+            }
+        }
+
+        // Compiling a source again is a lookup in the cache.
+        ToLongFunction<long[]> formula = compiler.compile("(price * quantity - discount) * (100 + tax) / 100",
+                                                          "price", "quantity", "discount", "tax");
+        System.out.println(formula.applyAsLong(new long[] { 1999, 3, 500, 20 }));
+        System.out.println("Cached: " + (compiler.compile("(price * quantity - discount) * (100 + tax) / 100",
+                                                          "price", "quantity", "discount", "tax") == formula));
+        System.out.println(compiler.getCompileCount() + " compiled, " + compiler.getHitCount() + " found, " +
+                           compiler.getCacheSize() + " entries.");
+    }
+}
@@ -0,0 +1,97 @@
+package expression;
+
+import java.util.function.*;
+
+/**
+ * The {@link ExpressionCompilerBenchmark} class measures the cost of evaluating a formula compiled by
+ * {@link ExpressionCompiler}: looking the formula up in the cache before each evaluation, and evaluating a function
+ * kept by the caller, which is the cost of the compiled code alone.
+ * <p>
+ * Usage: ExpressionCompilerBenchmark.
+ * <p/>
+ * */
+public final class ExpressionCompilerBenchmark
+{
+    /** Number of runs of each measure that are not measured. */
+    private static final int WARM_UP_RUNS = 3;
+
+    /** Number of measured runs of each measure. */
+    private static final int MEASURED_RUNS = 5;
+
+    /** Number of evaluations of a run. */
+    private static final int EVALUATION_COUNT = 1000000;
+
+    /** The formula evaluated. */
+    private static final String FORMULA = "(price * quantity - discount) * (100 + tax) / 100";
+
+    /** The parameters of the formula. */
+    private static final String[] PARAMETERS = { "price", "quantity", "discount", "tax" };
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private ExpressionCompilerBenchmark(){}
+
+    /**
+     * Evaluates the formula, looking it up in the cache before each evaluation.
+     * */
+    private static long evaluateWithLookup(ExpressionCompiler compiler)
+    {
+        long[] values = { 1999, 3, 500, 20 };
+        long sum = 0;
+        for (int i = 0; i < EVALUATION_COUNT; i++)
+        {
+            values[1] = i & 7;
+            sum += compiler.compile(FORMULA, PARAMETERS).applyAsLong(values);
+        }
+        return sum;
+    }
+
+    /**
+     * Evaluates the formula compiled once.
+     * */
+    private static long evaluate(ExpressionCompiler compiler)
+    {
+        ToLongFunction<long[]> function = compiler.compile(FORMULA, PARAMETERS);
+        long[] values = { 1999, 3, 500, 20 };
+        long sum = 0;
+        for (int i = 0; i < EVALUATION_COUNT; i++)
+        {
+            values[1] = i & 7;
+            sum += function.applyAsLong(values);
+        }
+        return sum;
+    }
+
+    /**
+     * Runs one measure and prints its result.
+     * */
+    private static void run(String name, ToLongFunction<ExpressionCompiler> measure, ExpressionCompiler compiler)
+    {
+        long result = 0;
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < WARM_UP_RUNS + MEASURED_RUNS; i++)
+        {
+            long start = System.nanoTime();
+            result = measure.applyAsLong(compiler);
+            long time = System.nanoTime() - start;
+
+            if (i >= WARM_UP_RUNS)
+                bestTime = Math.min(bestTime, time);
+        }
+
+        System.out.printf("%-20s result: %12d, time: %8.1f ms, %6.2f ns/evaluation%n",
+                name, result, bestTime / 1e6, (double)bestTime / EVALUATION_COUNT);
+    }
+
+    /**
+     * Runs the benchmark.
+     * */
+    public static void main(String[] args)
+    {
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        run("Lookup and evaluation", ExpressionCompilerBenchmark::evaluateWithLookup, compiler);
+        run("Evaluation", ExpressionCompilerBenchmark::evaluate, compiler);
+        System.out.println(compiler.getCompileCount() + " compiled, " + compiler.getHitCount() + " found.");
+    }
+}
@@ -0,0 +1,22 @@
+package expression;
+
+/**
+ * The LL(1) tables of the grammar in expressionGrammar.txt, generated by {@link LLTableGenerator}. Do not edit.
+ * */
+final class ExpressionLLTable
+{
+    /** The tables. */
+    static final LLTable TABLE = new LLTable(
+            new String[] { "statements", "moreStatements", "expression", "addExpression", "term", "subMultiplicationTerm", "factor" },
+            new TokenType[] { TokenType.END_OF_FILE, TokenType.SEMICOLON, TokenType.PLUS, TokenType.TIMES, TokenType.NUMBER, TokenType.IDENTIFIER, TokenType.LEFT_PARENTHESES, TokenType.RIGHT_PARENTHESES },
+            new int[] {1, 2, 3, 4, 5, 6, 7, 2},
+            8,
+            new int[] {0, 3, 4, 4, 6, 9, 9, 11, 14, 14, 15, 16, 19},
+            new int[] {2, 8, 1, 0, 4, 3, 9, 4, 3, 6, 5, 10, 6, 5, 11, 12, 13, 2, 14},
+            new short[] {-1, -2, -1, -1, -1, 0, 0, 0, -1, 2, -1, -1, -1, 1, 1, 1, -1, -1, -2, -1, -1, 3, 3, 3, -1, -1, 5, 4, -1, -1, -1, -1, -1, -1, -2, -2, -1, 6, 6, 6, -1, -1, 8, 8, 7, -1, -1, -1, -1, -1, -2, -2, -2, 9, 10, 11});
+
+    /**
+     * This class should not be instantiated since it is designed to provide static fields only.
+     * */
+    private ExpressionLLTable(){}
+}
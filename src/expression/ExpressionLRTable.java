@@ -0,0 +1,27 @@
+package expression;
+
+/**
+ * The LALR(1) tables of the grammar in expressionLRGrammar.txt, generated by {@link LALRTableGenerator}. Do not edit.
+ * */
+final class ExpressionLRTable
+{
+    /** The tables. */
+    static final LRTable TABLE = new LRTable(
+            new TokenType[] { TokenType.END_OF_FILE, TokenType.SEMICOLON, TokenType.PLUS, TokenType.TIMES, TokenType.NUMBER, TokenType.IDENTIFIER, TokenType.LEFT_PARENTHESES, TokenType.RIGHT_PARENTHESES },
+            4,
+            new int[] {0, 0, 1, 1, 2, 2, 3, 3, 3},
+            new int[] {3, 2, 3, 1, 3, 1, 1, 1, 3},
+            new int[] {3, 0, 0, 0, 0, 0, 0, 6, 18, 0, 9, 12, 19, 0, 19, 0, 0},
+            new int[] {1, 2, 2, 3, 1, 1, 1, 0, 0, 0, 7, 7, 7, 10, 10, 10, 11, 11, 11, 8, 8, 12, 14, -1, -1, -1, 12},
+            new int[] {-10, 10, 11, 12, 6, 7, 8, 6, 7, 8, 6, 7, 8, 6, 7, 8, 6, 7, 8, 14, 11, 11, 12, 0, 0, 0, 17},
+            new int[] {0, 0, 0, -4, -6, -7, -8, 0, 0, -2, 0, 0, 0, -1, -3, -5, -9},
+            new int[] {0, 0, 0, 0},
+            new int[] {-1, 1, -1, -1, -1, -1, -1, 1, -1, -1, 2, 3, -1, -1, -1, -1, -1},
+            new int[] {0, 8, 0, 0, 0, 0, 0, 12, 0, 0, 14, 15, 0, 0, 0, 0, 0},
+            new int[] {1, 2, 3, 4});
+
+    /**
+     * This class should not be instantiated since it is designed to provide static fields only.
+     * */
+    private ExpressionLRTable(){}
+}
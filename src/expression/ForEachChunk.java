@@ -0,0 +1,43 @@
+package expression;
+
+import java.util.concurrent.*;
+import java.util.function.*;
+
+/**
+ * The {@link ForEachChunk} class runs an action for each chunk of a range on a {@link ForkJoinPool}, splitting the
+ * range in halves, so that the chunks are shared by the workers of the pool.
+ * <p/>
+ * */
+final class ForEachChunk extends RecursiveAction
+{
+    private static final long serialVersionUID = 1L;
+
+    private final int begin;
+    private final int end;
+    private final IntConsumer action;
+
+    /**
+     * Initializes a new instance of {@link ForEachChunk}.
+     * @param begin Index of the first chunk.
+     * @param end Index after the last chunk.
+     * @param action The action run with the index of each chunk.
+     * */
+    ForEachChunk(int begin, int end, IntConsumer action)
+    {
+        this.begin = begin;
+        this.end = end;
+        this.action = action;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (end - begin == 1)
+            action.accept(begin);
+        else
+        {
+            int middle = (begin + end) >>> 1;
+            invokeAll(new ForEachChunk(begin, middle, action), new ForEachChunk(middle, end, action));
+        }
+    }
+}
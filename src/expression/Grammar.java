@@ -0,0 +1,477 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link Grammar} class represents a context-free grammar read from a grammar file, with the sets used to build the
+ * tables of a parser: the nullable nonterminals, and the FIRST and FOLLOW sets of the nonterminals.
+ * <p>
+ * A grammar file contains rules such as "factor -> NUMBER | LEFT_PARENTHESES expression RIGHT_PARENTHESES". A line
+ * starting with "|" adds alternatives to the rule above it, and "#" starts a comment. The terminals are the names of the
+ * {@link TokenType} constants, the other symbols are nonterminals which must be defined by a rule, the first rule
+ * defines the start symbol, and an empty alternative derives the empty string. The input is ended by an
+ * {@link TokenType#END_OF_FILE}, which is always a terminal of the grammar.
+ * <p>
+ * A symbol is an {@code int}: the nonterminals are numbered from 0 in the order of their definitions, so that the start
+ * symbol is 0, and the terminals follow them. The productions are numbered from 0 in the order of the grammar file, and
+ * their symbols are stored in a flat array.
+ * <p/>
+ * */
+public class Grammar
+{
+    /** The start symbol. */
+    public static final int START_SYMBOL = 0;
+
+    /** Names of the nonterminals. */
+    private final String[] nonterminalNames;
+
+    /** The terminals, in the order of their first use, the first one being {@link TokenType#END_OF_FILE}. */
+    private final TokenType[] terminals;
+
+    /** The nonterminals on the left of the productions. */
+    private final int[] productionLefts;
+
+    /** Indexes in {@link #productionSymbols} of the first symbols of the productions, and the number of symbols. */
+    private final int[] productionStarts;
+
+    /** The symbols on the right of all the productions. */
+    private final int[] productionSymbols;
+
+    /** The nonterminals which derive the empty string. */
+    private final boolean[] nullable;
+
+    /** FIRST sets of the nonterminals, as sets of terminal indexes. */
+    private final BitSet[] firstSets;
+
+    /** FOLLOW sets of the nonterminals, as sets of terminal indexes. */
+    private final BitSet[] followSets;
+
+    private Grammar(String[] nonterminalNames, TokenType[] terminals, int[] productionLefts, int[] productionStarts,
+                    int[] productionSymbols)
+    {
+        this.nonterminalNames = nonterminalNames;
+        this.terminals = terminals;
+        this.productionLefts = productionLefts;
+        this.productionStarts = productionStarts;
+        this.productionSymbols = productionSymbols;
+
+        nullable = new boolean[nonterminalNames.length];
+        firstSets = new BitSet[nonterminalNames.length];
+        followSets = new BitSet[nonterminalNames.length];
+        for (int i = 0; i < nonterminalNames.length; i++)
+        {
+            firstSets[i] = new BitSet(terminals.length);
+            followSets[i] = new BitSet(terminals.length);
+        }
+
+        computeNullable();
+        computeFirstSets();
+        computeFollowSets();
+    }
+
+    /**
+     * Reads a grammar file.
+     * @param path The path of the grammar file.
+     * @return The grammar.
+     * @exception IOException If an I/O error occurs.
+     * @exception IllegalArgumentException If the grammar is malformed.
+     * */
+    public static Grammar read(String path) throws IOException
+    {
+        return parse(InputSystem.File.readAllText(path));
+    }
+
+    /**
+     * Parses the text of a grammar file.
+     * @param text The text of the grammar.
+     * @return The grammar.
+     * @exception IllegalArgumentException If the grammar is malformed, with the line of the error.
+     * */
+    public static Grammar parse(String text)
+    {
+        Map<String, Integer> nonterminals = new LinkedHashMap<>();
+        List<String> lefts = new ArrayList<>();
+        List<String[]> rights = new ArrayList<>();
+        List<Integer> lineNumbers = new ArrayList<>();
+
+        String left = null;
+        String[] lines = text.split("\n", -1);
+        for (int i = 0; i < lines.length; i++)
+        {
+            String line = lines[i];
+            int comment = line.indexOf('#');
+            if (comment >= 0)
+                line = line.substring(0, comment);
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+
+            String alternatives;
+            int arrow = line.indexOf("->");
+            if (arrow >= 0)
+            {
+                left = line.substring(0, arrow).trim();
+                if (!left.matches("[A-Za-z_][A-Za-z_0-9]*"))
+                    throw new IllegalArgumentException("Line " + (i + 1) + ": invalid nonterminal \"" + left + "\".");
+                if (isTerminal(left))
+                    throw new IllegalArgumentException("Line " + (i + 1) + ": \"" + left + "\" is a terminal.");
+
+                nonterminals.putIfAbsent(left, nonterminals.size());
+                alternatives = line.substring(arrow + 2);
+            }
+            else if (line.startsWith("|") && (left != null))
+                alternatives = line.substring(1);
+            else
+                throw new IllegalArgumentException("Line " + (i + 1) + ": \"->\" expected.");
+
+            for (String alternative : alternatives.split("\\|", -1))
+            {
+                String symbols = alternative.trim();
+                lefts.add(left);
+                rights.add(symbols.isEmpty() ? new String[0] : symbols.split("\\s+"));
+                lineNumbers.add(i + 1);
+            }
+        }
+        if (nonterminals.isEmpty())
+            throw new IllegalArgumentException("The grammar has no rule.");
+
+        // Number the terminals after the nonterminals, END_OF_FILE first.
+        Map<TokenType, Integer> terminals = new LinkedHashMap<>();
+        terminals.put(TokenType.END_OF_FILE, nonterminals.size());
+
+        int[] productionLefts = new int[lefts.size()];
+        int[] productionStarts = new int[lefts.size() + 1];
+        int symbolCount = 0;
+        for (String[] right : rights)
+            symbolCount += right.length;
+        int[] productionSymbols = new int[symbolCount];
+
+        symbolCount = 0;
+        for (int production = 0; production < lefts.size(); production++)
+        {
+            productionLefts[production] = nonterminals.get(lefts.get(production));
+            productionStarts[production] = symbolCount;
+            for (String name : rights.get(production))
+            {
+                Integer symbol;
+                if (isTerminal(name))
+                {
+                    TokenType terminal = TokenType.valueOf(name);
+                    symbol = terminals.computeIfAbsent(terminal, t -> nonterminals.size() + terminals.size());
+                }
+                else
+                {
+                    symbol = nonterminals.get(name);
+                    if (symbol == null)
+                        throw new IllegalArgumentException("Line " + lineNumbers.get(production) + ": undefined symbol \"" + name + "\".");
+                }
+
+                productionSymbols[symbolCount++] = symbol;
+            }
+        }
+        productionStarts[lefts.size()] = symbolCount;
+
+        return new Grammar(nonterminals.keySet().toArray(new String[0]), terminals.keySet().toArray(new TokenType[0]),
+                productionLefts, productionStarts, productionSymbols);
+    }
+
+    /**
+     * Returns a value indicating whether the given name is the name of a {@link TokenType}.
+     * */
+    private static boolean isTerminal(String name)
+    {
+        try
+        {
+            TokenType.valueOf(name);
+            return true;
+        }
+        catch (IllegalArgumentException e)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Computes the nullable nonterminals, until no nonterminal is added.
+     * */
+    private void computeNullable()
+    {
+        for (boolean isChanged = true; isChanged; )
+        {
+            isChanged = false;
+            for (int production = 0; production < getProductionCount(); production++)
+            {
+                int left = productionLefts[production];
+                if (!nullable[left] && isNullable(production, 0))
+                {
+                    nullable[left] = true;
+                    isChanged = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the FIRST sets, until no terminal is added.
+     * */
+    private void computeFirstSets()
+    {
+        BitSet first = new BitSet();
+        for (boolean isChanged = true; isChanged; )
+        {
+            isChanged = false;
+            for (int production = 0; production < getProductionCount(); production++)
+            {
+                first.clear();
+                addFirst(production, 0, first);
+
+                BitSet leftFirst = firstSets[productionLefts[production]];
+                int cardinality = leftFirst.cardinality();
+                leftFirst.or(first);
+                isChanged |= leftFirst.cardinality() != cardinality;
+            }
+        }
+    }
+
+    /**
+     * Computes the FOLLOW sets, until no terminal is added. END_OF_FILE follows the start symbol.
+     * */
+    private void computeFollowSets()
+    {
+        followSets[START_SYMBOL].set(getTerminalIndex(TokenType.END_OF_FILE));
+
+        BitSet follow = new BitSet();
+        for (boolean isChanged = true; isChanged; )
+        {
+            isChanged = false;
+            for (int production = 0; production < getProductionCount(); production++)
+            {
+                for (int i = 0; i < getLength(production); i++)
+                {
+                    int symbol = getSymbol(production, i);
+                    if (isTerminal(symbol))
+                        continue;
+
+                    // FOLLOW(symbol) contains FIRST of what follows it, and FOLLOW(left) if what follows is nullable.
+                    follow.clear();
+                    if (addFirst(production, i + 1, follow))
+                        follow.or(followSets[productionLefts[production]]);
+
+                    BitSet symbolFollow = followSets[symbol];
+                    int cardinality = symbolFollow.cardinality();
+                    symbolFollow.or(follow);
+                    isChanged |= symbolFollow.cardinality() != cardinality;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the FIRST set of the symbols of a production from the specified index to the given set.
+     * @param production The production.
+     * @param from Index of the first symbol in the production.
+     * @param first The set of terminal indexes to add to.
+     * @return true if the symbols from the index derive the empty string, otherwise, false.
+     * */
+    public boolean addFirst(int production, int from, BitSet first)
+    {
+        for (int i = from; i < getLength(production); i++)
+        {
+            int symbol = getSymbol(production, i);
+            if (isTerminal(symbol))
+            {
+                first.set(getTerminalIndex(symbol));
+                return false;
+            }
+
+            first.or(firstSets[symbol]);
+            if (!nullable[symbol])
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns a value indicating whether the symbols of a production from the specified index derive the empty string.
+     * */
+    private boolean isNullable(int production, int from)
+    {
+        for (int i = from; i < getLength(production); i++)
+        {
+            int symbol = getSymbol(production, i);
+            if (isTerminal(symbol) || !nullable[symbol])
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Gets the number of nonterminals.
+     * @return The number of nonterminals.
+     * */
+    public int getNonterminalCount()
+    {
+        return nonterminalNames.length;
+    }
+
+    /**
+     * Gets the number of terminals.
+     * @return The number of terminals.
+     * */
+    public int getTerminalCount()
+    {
+        return terminals.length;
+    }
+
+    /**
+     * Gets the number of symbols.
+     * @return The number of symbols.
+     * */
+    public int getSymbolCount()
+    {
+        return nonterminalNames.length + terminals.length;
+    }
+
+    /**
+     * Returns a value indicating whether the given symbol is a terminal.
+     * @param symbol The symbol.
+     * @return true if the symbol is a terminal, otherwise, false.
+     * */
+    public boolean isTerminal(int symbol)
+    {
+        return symbol >= nonterminalNames.length;
+    }
+
+    /**
+     * Gets the terminal of the specified index.
+     * @param index The index of the terminal, from 0.
+     * @return The {@link TokenType} of the terminal.
+     * */
+    public TokenType getTerminal(int index)
+    {
+        return terminals[index];
+    }
+
+    /**
+     * Gets the index of the given terminal symbol.
+     * @param symbol The terminal symbol.
+     * @return The index of the terminal, from 0.
+     * */
+    public int getTerminalIndex(int symbol)
+    {
+        return symbol - nonterminalNames.length;
+    }
+
+    /**
+     * Gets the index of the given terminal.
+     * @param terminal The terminal.
+     * @return The index of the terminal, or -1 if it is not a terminal of the grammar.
+     * */
+    public int getTerminalIndex(TokenType terminal)
+    {
+        for (int i = 0; i < terminals.length; i++)
+        {
+            if (terminals[i] == terminal)
+                return i;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Gets the name of the specified symbol.
+     * @param symbol The symbol.
+     * @return The name of the symbol.
+     * */
+    public String getSymbolName(int symbol)
+    {
+        return isTerminal(symbol) ? terminals[getTerminalIndex(symbol)].name() : nonterminalNames[symbol];
+    }
+
+    /**
+     * Gets the number of productions.
+     * @return The number of productions.
+     * */
+    public int getProductionCount()
+    {
+        return productionLefts.length;
+    }
+
+    /**
+     * Gets the nonterminal on the left of the specified production.
+     * @param production The production.
+     * @return The nonterminal on the left of the production.
+     * */
+    public int getLeft(int production)
+    {
+        return productionLefts[production];
+    }
+
+    /**
+     * Gets the number of symbols on the right of the specified production.
+     * @param production The production.
+     * @return The number of symbols on the right of the production.
+     * */
+    public int getLength(int production)
+    {
+        return productionStarts[production + 1] - productionStarts[production];
+    }
+
+    /**
+     * Gets a symbol on the right of the specified production.
+     * @param production The production.
+     * @param index Index of the symbol, from 0.
+     * @return The symbol.
+     * */
+    public int getSymbol(int production, int index)
+    {
+        return productionSymbols[productionStarts[production] + index];
+    }
+
+    /**
+     * Returns a value indicating whether the given nonterminal derives the empty string.
+     * @param nonterminal The nonterminal.
+     * @return true if the nonterminal derives the empty string, otherwise, false.
+     * */
+    public boolean isNullable(int nonterminal)
+    {
+        return nullable[nonterminal];
+    }
+
+    /**
+     * Gets the FIRST set of the given nonterminal.
+     * @param nonterminal The nonterminal.
+     * @return A copy of the FIRST set, as a set of terminal indexes.
+     * */
+    public BitSet getFirst(int nonterminal)
+    {
+        return (BitSet)firstSets[nonterminal].clone();
+    }
+
+    /**
+     * Gets the FOLLOW set of the given nonterminal.
+     * @param nonterminal The nonterminal.
+     * @return A copy of the FOLLOW set, as a set of terminal indexes.
+     * */
+    public BitSet getFollow(int nonterminal)
+    {
+        return (BitSet)followSets[nonterminal].clone();
+    }
+
+    /**
+     * Formats the specified production as in a grammar file.
+     * @param production The production.
+     * @return The formatted production.
+     * */
+    public String toString(int production)
+    {
+        StringBuilder builder = new StringBuilder(nonterminalNames[productionLefts[production]]).append(" ->");
+        for (int i = 0; i < getLength(production); i++)
+            builder.append(' ').append(getSymbolName(getSymbol(production, i)));
+
+        return builder.toString();
+    }
+}
@@ -46,7 +46,7 @@ public class ImprovedParser
                 System.out.println("The statement is " + (isLegalStatement ? "legal" : "illegal"));
                 isLegalStatement = true;
             }
-            else if (lexer.match(TokenType.UNKNOWN_SYMBOL) ||
+            else if (lexer.matchUnknownSymbol() ||
                      lexer.match(TokenType.MINUS) ||
                      lexer.match(TokenType.DIVIDE))
             {
@@ -88,7 +88,7 @@ public class ImprovedParser
             term();
         }
 
-        if (lexer.match(TokenType.UNKNOWN_SYMBOL))
+        if (lexer.matchUnknownSymbol())
         {
             isLegalStatement = false;
             System.out.println("Line " + lexer.getLineNumber() + ", unknown symbol \"" + lexer.getSymbolText() + "\"");
@@ -118,12 +118,12 @@ public class ImprovedParser
     /**
      * Parses a "factor" with following production.
      * <p>
-     * factor -> NUMBER_OR_ID | ( expression )
+     * factor -> NUMBER | IDENTIFIER | ( expression )
      * <p/>
      * */
     private void factor()
     {
-        if (lexer.match(TokenType.NUMBER_OR_IDENTIFIER))
+        if (lexer.match(TokenType.NUMBER) || lexer.match(TokenType.IDENTIFIER))
             lexer.lookNextToken();
         else if (lexer.match(TokenType.LEFT_PARENTHESES))
         {
@@ -0,0 +1,415 @@
+package expression;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * The {@link IncrementalParser} class keeps the tokens and the diagnostics of a source which is edited, such as the
+ * buffer of an editor, and checks an edit again without lexing and parsing the whole source. The diagnostics are the
+ * same as the diagnostics of {@link ImprovedParser} on the edited source.
+ * <p>
+ * No symbol spans a '\n', so an edit only damages the tokens of the lines it touches: they are scanned again, and the
+ * tokens after them are the old tokens, shifted. The statements are parsed one by one with their own diagnostics, and
+ * the parse of a statement only depends on its tokens, the first token of the next statement, and whether the
+ * statement is legal so far when it starts. So the statements are parsed again from the first statement depending on a
+ * damaged token, until a statement starts at the start of an old statement after the damaged tokens, in the same
+ * state: the old statements are kept from there. If the edit changes the number of lines, the line numbers of the
+ * diagnostics of the statements kept change, so the statements kept which have errors are parsed again too.
+ * <p>
+ * The offsets of the edits are offsets in bytes of the UTF-8 source.
+ * <p/>
+ * */
+public class IncrementalParser
+{
+    /** The diagnostics of a legal statement, which most statements share. */
+    private static final String LEGAL_DIAGNOSTICS = "The statement is legal" + System.lineSeparator();
+
+    /** The source, followed by free room for the edits. */
+    private byte[] source;
+
+    /** Length of the source. */
+    private int sourceLength;
+
+    /** The tokens of the source. */
+    private TokenBuffer tokens;
+
+    /** Indexes of the first tokens of the statements. */
+    private int[] statementStarts;
+
+    /** Values indicating whether the statements are legal so far when they start. */
+    private boolean[] legalStarts;
+
+    /** The diagnostics of the statements. */
+    private String[] diagnostics;
+
+    /** Number of statements. */
+    private int statementCount;
+
+    /** Index of the {@link TokenType#END_OF_FILE} ending the parse. */
+    private int endPosition;
+
+    /** A value indicating whether the statement after the last one would be legal so far. */
+    private boolean isLegalEnd;
+
+    /** The tree the statements are parsed into, which is cleared before each statement. */
+    private final SyntaxTree tree;
+
+    /** The diagnostics of the statement being parsed. */
+    private final ByteArrayOutputStream statementOut;
+
+    /** The stream writing to {@link #statementOut}. */
+    private final PrintStream statementPrintStream;
+
+    /** The encoded diagnostics of a legal statement. */
+    private final byte[] legalDiagnosticsBytes;
+
+    /**
+     * Initializes a new instance of {@link IncrementalParser}, and parses the whole specified source.
+     * @param source The source, which is copied, so that the edits do not change it.
+     * @exception NullPointerException If {@code source} is null.
+     * */
+    public IncrementalParser(byte[] source)
+    {
+        this.source = source.clone();
+        sourceLength = source.length;
+        tokens = TokenBuffer.tokenize(this.source);
+        tree = new SyntaxTree();
+        statementOut = new ByteArrayOutputStream();
+        statementPrintStream = new PrintStream(statementOut);
+        statementPrintStream.print(LEGAL_DIAGNOSTICS);
+        statementPrintStream.flush();
+        legalDiagnosticsBytes = statementOut.toByteArray();
+
+        StatementList statements = new StatementList();
+        parse(0, true, -1, 0, statements);
+        statementStarts = statements.starts;
+        legalStarts = statements.legalStarts;
+        diagnostics = statements.diagnostics;
+        statementCount = statements.size;
+    }
+
+    /**
+     * Gets a copy of the source.
+     * @return A copy of the source.
+     * */
+    public byte[] getSource()
+    {
+        return Arrays.copyOf(source, sourceLength);
+    }
+
+    /**
+     * Gets the tokens of the source, which are updated by the edits.
+     * @return The tokens of the source.
+     * */
+    public TokenBuffer getTokens()
+    {
+        return tokens;
+    }
+
+    /**
+     * Gets the number of statements.
+     * @return The number of statements.
+     * */
+    public int getStatementCount()
+    {
+        return statementCount;
+    }
+
+    /**
+     * Gets the diagnostics of the specified statement.
+     * @param statement Index of the statement.
+     * @return The diagnostics of the statement.
+     * */
+    public String getDiagnostics(int statement)
+    {
+        if ((statement < 0) || (statement >= statementCount))
+            throw new IndexOutOfBoundsException("Statement: " + statement + ", count: " + statementCount + ".");
+
+        return diagnostics[statement];
+    }
+
+    /**
+     * Writes the diagnostics of all the statements.
+     * @param out The stream to write the diagnostics to.
+     * */
+    public void writeDiagnostics(PrintStream out)
+    {
+        for (int i = 0; i < statementCount; i++)
+            out.print(diagnostics[i]);
+    }
+
+    /**
+     * Applies an edit to the source, and checks it again. The source and the tokens after the edit are moved in place,
+     * without being scanned or parsed again.
+     * @param offset Offset of the edit in the source.
+     * @param removedLength Number of bytes removed from the offset.
+     * @param insertedText The text inserted at the offset.
+     * @return The number of statements parsed again.
+     * @exception NullPointerException If {@code insertedText} is null.
+     * @exception IndexOutOfBoundsException If the removed range is not in the source.
+     * */
+    public int edit(int offset, int removedLength, String insertedText)
+    {
+        if ((offset < 0) || (removedLength < 0) || (offset > sourceLength - removedLength))
+            throw new IndexOutOfBoundsException("Offset: " + offset + ", removed length: " + removedLength +
+                                                ", length: " + sourceLength + ".");
+
+        byte[] inserted = insertedText.getBytes(StandardCharsets.UTF_8);
+        int offsetDelta = inserted.length - removedLength;
+        int lineDelta = countLines(inserted, 0, inserted.length) - countLines(source, offset, offset + removedLength);
+
+        // The tokens of the lines of the edit are scanned again, from the start of its first line.
+        int damageStart = offset;
+        while ((damageStart > 0) && (source[damageStart - 1] != '\n'))
+            damageStart--;
+        int begin = findToken(damageStart);
+        int line;
+        if (begin == 0)
+            line = 1 + countLines(source, 0, damageStart);
+        else
+            line = tokens.getLine(begin - 1) + countLines(source, tokens.getStart(begin - 1), damageStart);
+
+        // Edit the source in place, growing it if needed.
+        if (sourceLength + offsetDelta > source.length)
+        {
+            source = Arrays.copyOf(source, Math.max(source.length + (source.length >> 1), sourceLength + offsetDelta));
+            tokens = tokens.withSource(source);
+        }
+        System.arraycopy(source, offset + removedLength, source, offset + inserted.length,
+                         sourceLength - offset - removedLength);
+        System.arraycopy(inserted, 0, source, offset, inserted.length);
+        sourceLength += offsetDelta;
+
+        // Up to the end of the last line of the edit.
+        int damageEnd = offset + inserted.length;
+        while ((damageEnd < sourceLength) && (source[damageEnd++] != '\n'))
+            ;
+        int end = findToken(damageEnd - offsetDelta);
+
+        TokenBuffer damagedTokens = new TokenBuffer(source, 16);
+        damagedTokens.scan(damageStart, damageEnd, line);
+        tokens.replace(begin, end, damagedTokens, offsetDelta, lineDelta);
+        int tokenDelta = damagedTokens.size() - (end - begin);
+
+        // Parse again from the first statement reading a damaged token, the last one reading the token after it.
+        int first = findStatement(begin);
+        int position = (first < statementCount) ? statementStarts[first] : endPosition;
+        boolean isLegalStatement = (first < statementCount) ? legalStarts[first] : isLegalEnd;
+
+        StatementList statements = new StatementList();
+        int kept = parse(position, isLegalStatement, end + tokenDelta, tokenDelta, statements);
+        int parsedCount = statements.size;
+        if (kept >= 0)
+            endPosition += tokenDelta;
+        else
+            kept = statementCount;
+        replaceStatements(first, kept, statements, tokenDelta);
+
+        // The lines of the diagnostics of the statements kept changed.
+        if (lineDelta != 0)
+        {
+            for (int i = first + statements.size; i < statementCount; i++)
+            {
+                if (diagnostics[i] != LEGAL_DIAGNOSTICS)
+                {
+                    diagnostics[i] = parseStatement(statementStarts[i], legalStarts[i]);
+                    parsedCount++;
+                }
+            }
+        }
+
+        return parsedCount;
+    }
+
+    /**
+     * Replaces the statements of a range by the specified statements, and shifts the tokens of the statements after.
+     * */
+    private void replaceStatements(int begin, int end, StatementList statements, int tokenDelta)
+    {
+        int tailLength = statementCount - end;
+        int index = begin + statements.size;
+        if (index + tailLength > statementStarts.length)
+        {
+            int capacity = Math.max(statementStarts.length + (statementStarts.length >> 1), index + tailLength);
+            statementStarts = Arrays.copyOf(statementStarts, capacity);
+            legalStarts = Arrays.copyOf(legalStarts, capacity);
+            diagnostics = Arrays.copyOf(diagnostics, capacity);
+        }
+
+        System.arraycopy(statementStarts, end, statementStarts, index, tailLength);
+        System.arraycopy(legalStarts, end, legalStarts, index, tailLength);
+        System.arraycopy(diagnostics, end, diagnostics, index, tailLength);
+        System.arraycopy(statements.starts, 0, statementStarts, begin, statements.size);
+        System.arraycopy(statements.legalStarts, 0, legalStarts, begin, statements.size);
+        System.arraycopy(statements.diagnostics, 0, diagnostics, begin, statements.size);
+
+        // Clear the references to the diagnostics removed.
+        if (index + tailLength < statementCount)
+            Arrays.fill(diagnostics, index + tailLength, statementCount, null);
+        statementCount = index + tailLength;
+        if (tokenDelta != 0)
+        {
+            for (int i = index; i < statementCount; i++)
+                statementStarts[i] += tokenDelta;
+        }
+    }
+
+    /**
+     * Gets the index of the first statement whose parse reads the specified token or a token after it, the token after
+     * a statement being read by its parse, or the number of statements if there is none.
+     * */
+    private int findStatement(int token)
+    {
+        int index = Arrays.binarySearch(statementStarts, 0, statementCount, token);
+        if (index < 0)
+            index = -index - 1;
+        if (index == statementCount)
+            return ((statementCount > 0) && (endPosition >= token)) ? statementCount - 1 : statementCount;
+
+        return Math.max(index - 1, 0);
+    }
+
+    /**
+     * Parses the statements from the specified token up to the {@link TokenType#END_OF_FILE}, or up to the start of an
+     * old statement after the specified token.
+     * @param position Index of the first token of the first statement.
+     * @param isLegalStatement A value indicating whether the first statement is legal so far.
+     * @param resynchronization Index of the first token from which the parse may go on with the old statements, or -1.
+     * @param tokenDelta Number of tokens added before the old statements the parse may go on with.
+     * @param statements The list to add the statements to.
+     * @return Index of the old statement the parse goes on with, or -1 if the parse ends.
+     * */
+    private int parse(int position, boolean isLegalStatement, int resynchronization, int tokenDelta,
+                      StatementList statements)
+    {
+        tokens.setPosition(position);
+        TreeParser parser = new TreeParser(tokens, tree, statementPrintStream);
+        parser.setLegalStatement(isLegalStatement);
+
+        while (!tokens.match(TokenType.END_OF_FILE))
+        {
+            position = tokens.getPosition();
+            isLegalStatement = parser.isLegalStatement();
+            if ((resynchronization >= 0) && (position >= resynchronization))
+            {
+                int old = Arrays.binarySearch(statementStarts, 0, statementCount, position - tokenDelta);
+                if ((old >= 0) && (legalStarts[old] == isLegalStatement))
+                    return old;
+            }
+
+            tree.clear();
+            statementOut.reset();
+            parser.statements(position + 1);
+            statementPrintStream.flush();
+            statements.add(position, isLegalStatement, getStatementDiagnostics());
+        }
+
+        endPosition = tokens.getPosition();
+        isLegalEnd = parser.isLegalStatement();
+        return -1;
+    }
+
+    /**
+     * Parses a single statement again, and returns its diagnostics.
+     * */
+    private String parseStatement(int position, boolean isLegalStatement)
+    {
+        tokens.setPosition(position);
+        TreeParser parser = new TreeParser(tokens, tree, statementPrintStream);
+        parser.setLegalStatement(isLegalStatement);
+
+        tree.clear();
+        statementOut.reset();
+        parser.statements(position + 1);
+        statementPrintStream.flush();
+        return getStatementDiagnostics();
+    }
+
+    /**
+     * Gets the diagnostics written by the statement parsed, sharing the diagnostics of a legal statement.
+     * */
+    private String getStatementDiagnostics()
+    {
+        byte[] bytes = statementOut.toByteArray();
+        return Arrays.equals(bytes, legalDiagnosticsBytes) ? LEGAL_DIAGNOSTICS : statementOut.toString();
+    }
+
+    /**
+     * Gets the index of the first token starting at or after the specified offset.
+     * */
+    private int findToken(int offset)
+    {
+        int low = 0;
+        int high = tokens.size() - 1;
+        while (low < high)
+        {
+            int middle = (low + high) >>> 1;
+            if (tokens.getStart(middle) < offset)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+
+        return low;
+    }
+
+    private static int countLines(byte[] source, int begin, int end)
+    {
+        int count = 0;
+        for (int i = begin; i < end; i++)
+        {
+            if (source[i] == '\n')
+                count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * The {@link StatementList} class is a growable list of parsed statements.
+     * */
+    private static final class StatementList
+    {
+        private int[] starts = new int[16];
+        private boolean[] legalStarts = new boolean[16];
+        private String[] diagnostics = new String[16];
+        private int size;
+
+        void add(int start, boolean isLegalStart, String text)
+        {
+            if (size == starts.length)
+            {
+                starts = Arrays.copyOf(starts, size * 2);
+                legalStarts = Arrays.copyOf(legalStarts, size * 2);
+                diagnostics = Arrays.copyOf(diagnostics, size * 2);
+            }
+
+            starts[size] = start;
+            legalStarts[size] = isLegalStart;
+            diagnostics[size++] = text;
+        }
+    }
+
+    /**
+     * A unit test method for the {@link IncrementalParser} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        IncrementalParser parser = new IncrementalParser(InputSystem.File.readAllBytes(sourceFilePath));
+        parser.writeDiagnostics(System.out);
+
+        // Fix the missing ")" of the last statement, split a statement in 2 lines, and break the first statement.
+        String[][] edits = { { "1 + ( 3 + 2", ")" }, { "34 * 67", ";\na" }, { "1 + 2", " -" } };
+        for (String[] edit : edits)
+        {
+            String source = new String(parser.getSource(), StandardCharsets.UTF_8);
+            int offset = source.indexOf(edit[0]) + edit[0].length();
+            int parsedCount = parser.edit(offset, 0, edit[1]);
+            System.out.println();
+            System.out.println("Insert \"" + edit[1].trim() + "\" at " + offset + ", " + parsedCount + " statements parsed again:");
+            parser.writeDiagnostics(System.out);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package expression;
+
+import java.nio.charset.*;
+
+/**
+ * The {@link Keywords} class recognizes the C89/C99 keywords with a perfect hash over the bytes of a symbol, so that
+ * neither a {@link String} nor a map lookup is needed to classify an identifier.
+ * <p>
+ * The hash of a symbol b of length n is (b[0] + 8 * b[1] + 43 * b[n - 1] + n) mod 128, which is different for every
+ * keyword. A symbol is a keyword if it equals the keyword in the slot of its hash.
+ * <p/>
+ * */
+public final class Keywords
+{
+    /** Number of slots of the hash table. */
+    private static final int TABLE_SIZE = 128;
+
+    /** Texts of the keywords indexed by their hashes. */
+    private static final byte[][] KEYWORDS = new byte[TABLE_SIZE][];
+
+    /** Token types of the keywords indexed by their hashes. */
+    private static final TokenType[] TOKEN_TYPES = new TokenType[TABLE_SIZE];
+
+    static
+    {
+        add("auto", TokenType.AUTO);
+        add("break", TokenType.BREAK);
+        add("case", TokenType.CASE);
+        add("char", TokenType.CHAR);
+        add("const", TokenType.CONST);
+        add("continue", TokenType.CONTINUE);
+        add("default", TokenType.DEFAULT);
+        add("do", TokenType.DO);
+        add("double", TokenType.DOUBLE);
+        add("else", TokenType.ELSE);
+        add("enum", TokenType.ENUM);
+        add("extern", TokenType.EXTERN);
+        add("float", TokenType.FLOAT);
+        add("for", TokenType.FOR);
+        add("goto", TokenType.GOTO);
+        add("if", TokenType.IF);
+        add("int", TokenType.INT);
+        add("long", TokenType.LONG);
+        add("register", TokenType.REGISTER);
+        add("return", TokenType.RETURN);
+        add("short", TokenType.SHORT);
+        add("signed", TokenType.SIGNED);
+        add("sizeof", TokenType.SIZEOF);
+        add("static", TokenType.STATIC);
+        add("struct", TokenType.STRUCT);
+        add("switch", TokenType.SWITCH);
+        add("typedef", TokenType.TYPEDEF);
+        add("union", TokenType.UNION);
+        add("unsigned", TokenType.UNSIGNED);
+        add("void", TokenType.VOID);
+        add("volatile", TokenType.VOLATILE);
+        add("while", TokenType.WHILE);
+
+        // C99.
+        add("inline", TokenType.INLINE);
+        add("restrict", TokenType.RESTRICT);
+        add("_Bool", TokenType.BOOL);
+        add("_Complex", TokenType.COMPLEX);
+        add("_Imaginary", TokenType.IMAGINARY);
+    }
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private Keywords(){}
+
+    /**
+     * Adds a keyword to the hash table.
+     * @exception IllegalStateException If the hash of the keyword is the same as another one.
+     * */
+    private static void add(String keyword, TokenType tokenType)
+    {
+        byte[] text = keyword.getBytes(StandardCharsets.US_ASCII);
+        int hash = hash(text, 0, text.length);
+        if (KEYWORDS[hash] != null)
+            throw new IllegalStateException("The hash of \"" + keyword + "\" is not unique.");
+
+        KEYWORDS[hash] = text;
+        TOKEN_TYPES[hash] = tokenType;
+    }
+
+    private static int hash(byte[] buffer, int offset, int length)
+    {
+        return (buffer[offset] + (buffer[offset + 1] << 3) + 43 * buffer[offset + length - 1] + length) & (TABLE_SIZE - 1);
+    }
+
+    /**
+     * Gets the token type of an identifier, which is the type of the keyword if the identifier is a keyword.
+     * @param buffer The buffer containing the identifier.
+     * @param offset Index of the first byte of the identifier in the buffer.
+     * @param length Length of the identifier in bytes.
+     * @return The type of the keyword, or {@link TokenType#IDENTIFIER} if the identifier is not a keyword.
+     * */
+    public static TokenType getTokenType(byte[] buffer, int offset, int length)
+    {
+        // The keywords have 2 to 10 characters.
+        if ((length < 2) || (length > 10))
+            return TokenType.IDENTIFIER;
+
+        int hash = hash(buffer, offset, length);
+        byte[] keyword = KEYWORDS[hash];
+        if ((keyword == null) || (keyword.length != length))
+            return TokenType.IDENTIFIER;
+
+        for (int i = 0; i < length; i++)
+        {
+            if (buffer[offset + i] != keyword[i])
+                return TokenType.IDENTIFIER;
+        }
+
+        return TOKEN_TYPES[hash];
+    }
+}
@@ -0,0 +1,619 @@
+package expression;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * The {@link LALRTableGenerator} class generates the tables of an LALR(1) shift/reduce parser from a {@link Grammar},
+ * and writes them as a Java class, as {@link LLTableGenerator} does for an LL(1) parser. Unlike an LL(1) grammar, the
+ * grammar may be left recursive, as the loops of {@link ImprovedParser} are, and does not need to be left factored.
+ * <p>
+ * The grammar is augmented with a production S' -> S, S being the start symbol, whose reduction accepts the input. The
+ * states are the sets of LR(0) items, and the lookaheads of their kernel items are computed by propagation: the closure
+ * of each kernel item with a dummy lookahead tells the lookaheads generated spontaneously for the items of the
+ * successors of a state, and the items whose lookaheads propagate to them. A state reduces a production on the
+ * lookaheads of its complete item.
+ * <p>
+ * A token which can be shifted or reduced in 2 ways is a conflict. They are all reported by {@link #generate(Grammar)},
+ * while {@link #generate(Grammar, List)} resolves them as yacc does: a shift is preferred to a reduction, which resolves
+ * the dangling else of C, and the first production of the grammar is preferred to the others.
+ * <p>
+ * Usage: LALRTableGenerator [grammar file] [Java file] [class name]. The class is generated in the {@code expression}
+ * package, with a static field {@code TABLE}.
+ * <p/>
+ * */
+public final class LALRTableGenerator
+{
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private LALRTableGenerator(){}
+
+    /**
+     * Generates the tables of an LALR(1) parser for the specified grammar.
+     * @param grammar The grammar.
+     * @return The tables.
+     * @exception IllegalArgumentException If the grammar is not LALR(1), with all the conflicts.
+     * */
+    public static LRTable generate(Grammar grammar)
+    {
+        List<String> conflicts = new ArrayList<>();
+        LRTable table = generate(grammar, conflicts);
+        if (!conflicts.isEmpty())
+            throw new IllegalArgumentException("The grammar is not LALR(1):" + System.lineSeparator() +
+                                               String.join(System.lineSeparator(), conflicts));
+
+        return table;
+    }
+
+    /**
+     * Generates the tables of an LALR(1) parser for the specified grammar, resolving the conflicts.
+     * @param grammar The grammar.
+     * @param conflicts The list to add the descriptions of the conflicts to.
+     * @return The tables.
+     * */
+    public static LRTable generate(Grammar grammar, List<String> conflicts)
+    {
+        return new Builder(grammar).build(conflicts);
+    }
+
+    /**
+     * Builds the states of a grammar and their tables.
+     * */
+    private static final class Builder
+    {
+        /** The grammar. */
+        private final Grammar grammar;
+
+        /** Number of nonterminals. */
+        private final int nonterminalCount;
+
+        /** Number of terminals. The lookahead of this index is the dummy lookahead of the propagation. */
+        private final int terminalCount;
+
+        /** The production S' -> S, after the productions of the grammar. */
+        private final int acceptProduction;
+
+        /** Indexes of the items A -> .w of the productions, and the number of items. */
+        private final int[] itemStarts;
+
+        /** Productions of the items. */
+        private final int[] itemProductions;
+
+        /** Productions of the nonterminals. */
+        private final int[][] nonterminalProductions;
+
+        /** Sorted kernel items of the states. */
+        private final List<int[]> kernels = new ArrayList<>();
+
+        /** Successors of the states, indexed by symbol, -1 for none. */
+        private final List<int[]> successors = new ArrayList<>();
+
+        /** Lookaheads of the kernel items of the states. */
+        private final List<BitSet[]> lookAheads = new ArrayList<>();
+
+        /** Lookaheads of the items of the closure being computed, indexed by item. */
+        private final BitSet[] closure;
+
+        /** Items of the closure being computed. */
+        private int[] closureItems;
+
+        /** Number of items in {@link #closureItems}. */
+        private int closureSize;
+
+        private Builder(Grammar grammar)
+        {
+            this.grammar = grammar;
+            nonterminalCount = grammar.getNonterminalCount();
+            terminalCount = grammar.getTerminalCount();
+            acceptProduction = grammar.getProductionCount();
+
+            itemStarts = new int[acceptProduction + 2];
+            for (int production = 0; production <= acceptProduction; production++)
+                itemStarts[production + 1] = itemStarts[production] + getLength(production) + 1;
+
+            itemProductions = new int[itemStarts[acceptProduction + 1]];
+            for (int production = 0; production <= acceptProduction; production++)
+                Arrays.fill(itemProductions, itemStarts[production], itemStarts[production + 1], production);
+
+            int[] counts = new int[nonterminalCount];
+            for (int production = 0; production < acceptProduction; production++)
+                counts[grammar.getLeft(production)]++;
+            nonterminalProductions = new int[nonterminalCount][];
+            for (int nonterminal = 0; nonterminal < nonterminalCount; nonterminal++)
+                nonterminalProductions[nonterminal] = new int[counts[nonterminal]];
+            for (int production = acceptProduction - 1; production >= 0; production--)
+            {
+                int left = grammar.getLeft(production);
+                nonterminalProductions[left][--counts[left]] = production;
+            }
+
+            closure = new BitSet[itemProductions.length];
+            closureItems = new int[16];
+        }
+
+        private int getLength(int production)
+        {
+            return (production == acceptProduction) ? 1 : grammar.getLength(production);
+        }
+
+        private int getSymbol(int production, int index)
+        {
+            return (production == acceptProduction) ? Grammar.START_SYMBOL : grammar.getSymbol(production, index);
+        }
+
+        /**
+         * Gets the symbol after the dot of an item, or -1 if the item is complete.
+         * */
+        private int getNextSymbol(int item)
+        {
+            int production = itemProductions[item];
+            int dot = item - itemStarts[production];
+            return (dot < getLength(production)) ? getSymbol(production, dot) : -1;
+        }
+
+        private String toString(int production)
+        {
+            return (production == acceptProduction) ? "start -> " + grammar.getSymbolName(Grammar.START_SYMBOL)
+                                                    : grammar.toString(production);
+        }
+
+        private LRTable build(List<String> conflicts)
+        {
+            buildStates();
+            computeLookAheads();
+
+            int stateCount = kernels.size();
+            int[][] actions = new int[stateCount][];
+            for (int state = 0; state < stateCount; state++)
+                actions[state] = buildActions(state, conflicts);
+
+            // The most frequent reduction of a state is its default action.
+            int[] defaultActions = new int[stateCount];
+            for (int state = 0; state < stateCount; state++)
+            {
+                defaultActions[state] = getMostFrequent(actions[state], -acceptProduction, -1, LRTable.ERROR);
+                for (int terminal = 0; terminal < terminalCount; terminal++)
+                {
+                    if (actions[state][terminal] == defaultActions[state])
+                        actions[state][terminal] = LRTable.ERROR;
+                }
+            }
+
+            // The most frequent successor of a nonterminal is its default.
+            int[][] gotos = new int[nonterminalCount][stateCount];
+            int[] defaultGotos = new int[nonterminalCount];
+            for (int nonterminal = 0; nonterminal < nonterminalCount; nonterminal++)
+            {
+                for (int state = 0; state < stateCount; state++)
+                    gotos[nonterminal][state] = successors.get(state)[nonterminal];
+
+                defaultGotos[nonterminal] = getMostFrequent(gotos[nonterminal], 0, stateCount - 1, 0);
+                for (int state = 0; state < stateCount; state++)
+                {
+                    if (gotos[nonterminal][state] == defaultGotos[nonterminal])
+                        gotos[nonterminal][state] = -1;
+                }
+            }
+
+            int[] actionBases = new int[stateCount];
+            int[][] packedActions = pack(actions, LRTable.ERROR, actionBases);
+            int[] gotoBases = new int[nonterminalCount];
+            int[][] packedGotos = pack(gotos, -1, gotoBases);
+
+            TokenType[] terminals = new TokenType[terminalCount];
+            for (int terminal = 0; terminal < terminalCount; terminal++)
+                terminals[terminal] = grammar.getTerminal(terminal);
+
+            int[] productionLefts = new int[acceptProduction];
+            int[] productionLengths = new int[acceptProduction];
+            for (int production = 0; production < acceptProduction; production++)
+            {
+                productionLefts[production] = grammar.getLeft(production);
+                productionLengths[production] = grammar.getLength(production);
+            }
+
+            return new LRTable(terminals, nonterminalCount, productionLefts, productionLengths,
+                               actionBases, packedActions[0], packedActions[1], defaultActions,
+                               gotoBases, packedGotos[0], packedGotos[1], defaultGotos);
+        }
+
+        /**
+         * Builds the states of the sets of LR(0) items, and their successors.
+         * */
+        private void buildStates()
+        {
+            Map<IntBuffer, Integer> states = new HashMap<>();
+            int[] start = { itemStarts[acceptProduction] };
+            kernels.add(start);
+            states.put(IntBuffer.wrap(start), 0);
+
+            int[] kernel = new int[16];
+            for (int state = 0; state < kernels.size(); state++)
+            {
+                closeLR0(kernels.get(state));
+
+                int[] stateSuccessors = new int[nonterminalCount + terminalCount];
+                Arrays.fill(stateSuccessors, -1);
+                for (int i = 0; i < closureSize; i++)
+                {
+                    int symbol = getNextSymbol(closureItems[i]);
+                    if ((symbol < 0) || (stateSuccessors[symbol] >= 0))
+                        continue;
+
+                    // The kernel of the successor on the symbol advances the dot of all the items before the symbol.
+                    int kernelSize = 0;
+                    for (int j = i; j < closureSize; j++)
+                    {
+                        if (getNextSymbol(closureItems[j]) != symbol)
+                            continue;
+                        if (kernelSize == kernel.length)
+                            kernel = Arrays.copyOf(kernel, kernelSize * 2);
+                        kernel[kernelSize++] = closureItems[j] + 1;
+                    }
+
+                    int[] successorKernel = Arrays.copyOf(kernel, kernelSize);
+                    Arrays.sort(successorKernel);
+                    Integer successor = states.get(IntBuffer.wrap(successorKernel));
+                    if (successor == null)
+                    {
+                        successor = kernels.size();
+                        kernels.add(successorKernel);
+                        states.put(IntBuffer.wrap(successorKernel), successor);
+                    }
+                    stateSuccessors[symbol] = successor;
+                }
+                successors.add(stateSuccessors);
+            }
+        }
+
+        /**
+         * Computes the LR(0) closure of a kernel in {@link #closureItems}.
+         * */
+        private void closeLR0(int[] kernel)
+        {
+            closureSize = 0;
+            for (int item : kernel)
+                addClosureItem(item);
+
+            boolean[] isClosed = new boolean[nonterminalCount];
+            for (int i = 0; i < closureSize; i++)
+            {
+                int symbol = getNextSymbol(closureItems[i]);
+                if ((symbol < 0) || grammar.isTerminal(symbol) || isClosed[symbol])
+                    continue;
+
+                isClosed[symbol] = true;
+                for (int production : nonterminalProductions[symbol])
+                    addClosureItem(itemStarts[production]);
+            }
+        }
+
+        private void addClosureItem(int item)
+        {
+            if (closureSize == closureItems.length)
+                closureItems = Arrays.copyOf(closureItems, closureSize * 2);
+
+            closureItems[closureSize++] = item;
+        }
+
+        /**
+         * Computes the LR(1) closure of items with their lookaheads, in {@link #closure} and {@link #closureItems}.
+         * */
+        private void closeLR1(int[] kernel, BitSet[] kernelLookAheads)
+        {
+            Arrays.fill(closure, null);
+            closureSize = 0;
+            for (int i = 0; i < kernel.length; i++)
+            {
+                closure[kernel[i]] = (BitSet)kernelLookAheads[i].clone();
+                addClosureItem(kernel[i]);
+            }
+
+            // Add the lookaheads of an item A -> u.Bv to the items B -> .w until they do not change.
+            ArrayDeque<Integer> pending = new ArrayDeque<>();
+            for (int i = 0; i < closureSize; i++)
+                pending.add(closureItems[i]);
+
+            BitSet first = new BitSet();
+            while (!pending.isEmpty())
+            {
+                int item = pending.poll();
+                int symbol = getNextSymbol(item);
+                if ((symbol < 0) || grammar.isTerminal(symbol))
+                    continue;
+
+                int production = itemProductions[item];
+                first.clear();
+                if ((production == acceptProduction) || grammar.addFirst(production, item - itemStarts[production] + 1, first))
+                    first.or(closure[item]);
+
+                for (int successor : nonterminalProductions[symbol])
+                {
+                    int successorItem = itemStarts[successor];
+                    BitSet successorLookAheads = closure[successorItem];
+                    if (successorLookAheads == null)
+                    {
+                        closure[successorItem] = (BitSet)first.clone();
+                        addClosureItem(successorItem);
+                        pending.add(successorItem);
+                    }
+                    else if (!isSubset(first, successorLookAheads))
+                    {
+                        successorLookAheads.or(first);
+                        pending.add(successorItem);
+                    }
+                }
+            }
+        }
+
+        private static boolean isSubset(BitSet set, BitSet superset)
+        {
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))
+            {
+                if (!superset.get(i))
+                    return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Computes the lookaheads of the kernel items by propagation.
+         * */
+        private void computeLookAheads()
+        {
+            // Number the kernel items of all the states.
+            int stateCount = kernels.size();
+            int[] kernelStarts = new int[stateCount + 1];
+            for (int state = 0; state < stateCount; state++)
+            {
+                kernelStarts[state + 1] = kernelStarts[state] + kernels.get(state).length;
+
+                BitSet[] stateLookAheads = new BitSet[kernels.get(state).length];
+                for (int i = 0; i < stateLookAheads.length; i++)
+                    stateLookAheads[i] = new BitSet(terminalCount);
+                lookAheads.add(stateLookAheads);
+            }
+            lookAheads.get(0)[0].set(grammar.getTerminalIndex(TokenType.END_OF_FILE));
+
+            // The closure of each kernel item with the dummy lookahead gives the spontaneous and propagated lookaheads.
+            List<List<Integer>> propagations = new ArrayList<>();
+            BitSet[] dummy = { new BitSet() };
+            dummy[0].set(terminalCount);
+            for (int state = 0; state < stateCount; state++)
+            {
+                int[] kernel = kernels.get(state);
+                for (int i = 0; i < kernel.length; i++)
+                {
+                    List<Integer> targets = new ArrayList<>();
+                    propagations.add(targets);
+
+                    closeLR1(new int[] { kernel[i] }, dummy);
+                    for (int j = 0; j < closureSize; j++)
+                    {
+                        int item = closureItems[j];
+                        int symbol = getNextSymbol(item);
+                        if (symbol < 0)
+                            continue;
+
+                        int successor = successors.get(state)[symbol];
+                        int successorItem = Arrays.binarySearch(kernels.get(successor), item + 1);
+                        BitSet itemLookAheads = closure[item];
+                        if (itemLookAheads.get(terminalCount))
+                            targets.add(kernelStarts[successor] + successorItem);
+
+                        BitSet successorLookAheads = lookAheads.get(successor)[successorItem];
+                        successorLookAheads.or(itemLookAheads);
+                        successorLookAheads.clear(terminalCount);
+                    }
+                }
+            }
+
+            // Propagate the lookaheads until they do not change.
+            BitSet[] kernelLookAheads = new BitSet[kernelStarts[stateCount]];
+            for (int state = 0; state < stateCount; state++)
+                System.arraycopy(lookAheads.get(state), 0, kernelLookAheads, kernelStarts[state], kernels.get(state).length);
+
+            boolean isChanged = true;
+            while (isChanged)
+            {
+                isChanged = false;
+                for (int i = 0; i < kernelLookAheads.length; i++)
+                {
+                    for (int target : propagations.get(i))
+                    {
+                        if (!isSubset(kernelLookAheads[i], kernelLookAheads[target]))
+                        {
+                            kernelLookAheads[target].or(kernelLookAheads[i]);
+                            isChanged = true;
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Builds the row of the ACTION table of a state, resolving its conflicts.
+         * */
+        private int[] buildActions(int state, List<String> conflicts)
+        {
+            int[] actions = new int[terminalCount];
+            int[] stateSuccessors = successors.get(state);
+            for (int terminal = 0; terminal < terminalCount; terminal++)
+            {
+                int successor = stateSuccessors[nonterminalCount + terminal];
+                if (successor >= 0)
+                    actions[terminal] = successor + 1;
+            }
+
+            // The lookaheads of the complete items which are not kernel items come from the closure of the kernel.
+            closeLR1(kernels.get(state), lookAheads.get(state));
+            for (int i = 0; i < closureSize; i++)
+            {
+                int item = closureItems[i];
+                if (getNextSymbol(item) >= 0)
+                    continue;
+
+                int production = itemProductions[item];
+                BitSet itemLookAheads = closure[item];
+                for (int terminal = itemLookAheads.nextSetBit(0); terminal >= 0; terminal = itemLookAheads.nextSetBit(terminal + 1))
+                {
+                    int action = actions[terminal];
+                    if (action == LRTable.ERROR)
+                        actions[terminal] = -(production + 1);
+                    else if (action > 0)
+                        conflicts.add("Shift/reduce conflict in state " + state + " on " + grammar.getTerminal(terminal) +
+                                      ": " + toString(production));
+                    else
+                    {
+                        int other = -action - 1;
+                        conflicts.add("Reduce/reduce conflict in state " + state + " on " + grammar.getTerminal(terminal) +
+                                      ": " + toString(Math.min(other, production)) + " | " +
+                                      toString(Math.max(other, production)));
+                        actions[terminal] = -(Math.min(other, production) + 1);
+                    }
+                }
+            }
+
+            return actions;
+        }
+
+        /**
+         * Gets the most frequent value of a row between the specified bounds, or the given value if there is none.
+         * */
+        private static int getMostFrequent(int[] row, int minimum, int maximum, int none)
+        {
+            Map<Integer, Integer> counts = new HashMap<>();
+            int mostFrequent = none;
+            int maximumCount = 0;
+            for (int value : row)
+            {
+                if ((value < minimum) || (value > maximum))
+                    continue;
+
+                int count = counts.merge(value, 1, Integer::sum);
+                if (count > maximumCount)
+                {
+                    mostFrequent = value;
+                    maximumCount = count;
+                }
+            }
+
+            return mostFrequent;
+        }
+
+        /**
+         * Packs the rows of a table in a comb vector: the entries of each row, other than the empty entries, are at the
+         * first offset where they do not overlap the entries of the rows already packed, the densest rows first.
+         * @return The checks and the values of the entries.
+         * */
+        private static int[][] pack(int[][] rows, int empty, int[] bases)
+        {
+            Integer[] order = new Integer[rows.length];
+            int[] counts = new int[rows.length];
+            for (int row = 0; row < rows.length; row++)
+            {
+                order[row] = row;
+                for (int value : rows[row])
+                {
+                    if (value != empty)
+                        counts[row]++;
+                }
+            }
+            Arrays.sort(order, (first, second) -> (counts[second] != counts[first]) ? counts[second] - counts[first] : first - second);
+
+            int columnCount = (rows.length > 0) ? rows[0].length : 0;
+            int[] checks = new int[columnCount * 2];
+            int[] values = new int[columnCount * 2];
+            Arrays.fill(checks, -1);
+            int size = columnCount;
+            for (int row : order)
+            {
+                if (counts[row] == 0)
+                    continue;
+
+                int base = 0;
+                while (!fits(rows[row], empty, checks, base))
+                    base++;
+
+                bases[row] = base;
+                if (base + columnCount > checks.length)
+                {
+                    int capacity = Math.max(checks.length * 2, base + columnCount);
+                    values = Arrays.copyOf(values, capacity);
+                    checks = Arrays.copyOf(checks, capacity);
+                    Arrays.fill(checks, size, capacity, -1);
+                }
+                for (int column = 0; column < columnCount; column++)
+                {
+                    if (rows[row][column] != empty)
+                    {
+                        checks[base + column] = row;
+                        values[base + column] = rows[row][column];
+                    }
+                }
+                size = Math.max(size, base + columnCount);
+            }
+
+            return new int[][] { Arrays.copyOf(checks, size), Arrays.copyOf(values, size) };
+        }
+
+        private static boolean fits(int[] row, int empty, int[] checks, int base)
+        {
+            for (int column = 0; column < row.length; column++)
+            {
+                if ((row[column] != empty) && (base + column < checks.length) && (checks[base + column] >= 0))
+                    return false;
+            }
+
+            return true;
+        }
+    }
+
+    /**
+     * Writes the specified tables as a Java class of the {@code expression} package.
+     * @param table The tables.
+     * @param className The name of the class.
+     * @param grammarName The name of the grammar file, for the documentation of the class.
+     * @param out The writer to write the class to.
+     * @exception IOException If an I/O error occurs.
+     * */
+    public static void writeJava(LRTable table, String className, String grammarName, Writer out) throws IOException
+    {
+        out.write("package expression;\n\n");
+        out.write("/**\n");
+        out.write(" * The LALR(1) tables of the grammar in " + grammarName + ", generated by {@link LALRTableGenerator}. Do not edit.\n");
+        out.write(" * */\n");
+        out.write("final class " + className + "\n{\n");
+        out.write("    /** The tables. */\n");
+        out.write("    static final LRTable TABLE = new LRTable(\n");
+        out.write(table.toJavaArguments("            "));
+        out.write(");\n\n");
+        out.write("    /**\n");
+        out.write("     * This class should not be instantiated since it is designed to provide static fields only.\n");
+        out.write("     * */\n");
+        out.write("    private " + className + "(){}\n");
+        out.write("}\n");
+    }
+
+    /**
+     * Generates the Java class of the tables of a grammar file.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 3)
+        {
+            System.out.println("Usage: LALRTableGenerator [grammar file] [Java file] [class name]");
+            return;
+        }
+
+        LRTable table = generate(Grammar.read(args[0]));
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8))
+        {
+            writeJava(table, args[2], new java.io.File(args[0]).getName(), out);
+        }
+    }
+}
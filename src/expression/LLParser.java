@@ -0,0 +1,149 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link LLParser} class is a table-driven LL(1) parser: it runs the tables of any grammar generated by
+ * {@link LLTableGenerator} over a {@link TokenBuffer}, with a stack of symbols in an {@code int} array instead of a
+ * method per nonterminal.
+ * <p>
+ * A terminal on the top of the stack must match the next token. A nonterminal is replaced by the symbols of the
+ * production given by the parse table for the next token. On an error, the parser reports it and recovers in panic
+ * mode: a missing terminal is assumed to be there, a token which cannot follow a nonterminal is skipped, and a
+ * nonterminal is dropped if the token can follow it. No error is reported again until a token is matched, so that an
+ * error is not reported several times.
+ * <p/>
+ * */
+public class LLParser
+{
+    /** The tables of the grammar. */
+    private final LLTable table;
+
+    /** The tokens to parse. */
+    private final TokenBuffer tokens;
+
+    /** The stream to write the diagnostics to. */
+    private final PrintStream out;
+
+    /** The symbols to parse, the top of the stack being the next one. */
+    private int[] stack;
+
+    /** Number of symbols in {@link #stack}. */
+    private int stackSize;
+
+    /**
+     * Initializes a new instance of {@link LLParser}.
+     * @param table The tables of the grammar.
+     * @param tokens The tokens to parse, from the position of their cursor.
+     * @param out The stream to write the diagnostics to.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public LLParser(LLTable table, TokenBuffer tokens, PrintStream out)
+    {
+        if ((table == null) || (tokens == null) || (out == null))
+            throw new NullPointerException("Table, tokens and output stream cannot be null.");
+
+        this.table = table;
+        this.tokens = tokens;
+        this.out = out;
+        stack = new int[64];
+        stackSize = 0;
+    }
+
+    /**
+     * Parses the tokens up to the {@link TokenType#END_OF_FILE}.
+     * @return The number of errors.
+     * */
+    public int parse()
+    {
+        int errorCount = 0;
+        boolean isRecovering = false;
+
+        // END_OF_FILE is the first terminal, and the start symbol is 0.
+        stackSize = 0;
+        push(table.getNonterminalCount());
+        push(Grammar.START_SYMBOL);
+        while (stackSize > 0)
+        {
+            int symbol = stack[--stackSize];
+            TokenType token = tokens.getType();
+            if (symbol >= table.getNonterminalCount())
+            {
+                if (table.isToken(symbol, token))
+                {
+                    tokens.advance();
+                    isRecovering = false;
+                    continue;
+                }
+
+                // Assume the terminal is missing.
+                if (!isRecovering)
+                    out.println("Line: " + tokens.getLine() + ", missing \"" + table.getSymbolName(symbol) + "\".");
+            }
+            else
+            {
+                int production = table.getEntry(symbol, token);
+                if (production >= 0)
+                {
+                    for (int i = table.getProductionEnd(production) - 1; i >= table.getProductionStart(production); i--)
+                        push(table.getProductionSymbol(i));
+                    continue;
+                }
+
+                if (!isRecovering)
+                    out.println("Line: " + tokens.getLine() + ", unexpected symbol: \"" + tokens.getText() + "\".");
+
+                // Skip a token which cannot follow the nonterminal, or drop the nonterminal.
+                if ((production == LLTable.ERROR) && (token != TokenType.END_OF_FILE))
+                {
+                    tokens.advance();
+                    push(symbol);
+                }
+            }
+
+            if (!isRecovering)
+                errorCount++;
+            isRecovering = true;
+        }
+
+        return errorCount;
+    }
+
+    private void push(int symbol)
+    {
+        if (stackSize == stack.length)
+            stack = Arrays.copyOf(stack, stackSize * 2);
+
+        stack[stackSize++] = symbol;
+    }
+
+    /**
+     * A unit test method for the {@link LLParser} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        String grammarFilePath = "./out/production/CCompiler/expression/expressionGrammar.txt";
+
+        // The generated tables are the same as the tables generated from the grammar file.
+        TokenBuffer tokens = TokenBuffer.tokenize(sourceFilePath);
+        int errorCount = new LLParser(ExpressionLLTable.TABLE, tokens, System.out).parse();
+        System.out.println(errorCount + " errors.");
+
+        tokens.rewind();
+        errorCount = new LLParser(LLTableGenerator.generate(Grammar.read(grammarFilePath)), tokens, System.out).parse();
+        System.out.println(errorCount + " errors.");
+
+        // Report the conflicts of a grammar which is not LL(1).
+        try
+        {
+            LLTableGenerator.generate(Grammar.parse("statements -> expression SEMICOLON | expression SEMICOLON statements\n" +
+                                                    "expression -> NUMBER"));
+        }
+        catch (IllegalArgumentException e)
+        {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package expression;
+
+import java.util.*;
+
+/**
+ * The {@link LLTable} class contains the tables of an LL(1) parser generated by {@link LLTableGenerator}: the symbols of
+ * the productions, and the parse table giving the production to expand for a nonterminal and the next token.
+ * <p>
+ * The parse table is compressed by merging the terminals which have the same column: a token is mapped to its column
+ * by a table indexed by the ordinal of its {@link TokenType}, the tokens which are not terminals of the grammar being
+ * mapped to column 0, which only contains errors. The nonterminals are the symbols from 0, the start symbol being 0,
+ * and the terminals follow them, {@link TokenType#END_OF_FILE} first.
+ * <p/>
+ * */
+public final class LLTable
+{
+    /** The entry of a nonterminal and a token which cannot follow it: the token is skipped. */
+    public static final short ERROR = -1;
+
+    /** The entry of a nonterminal and a token of its FOLLOW set: the nonterminal is dropped. */
+    public static final short SYNC = -2;
+
+    /** Names of the nonterminals. */
+    private final String[] nonterminalNames;
+
+    /** The terminals. */
+    private final TokenType[] terminals;
+
+    /** Columns of the terminals. */
+    private final int[] terminalColumns;
+
+    /** Number of columns of the parse table. */
+    private final int columnCount;
+
+    /** Indexes in {@link #productionSymbols} of the first symbols of the productions, and the number of symbols. */
+    private final int[] productionStarts;
+
+    /** The symbols on the right of all the productions. */
+    private final int[] productionSymbols;
+
+    /** The parse table, the entry of (nonterminal, column) is at index nonterminal * columnCount + column. */
+    private final short[] table;
+
+    /** Columns indexed by the ordinals of the token types. */
+    private final byte[] columns;
+
+    /** Ordinals of the token types of the terminals. */
+    private final int[] terminalOrdinals;
+
+    /**
+     * Initializes a new instance of {@link LLTable}.
+     * @param nonterminalNames Names of the nonterminals.
+     * @param terminals The terminals.
+     * @param terminalColumns Columns of the terminals.
+     * @param columnCount Number of columns of the parse table.
+     * @param productionStarts Indexes of the first symbols of the productions, followed by the number of symbols.
+     * @param productionSymbols The symbols on the right of all the productions.
+     * @param table The parse table.
+     * @exception IllegalArgumentException If the sizes of the tables do not match.
+     * */
+    public LLTable(String[] nonterminalNames, TokenType[] terminals, int[] terminalColumns, int columnCount,
+                   int[] productionStarts, int[] productionSymbols, short[] table)
+    {
+        if ((terminals.length != terminalColumns.length) || (table.length != nonterminalNames.length * columnCount) ||
+            (columnCount > Byte.MAX_VALUE) || (terminals[0] != TokenType.END_OF_FILE))
+            throw new IllegalArgumentException("Invalid LL(1) tables.");
+
+        this.nonterminalNames = nonterminalNames;
+        this.terminals = terminals;
+        this.terminalColumns = terminalColumns;
+        this.columnCount = columnCount;
+        this.productionStarts = productionStarts;
+        this.productionSymbols = productionSymbols;
+        this.table = table;
+
+        columns = new byte[TokenType.values().length];
+        terminalOrdinals = new int[terminals.length];
+        for (int i = 0; i < terminals.length; i++)
+        {
+            columns[terminals[i].ordinal()] = (byte)terminalColumns[i];
+            terminalOrdinals[i] = terminals[i].ordinal();
+        }
+    }
+
+    /**
+     * Gets the number of nonterminals.
+     * @return The number of nonterminals.
+     * */
+    public int getNonterminalCount()
+    {
+        return nonterminalNames.length;
+    }
+
+    /**
+     * Returns a value indicating whether the given terminal symbol is the specified token.
+     * @param symbol The terminal symbol.
+     * @param token The token.
+     * @return true if the symbol is the token, otherwise, false.
+     * */
+    public boolean isToken(int symbol, TokenType token)
+    {
+        return terminalOrdinals[symbol - nonterminalNames.length] == token.ordinal();
+    }
+
+    /**
+     * Gets the terminal of the given terminal symbol.
+     * @param symbol The terminal symbol.
+     * @return The token type of the terminal.
+     * */
+    public TokenType getTerminal(int symbol)
+    {
+        return terminals[symbol - nonterminalNames.length];
+    }
+
+    /**
+     * Gets the name of the given symbol.
+     * @param symbol The symbol.
+     * @return The name of the symbol.
+     * */
+    public String getSymbolName(int symbol)
+    {
+        return (symbol < nonterminalNames.length) ? nonterminalNames[symbol] : getTerminal(symbol).name();
+    }
+
+    /**
+     * Gets the entry of the parse table for a nonterminal and the next token.
+     * @param nonterminal The nonterminal.
+     * @param token The next token.
+     * @return The production to expand, {@link #ERROR} or {@link #SYNC}.
+     * */
+    public int getEntry(int nonterminal, TokenType token)
+    {
+        return table[nonterminal * columnCount + columns[token.ordinal()]];
+    }
+
+    /**
+     * Gets the index of the first symbol of the specified production in the array of the symbols.
+     * @param production The production.
+     * @return The index of the first symbol.
+     * */
+    public int getProductionStart(int production)
+    {
+        return productionStarts[production];
+    }
+
+    /**
+     * Gets the index after the last symbol of the specified production in the array of the symbols.
+     * @param production The production.
+     * @return The index after the last symbol.
+     * */
+    public int getProductionEnd(int production)
+    {
+        return productionStarts[production + 1];
+    }
+
+    /**
+     * Gets a symbol in the array of the symbols of the productions.
+     * @param index The index of the symbol.
+     * @return The symbol.
+     * */
+    public int getProductionSymbol(int index)
+    {
+        return productionSymbols[index];
+    }
+
+    /**
+     * Formats the tables as the arguments of the constructor in Java source.
+     * @param indent The indentation of the arguments.
+     * @return The Java source of the arguments.
+     * */
+    String toJavaArguments(String indent)
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(indent).append("new String[] {");
+        for (int i = 0; i < nonterminalNames.length; i++)
+            builder.append((i == 0) ? " \"" : ", \"").append(nonterminalNames[i]).append('"');
+        builder.append(" },\n");
+
+        builder.append(indent).append("new TokenType[] {");
+        for (int i = 0; i < terminals.length; i++)
+            builder.append((i == 0) ? " TokenType." : ", TokenType.").append(terminals[i].name());
+        builder.append(" },\n");
+
+        builder.append(indent).append("new int[] ").append(toJavaArray(terminalColumns)).append(",\n");
+        builder.append(indent).append(columnCount).append(",\n");
+        builder.append(indent).append("new int[] ").append(toJavaArray(productionStarts)).append(",\n");
+        builder.append(indent).append("new int[] ").append(toJavaArray(productionSymbols)).append(",\n");
+
+        int[] entries = new int[table.length];
+        for (int i = 0; i < table.length; i++)
+            entries[i] = table[i];
+        builder.append(indent).append("new short[] ").append(toJavaArray(entries));
+        return builder.toString();
+    }
+
+    private static String toJavaArray(int[] values)
+    {
+        return Arrays.toString(values).replace('[', '{').replace(']', '}');
+    }
+}
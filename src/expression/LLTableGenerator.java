@@ -0,0 +1,178 @@
+package expression;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * The {@link LLTableGenerator} class generates the tables of an LL(1) parser from a {@link Grammar}, and writes them as
+ * a Java class, so that the tables of a grammar file are built once instead of when the parser starts.
+ * <p>
+ * The production to expand for a nonterminal A and a terminal t is the production A -> w such that t is in FIRST(w),
+ * or such that w derives the empty string and t is in FOLLOW(A). The grammar is not LL(1) if there are 2 such
+ * productions, and all these conflicts are reported. The other terminals of FOLLOW(A) are {@link LLTable#SYNC} entries,
+ * used to recover from an error.
+ * <p>
+ * Usage: LLTableGenerator [grammar file] [Java file] [class name]. The class is generated in the {@code expression}
+ * package, with a static field {@code TABLE}.
+ * <p/>
+ * */
+public final class LLTableGenerator
+{
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private LLTableGenerator(){}
+
+    /**
+     * Generates the tables of an LL(1) parser for the specified grammar.
+     * @param grammar The grammar.
+     * @return The tables.
+     * @exception IllegalArgumentException If the grammar is not LL(1), with all the conflicts.
+     * */
+    public static LLTable generate(Grammar grammar)
+    {
+        int nonterminalCount = grammar.getNonterminalCount();
+        int terminalCount = grammar.getTerminalCount();
+
+        // Fill the table with a column per terminal.
+        short[] entries = new short[nonterminalCount * terminalCount];
+        Arrays.fill(entries, LLTable.ERROR);
+
+        StringBuilder conflicts = new StringBuilder();
+        BitSet lookAheads = new BitSet();
+        for (int production = 0; production < grammar.getProductionCount(); production++)
+        {
+            int left = grammar.getLeft(production);
+            lookAheads.clear();
+            if (grammar.addFirst(production, 0, lookAheads))
+                lookAheads.or(grammar.getFollow(left));
+
+            for (int terminal = lookAheads.nextSetBit(0); terminal >= 0; terminal = lookAheads.nextSetBit(terminal + 1))
+            {
+                int index = left * terminalCount + terminal;
+                if (entries[index] != LLTable.ERROR)
+                {
+                    conflicts.append(System.lineSeparator()).append("Conflict on ").append(grammar.getTerminal(terminal))
+                             .append(": ").append(grammar.toString(entries[index])).append(" | ")
+                             .append(grammar.toString(production));
+                    continue;
+                }
+
+                entries[index] = (short)production;
+            }
+        }
+        if (conflicts.length() > 0)
+            throw new IllegalArgumentException("The grammar is not LL(1):" + conflicts);
+
+        for (int nonterminal = 0; nonterminal < nonterminalCount; nonterminal++)
+        {
+            BitSet follow = grammar.getFollow(nonterminal);
+            for (int terminal = follow.nextSetBit(0); terminal >= 0; terminal = follow.nextSetBit(terminal + 1))
+            {
+                if (entries[nonterminal * terminalCount + terminal] == LLTable.ERROR)
+                    entries[nonterminal * terminalCount + terminal] = LLTable.SYNC;
+            }
+        }
+
+        // Merge the identical columns. Column 0 is the column of the tokens which are not terminals.
+        List<short[]> columns = new ArrayList<>();
+        short[] errorColumn = new short[nonterminalCount];
+        Arrays.fill(errorColumn, LLTable.ERROR);
+        columns.add(errorColumn);
+
+        int[] terminalColumns = new int[terminalCount];
+        for (int terminal = 0; terminal < terminalCount; terminal++)
+        {
+            short[] column = new short[nonterminalCount];
+            for (int nonterminal = 0; nonterminal < nonterminalCount; nonterminal++)
+                column[nonterminal] = entries[nonterminal * terminalCount + terminal];
+
+            int columnIndex = 0;
+            while ((columnIndex < columns.size()) && !Arrays.equals(columns.get(columnIndex), column))
+                columnIndex++;
+            if (columnIndex == columns.size())
+                columns.add(column);
+
+            terminalColumns[terminal] = columnIndex;
+        }
+
+        short[] table = new short[nonterminalCount * columns.size()];
+        for (int nonterminal = 0; nonterminal < nonterminalCount; nonterminal++)
+        {
+            for (int column = 0; column < columns.size(); column++)
+                table[nonterminal * columns.size() + column] = columns.get(column)[nonterminal];
+        }
+
+        // Copy the productions.
+        String[] nonterminalNames = new String[nonterminalCount];
+        for (int nonterminal = 0; nonterminal < nonterminalCount; nonterminal++)
+            nonterminalNames[nonterminal] = grammar.getSymbolName(nonterminal);
+
+        TokenType[] terminals = new TokenType[terminalCount];
+        for (int terminal = 0; terminal < terminalCount; terminal++)
+            terminals[terminal] = grammar.getTerminal(terminal);
+
+        int[] productionStarts = new int[grammar.getProductionCount() + 1];
+        int symbolCount = 0;
+        for (int production = 0; production < grammar.getProductionCount(); production++)
+            symbolCount += grammar.getLength(production);
+
+        int[] productionSymbols = new int[symbolCount];
+        symbolCount = 0;
+        for (int production = 0; production < grammar.getProductionCount(); production++)
+        {
+            productionStarts[production] = symbolCount;
+            for (int i = 0; i < grammar.getLength(production); i++)
+                productionSymbols[symbolCount++] = grammar.getSymbol(production, i);
+        }
+        productionStarts[grammar.getProductionCount()] = symbolCount;
+
+        return new LLTable(nonterminalNames, terminals, terminalColumns, columns.size(), productionStarts,
+                productionSymbols, table);
+    }
+
+    /**
+     * Writes the specified tables as a Java class of the {@code expression} package.
+     * @param table The tables.
+     * @param className The name of the class.
+     * @param grammarName The name of the grammar file, for the documentation of the class.
+     * @param out The writer to write the class to.
+     * @exception IOException If an I/O error occurs.
+     * */
+    public static void writeJava(LLTable table, String className, String grammarName, Writer out) throws IOException
+    {
+        out.write("package expression;\n\n");
+        out.write("/**\n");
+        out.write(" * The LL(1) tables of the grammar in " + grammarName + ", generated by {@link LLTableGenerator}. Do not edit.\n");
+        out.write(" * */\n");
+        out.write("final class " + className + "\n{\n");
+        out.write("    /** The tables. */\n");
+        out.write("    static final LLTable TABLE = new LLTable(\n");
+        out.write(table.toJavaArguments("            "));
+        out.write(");\n\n");
+        out.write("    /**\n");
+        out.write("     * This class should not be instantiated since it is designed to provide static fields only.\n");
+        out.write("     * */\n");
+        out.write("    private " + className + "(){}\n");
+        out.write("}\n");
+    }
+
+    /**
+     * Generates the Java class of the tables of a grammar file.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length != 3)
+        {
+            System.out.println("Usage: LLTableGenerator [grammar file] [Java file] [class name]");
+            return;
+        }
+
+        LLTable table = generate(Grammar.read(args[0]));
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8))
+        {
+            writeJava(table, args[2], new java.io.File(args[0]).getName(), out);
+        }
+    }
+}
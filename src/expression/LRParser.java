@@ -0,0 +1,232 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link LRParser} class is a shift/reduce parser: it runs the tables of any grammar generated by
+ * {@link LALRTableGenerator} over a {@link TokenBuffer}, with a stack of states in an {@code int} array, so that the
+ * depth of the input is not limited by the call stack. A {@link Reducer} computes a value for each nonterminal reduced,
+ * such as the handle of a node of a {@link SyntaxTree}, from the values of its symbols, a shifted token having the
+ * index of the token as value.
+ * <p>
+ * On an error, the parser reports it, and recovers by popping the stack down to a state which has an action for the
+ * token other than its default reduction. If there is none, or if the token causes an error again after the recovery,
+ * the token is skipped. No error is reported again until a token is shifted, so that an error is not reported several
+ * times. The values of the nonterminals reduced after an error are not meaningful.
+ * <p/>
+ * */
+public class LRParser
+{
+    /**
+     * The {@link Reducer} interface computes the value of a nonterminal when a production is reduced.
+     * */
+    public interface Reducer
+    {
+        /**
+         * Computes the value of the nonterminal on the left of a production.
+         * @param production The production reduced.
+         * @param values The stack of the values.
+         * @param first Index in {@code values} of the value of the first symbol of the production.
+         * @return The value of the nonterminal.
+         * */
+        int reduce(int production, int[] values, int first);
+    }
+
+    /** The tables of the grammar. */
+    private final LRTable table;
+
+    /** The tokens to parse. */
+    private final TokenBuffer tokens;
+
+    /** The stream to write the diagnostics to. */
+    private final PrintStream out;
+
+    /** The reducer computing the values of the nonterminals. */
+    private final Reducer reducer;
+
+    /** The states, the top of the stack being the current state. */
+    private int[] states;
+
+    /** The values of the symbols of the states. */
+    private int[] values;
+
+    /** Number of states in {@link #states}. */
+    private int stackSize;
+
+    /**
+     * Initializes a new instance of {@link LRParser} which only checks the syntax of the tokens.
+     * @param table The tables of the grammar.
+     * @param tokens The tokens to parse, from the position of their cursor.
+     * @param out The stream to write the diagnostics to.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public LRParser(LRTable table, TokenBuffer tokens, PrintStream out)
+    {
+        this(table, tokens, out, (production, values, first) -> 0);
+    }
+
+    /**
+     * Initializes a new instance of {@link LRParser}.
+     * @param table The tables of the grammar.
+     * @param tokens The tokens to parse, from the position of their cursor.
+     * @param out The stream to write the diagnostics to.
+     * @param reducer The reducer computing the values of the nonterminals.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public LRParser(LRTable table, TokenBuffer tokens, PrintStream out, Reducer reducer)
+    {
+        if ((table == null) || (tokens == null) || (out == null) || (reducer == null))
+            throw new NullPointerException("Table, tokens, output stream and reducer cannot be null.");
+
+        this.table = table;
+        this.tokens = tokens;
+        this.out = out;
+        this.reducer = reducer;
+        states = new int[64];
+        values = new int[64];
+        stackSize = 0;
+    }
+
+    /**
+     * Parses the tokens up to the {@link TokenType#END_OF_FILE}.
+     * @return The number of errors.
+     * */
+    public int parse()
+    {
+        int errorCount = 0;
+        boolean isRecovering = false;
+        int errorPosition = -1;
+
+        stackSize = 0;
+        push(0, 0);
+        while (true)
+        {
+            TokenType token = tokens.getType();
+            int action = table.getAction(states[stackSize - 1], token);
+            if (action > 0)
+            {
+                push(action - 1, tokens.getPosition());
+                tokens.advance();
+                isRecovering = false;
+                continue;
+            }
+
+            if (action < 0)
+            {
+                int production = -action - 1;
+                if (production == table.getProductionCount())
+                    return errorCount;
+
+                int first = stackSize - table.getLength(production);
+                int value = reducer.reduce(production, values, first);
+                stackSize = first;
+                push(table.getGoto(states[stackSize - 1], table.getLeft(production)), value);
+                continue;
+            }
+
+            if (!isRecovering)
+            {
+                out.println("Line: " + tokens.getLine() + ", unexpected symbol: \"" + tokens.getText() + "\".");
+                errorCount++;
+                isRecovering = true;
+            }
+
+            // Pop the states which cannot go on with the token, or skip the token.
+            int depth = stackSize - 1;
+            if (tokens.getPosition() != errorPosition)
+            {
+                while ((depth >= 0) && !table.hasExplicitAction(states[depth], token))
+                    depth--;
+            }
+            else
+                depth = -1;
+
+            errorPosition = tokens.getPosition();
+            if (depth >= 0)
+                stackSize = depth + 1;
+            else if (token == TokenType.END_OF_FILE)
+                return errorCount;
+            else
+                tokens.advance();
+        }
+    }
+
+    private void push(int state, int value)
+    {
+        if (stackSize == states.length)
+        {
+            states = Arrays.copyOf(states, stackSize * 2);
+            values = Arrays.copyOf(values, stackSize * 2);
+        }
+
+        states[stackSize] = state;
+        values[stackSize++] = value;
+    }
+
+    /**
+     * A unit test method for the {@link LRParser} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        String grammarFilePath = "./out/production/CCompiler/expression/expressionGrammar.txt";
+        String cGrammarFilePath = "./out/production/CCompiler/expression/cGrammar.txt";
+        String cSourceFilePath = "./out/production/CCompiler/expression/cTest.txt";
+
+        // The left recursive grammar, and the left factored grammar of LLParser.
+        TokenBuffer tokens = TokenBuffer.tokenize(sourceFilePath);
+        int errorCount = new LRParser(ExpressionLRTable.TABLE, tokens, System.out).parse();
+        System.out.println(errorCount + " errors.");
+
+        tokens.rewind();
+        errorCount = new LRParser(LALRTableGenerator.generate(Grammar.read(grammarFilePath)), tokens, System.out).parse();
+        System.out.println(errorCount + " errors.");
+
+        // The productions of expressionLRGrammar.txt build the same tree as TreeParser.
+        tokens = TokenBuffer.tokenize("1 + 2 * 3 + 4;\n34 * (a + 6) * b;\nx;\n".getBytes());
+        SyntaxTree tree = new SyntaxTree();
+        int[] statementNodes = new int[3];
+        int[] statementCount = new int[1];
+        new LRParser(ExpressionLRTable.TABLE, tokens, System.out, (production, values, first) ->
+        {
+            switch (production)
+            {
+                case 0:
+                    statementNodes[statementCount[0]++] = tree.addNode(NodeKind.STATEMENT, values[first + 2], values[first + 1]);
+                    return 0;
+                case 1:
+                    statementNodes[statementCount[0]++] = tree.addNode(NodeKind.STATEMENT, values[first + 1], values[first]);
+                    return 0;
+                case 2:
+                case 4:
+                    return tree.addNode(NodeKind.BINARY, values[first + 1], values[first], values[first + 2]);
+                case 6:
+                    return tree.addLeaf(NodeKind.NUMBER, values[first]);
+                case 7:
+                    return tree.addLeaf(NodeKind.IDENTIFIER, values[first]);
+                case 8:
+                    return values[first + 1];
+                default:
+                    return values[first];
+            }
+        }).parse();
+        String lrTree = tree.toString(tree.addNode(NodeKind.STATEMENTS, SyntaxTree.NO_TOKEN, statementNodes, 0, statementCount[0]), tokens);
+        System.out.print(lrTree);
+
+        tokens.rewind();
+        tree.clear();
+        int root = new TreeParser(tokens, tree, new PrintStream(new ByteArrayOutputStream())).statements();
+        System.out.println("Same tree as TreeParser: " + lrTree.equals(tree.toString(root, tokens)));
+
+        // The grammar of C, with its dangling else.
+        List<String> conflicts = new ArrayList<>();
+        LRTable cTable = LALRTableGenerator.generate(Grammar.read(cGrammarFilePath), conflicts);
+        conflicts.forEach(System.out::println);
+        System.out.println(cTable.getStateCount() + " states, " + cTable.getCompressedSize() + " entries instead of " +
+                           cTable.getUncompressedSize() + ".");
+
+        errorCount = new LRParser(cTable, TokenBuffer.tokenize(cSourceFilePath), System.out).parse();
+        System.out.println(errorCount + " errors.");
+    }
+}
@@ -0,0 +1,231 @@
+package expression;
+
+import java.util.*;
+
+/**
+ * The {@link LRTable} class contains the tables of a shift/reduce parser generated by {@link LALRTableGenerator}: the
+ * ACTION table giving the action of a state for the next token, and the GOTO table giving the state to go to after a
+ * nonterminal is reduced.
+ * <p>
+ * Both tables are compressed by row displacement (a comb vector): the non-default entries of all the rows are packed
+ * into a single array, each row at its own offset, and an array of checks tells which row an entry belongs to. An entry
+ * which is not in the packed array is the default of the row: the most frequent reduction of a state for the ACTION
+ * table, and the most frequent target state of a nonterminal for the GOTO table, whose rows are the nonterminals. The
+ * tables of a grammar of C fit in a few kilobytes, which stay in the cache.
+ * <p>
+ * An action is {@link #ERROR}, a shift to state s encoded as s + 1, or a reduction of production p encoded as -(p + 1).
+ * The reduction of the production after the last production of the grammar accepts the input.
+ * <p/>
+ * */
+public final class LRTable
+{
+    /** The action of a token which cannot follow the symbols on the stack. */
+    public static final int ERROR = 0;
+
+    /** The terminals. */
+    private final TokenType[] terminals;
+
+    /** Number of nonterminals. */
+    private final int nonterminalCount;
+
+    /** The nonterminals on the left of the productions. */
+    private final int[] productionLefts;
+
+    /** Numbers of symbols on the right of the productions. */
+    private final int[] productionLengths;
+
+    /** Offsets of the rows of the states in the packed ACTION table. */
+    private final int[] actionBases;
+
+    /** States of the entries of the packed ACTION table, -1 for an unused entry. */
+    private final int[] actionChecks;
+
+    /** Actions of the entries of the packed ACTION table. */
+    private final int[] actionValues;
+
+    /** Default actions of the states. */
+    private final int[] defaultActions;
+
+    /** Offsets of the rows of the nonterminals in the packed GOTO table. */
+    private final int[] gotoBases;
+
+    /** Nonterminals of the entries of the packed GOTO table, -1 for an unused entry. */
+    private final int[] gotoChecks;
+
+    /** States of the entries of the packed GOTO table. */
+    private final int[] gotoValues;
+
+    /** Default states of the nonterminals. */
+    private final int[] defaultGotos;
+
+    /** Indexes of the terminals indexed by the ordinals of the token types, -1 for a token which is not a terminal. */
+    private final int[] terminalIndexes;
+
+    /**
+     * Initializes a new instance of {@link LRTable}.
+     * @param terminals The terminals, {@link TokenType#END_OF_FILE} first.
+     * @param nonterminalCount Number of nonterminals.
+     * @param productionLefts The nonterminals on the left of the productions.
+     * @param productionLengths Numbers of symbols on the right of the productions.
+     * @param actionBases Offsets of the rows of the states in the packed ACTION table.
+     * @param actionChecks States of the entries of the packed ACTION table.
+     * @param actionValues Actions of the entries of the packed ACTION table.
+     * @param defaultActions Default actions of the states.
+     * @param gotoBases Offsets of the rows of the nonterminals in the packed GOTO table.
+     * @param gotoChecks Nonterminals of the entries of the packed GOTO table.
+     * @param gotoValues States of the entries of the packed GOTO table.
+     * @param defaultGotos Default states of the nonterminals.
+     * @exception IllegalArgumentException If the sizes of the tables do not match.
+     * */
+    public LRTable(TokenType[] terminals, int nonterminalCount, int[] productionLefts, int[] productionLengths,
+                   int[] actionBases, int[] actionChecks, int[] actionValues, int[] defaultActions,
+                   int[] gotoBases, int[] gotoChecks, int[] gotoValues, int[] defaultGotos)
+    {
+        if ((terminals[0] != TokenType.END_OF_FILE) || (productionLefts.length != productionLengths.length) ||
+            (actionBases.length != defaultActions.length) || (actionChecks.length != actionValues.length) ||
+            (gotoBases.length != nonterminalCount) || (defaultGotos.length != nonterminalCount) ||
+            (gotoChecks.length != gotoValues.length))
+            throw new IllegalArgumentException("Invalid LR tables.");
+
+        this.terminals = terminals;
+        this.nonterminalCount = nonterminalCount;
+        this.productionLefts = productionLefts;
+        this.productionLengths = productionLengths;
+        this.actionBases = actionBases;
+        this.actionChecks = actionChecks;
+        this.actionValues = actionValues;
+        this.defaultActions = defaultActions;
+        this.gotoBases = gotoBases;
+        this.gotoChecks = gotoChecks;
+        this.gotoValues = gotoValues;
+        this.defaultGotos = defaultGotos;
+
+        terminalIndexes = new int[TokenType.values().length];
+        Arrays.fill(terminalIndexes, -1);
+        for (int i = 0; i < terminals.length; i++)
+            terminalIndexes[terminals[i].ordinal()] = i;
+    }
+
+    /**
+     * Gets the number of states.
+     * @return The number of states.
+     * */
+    public int getStateCount()
+    {
+        return actionBases.length;
+    }
+
+    /**
+     * Gets the number of productions, the production accepting the input excluded.
+     * @return The number of productions.
+     * */
+    public int getProductionCount()
+    {
+        return productionLefts.length;
+    }
+
+    /**
+     * Gets the nonterminal on the left of the specified production.
+     * @param production The production.
+     * @return The nonterminal on the left of the production.
+     * */
+    public int getLeft(int production)
+    {
+        return productionLefts[production];
+    }
+
+    /**
+     * Gets the number of symbols on the right of the specified production.
+     * @param production The production.
+     * @return The number of symbols on the right of the production.
+     * */
+    public int getLength(int production)
+    {
+        return productionLengths[production];
+    }
+
+    /**
+     * Gets the action of a state for the next token, the default action of the state if there is no entry for it.
+     * @param state The state.
+     * @param token The next token.
+     * @return The action.
+     * */
+    public int getAction(int state, TokenType token)
+    {
+        int terminal = terminalIndexes[token.ordinal()];
+        if (terminal < 0)
+            return ERROR;
+
+        int index = actionBases[state] + terminal;
+        return (actionChecks[index] == state) ? actionValues[index] : defaultActions[state];
+    }
+
+    /**
+     * Returns a value indicating whether a state has an action for the next token which is not its default action.
+     * @param state The state.
+     * @param token The next token.
+     * @return true if the state has an explicit action for the token, otherwise, false.
+     * */
+    public boolean hasExplicitAction(int state, TokenType token)
+    {
+        int terminal = terminalIndexes[token.ordinal()];
+        return (terminal >= 0) && (actionChecks[actionBases[state] + terminal] == state);
+    }
+
+    /**
+     * Gets the state to go to from a state after a nonterminal is reduced.
+     * @param state The state on the top of the stack once the symbols of the production are popped.
+     * @param nonterminal The nonterminal.
+     * @return The state to go to.
+     * */
+    public int getGoto(int state, int nonterminal)
+    {
+        int index = gotoBases[nonterminal] + state;
+        return (gotoChecks[index] == nonterminal) ? gotoValues[index] : defaultGotos[nonterminal];
+    }
+
+    /**
+     * Gets the number of entries of the compressed tables.
+     * @return The number of {@code int} of the compressed tables.
+     * */
+    public int getCompressedSize()
+    {
+        return actionBases.length + actionChecks.length + actionValues.length + defaultActions.length +
+               gotoBases.length + gotoChecks.length + gotoValues.length + defaultGotos.length;
+    }
+
+    /**
+     * Gets the number of entries of the tables if they were not compressed.
+     * @return The number of entries of the uncompressed ACTION and GOTO tables.
+     * */
+    public int getUncompressedSize()
+    {
+        return actionBases.length * (terminals.length + nonterminalCount);
+    }
+
+    /**
+     * Formats the tables as the arguments of the constructor in Java source.
+     * @param indent The indentation of the arguments.
+     * @return The Java source of the arguments.
+     * */
+    String toJavaArguments(String indent)
+    {
+        StringBuilder builder = new StringBuilder();
+        builder.append(indent).append("new TokenType[] {");
+        for (int i = 0; i < terminals.length; i++)
+            builder.append((i == 0) ? " TokenType." : ", TokenType.").append(terminals[i].name());
+        builder.append(" },\n");
+
+        builder.append(indent).append(nonterminalCount);
+        for (int[] array : new int[][] { productionLefts, productionLengths, actionBases, actionChecks, actionValues,
+                                         defaultActions, gotoBases, gotoChecks, gotoValues, defaultGotos })
+            builder.append(",\n").append(indent).append("new int[] ").append(toJavaArray(array));
+
+        return builder.toString();
+    }
+
+    private static String toJavaArray(int[] values)
+    {
+        return Arrays.toString(values).replace('[', '{').replace(']', '}');
+    }
+}
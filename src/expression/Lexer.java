@@ -1,12 +1,21 @@
 package expression;
 
+import InputSystem.*;
+
 import java.io.*;
-import java.util.*;
+import java.nio.channels.*;
 
 /**
  *  The {@link Lexer} class represents a simple lexer that can recognize a arithmetic expression consisting of numbers,
  *  operators such as "+", "-", "*", "/" and parentheses which ends with ";". It can extract symbol from the input
  *  expression end with ";" and gets the token of the symbol.
+ *  <p>
+ *  Tokens are recognized by the table-driven DFA in {@link LexerTable}, which runs over the input buffer of a
+ *  {@link CodeReader}, so the input is streamed with bounded memory whatever the length of its lines. The text of a
+ *  symbol is only turned into a {@link String} when {@link #getSymbolText()} is called.
+ *  <p/>
+ *  A {@link Lexer} can also replay the tokens stored in a {@link TokenBuffer}, from the current position of its cursor.
+ *  <p/>
  * */
 public class Lexer
 {
@@ -16,24 +25,39 @@ public class Lexer
     /** Next token to analyze. */
     private TokenType lookAhead;
 
-    /** The text of the symbol. */
+    /** The text of the symbol, or null if it is not created from the input buffer yet. */
     private String symbolText;
 
-    /** Current line number. */
-    private int lineNumber;
+    /** Offset of the symbol in the input. */
+    private int symbolOffset;
+
+    /** CodeReader of this {@link Lexer}, or null if the tokens are replayed from a {@link TokenBuffer}. */
+    private final CodeReader reader;
+
+    /** The tokens to replay, or null if the tokens are read by the {@link CodeReader}. */
+    private final TokenBuffer tokens;
+
+    /** Index in {@link #tokens} of the symbol. */
+    private int symbolIndex;
 
-    /** Remaining contents in this line to analyze. */
-    private String remainingContents;
+    /** The value of the symbol if it is a number. */
+    private final NumberLiteral number;
 
-    /** CodeReader of this {@link Lexer}. */
-    private Scanner input;
+    /** The identifiers met by this {@link Lexer}. */
+    private final SymbolTable symbols;
+
+    /** Id of the symbol in {@link #symbols} if it is an identifier, otherwise, -1. */
+    private int symbolId;
+
+    /** Receives every character consumed from the input when the lexer is run by {@link #runLexer()}. */
+    private ByteArrayOutputStream echo;
 
     /**
      * Initializes a new instance of {@link Lexer} with standard input stream.
      * */
     public Lexer()
     {
-        this(System.in);
+        this(new StdinCodeInput());
     }
 
     /**
@@ -41,12 +65,60 @@ public class Lexer
      * @param input The specified input stream.
      * */
     public Lexer(InputStream input)
+    {
+        this(new ChannelCodeInput(Channels.newChannel(input)));
+    }
+
+    /**
+     * Initializes a new instance of {@link Lexer} with the specified input.
+     * @param input The specified input.
+     * @exception UncheckedIOException If the input cannot be opened for reading.
+     * */
+    public Lexer(ICodeInput input)
     {
         lookAhead = TokenType.INITIAL_STATE;
         symbolText = "";
-        lineNumber = 0;
-        remainingContents = "";
-        this.input = new Scanner(input);
+        symbolOffset = 0;
+        echo = null;
+        tokens = null;
+        symbolIndex = 0;
+        number = new NumberLiteral();
+        symbols = new SymbolTable();
+        symbolId = -1;
+
+        // An adaptive reader grows its buffer for long lexemes instead of failing.
+        reader = new CodeReader(CodeReader.DEFAULT_MAX_SYMBOL_LENGTH, CodeReader.DEFAULT_MAX_LOOK_AHEAD, true);
+        try
+        {
+            reader.newInput(input);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Initializes a new instance of {@link Lexer} that replays the tokens in the specified {@link TokenBuffer}, from the
+     * current position of its cursor.
+     * @param tokens The tokens to replay.
+     * @exception NullPointerException If {@code tokens} is null.
+     * */
+    public Lexer(TokenBuffer tokens)
+    {
+        if (tokens == null)
+            throw new NullPointerException("Token buffer is null.");
+
+        lookAhead = TokenType.INITIAL_STATE;
+        symbolText = "";
+        symbolOffset = 0;
+        echo = null;
+        reader = null;
+        this.tokens = tokens;
+        symbolIndex = tokens.getPosition();
+        number = new NumberLiteral();
+        symbols = new SymbolTable();
+        symbolId = -1;
     }
 
     /**
@@ -55,16 +127,54 @@ public class Lexer
      * */
     public String getSymbolText()
     {
+        if (symbolText == null)
+        {
+            if (symbolId >= 0)
+                symbolText = symbols.getName(symbolId);
+            else
+                symbolText = (tokens == null) ? reader.getCurrentLex() : tokens.getText(symbolIndex);
+        }
+
         return symbolText;
     }
 
+    /**
+     * Gets the id of the symbol in the symbol table of this {@link Lexer}.
+     * @return The id of the symbol if it is a {@link TokenType#IDENTIFIER}, otherwise, -1.
+     * */
+    public int getSymbolId()
+    {
+        return symbolId;
+    }
+
+    /**
+     * Gets the table of the identifiers met by this {@link Lexer}.
+     * @return The symbol table.
+     * */
+    public SymbolTable getSymbolTable()
+    {
+        return symbols;
+    }
+
+    /**
+     * Gets the value of the symbol, which is converted when the symbol is scanned.
+     * @return The value of the symbol if it is a {@link TokenType#NUMBER}, otherwise, the value of the last number.
+     * */
+    public NumberLiteral getNumber()
+    {
+        return number;
+    }
+
     /**
      * Gets the number of current line being analyzed.
      * @return The number of current line being analyzed.
      * */
     public int getLineNumber()
     {
-        return lineNumber;
+        if (tokens != null)
+            return tokens.getLine(symbolIndex);
+
+        return reader.getLineIndex().getLineNumber(symbolOffset);
     }
 
     /**
@@ -73,44 +183,44 @@ public class Lexer
      * */
     public boolean isAlphabeticOrNumber(char c)
     {
-        return ((Character.isAlphabetic(c)) || (Character.isDigit(c)));
+        int charClass = LexerTable.getCharClass(c);
+        return (charClass == LexerTable.CLASS_LETTER) || (charClass == LexerTable.CLASS_EXPONENT) ||
+               (charClass == LexerTable.CLASS_DIGIT);
     }
 
     /**
-     * Reads next non-empty line from input stream. Any empty line or line contains only white spaces will be filtered.
+     * Consumes the next character from the input, dropping the previous lexeme so that the input buffer can always be
+     * flushed.
+     * @return The consumed character, or a value not greater than 0 if there are no more contents.
      * */
-    private void readLine()
+    private int skipChar()
     {
-        // Read contents from input.
-        for (;;)
-        {
-            // Read next line and trim it.
-            String line = input.nextLine().trim();
+        reader.moveNext();
+        reader.markStart();
 
-            // Filter all empty lines.
-            if (!line.isEmpty())
-            {
-                remainingContents = line;
-                lineNumber++;
-                break;
-            }
-        }
+        int c = reader.nextChar();
+        if ((echo != null) && (c > 0))
+            echo.write(c);
+
+        return c;
     }
 
     /**
-     * Extracts the number or identifier from the input stream and store it in the "symbolText" variable.
+     * Consumes white spaces other than '\n' after the current symbol, and returns a value indicating whether the line
+     * ends after them.
+     * @return true if there are only white spaces after the current symbol in the line, otherwise, false.
      * */
-    private void getNumberOrIdentifier()
+    private boolean isLineEndAfterSymbol()
     {
-        // Since when this method is called, remainingContents.charAt(0) is confirmed to be alphabetic or number.
-        // So variable symbolLength starts from 1.
-        int symbolLength = 1;
-        while ((symbolLength < remainingContents.length()) &&
-                isAlphabeticOrNumber(remainingContents.charAt(symbolLength)))
-            symbolLength++;
-
-        symbolText = remainingContents.substring(0, symbolLength);
-        remainingContents = remainingContents.substring(symbolLength);
+        int c;
+        for (c = reader.peekNextChar(); LexerTable.isWhiteSpace(c) && (c != '\n'); c = reader.peekNextChar())
+        {
+            reader.nextChar();
+            if (echo != null)
+                echo.write(c);
+        }
+
+        return (c <= 0) || (c == '\n');
     }
 
     /**
@@ -118,55 +228,119 @@ public class Lexer
      * */
     private TokenType getNextToken()
     {
-        // Filter all the white spaces.
-        remainingContents = remainingContents.trim();
+        if (tokens != null)
+            return getNextBufferedToken();
+
+        // Filter all the white spaces, in bulk unless they are echoed.
+        if (echo == null)
+            reader.skip(LexerTable.WHITE_SPACE_BYTES);
+        else
+        {
+            for (int c = reader.peekNextChar(); LexerTable.isWhiteSpace(c); c = reader.peekNextChar())
+                skipChar();
+        }
+
+        reader.moveNext();
+        reader.markStart();
+        symbolText = null;
+        symbolId = -1;
+        symbolOffset = reader.getCurrentLexOffset();
 
-        // Read new line if remainingContents is empty.
-        if (remainingContents.isEmpty())
-            readLine();
+        // Run the DFA from the next character, and go back to the end of the longest match.
+        int state = LexerTable.START;
+        TokenType token = null;
+        for (;;)
+        {
+            // A NUL character is an unknown symbol, only the end of the input ends the token.
+            if (reader.isEndOfInput())
+                break;
+
+            int c = reader.nextCodePoint();
+            if (c < 0)
+                break;
+
+            state = LexerTable.getNextState(state, LexerTable.getCharClass(c));
+            if (state == LexerTable.ERROR)
+                break;
 
-        // Handle the "end of file" symbol.
-        if (remainingContents.equals(END_SYMBOL))
+            TokenType acceptedToken = LexerTable.getAcceptedToken(state);
+            if (acceptedToken != null)
+            {
+                token = acceptedToken;
+                reader.markEnd();
+            }
+        }
+        reader.toMark();
+
+        if (token == null)
         {
             symbolText = END_SYMBOL;
             return TokenType.END_OF_FILE;
         }
 
-        // Get next character to analyze.
-        char nextChar = remainingContents.charAt(0);
-        symbolText = remainingContents.substring(0, 1);
-        switch (nextChar)
+        Lexeme lexeme = reader.getCurrentLexView();
+        if (echo != null)
+            echo.write(lexeme.getBuffer(), lexeme.getOffset(), lexeme.length());
+
+        if (token == TokenType.IDENTIFIER)
         {
-            case ';':
-                remainingContents = remainingContents.substring(1);
-                return TokenType.SEMICOLON;
-            case '+':
-                remainingContents = remainingContents.substring(1);
-                return TokenType.PLUS;
-            case '-':
-                remainingContents = remainingContents.substring(1);
-                return TokenType.MINUS;
-            case '*':
-                remainingContents = remainingContents.substring(1);
-                return TokenType.TIMES;
-            case '/':
-                remainingContents = remainingContents.substring(1);
-                return TokenType.DIVIDE;
-            case '(':
-                remainingContents = remainingContents.substring(1);
-                return TokenType.LEFT_PARENTHESES;
-            case ')':
-                remainingContents = remainingContents.substring(1);
-                return TokenType.RIGHT_PARENTHESES;
-            default:
-                if (!isAlphabeticOrNumber(nextChar))
-                    return TokenType.UNKNOWN_SYMBOL;
-                else
+            // Handle the "end of file" symbol, which is the "end" at the end of a line. Looking for the end of the line
+            // may move the contents of the input buffer, and "end" is not a keyword.
+            if (lexeme.contentEquals(END_SYMBOL))
+            {
+                int id = symbols.intern(lexeme.getBuffer(), lexeme.getOffset(), lexeme.length());
+                if (!isLineEndAfterSymbol())
                 {
-                    getNumberOrIdentifier();
-                    return TokenType.NUMBER_OR_IDENTIFIER;
+                    symbolId = id;
+                    return TokenType.IDENTIFIER;
                 }
+
+                symbolText = END_SYMBOL;
+                return TokenType.END_OF_FILE;
+            }
+
+            token = Keywords.getTokenType(lexeme.getBuffer(), lexeme.getOffset(), lexeme.length());
+            if (token == TokenType.IDENTIFIER)
+                symbolId = symbols.intern(lexeme.getBuffer(), lexeme.getOffset(), lexeme.length());
+        }
+        else if (token == TokenType.NUMBER)
+        {
+            // A malformed number is an unknown symbol.
+            if (!number.parse(lexeme.getBuffer(), lexeme.getOffset(), lexeme.length()))
+                return TokenType.UNKNOWN_SYMBOL;
         }
+
+        return token;
+    }
+
+    /**
+     * Gets and returns the token at the cursor of {@link #tokens}, and moves the cursor to the next token.
+     * */
+    private TokenType getNextBufferedToken()
+    {
+        symbolIndex = tokens.getPosition();
+        symbolText = null;
+        symbolId = -1;
+        tokens.advance();
+
+        TokenType token = tokens.getType(symbolIndex);
+        if (token == TokenType.NUMBER)
+            tokens.getNumber(symbolIndex, number);
+        else if (token == TokenType.IDENTIFIER)
+            symbolId = tokens.getSymbolId(symbolIndex, symbols);
+
+        return token;
+    }
+
+    /**
+     * Gets a value indicating whether the current token in the input stream is an unknown symbol for the expression
+     * grammar, that is, an {@link TokenType#UNKNOWN_SYMBOL} or an operator of C which is not in the grammar.
+     * @return true if the current token is an unknown symbol, otherwise, false.
+     * @see TokenType#isPunctuator()
+     * */
+    public boolean matchUnknownSymbol()
+    {
+        return match(TokenType.UNKNOWN_SYMBOL) || lookAhead.isPunctuator();
     }
 
     /**
@@ -184,10 +358,12 @@ public class Lexer
 
     /**
      * Closes the input stream.
+     * @exception IOException If an I/O error occurs.
      * */
-    public void close()
+    public void close() throws IOException
     {
-        input.close();
+        if (reader != null)
+            reader.close();
     }
 
     /**
@@ -195,7 +371,19 @@ public class Lexer
      * */
     public void clearLine()
     {
-        remainingContents = "";
+        if (tokens != null)
+        {
+            tokens.setPosition(tokens.getNextLineIndex(symbolIndex));
+            lookAhead = TokenType.INITIAL_STATE;
+            return;
+        }
+
+        // Keep the text of the symbol, the input buffer is going to move on.
+        getSymbolText();
+
+        for (int c = skipChar(); (c > 0) && (c != '\n'); c = skipChar())
+            ;
+
         lookAhead = TokenType.INITIAL_STATE;
     }
 
@@ -208,39 +396,77 @@ public class Lexer
     }
 
     /**
-     * A unit test method to tokenize all lines in the input stream.
+     * Prints the line echoed before the first '\n', followed by the output of its tokens, and keeps the echoed
+     * characters after the last '\n', which belong to the line of the current token.
      * */
-    private void runLexer()
+    private void printLine(int lineNumber, StringBuilder lineOutput)
     {
-        // Manually call the readLine() method so that the entire non-empty line can be shown in the console.
-        readLine();
-        System.out.println("Line number: " + lineNumber + ", content: " + remainingContents);
-
-        while (!match(TokenType.END_OF_FILE))
+        byte[] echoed = echo.toByteArray();
+        int firstLineEnd = echoed.length;
+        int lastLineEnd = -1;
+        for (int i = 0; i < echoed.length; i++)
         {
-            if (match(TokenType.UNKNOWN_SYMBOL))
+            if (echoed[i] == '\n')
             {
-                System.out.println("Error: unknown token: " + symbolText + " at line: " + lineNumber + ".");
-                remainingContents = "";
+                firstLineEnd = Math.min(firstLineEnd, i);
+                lastLineEnd = i;
             }
-            else
-                System.out.println("Token: " + lookAhead + ", Symbol: " + getSymbolText());
+        }
+
+        String content = new String(echoed, 0, firstLineEnd).trim();
+        System.out.println("Line number: " + lineNumber + ", content: " + content);
+        System.out.print(lineOutput);
+        lineOutput.setLength(0);
+
+        echo.reset();
+        echo.write(echoed, lastLineEnd + 1, echoed.length - lastLineEnd - 1);
+    }
+
+    /**
+     * A unit test method to tokenize all lines in the input stream.
+     * */
+    private void runLexer() throws IOException
+    {
+        // Echo the input so that the entire non-empty line can be shown in the console, before its tokens.
+        echo = new ByteArrayOutputStream();
+        StringBuilder lineOutput = new StringBuilder();
+        int outputLineNumber = 0;
 
-            if (remainingContents.isEmpty())
+        for (;;)
+        {
+            boolean isEndOfFile = match(TokenType.END_OF_FILE);
+            if (getLineNumber() != outputLineNumber)
             {
                 // Put a blank line if a non-empty line is completely tokenized.
-                System.out.println();
+                if (outputLineNumber != 0)
+                {
+                    printLine(outputLineNumber, lineOutput);
+                    System.out.println();
+                }
+                outputLineNumber = getLineNumber();
+            }
+
+            if (isEndOfFile)
+                break;
 
-                // Manually call the readLine() method so that the entire non-empty line can be shown in the console.
-                readLine();
-                System.out.println("Line number: " + lineNumber + ", content: " + remainingContents);
+            if (match(TokenType.UNKNOWN_SYMBOL))
+            {
+                lineOutput.append("Error: unknown token: ").append(getSymbolText()).append(" at line: ")
+                          .append(getLineNumber()).append(".").append(System.lineSeparator());
+                clearLine();
             }
+            else
+                lineOutput.append("Token: ").append(lookAhead).append(", Symbol: ").append(getSymbolText())
+                          .append(System.lineSeparator());
 
             lookNextToken();
         }
 
-        System.out.println("Token: " + lookAhead + ", Symbol: " + getSymbolText());
-        input.close();
+        lineOutput.append("Token: ").append(lookAhead).append(", Symbol: ").append(getSymbolText())
+                  .append(System.lineSeparator());
+        printLine(outputLineNumber, lineOutput);
+        echo = null;
+        reader.close();
     }
 
     /**
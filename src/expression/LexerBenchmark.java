@@ -0,0 +1,213 @@
+package expression;
+
+import java.io.*;
+
+/**
+ * The {@link LexerBenchmark} class compares the character classification by the class tables of {@link LexerTable}
+ * with the classification by a switch and the Unicode properties of {@link Character}, which was used before the
+ * tables, and measures the throughput of the {@link Lexer} and of {@link TokenBuffer#tokenize(byte[])}.
+ * <p>
+ * Usage: LexerBenchmark [source file]. By default, a generated source of about 32 MB of indented statements with
+ * identifiers, keywords, numbers and operators is used.
+ * <p/>
+ * */
+public final class LexerBenchmark
+{
+    /** Number of runs of each method that are not measured. */
+    private static final int WARM_UP_RUNS = 3;
+
+    /** Number of measured runs of each method. */
+    private static final int MEASURED_RUNS = 5;
+
+    /** Size of the generated source in bytes. */
+    private static final int GENERATED_SIZE = 32 * 1024 * 1024;
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private LexerBenchmark(){}
+
+    /**
+     * Generates indented statements with identifiers, keywords, numbers and operators.
+     * */
+    private static byte[] generateSource()
+    {
+        String[] names = {"count", "i", "total_size", "x1", "buffer_index", "int", "sizeof", "value"};
+        String[] numbers = {"0", "1", "42", "0x7F", "017", "3.14", "1e-3", "100UL", "2.5f"};
+        ByteArrayOutputStream source = new ByteArrayOutputStream(GENERATED_SIZE + 1024);
+        for (int line = 0; source.size() < GENERATED_SIZE; line++)
+        {
+            StringBuilder statement = new StringBuilder();
+            for (int i = 0; i < 1 + line % 4; i++)
+                statement.append("    ");
+
+            statement.append(names[line % names.length]).append(" + ").append(numbers[line % numbers.length])
+                     .append(" * (").append(names[(line / 3) % names.length]).append(line % 1000)
+                     .append(" + ").append(numbers[(line / 7) % numbers.length]).append(");\n");
+            if (line % 10 == 9)
+                statement.append('\n');
+
+            byte[] bytes = statement.toString().getBytes();
+            source.write(bytes, 0, bytes.length);
+        }
+
+        return source.toByteArray();
+    }
+
+    /**
+     * Classifies a character with a switch and the Unicode properties, as it was done before the class tables.
+     * */
+    private static int classifyWithoutTable(int c)
+    {
+        switch (c)
+        {
+            case ';':
+                return LexerTable.CLASS_SEMICOLON;
+            case '+':
+                return LexerTable.CLASS_PLUS;
+            case '-':
+                return LexerTable.CLASS_MINUS;
+            case '*':
+                return LexerTable.CLASS_TIMES;
+            case '/':
+                return LexerTable.CLASS_DIVIDE;
+            case '(':
+                return LexerTable.CLASS_LEFT_PARENTHESES;
+            case ')':
+                return LexerTable.CLASS_RIGHT_PARENTHESES;
+            case '.':
+                return LexerTable.CLASS_DOT;
+            case '[':
+                return LexerTable.CLASS_LEFT_BRACKET;
+            case ']':
+                return LexerTable.CLASS_RIGHT_BRACKET;
+            case '{':
+                return LexerTable.CLASS_LEFT_BRACE;
+            case '}':
+                return LexerTable.CLASS_RIGHT_BRACE;
+            case '~':
+                return LexerTable.CLASS_TILDE;
+            case '?':
+                return LexerTable.CLASS_QUESTION;
+            case ':':
+                return LexerTable.CLASS_COLON;
+            case ',':
+                return LexerTable.CLASS_COMMA;
+            case '&':
+                return LexerTable.CLASS_AMPERSAND;
+            case '|':
+                return LexerTable.CLASS_BAR;
+            case '^':
+                return LexerTable.CLASS_CARET;
+            case '!':
+                return LexerTable.CLASS_EXCLAMATION;
+            case '%':
+                return LexerTable.CLASS_PERCENT;
+            case '<':
+                return LexerTable.CLASS_LESS;
+            case '>':
+                return LexerTable.CLASS_GREATER;
+            case '=':
+                return LexerTable.CLASS_EQUAL;
+            case 'e':
+            case 'E':
+            case 'p':
+            case 'P':
+                return LexerTable.CLASS_EXPONENT;
+            case '_':
+                return LexerTable.CLASS_LETTER;
+            default:
+                if ((c > 0) && (c <= ' '))
+                    return LexerTable.CLASS_WHITE_SPACE;
+                else if (Character.isDigit(c))
+                    return LexerTable.CLASS_DIGIT;
+                else if (Character.isAlphabetic(c))
+                    return LexerTable.CLASS_LETTER;
+                else
+                    return LexerTable.CLASS_OTHER;
+        }
+    }
+
+    private interface Method
+    {
+        /**
+         * Runs the method over the source.
+         * @return A value depending on the whole work, so that the work cannot be removed.
+         * */
+        long run(byte[] source) throws IOException;
+    }
+
+    private static long classifyWithoutTable(byte[] source)
+    {
+        long sum = 0;
+        for (byte b : source)
+            sum += classifyWithoutTable(b & 0xFF);
+
+        return sum;
+    }
+
+    private static long classifyWithTable(byte[] source)
+    {
+        long sum = 0;
+        for (byte b : source)
+            sum += LexerTable.getByteClass(b);
+
+        return sum;
+    }
+
+    private static long tokenize(byte[] source)
+    {
+        return TokenBuffer.tokenize(source).size();
+    }
+
+    private static long lex(byte[] source) throws IOException
+    {
+        Lexer lexer = new Lexer(new ByteArrayInputStream(source));
+        long tokenCount = 0;
+        for (lexer.lookNextToken(); !lexer.match(TokenType.END_OF_FILE); lexer.lookNextToken())
+            tokenCount++;
+
+        lexer.close();
+        return tokenCount;
+    }
+
+    /**
+     * Runs one method and prints its result.
+     * */
+    private static void run(String name, Method method, byte[] source) throws IOException
+    {
+        long result = 0;
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < WARM_UP_RUNS + MEASURED_RUNS; i++)
+        {
+            long start = System.nanoTime();
+            result = method.run(source);
+            long time = System.nanoTime() - start;
+
+            if (i >= WARM_UP_RUNS)
+                bestTime = Math.min(bestTime, time);
+        }
+
+        double megabytesPerSecond = (source.length / (1024.0 * 1024.0)) / (bestTime / 1e9);
+        System.out.printf("%-24s result: %12d, time: %8.1f ms, %6.2f ns/byte, throughput: %8.1f MB/s%n",
+                name, result, bestTime / 1e6, (double)bestTime / source.length, megabytesPerSecond);
+    }
+
+    /**
+     * Runs the benchmark.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        byte[] source = (args.length > 0) ? InputSystem.File.readAllBytes(args[0]) : generateSource();
+        System.out.println("Input: " + source.length + " bytes.");
+
+        // Both classifications must compute the same classes, so that their times are comparable.
+        if (classifyWithoutTable(source) != classifyWithTable(source))
+            throw new IllegalStateException("The classifications without and with table differ.");
+
+        run("classify without table", LexerBenchmark::classifyWithoutTable, source);
+        run("classify with table", LexerBenchmark::classifyWithTable, source);
+        run("TokenBuffer.tokenize", LexerBenchmark::tokenize, source);
+        run("Lexer", LexerBenchmark::lex, source);
+    }
+}
@@ -0,0 +1,356 @@
+package expression;
+
+import InputSystem.*;
+
+import java.util.*;
+
+/**
+ * The {@link LexerTable} class contains the transition table of the deterministic finite automaton (DFA) used by the
+ * {@link Lexer}. Characters are first mapped to a character class, and the table is indexed by the current state and
+ * the class of the next character. A state that accepts a token maps to its {@link TokenType}.
+ * <p>
+ * The lexer runs the DFA from {@link #START} as long as there is a transition, and returns the token of the last
+ * accepting state it went through (the longest match).
+ * <p/>
+ * */
+public final class LexerTable
+{
+    /** The state returned when there is no transition. */
+    public static final int ERROR = -1;
+
+    /** The start state. */
+    public static final int START = 0;
+
+    // Character classes.
+    public static final int CLASS_OTHER = 0;
+    public static final int CLASS_LETTER = 1;
+    public static final int CLASS_DIGIT = 2;
+    public static final int CLASS_WHITE_SPACE = 3;
+    public static final int CLASS_SEMICOLON = 4;
+    public static final int CLASS_PLUS = 5;
+    public static final int CLASS_MINUS = 6;
+    public static final int CLASS_TIMES = 7;
+    public static final int CLASS_DIVIDE = 8;
+    public static final int CLASS_LEFT_PARENTHESES = 9;
+    public static final int CLASS_RIGHT_PARENTHESES = 10;
+    public static final int CLASS_DOT = 11;
+    public static final int CLASS_EXPONENT = 12;
+    public static final int CLASS_LEFT_BRACKET = 13;
+    public static final int CLASS_RIGHT_BRACKET = 14;
+    public static final int CLASS_LEFT_BRACE = 15;
+    public static final int CLASS_RIGHT_BRACE = 16;
+    public static final int CLASS_TILDE = 17;
+    public static final int CLASS_QUESTION = 18;
+    public static final int CLASS_COLON = 19;
+    public static final int CLASS_COMMA = 20;
+    public static final int CLASS_AMPERSAND = 21;
+    public static final int CLASS_BAR = 22;
+    public static final int CLASS_CARET = 23;
+    public static final int CLASS_EXCLAMATION = 24;
+    public static final int CLASS_PERCENT = 25;
+    public static final int CLASS_LESS = 26;
+    public static final int CLASS_GREATER = 27;
+    public static final int CLASS_EQUAL = 28;
+
+    /** Number of character classes. */
+    private static final int CLASS_COUNT = 29;
+
+    // States other than START.
+    private static final int IN_IDENTIFIER = 1;
+    private static final int IN_NUMBER = 2;
+    private static final int AFTER_EXPONENT = 3;
+    private static final int AFTER_DOT = 4;
+    private static final int AFTER_SEMICOLON = 5;
+    private static final int AFTER_PLUS = 6;
+    private static final int AFTER_MINUS = 7;
+    private static final int AFTER_TIMES = 8;
+    private static final int AFTER_DIVIDE = 9;
+    private static final int AFTER_LEFT_PARENTHESES = 10;
+    private static final int AFTER_RIGHT_PARENTHESES = 11;
+    private static final int AFTER_UNKNOWN_SYMBOL = 12;
+
+    /**
+     * Maximum number of states. The states of the operators and punctuators are allocated by
+     * {@link #addPunctuator(String, TokenType)}, after the states above.
+     * */
+    private static final int MAX_STATE_COUNT = 64;
+
+    /** Number of states. */
+    private static int stateCount = AFTER_UNKNOWN_SYMBOL + 1;
+
+    /** The transition table, the next state of (state, class) is at index state * CLASS_COUNT + class. */
+    private static final int[] TRANSITIONS = new int[MAX_STATE_COUNT * CLASS_COUNT];
+
+    /** The token accepted by each state, or null if the state is not an accepting state. */
+    private static final TokenType[] ACCEPTED_TOKENS = new TokenType[MAX_STATE_COUNT];
+
+    /** Classes of the ASCII characters. */
+    private static final byte[] ASCII_CLASSES = new byte[128];
+
+    /** Classes of the bytes of the input. */
+    private static final byte[] BYTE_CLASSES = new byte[256];
+
+    /** White spaces indexed by the bytes of the input, used to skip them in bulk with {@link CodeReader#skip(boolean[])}. */
+    static final boolean[] WHITE_SPACE_BYTES = new boolean[256];
+
+    static
+    {
+        for (int c = 0; c < BYTE_CLASSES.length; c++)
+        {
+            BYTE_CLASSES[c] = (byte)classify(c);
+            WHITE_SPACE_BYTES[c] = isWhiteSpace(c);
+        }
+        System.arraycopy(BYTE_CLASSES, 0, ASCII_CLASSES, 0, ASCII_CLASSES.length);
+
+        Arrays.fill(TRANSITIONS, ERROR);
+
+        // Single-character tokens.
+        addTransition(START, CLASS_SEMICOLON, AFTER_SEMICOLON, TokenType.SEMICOLON);
+        addTransition(START, CLASS_PLUS, AFTER_PLUS, TokenType.PLUS);
+        addTransition(START, CLASS_MINUS, AFTER_MINUS, TokenType.MINUS);
+        addTransition(START, CLASS_TIMES, AFTER_TIMES, TokenType.TIMES);
+        addTransition(START, CLASS_DIVIDE, AFTER_DIVIDE, TokenType.DIVIDE);
+        addTransition(START, CLASS_LEFT_PARENTHESES, AFTER_LEFT_PARENTHESES, TokenType.LEFT_PARENTHESES);
+        addTransition(START, CLASS_RIGHT_PARENTHESES, AFTER_RIGHT_PARENTHESES, TokenType.RIGHT_PARENTHESES);
+        addTransition(START, CLASS_OTHER, AFTER_UNKNOWN_SYMBOL, TokenType.UNKNOWN_SYMBOL);
+
+        // Identifiers (and keywords): a letter followed by letters and digits.
+        addTransition(START, CLASS_LETTER, IN_IDENTIFIER, TokenType.IDENTIFIER);
+        addTransition(START, CLASS_EXPONENT, IN_IDENTIFIER, TokenType.IDENTIFIER);
+        addTransition(IN_IDENTIFIER, CLASS_LETTER, IN_IDENTIFIER, TokenType.IDENTIFIER);
+        addTransition(IN_IDENTIFIER, CLASS_EXPONENT, IN_IDENTIFIER, TokenType.IDENTIFIER);
+        addTransition(IN_IDENTIFIER, CLASS_DIGIT, IN_IDENTIFIER, TokenType.IDENTIFIER);
+
+        // Numbers: a "preprocessing number" of C, which is a digit, or a "." followed by a digit, followed by letters,
+        // digits, "." and signs after an exponent letter. It is checked and converted by NumberLiteral.
+        addTransition(START, CLASS_DIGIT, IN_NUMBER, TokenType.NUMBER);
+        addTransition(START, CLASS_DOT, AFTER_DOT, TokenType.DOT);
+        addTransition(AFTER_DOT, CLASS_DIGIT, IN_NUMBER, TokenType.NUMBER);
+        addTransition(IN_NUMBER, CLASS_LETTER, IN_NUMBER, TokenType.NUMBER);
+        addTransition(IN_NUMBER, CLASS_DIGIT, IN_NUMBER, TokenType.NUMBER);
+        addTransition(IN_NUMBER, CLASS_DOT, IN_NUMBER, TokenType.NUMBER);
+        addTransition(IN_NUMBER, CLASS_EXPONENT, AFTER_EXPONENT, TokenType.NUMBER);
+        addTransition(AFTER_EXPONENT, CLASS_PLUS, IN_NUMBER, TokenType.NUMBER);
+        addTransition(AFTER_EXPONENT, CLASS_MINUS, IN_NUMBER, TokenType.NUMBER);
+        addTransition(AFTER_EXPONENT, CLASS_LETTER, IN_NUMBER, TokenType.NUMBER);
+        addTransition(AFTER_EXPONENT, CLASS_DIGIT, IN_NUMBER, TokenType.NUMBER);
+        addTransition(AFTER_EXPONENT, CLASS_DOT, IN_NUMBER, TokenType.NUMBER);
+        addTransition(AFTER_EXPONENT, CLASS_EXPONENT, AFTER_EXPONENT, TokenType.NUMBER);
+
+        // Operators and punctuators of C, which extend the single-character tokens above.
+        addPunctuator("[", TokenType.LEFT_BRACKET);
+        addPunctuator("]", TokenType.RIGHT_BRACKET);
+        addPunctuator("{", TokenType.LEFT_BRACE);
+        addPunctuator("}", TokenType.RIGHT_BRACE);
+        addPunctuator("->", TokenType.ARROW);
+        addPunctuator("++", TokenType.INCREMENT);
+        addPunctuator("--", TokenType.DECREMENT);
+        addPunctuator("&", TokenType.BITWISE_AND);
+        addPunctuator("|", TokenType.BITWISE_OR);
+        addPunctuator("^", TokenType.BITWISE_XOR);
+        addPunctuator("~", TokenType.BITWISE_NOT);
+        addPunctuator("&&", TokenType.LOGICAL_AND);
+        addPunctuator("||", TokenType.LOGICAL_OR);
+        addPunctuator("!", TokenType.LOGICAL_NOT);
+        addPunctuator("%", TokenType.MODULO);
+        addPunctuator("<<", TokenType.SHIFT_LEFT);
+        addPunctuator(">>", TokenType.SHIFT_RIGHT);
+        addPunctuator("<", TokenType.LESS);
+        addPunctuator(">", TokenType.GREATER);
+        addPunctuator("<=", TokenType.LESS_OR_EQUAL);
+        addPunctuator(">=", TokenType.GREATER_OR_EQUAL);
+        addPunctuator("==", TokenType.EQUAL);
+        addPunctuator("!=", TokenType.NOT_EQUAL);
+        addPunctuator("?", TokenType.QUESTION);
+        addPunctuator(":", TokenType.COLON);
+        addPunctuator(",", TokenType.COMMA);
+        addPunctuator("...", TokenType.ELLIPSIS);
+        addPunctuator("=", TokenType.ASSIGN);
+        addPunctuator("*=", TokenType.TIMES_ASSIGN);
+        addPunctuator("/=", TokenType.DIVIDE_ASSIGN);
+        addPunctuator("%=", TokenType.MODULO_ASSIGN);
+        addPunctuator("+=", TokenType.PLUS_ASSIGN);
+        addPunctuator("-=", TokenType.MINUS_ASSIGN);
+        addPunctuator("<<=", TokenType.SHIFT_LEFT_ASSIGN);
+        addPunctuator(">>=", TokenType.SHIFT_RIGHT_ASSIGN);
+        addPunctuator("&=", TokenType.AND_ASSIGN);
+        addPunctuator("^=", TokenType.XOR_ASSIGN);
+        addPunctuator("|=", TokenType.OR_ASSIGN);
+    }
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private LexerTable(){}
+
+    /**
+     * Adds a transition to the table.
+     * @param state The current state.
+     * @param charClass The class of the next character.
+     * @param nextState The state to move to.
+     * @param acceptedToken The token accepted by the next state.
+     * */
+    private static void addTransition(int state, int charClass, int nextState, TokenType acceptedToken)
+    {
+        TRANSITIONS[state * CLASS_COUNT + charClass] = nextState;
+        ACCEPTED_TOKENS[nextState] = acceptedToken;
+    }
+
+    /**
+     * Adds the transitions of an operator or a punctuator to the table, from the start state through the states of its
+     * prefixes, which are allocated if there is no transition yet. A prefix which is not a token itself, such as "..",
+     * is not an accepting state, so that the lexer goes back to the longest token.
+     * @param spelling The operator or the punctuator.
+     * @param token The token accepted at the end of the spelling.
+     * @exception IllegalStateException If there are too many states.
+     * */
+    private static void addPunctuator(String spelling, TokenType token)
+    {
+        int state = START;
+        for (int i = 0; i < spelling.length(); i++)
+        {
+            int charClass = classify(spelling.charAt(i));
+            int nextState = getNextState(state, charClass);
+            if (nextState == ERROR)
+            {
+                if (stateCount == MAX_STATE_COUNT)
+                    throw new IllegalStateException("Too many states for the punctuator \"" + spelling + "\".");
+
+                nextState = stateCount++;
+                TRANSITIONS[state * CLASS_COUNT + charClass] = nextState;
+            }
+            state = nextState;
+        }
+
+        ACCEPTED_TOKENS[state] = token;
+    }
+
+    /**
+     * Gets the class of the given character.
+     * @param c The character, which is a Unicode code point.
+     * @return The class of the character.
+     * */
+    public static int getCharClass(int c)
+    {
+        // C source is overwhelmingly ASCII, only other characters need the Unicode properties.
+        return ((c & ~0x7F) == 0) ? ASCII_CLASSES[c] : classify(c);
+    }
+
+    /**
+     * Gets the class of the given byte of the input, a byte which is not ASCII being a Latin-1 character.
+     * @param b The byte.
+     * @return The class of the byte.
+     * */
+    public static int getByteClass(byte b)
+    {
+        return BYTE_CLASSES[b & 0xFF];
+    }
+
+    /**
+     * Returns a value indicating whether the given character is a white space. Same as {@link String#trim()}, every
+     * control character is a white space.
+     * @param c The character.
+     * @return true if the character is a white space, otherwise, false.
+     * */
+    public static boolean isWhiteSpace(int c)
+    {
+        return (c > 0) && (c <= ' ');
+    }
+
+    /**
+     * Computes the class of the given character with its Unicode properties. This is used to build the class tables
+     * and for characters which are not ASCII.
+     * */
+    private static int classify(int c)
+    {
+        switch (c)
+        {
+            case ';':
+                return CLASS_SEMICOLON;
+            case '+':
+                return CLASS_PLUS;
+            case '-':
+                return CLASS_MINUS;
+            case '*':
+                return CLASS_TIMES;
+            case '/':
+                return CLASS_DIVIDE;
+            case '(':
+                return CLASS_LEFT_PARENTHESES;
+            case ')':
+                return CLASS_RIGHT_PARENTHESES;
+            case '.':
+                return CLASS_DOT;
+            case '[':
+                return CLASS_LEFT_BRACKET;
+            case ']':
+                return CLASS_RIGHT_BRACKET;
+            case '{':
+                return CLASS_LEFT_BRACE;
+            case '}':
+                return CLASS_RIGHT_BRACE;
+            case '~':
+                return CLASS_TILDE;
+            case '?':
+                return CLASS_QUESTION;
+            case ':':
+                return CLASS_COLON;
+            case ',':
+                return CLASS_COMMA;
+            case '&':
+                return CLASS_AMPERSAND;
+            case '|':
+                return CLASS_BAR;
+            case '^':
+                return CLASS_CARET;
+            case '!':
+                return CLASS_EXCLAMATION;
+            case '%':
+                return CLASS_PERCENT;
+            case '<':
+                return CLASS_LESS;
+            case '>':
+                return CLASS_GREATER;
+            case '=':
+                return CLASS_EQUAL;
+            case 'e':
+            case 'E':
+            case 'p':
+            case 'P':
+                return CLASS_EXPONENT;
+            case '_':
+                return CLASS_LETTER;
+            default:
+                // Same as String.trim(), every control character but NUL is a white space.
+                if ((c > 0) && (c <= ' '))
+                    return CLASS_WHITE_SPACE;
+                else if ((c >= '0') && (c <= '9'))
+                    return CLASS_DIGIT;
+                else if (Character.isAlphabetic(c))
+                    return CLASS_LETTER;
+                else
+                    return CLASS_OTHER;
+        }
+    }
+
+    /**
+     * Gets the state to move to from the given state on a character of the given class.
+     * @param state The current state.
+     * @param charClass The class of the next character.
+     * @return The next state, or {@link #ERROR} if there is no transition.
+     * */
+    public static int getNextState(int state, int charClass)
+    {
+        return TRANSITIONS[state * CLASS_COUNT + charClass];
+    }
+
+    /**
+     * Gets the token accepted by the given state.
+     * @param state The state.
+     * @return The token accepted by the state, or null if the state is not an accepting state.
+     * */
+    public static TokenType getAcceptedToken(int state)
+    {
+        return ACCEPTED_TOKENS[state];
+    }
+}
@@ -0,0 +1,120 @@
+package expression;
+
+import java.util.*;
+
+/**
+ * The {@link LinearScanAllocator} class maps the virtual registers of a straight-line code onto a fixed number of
+ * physical registers by the linear scan algorithm of Poletto and Sarkar. A virtual register is described by its live
+ * interval: the position of the instruction writing it, and the position of the last instruction reading it.
+ * <p>
+ * The intervals are visited in the order of their starts. The intervals ending before the current one starts release
+ * their registers, and the current interval takes a free register. When no register is free, the interval ending last
+ * among the current one and the active ones is spilled, so that a spilled interval lives in memory from its start to
+ * its end. The active intervals are kept sorted by their ends, so that allocating n intervals costs O(n log n).
+ * <p/>
+ * */
+public final class LinearScanAllocator
+{
+    /** The location of an interval which is spilled to memory. */
+    public static final int SPILLED = -1;
+
+    /** Number of physical registers. */
+    private final int registerCount;
+
+    /** Number of intervals spilled by the last allocation. */
+    private int spillCount;
+
+    /** Number of registers used by the last allocation. */
+    private int usedRegisterCount;
+
+    /**
+     * Initializes a new instance of {@link LinearScanAllocator}.
+     * @param registerCount The number of physical registers, {@link Integer#MAX_VALUE} for an unbounded number.
+     * @exception IllegalArgumentException If {@code registerCount} is negative.
+     * */
+    public LinearScanAllocator(int registerCount)
+    {
+        if (registerCount < 0)
+            throw new IllegalArgumentException("Register count cannot be negative.");
+
+        this.registerCount = registerCount;
+        spillCount = 0;
+        usedRegisterCount = 0;
+    }
+
+    /**
+     * Gets the number of intervals spilled by the last allocation.
+     * @return The number of intervals spilled.
+     * */
+    public int getSpillCount()
+    {
+        return spillCount;
+    }
+
+    /**
+     * Gets the number of registers used by the last allocation.
+     * @return The number of registers used.
+     * */
+    public int getUsedRegisterCount()
+    {
+        return usedRegisterCount;
+    }
+
+    /**
+     * Allocates the registers of live intervals. An interval may take the register of an interval ending where it
+     * starts, since an instruction reads its operands before writing its result.
+     * @param starts The positions where the intervals start, which are increasing.
+     * @param ends The positions where the intervals end, which are not before their starts.
+     * @param count Number of intervals.
+     * @return The indexes of the registers of the intervals, from the lowest, or {@link #SPILLED}.
+     * @exception IllegalArgumentException If the starts are not increasing, or an interval ends before it starts.
+     * */
+    public int[] allocate(int[] starts, int[] ends, int count)
+    {
+        int[] locations = new int[count];
+        TreeSet<Integer> active = new TreeSet<>((first, second) -> (ends[first] != ends[second]) ?
+                                                                   Integer.compare(ends[first], ends[second]) :
+                                                                   Integer.compare(first, second));
+        PriorityQueue<Integer> freeRegisters = new PriorityQueue<>();
+        spillCount = 0;
+        usedRegisterCount = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            if ((i > 0) && (starts[i] <= starts[i - 1]))
+                throw new IllegalArgumentException("The starts of the intervals must be increasing.");
+            if (ends[i] < starts[i])
+                throw new IllegalArgumentException("Interval " + i + " ends before it starts.");
+
+            while (!active.isEmpty() && (ends[active.first()] <= starts[i]))
+                freeRegisters.add(locations[active.pollFirst()]);
+
+            if (!freeRegisters.isEmpty())
+            {
+                locations[i] = freeRegisters.poll();
+                active.add(i);
+            }
+            else if (usedRegisterCount < registerCount)
+            {
+                locations[i] = usedRegisterCount++;
+                active.add(i);
+            }
+            else if (!active.isEmpty() && (ends[active.last()] > ends[i]))
+            {
+                // The active interval ending last gives its register to the current interval.
+                int spilled = active.pollLast();
+                locations[i] = locations[spilled];
+                locations[spilled] = SPILLED;
+                active.add(i);
+                spillCount++;
+            }
+            else
+            {
+                locations[i] = SPILLED;
+                spillCount++;
+            }
+        }
+
+        return locations;
+    }
+}
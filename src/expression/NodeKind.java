@@ -0,0 +1,43 @@
+package expression;
+
+/**
+ * The kinds of the nodes of a {@link SyntaxTree}. An operator node refers to its operator token, so that one kind covers
+ * all the operators with the same shape.
+ * */
+public enum NodeKind
+{
+    // A list of statements, the root of a translation unit.
+    STATEMENTS,
+
+    // An expression statement ended by a ";", with the expression as its child.
+    STATEMENT,
+
+    // A statement or a factor that cannot be parsed, with what was parsed before the error as its children.
+    ERROR,
+
+    // Leaves referring to their tokens.
+    NUMBER,
+    IDENTIFIER,
+
+    // An operator with 2 operands, including the assignments, the comma, the subscript "[", and the member accesses
+    // "." and "->" whose second child is the member.
+    BINARY,
+
+    // A prefix operator, including "sizeof", with its operand.
+    UNARY,
+
+    // A postfix "++" or "--" with its operand.
+    POSTFIX,
+
+    // A "?" with the condition and the 2 operands.
+    CONDITIONAL,
+
+    // A function call referring to its "(", with the function and the arguments.
+    CALL,
+
+    // A cast referring to its "(", with the type name and the operand.
+    CAST,
+
+    // A type name referring to its first token, which is followed by the keywords, tags and "*" of the type.
+    TYPE_NAME
+}
@@ -0,0 +1,416 @@
+package expression;
+
+import java.nio.charset.*;
+
+/**
+ * The {@link NumberLiteral} class converts the bytes of a C numeric literal to its value, without creating a
+ * {@link String} in the common cases. An instance is reused for every literal, and holds the value of the last literal
+ * parsed.
+ * <p>
+ * Integer literals are decimal, octal (starting with "0") or hexadecimal (starting with "0x"), with an optional "u"
+ * and "l"/"ll" suffix, and must fit in 64 bits, the value of an unsigned literal greater than {@link Long#MAX_VALUE}
+ * being negative. Floating literals are decimal, with a fraction and/or an exponent, or hexadecimal with a binary
+ * exponent, with an optional "f" or "l" suffix.
+ * <p/>
+ * */
+public final class NumberLiteral
+{
+    /** The exactly representable powers of 10. */
+    private static final double[] POWERS_OF_10 =
+    {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    /** The largest integer such that all integers up to it are exactly representable by a double. */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /** A boolean value indicating whether the literal is a floating literal. */
+    private boolean isFloating;
+
+    /** The value of an integer literal. */
+    private long longValue;
+
+    /** The value of a floating literal. */
+    private double doubleValue;
+
+    /** A boolean value indicating whether the literal has a "u" suffix. */
+    private boolean isUnsigned;
+
+    /** Number of "l" in the suffix of the literal. */
+    private int longCount;
+
+    /** A boolean value indicating whether the literal has a "f" suffix. */
+    private boolean isFloat;
+
+    /** Index after the exponent parsed by {@link #parseExponent(byte[], int, int)}. */
+    private int exponentEnd;
+
+    /**
+     * Gets a value indicating whether the literal is a floating literal.
+     * @return true if the literal is a floating literal, false if it is an integer literal.
+     * */
+    public boolean isFloating()
+    {
+        return isFloating;
+    }
+
+    /**
+     * Gets the value of the literal as a long.
+     * @return The value of an integer literal, or the value of a floating literal converted to long.
+     * */
+    public long getLongValue()
+    {
+        return isFloating ? (long)doubleValue : longValue;
+    }
+
+    /**
+     * Gets the value of the literal as a double.
+     * @return The value of a floating literal, or the value of an integer literal converted to double.
+     * */
+    public double getDoubleValue()
+    {
+        if (isFloating)
+            return doubleValue;
+
+        // Convert as an unsigned value if it is negative.
+        if (isUnsigned && (longValue < 0))
+            return (double)(longValue >>> 1) * 2.0 + (longValue & 1);
+
+        return longValue;
+    }
+
+    /**
+     * Gets a value indicating whether the literal has a "u" suffix.
+     * @return true if the literal has a "u" suffix, otherwise, false.
+     * */
+    public boolean isUnsigned()
+    {
+        return isUnsigned;
+    }
+
+    /**
+     * Gets a value indicating whether the literal has a "l" or "ll" suffix.
+     * @return true if the literal has a "l" or "ll" suffix, otherwise, false.
+     * */
+    public boolean isLong()
+    {
+        return longCount > 0;
+    }
+
+    /**
+     * Gets a value indicating whether the literal has a "ll" suffix.
+     * @return true if the literal has a "ll" suffix, otherwise, false.
+     * */
+    public boolean isLongLong()
+    {
+        return longCount == 2;
+    }
+
+    /**
+     * Gets a value indicating whether the literal has a "f" suffix.
+     * @return true if the literal has a "f" suffix, otherwise, false.
+     * */
+    public boolean isFloat()
+    {
+        return isFloat;
+    }
+
+    /**
+     * Parses the literal in the specified range of a buffer.
+     * @param buffer The buffer containing the literal.
+     * @param offset Index of the first byte of the literal in the buffer.
+     * @param length Length of the literal in bytes.
+     * @return true if the literal is a valid numeric literal, otherwise, false.
+     * */
+    public boolean parse(byte[] buffer, int offset, int length)
+    {
+        isFloating = false;
+        longValue = 0;
+        doubleValue = 0;
+        isUnsigned = false;
+        longCount = 0;
+        isFloat = false;
+
+        int end = offset + length;
+        if ((length > 2) && (buffer[offset] == '0') && ((buffer[offset + 1] | 0x20) == 'x'))
+            return parseHexadecimal(buffer, offset, offset + 2, end);
+        else
+            return parseDecimal(buffer, offset, end);
+    }
+
+    /**
+     * Parses a decimal or octal integer literal, or a decimal floating literal.
+     * */
+    private boolean parseDecimal(byte[] buffer, int begin, int end)
+    {
+        // Integer part.
+        int i = begin;
+        long mantissa = 0;
+        int significantDigits = 0;
+        int droppedDigits = 0;
+        boolean isOctal = (buffer[begin] == '0');
+        boolean isOverflow = false;
+        boolean isOctalDigitsOnly = true;
+        long integerValue = 0;
+        for (; (i < end) && isDigit(buffer[i]); i++)
+        {
+            int digit = buffer[i] - '0';
+            isOctalDigitsOnly &= (digit < 8);
+
+            // The value of an integer literal, in base 8 or 10.
+            int base = isOctal ? 8 : 10;
+            if (Long.compareUnsigned(integerValue, Long.divideUnsigned(-1L, base)) > 0)
+                isOverflow = true;
+            long product = integerValue * base;
+            if (Long.compareUnsigned(product + digit, product) < 0)
+                isOverflow = true;
+            integerValue = product + digit;
+
+            // The decimal mantissa of a floating literal.
+            if ((mantissa == 0) && (digit == 0))
+                continue;
+            if (significantDigits < 18)
+            {
+                mantissa = mantissa * 10 + digit;
+                significantDigits++;
+            }
+            else
+                droppedDigits++;
+        }
+
+        // Fraction part.
+        int exponent = droppedDigits;
+        boolean hasDigits = (i > begin);
+        if ((i < end) && (buffer[i] == '.'))
+        {
+            isFloating = true;
+            for (i++; (i < end) && isDigit(buffer[i]); i++)
+            {
+                hasDigits = true;
+                int digit = buffer[i] - '0';
+                if ((mantissa == 0) && (digit == 0))
+                    exponent--;
+                else if (significantDigits < 18)
+                {
+                    mantissa = mantissa * 10 + digit;
+                    significantDigits++;
+                    exponent--;
+                }
+            }
+        }
+        if (!hasDigits)
+            return false;
+
+        // Exponent part.
+        if ((i < end) && ((buffer[i] | 0x20) == 'e'))
+        {
+            isFloating = true;
+            int exponentValue = parseExponent(buffer, i + 1, end);
+            if (exponentEnd < 0)
+                return false;
+
+            exponent += exponentValue;
+            i = exponentEnd;
+        }
+
+        if (isFloating)
+        {
+            if (!parseFloatingSuffix(buffer, i, end))
+                return false;
+
+            doubleValue = toDouble(mantissa, exponent, buffer, begin, i);
+            if (isFloat)
+                doubleValue = (float)doubleValue;
+            return true;
+        }
+
+        if ((isOctal && !isOctalDigitsOnly) || isOverflow)
+            return false;
+
+        longValue = integerValue;
+        return parseIntegerSuffix(buffer, i, end);
+    }
+
+    /**
+     * Parses a hexadecimal integer or floating literal, after its "0x" prefix.
+     * */
+    private boolean parseHexadecimal(byte[] buffer, int literalBegin, int begin, int end)
+    {
+        int i = begin;
+        long mantissa = 0;
+        int binaryExponent = 0;
+        boolean isOverflow = false;
+        boolean hasDigits = false;
+        for (int digit; (i < end) && ((digit = getHexadecimalDigit(buffer[i])) >= 0); i++)
+        {
+            hasDigits = true;
+            if ((mantissa >>> 60) != 0)
+            {
+                isOverflow = true;
+                binaryExponent += 4;
+            }
+            else
+                mantissa = (mantissa << 4) | digit;
+        }
+
+        if ((i < end) && (buffer[i] == '.'))
+        {
+            isFloating = true;
+            for (int digit; (++i < end) && ((digit = getHexadecimalDigit(buffer[i])) >= 0); )
+            {
+                hasDigits = true;
+                if ((mantissa >>> 60) == 0)
+                {
+                    mantissa = (mantissa << 4) | digit;
+                    binaryExponent -= 4;
+                }
+            }
+        }
+        if (!hasDigits)
+            return false;
+
+        // The binary exponent is required by floating literals.
+        if ((i < end) && ((buffer[i] | 0x20) == 'p'))
+        {
+            isFloating = true;
+            int exponentValue = parseExponent(buffer, i + 1, end);
+            if (exponentEnd < 0)
+                return false;
+
+            binaryExponent += exponentValue;
+            i = exponentEnd;
+        }
+        else if (isFloating)
+            return false;
+
+        if (isFloating)
+        {
+            if (!parseFloatingSuffix(buffer, i, end))
+                return false;
+
+            // Exact if the mantissa has at most 53 bits, otherwise let Java round it.
+            if (Long.compareUnsigned(mantissa, MAX_EXACT_MANTISSA) <= 0)
+                doubleValue = Math.scalb((double)mantissa, binaryExponent);
+            else
+                doubleValue = Double.parseDouble(new String(buffer, literalBegin, i - literalBegin, StandardCharsets.US_ASCII));
+            if (isFloat)
+                doubleValue = (float)doubleValue;
+            return true;
+        }
+
+        if (isOverflow)
+            return false;
+
+        longValue = mantissa;
+        return parseIntegerSuffix(buffer, i, end);
+    }
+
+    /**
+     * Parses an optionally signed exponent, and sets {@link #exponentEnd} to the index after it, or -1 if it is
+     * invalid.
+     * @param i The index of the sign or the first digit.
+     * @return The value of the exponent, limited to avoid overflow.
+     * */
+    private int parseExponent(byte[] buffer, int i, int end)
+    {
+        boolean isNegative = false;
+        if ((i < end) && ((buffer[i] == '+') || (buffer[i] == '-')))
+        {
+            isNegative = (buffer[i] == '-');
+            i++;
+        }
+
+        if ((i == end) || !isDigit(buffer[i]))
+        {
+            exponentEnd = -1;
+            return 0;
+        }
+
+        int value = 0;
+        for (; (i < end) && isDigit(buffer[i]); i++)
+            value = Math.min(value * 10 + (buffer[i] - '0'), 100000);
+
+        exponentEnd = i;
+        return isNegative ? -value : value;
+    }
+
+    /**
+     * Converts a decimal mantissa and exponent to a double, with an exact multiplication or division when both the
+     * mantissa and the power of 10 are exactly representable, otherwise with {@link Double#parseDouble(String)}.
+     * */
+    private static double toDouble(long mantissa, int exponent, byte[] buffer, int begin, int end)
+    {
+        if (mantissa == 0)
+            return 0;
+
+        if (mantissa <= MAX_EXACT_MANTISSA)
+        {
+            if ((exponent >= 0) && (exponent < POWERS_OF_10.length))
+                return mantissa * POWERS_OF_10[exponent];
+            else if ((exponent < 0) && (-exponent < POWERS_OF_10.length))
+                return mantissa / POWERS_OF_10[-exponent];
+        }
+
+        return Double.parseDouble(new String(buffer, begin, end - begin, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Parses the suffix of an integer literal, which is any combination of an optional "u" and "l"/"ll".
+     * */
+    private boolean parseIntegerSuffix(byte[] buffer, int i, int end)
+    {
+        while (i < end)
+        {
+            byte c = buffer[i];
+            if (((c | 0x20) == 'u') && !isUnsigned)
+            {
+                isUnsigned = true;
+                i++;
+            }
+            else if (((c == 'l') || (c == 'L')) && (longCount == 0))
+            {
+                // "ll" or "LL", but not "lL".
+                longCount = ((i + 1 < end) && (buffer[i + 1] == c)) ? 2 : 1;
+                i += longCount;
+            }
+            else
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Parses the suffix of a floating literal, which is an optional "f" or "l".
+     * */
+    private boolean parseFloatingSuffix(byte[] buffer, int i, int end)
+    {
+        if (i == end)
+            return true;
+        else if (i + 1 != end)
+            return false;
+
+        int c = buffer[i] | 0x20;
+        isFloat = (c == 'f');
+        longCount = (c == 'l') ? 1 : 0;
+        return isFloat || (longCount == 1);
+    }
+
+    private static boolean isDigit(byte c)
+    {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private static int getHexadecimalDigit(byte c)
+    {
+        if ((c >= '0') && (c <= '9'))
+            return c - '0';
+
+        int lowerCase = c | 0x20;
+        if ((lowerCase >= 'a') && (lowerCase <= 'f'))
+            return lowerCase - 'a' + 10;
+
+        return -1;
+    }
+}
@@ -0,0 +1,183 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@link ParallelParser} class parses a large token stream on a {@link ForkJoinPool}. The stream is split into
+ * chunks after ';' tokens, the chunks are parsed in parallel by {@link TreeParser}s into their own {@link SyntaxTree}s
+ * and diagnostics, and the results are merged in source order. The diagnostics are the same as the diagnostics of
+ * {@link ImprovedParser} on the whole stream.
+ * <p>
+ * A ';' always ends the statement it is in, unless an error before it in the same statement skips the rest of its
+ * line, and a statement ending with an unknown symbol makes the next statement illegal. So a chunk is parsed assuming
+ * that a statement starts at its first token and is legal so far, and its result is kept if the previous chunk ends
+ * that way. Otherwise, the chunk is parsed again from the end of the previous chunk, which only happens around an
+ * error on the line of a boundary.
+ * <p/>
+ * */
+public class ParallelParser
+{
+    /** The default number of tokens of a chunk, a smaller stream is parsed sequentially. */
+    public static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+
+    /** The pool running the tasks. */
+    private final ForkJoinPool pool;
+
+    /** The number of tokens of a chunk. */
+    private final int chunkSize;
+
+    /**
+     * Initializes a new instance of {@link ParallelParser} running on the common {@link ForkJoinPool}.
+     * */
+    public ParallelParser()
+    {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Initializes a new instance of {@link ParallelParser} running on the specified pool.
+     * @param pool The pool running the tasks.
+     * @param chunkSize The number of tokens of a chunk.
+     * @exception NullPointerException If {@code pool} is null.
+     * @exception IllegalArgumentException If {@code chunkSize} is less than 1.
+     * */
+    public ParallelParser(ForkJoinPool pool, int chunkSize)
+    {
+        if (pool == null)
+            throw new NullPointerException("Pool is null.");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be positive.");
+
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses the statements of the specified tokens, from the position of their cursor to the
+     * {@link TokenType#END_OF_FILE}, and writes the diagnostics to the specified stream.
+     * @param tokens The tokens to parse.
+     * @param out The stream to write the diagnostics to.
+     * @return The trees of the statements of the chunks, in source order, the {@link NodeKind#STATEMENTS} root of a
+     * tree being its last node.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public SyntaxTree[] statements(TokenBuffer tokens, PrintStream out)
+    {
+        if ((tokens == null) || (out == null))
+            throw new NullPointerException("Tokens and output stream cannot be null.");
+
+        int[] boundaries = split(tokens);
+        int chunkCount = boundaries.length - 1;
+        if (chunkCount == 1)
+        {
+            SyntaxTree tree = new SyntaxTree();
+            new TreeParser(tokens, tree, out).statements();
+            return new SyntaxTree[] { tree };
+        }
+
+        // Parse each chunk as if a legal statement starts at its first token.
+        SyntaxTree[] trees = new SyntaxTree[chunkCount];
+        ByteArrayOutputStream[] diagnostics = new ByteArrayOutputStream[chunkCount];
+        int[] endPositions = new int[chunkCount];
+        boolean[] endLegalStatements = new boolean[chunkCount];
+        pool.invoke(new ForEachChunk(0, chunkCount, i ->
+        {
+            TokenBuffer chunkTokens = tokens.duplicate();
+            chunkTokens.setPosition(boundaries[i]);
+            trees[i] = new SyntaxTree(Math.max(16, boundaries[i + 1] - boundaries[i]));
+            diagnostics[i] = new ByteArrayOutputStream();
+
+            PrintStream chunkOut = new PrintStream(diagnostics[i]);
+            TreeParser parser = new TreeParser(chunkTokens, trees[i], chunkOut);
+            parser.statements(boundaries[i + 1]);
+            chunkOut.flush();
+
+            endPositions[i] = chunkTokens.getPosition();
+            endLegalStatements[i] = parser.isLegalStatement();
+        }));
+
+        // Keep the chunks starting where the previous chunk ends, and parse the others again.
+        List<SyntaxTree> results = new ArrayList<>(chunkCount);
+        int position = boundaries[0];
+        boolean isLegalStatement = true;
+        for (int i = 0; (i < chunkCount) && (tokens.getType(position) != TokenType.END_OF_FILE); i++)
+        {
+            if (position >= boundaries[i + 1])
+                continue;
+
+            if ((position == boundaries[i]) && isLegalStatement)
+            {
+                out.write(diagnostics[i].toByteArray(), 0, diagnostics[i].size());
+                results.add(trees[i]);
+                position = endPositions[i];
+                isLegalStatement = endLegalStatements[i];
+            }
+            else
+            {
+                SyntaxTree tree = new SyntaxTree();
+                tokens.setPosition(position);
+                TreeParser parser = new TreeParser(tokens, tree, out);
+                parser.setLegalStatement(isLegalStatement);
+                parser.statements(boundaries[i + 1]);
+
+                results.add(tree);
+                position = tokens.getPosition();
+                isLegalStatement = parser.isLegalStatement();
+            }
+            diagnostics[i] = null;
+        }
+        tokens.setPosition(position);
+
+        return results.toArray(new SyntaxTree[0]);
+    }
+
+    /**
+     * Splits the tokens from the position of their cursor into chunks.
+     * @return Indexes of the first tokens of the chunks, followed by the number of tokens.
+     * */
+    private int[] split(TokenBuffer tokens)
+    {
+        int begin = tokens.getPosition();
+        int last = tokens.size() - 1;
+        int[] boundaries = new int[(last - begin) / chunkSize + 2];
+        int count = 1;
+        boundaries[0] = begin;
+
+        // A chunk starts after the first ';' following its planned start, the last token being the END_OF_FILE.
+        for (long planned = (long)begin + chunkSize; planned < last; planned += chunkSize)
+        {
+            int searchEnd = (int)Math.min(last, planned + chunkSize);
+            for (int i = Math.max((int)planned, boundaries[count - 1]); i < searchEnd; i++)
+            {
+                if (tokens.getType(i) == TokenType.SEMICOLON)
+                {
+                    if (i + 1 < last)
+                        boundaries[count++] = i + 1;
+                    break;
+                }
+            }
+        }
+        boundaries[count++] = tokens.size();
+
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * A unit test method for the {@link ParallelParser} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+
+        // Use tiny chunks, so that even the test file is split, and some boundaries are inside the lines of errors.
+        TokenBuffer tokens = TokenBuffer.tokenize(sourceFilePath);
+        SyntaxTree[] trees = new ParallelParser(ForkJoinPool.commonPool(), 2).statements(tokens, System.out);
+
+        System.out.println();
+        System.out.println(trees.length + " chunks:");
+        for (SyntaxTree tree : trees)
+            System.out.print(tree.toString(tree.size() - 1, tokens));
+    }
+}
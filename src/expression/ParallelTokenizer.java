@@ -0,0 +1,176 @@
+package expression;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@link ParallelTokenizer} class tokenizes a large source on a {@link ForkJoinPool}. The source is split into
+ * chunks at safe boundaries, the chunks are scanned in parallel into their own {@link TokenBuffer}s with line numbers
+ * relative to the chunk, and the results are stitched into one ordered {@link TokenBuffer} with the line numbers of
+ * the whole source. The result is the same as {@link TokenBuffer#tokenize(byte[])}.
+ * <p>
+ * A chunk ends after a '\n', or after a ';' if there is no '\n' near the boundary. Since no symbol contains white
+ * spaces and ';' is always a single-character symbol, no symbol spans two chunks, and the "end" symbol at the end of a
+ * line is recognized in the chunk containing the line.
+ * <p/>
+ * */
+public class ParallelTokenizer
+{
+    /** The default size of a chunk, a smaller source is tokenized sequentially. */
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+    /** The maximum distance from the planned boundary of a chunk to the '\n' that ends it. */
+    private static final int MAX_BOUNDARY_SEARCH_LENGTH = 64 * 1024;
+
+    /** The pool running the tasks. */
+    private final ForkJoinPool pool;
+
+    /** The size of a chunk in bytes. */
+    private final int chunkSize;
+
+    /**
+     * Initializes a new instance of {@link ParallelTokenizer} running on the common {@link ForkJoinPool}.
+     * */
+    public ParallelTokenizer()
+    {
+        this(ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Initializes a new instance of {@link ParallelTokenizer} running on the specified pool.
+     * @param pool The pool running the tasks.
+     * @param chunkSize The size of a chunk in bytes.
+     * @exception NullPointerException If {@code pool} is null.
+     * @exception IllegalArgumentException If {@code chunkSize} is less than 1.
+     * */
+    public ParallelTokenizer(ForkJoinPool pool, int chunkSize)
+    {
+        if (pool == null)
+            throw new NullPointerException("Pool is null.");
+        if (chunkSize < 1)
+            throw new IllegalArgumentException("Chunk size must be positive.");
+
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads and tokenizes the whole specified file.
+     * @param path The path of the file.
+     * @return A {@link TokenBuffer} containing all tokens of the file, followed by an {@link TokenType#END_OF_FILE}.
+     * @exception IOException If an I/O error occurs.
+     * */
+    public TokenBuffer tokenize(String path) throws IOException
+    {
+        return tokenize(InputSystem.File.readAllBytes(path));
+    }
+
+    /**
+     * Tokenizes the whole specified source.
+     * @param source The source to tokenize.
+     * @return A {@link TokenBuffer} containing all tokens of the source, followed by an {@link TokenType#END_OF_FILE}.
+     * @exception NullPointerException If {@code source} is null.
+     * */
+    public TokenBuffer tokenize(byte[] source)
+    {
+        int[] boundaries = split(source);
+        int chunkCount = boundaries.length - 1;
+        if (chunkCount == 1)
+            return TokenBuffer.tokenize(source);
+
+        // Scan the chunks, each of them from line 0, so the last line of a chunk is its number of '\n'.
+        TokenBuffer[] chunks = new TokenBuffer[chunkCount];
+        int[] newLineCounts = new int[chunkCount];
+        pool.invoke(new ForEachChunk(0, chunkCount, i ->
+        {
+            int chunkLength = boundaries[i + 1] - boundaries[i];
+            chunks[i] = new TokenBuffer(source, Math.max(16, chunkLength / 4));
+            newLineCounts[i] = chunks[i].scan(boundaries[i], boundaries[i + 1], 0);
+        }));
+
+        // The first token and the first line of each chunk in the whole stream.
+        int[] firstTokens = new int[chunkCount + 1];
+        int[] firstLines = new int[chunkCount + 1];
+        firstLines[0] = 1;
+        for (int i = 0; i < chunkCount; i++)
+        {
+            firstTokens[i + 1] = firstTokens[i] + chunks[i].size();
+            firstLines[i + 1] = firstLines[i] + newLineCounts[i];
+        }
+
+        TokenBuffer tokens = new TokenBuffer(source, firstTokens[chunkCount] + 1);
+        tokens.setSize(firstTokens[chunkCount]);
+        pool.invoke(new ForEachChunk(0, chunkCount, i ->
+        {
+            tokens.copy(chunks[i], firstTokens[i], firstLines[i]);
+            chunks[i] = null;
+        }));
+        tokens.add(TokenType.END_OF_FILE, source.length, 0, firstLines[chunkCount]);
+
+        return tokens;
+    }
+
+    /**
+     * Splits the source into chunks.
+     * @return Offsets of the boundaries of the chunks, from 0 to the length of the source.
+     * */
+    private int[] split(byte[] source)
+    {
+        int[] boundaries = new int[source.length / chunkSize + 2];
+        int count = 1;
+        boundaries[0] = 0;
+
+        for (long planned = chunkSize; planned < source.length; planned += chunkSize)
+        {
+            int boundary = findBoundary(source, Math.max((int)planned, boundaries[count - 1]));
+            if (boundary >= source.length)
+                break;
+            if (boundary > boundaries[count - 1])
+                boundaries[count++] = boundary;
+        }
+        boundaries[count++] = source.length;
+
+        int[] result = new int[count];
+        System.arraycopy(boundaries, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Finds the first safe boundary at or after the specified offset.
+     * @return The offset after the '\n' or ';' ending a chunk, or the length of the source if there is no boundary.
+     * */
+    private static int findBoundary(byte[] source, int offset)
+    {
+        int searchEnd = (int)Math.min(source.length, (long)offset + MAX_BOUNDARY_SEARCH_LENGTH);
+        for (int i = offset; i < searchEnd; i++)
+        {
+            if (source[i] == '\n')
+                return i + 1;
+        }
+
+        // A very long line, end the chunk with a statement.
+        for (int i = offset; i < source.length; i++)
+        {
+            if ((source[i] == '\n') || (source[i] == ';'))
+                return i + 1;
+        }
+
+        return source.length;
+    }
+
+    /**
+     * A unit test method for the {@link ParallelTokenizer} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+
+        // Use tiny chunks, so that even the test file is split.
+        TokenBuffer tokens = new ParallelTokenizer(ForkJoinPool.commonPool(), 8).tokenize(sourceFilePath);
+        new ImprovedParser(new Lexer(tokens)).statements();
+
+        // An empty source has only the end of file.
+        TokenBuffer emptyTokens = new ParallelTokenizer().tokenize(new byte[0]);
+        System.out.println("Empty source: " + emptyTokens.size() + " token, " + emptyTokens.getType(0) + ".");
+    }
+}
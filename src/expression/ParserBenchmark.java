@@ -0,0 +1,182 @@
+package expression;
+
+import java.io.*;
+
+/**
+ * The {@link ParserBenchmark} class compares the throughput of the parsers over the same pre-lexed token stream:
+ * {@link BasicParser} and {@link ImprovedParser} through a {@link Lexer} replaying the tokens, {@link TreeParser},
+ * {@link PrattParser}, {@link LLParser} and {@link LRParser} with the tables of the same grammar, and
+ * {@link ParallelParser} on the common {@link java.util.concurrent.ForkJoinPool}. The diagnostics are discarded, and
+ * the tokenization is not measured. The parsers building a tree reuse the same {@link SyntaxTree}, cleared before each
+ * run, except {@link ParallelParser}, which builds a tree per chunk.
+ * <p>
+ * Usage: ParserBenchmark [source file]. By default, a generated source of about 16 MB of statements with nested
+ * additions, multiplications and parentheses, which all the parsers accept, is used. The benchmark runs on a thread with
+ * a large stack, since {@link BasicParser} recurses once per statement.
+ * <p/>
+ * */
+public final class ParserBenchmark
+{
+    /** Number of runs of each parser that are not measured. */
+    private static final int WARM_UP_RUNS = 3;
+
+    /** Number of measured runs of each parser. */
+    private static final int MEASURED_RUNS = 5;
+
+    /** Size of the generated source in bytes. */
+    private static final int GENERATED_SIZE = 16 * 1024 * 1024;
+
+    /** Size of the stack of the thread running the benchmark. */
+    private static final long STACK_SIZE = 1L << 30;
+
+    /** The tree reused by the runs of the parsers building a tree. */
+    private static final SyntaxTree TREE = new SyntaxTree();
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private ParserBenchmark(){}
+
+    /**
+     * Generates statements with nested additions, multiplications and parentheses.
+     * */
+    private static byte[] generateSource()
+    {
+        String[] operands = {"count", "1", "total_size", "42", "(x + 3 * y)", "0x7F", "(a * (b + c) + d)", "i"};
+        ByteArrayOutputStream source = new ByteArrayOutputStream(GENERATED_SIZE + 1024);
+        for (int line = 0; source.size() < GENERATED_SIZE; line++)
+        {
+            StringBuilder statement = new StringBuilder();
+            statement.append(operands[line % operands.length]).append(" + ")
+                     .append(operands[(line / 3) % operands.length]).append(" * ")
+                     .append(operands[(line / 5) % operands.length]).append(" + (")
+                     .append(operands[(line / 7) % operands.length]).append(" + ")
+                     .append(operands[(line / 2) % operands.length]).append(") * ")
+                     .append(operands[(line / 11) % operands.length]).append(";\n");
+
+            byte[] bytes = statement.toString().getBytes();
+            source.write(bytes, 0, bytes.length);
+        }
+
+        return source.toByteArray();
+    }
+
+    private interface Parser
+    {
+        /**
+         * Parses the tokens from the first one.
+         * @return A value depending on the whole work, so that the work cannot be removed.
+         * */
+        long parse(TokenBuffer tokens);
+    }
+
+    private static long parseWithBasicParser(TokenBuffer tokens)
+    {
+        tokens.rewind();
+        new BasicParser(new Lexer(tokens)).statements();
+        return tokens.getPosition();
+    }
+
+    private static long parseWithImprovedParser(TokenBuffer tokens)
+    {
+        tokens.rewind();
+        new ImprovedParser(new Lexer(tokens)).statements();
+        return tokens.getPosition();
+    }
+
+    private static long parseWithTreeParser(TokenBuffer tokens)
+    {
+        tokens.rewind();
+        TREE.clear();
+        new TreeParser(tokens, TREE, System.out).statements();
+        return TREE.size();
+    }
+
+    private static long parseWithPrattParser(TokenBuffer tokens)
+    {
+        tokens.rewind();
+        TREE.clear();
+        new PrattParser(tokens, TREE, System.out).statements();
+        return TREE.size();
+    }
+
+    private static long parseWithLLParser(TokenBuffer tokens)
+    {
+        tokens.rewind();
+        return new LLParser(ExpressionLLTable.TABLE, tokens, System.out).parse() + tokens.getPosition();
+    }
+
+    private static long parseWithLRParser(TokenBuffer tokens)
+    {
+        tokens.rewind();
+        return new LRParser(ExpressionLRTable.TABLE, tokens, System.out).parse() + tokens.getPosition();
+    }
+
+    private static long parseWithParallelParser(TokenBuffer tokens)
+    {
+        tokens.rewind();
+        long size = 0;
+        for (SyntaxTree tree : new ParallelParser().statements(tokens, System.out))
+            size += tree.size() - 1;
+        return size + 1;
+    }
+
+    /**
+     * Runs one parser and prints its result, the diagnostics written to {@link System#out} being discarded.
+     * */
+    private static void run(String name, Parser parser, TokenBuffer tokens)
+    {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(new OutputStream()
+        {
+            @Override
+            public void write(int b)
+            {
+            }
+
+            @Override
+            public void write(byte[] b, int offset, int length)
+            {
+            }
+        }));
+
+        long result = 0;
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < WARM_UP_RUNS + MEASURED_RUNS; i++)
+        {
+            long start = System.nanoTime();
+            result = parser.parse(tokens);
+            long time = System.nanoTime() - start;
+
+            if (i >= WARM_UP_RUNS)
+                bestTime = Math.min(bestTime, time);
+        }
+        System.setOut(console);
+
+        System.out.printf("%-16s result: %10d, time: %8.1f ms, %6.2f ns/token, throughput: %8.1f Mtokens/s%n",
+                name, result, bestTime / 1e6, (double)bestTime / tokens.size(), tokens.size() / (bestTime / 1e3));
+    }
+
+    /**
+     * Runs the benchmark.
+     * */
+    public static void main(String[] args) throws Exception
+    {
+        byte[] source = (args.length > 0) ? InputSystem.File.readAllBytes(args[0]) : generateSource();
+        TokenBuffer tokens = TokenBuffer.tokenize(source);
+        System.out.println("Input: " + source.length + " bytes, " + tokens.size() + " tokens.");
+
+        Thread benchmark = new Thread(null, () ->
+        {
+            run("BasicParser", ParserBenchmark::parseWithBasicParser, tokens);
+            run("ImprovedParser", ParserBenchmark::parseWithImprovedParser, tokens);
+            run("TreeParser", ParserBenchmark::parseWithTreeParser, tokens);
+            run("PrattParser", ParserBenchmark::parseWithPrattParser, tokens);
+            run("LLParser", ParserBenchmark::parseWithLLParser, tokens);
+            run("LRParser", ParserBenchmark::parseWithLRParser, tokens);
+            run("ParallelParser", ParserBenchmark::parseWithParallelParser, tokens);
+        }, "benchmark", STACK_SIZE);
+        benchmark.start();
+        benchmark.join();
+    }
+}
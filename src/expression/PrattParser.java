@@ -0,0 +1,440 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link PrattParser} class parses statements made of the expressions of C from a {@link TokenBuffer} by precedence
+ * climbing (a Pratt parser), and builds their syntax trees in a {@link SyntaxTree}.
+ * <p>
+ * The binary operators are described by a table of precedences indexed by their tokens, instead of one method per
+ * precedence level as in {@link ImprovedParser}: a binary expression is parsed by a loop over the operators whose
+ * precedence is at least the current one, so that an operand costs one call whatever the number of levels.
+ * <p>
+ * All the operators of C are supported: the comma, the assignments, "?:", the binary operators, the prefix operators
+ * including "sizeof" and the casts, and the postfix operators "[]", "()", ".", "->", "++" and "--". A type name of a
+ * cast or a "sizeof" is made of keywords, tags and "*", since typedef names are not known to the parser. The
+ * diagnostics have the same formats and the same rules as the diagnostics of {@link ImprovedParser}, and are written to
+ * the specified stream.
+ * <p/>
+ * */
+public class PrattParser
+{
+    // Precedences of the binary operators, 0 for a token which is not a binary operator.
+    private static final int NOT_BINARY = 0;
+    private static final int COMMA = 1;
+    private static final int ASSIGNMENT = 2;
+    private static final int CONDITIONAL = 3;
+    private static final int LOGICAL_OR = 4;
+    private static final int LOGICAL_AND = 5;
+    private static final int BITWISE_OR = 6;
+    private static final int BITWISE_XOR = 7;
+    private static final int BITWISE_AND = 8;
+    private static final int EQUALITY = 9;
+    private static final int RELATIONAL = 10;
+    private static final int SHIFT = 11;
+    private static final int ADDITIVE = 12;
+    private static final int MULTIPLICATIVE = 13;
+
+    /** Precedences of the binary operators indexed by the ordinals of their tokens. */
+    private static final byte[] PRECEDENCES = new byte[TokenType.values().length];
+
+    /** The binary operators which are right associative, indexed by the ordinals of their tokens. */
+    private static final boolean[] RIGHT_ASSOCIATIVE = new boolean[TokenType.values().length];
+
+    /** The prefix operators indexed by the ordinals of their tokens. */
+    private static final boolean[] PREFIX_OPERATORS = new boolean[TokenType.values().length];
+
+    /** The keywords that start a type name, indexed by their ordinals. */
+    private static final boolean[] TYPE_KEYWORDS = new boolean[TokenType.values().length];
+
+    static
+    {
+        addBinaryOperator(COMMA, false, TokenType.COMMA);
+        addBinaryOperator(ASSIGNMENT, true, TokenType.ASSIGN, TokenType.TIMES_ASSIGN, TokenType.DIVIDE_ASSIGN,
+                TokenType.MODULO_ASSIGN, TokenType.PLUS_ASSIGN, TokenType.MINUS_ASSIGN, TokenType.SHIFT_LEFT_ASSIGN,
+                TokenType.SHIFT_RIGHT_ASSIGN, TokenType.AND_ASSIGN, TokenType.XOR_ASSIGN, TokenType.OR_ASSIGN);
+        addBinaryOperator(CONDITIONAL, true, TokenType.QUESTION);
+        addBinaryOperator(LOGICAL_OR, false, TokenType.LOGICAL_OR);
+        addBinaryOperator(LOGICAL_AND, false, TokenType.LOGICAL_AND);
+        addBinaryOperator(BITWISE_OR, false, TokenType.BITWISE_OR);
+        addBinaryOperator(BITWISE_XOR, false, TokenType.BITWISE_XOR);
+        addBinaryOperator(BITWISE_AND, false, TokenType.BITWISE_AND);
+        addBinaryOperator(EQUALITY, false, TokenType.EQUAL, TokenType.NOT_EQUAL);
+        addBinaryOperator(RELATIONAL, false, TokenType.LESS, TokenType.GREATER, TokenType.LESS_OR_EQUAL,
+                TokenType.GREATER_OR_EQUAL);
+        addBinaryOperator(SHIFT, false, TokenType.SHIFT_LEFT, TokenType.SHIFT_RIGHT);
+        addBinaryOperator(ADDITIVE, false, TokenType.PLUS, TokenType.MINUS);
+        addBinaryOperator(MULTIPLICATIVE, false, TokenType.TIMES, TokenType.DIVIDE, TokenType.MODULO);
+
+        for (TokenType token : new TokenType[] { TokenType.INCREMENT, TokenType.DECREMENT, TokenType.BITWISE_AND,
+                TokenType.TIMES, TokenType.PLUS, TokenType.MINUS, TokenType.BITWISE_NOT, TokenType.LOGICAL_NOT,
+                TokenType.SIZEOF })
+            PREFIX_OPERATORS[token.ordinal()] = true;
+
+        for (TokenType token : new TokenType[] { TokenType.VOID, TokenType.CHAR, TokenType.SHORT, TokenType.INT,
+                TokenType.LONG, TokenType.FLOAT, TokenType.DOUBLE, TokenType.SIGNED, TokenType.UNSIGNED, TokenType.BOOL,
+                TokenType.COMPLEX, TokenType.IMAGINARY, TokenType.STRUCT, TokenType.UNION, TokenType.ENUM,
+                TokenType.CONST, TokenType.VOLATILE, TokenType.RESTRICT })
+            TYPE_KEYWORDS[token.ordinal()] = true;
+    }
+
+    /** The tokens to parse. */
+    private final TokenBuffer tokens;
+
+    /** The tree to add the nodes to. */
+    private final SyntaxTree tree;
+
+    /** The stream to write the diagnostics to. */
+    private final PrintStream out;
+
+    /** A boolean value indicating whether the statements is legal. */
+    private boolean isLegalStatement;
+
+    /** The handles of the statements parsed, and of the arguments of the calls being parsed. */
+    private int[] nodeStack;
+
+    /** Number of handles in {@link #nodeStack}. */
+    private int nodeStackSize;
+
+    /**
+     * Initializes a new instance of {@link PrattParser}.
+     * @param tokens The tokens to parse, from the position of their cursor.
+     * @param tree The tree to add the nodes to.
+     * @param out The stream to write the diagnostics to.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public PrattParser(TokenBuffer tokens, SyntaxTree tree, PrintStream out)
+    {
+        if ((tokens == null) || (tree == null) || (out == null))
+            throw new NullPointerException("Tokens, tree and output stream cannot be null.");
+
+        this.tokens = tokens;
+        this.tree = tree;
+        this.out = out;
+        isLegalStatement = true;
+        nodeStack = new int[16];
+        nodeStackSize = 0;
+    }
+
+    /**
+     * Adds binary operators with the same precedence to the table.
+     * */
+    private static void addBinaryOperator(int precedence, boolean isRightAssociative, TokenType... operators)
+    {
+        for (TokenType operator : operators)
+        {
+            PRECEDENCES[operator.ordinal()] = (byte)precedence;
+            RIGHT_ASSOCIATIVE[operator.ordinal()] = isRightAssociative;
+        }
+    }
+
+    /**
+     * Parses a "statements" with following production.
+     * <p>
+     * statements -> expression ; | expression ; statements
+     * <p/>
+     * @return The handle of the {@link NodeKind#STATEMENTS} node.
+     * */
+    public int statements()
+    {
+        int stackBase = nodeStackSize;
+        while (!tokens.match(TokenType.END_OF_FILE))
+        {
+            int expression = expression();
+            int statement;
+
+            // The same rules as ImprovedParser, "-" and "/" being operators.
+            if (tokens.match(TokenType.SEMICOLON))
+            {
+                statement = tree.addNode(NodeKind.STATEMENT, tokens.getPosition(), expression);
+                tokens.advance();
+                out.println("The statement is " + (isLegalStatement ? "legal" : "illegal"));
+                isLegalStatement = true;
+            }
+            else if (tokens.match(TokenType.UNKNOWN_SYMBOL))
+            {
+                statement = tree.addNode(NodeKind.ERROR, tokens.getPosition(), expression);
+                out.println("Error: unknown symbol: " + tokens.getText() + " at line: " + tokens.getLine() + ".");
+                tokens.skipLine();
+            }
+            else
+            {
+                statement = tree.addNode(NodeKind.ERROR, tokens.getPosition(), expression);
+                isLegalStatement = false;
+                out.println("Line " + tokens.getLine() + ": missing \";\".");
+                tokens.skipLine();
+            }
+
+            push(statement);
+        }
+
+        int root = tree.addNode(NodeKind.STATEMENTS, SyntaxTree.NO_TOKEN, nodeStack, stackBase, nodeStackSize - stackBase);
+        nodeStackSize = stackBase;
+        return root;
+    }
+
+    /**
+     * Parses an "expression", which is a comma expression, and reports an unknown symbol after it.
+     * */
+    private int expression()
+    {
+        int node = parse(COMMA);
+
+        if (tokens.match(TokenType.UNKNOWN_SYMBOL))
+        {
+            isLegalStatement = false;
+            out.println("Line " + tokens.getLine() + ", unknown symbol \"" + tokens.getText() + "\"");
+        }
+
+        return node;
+    }
+
+    /**
+     * Parses an expression whose binary operators have at least the specified precedence.
+     * @param minPrecedence The lowest precedence of the operators to parse.
+     * @return The handle of the expression.
+     * */
+    private int parse(int minPrecedence)
+    {
+        int left = unary();
+        for (;;)
+        {
+            int operatorType = tokens.getType().ordinal();
+            int precedence = PRECEDENCES[operatorType];
+            if ((precedence == NOT_BINARY) || (precedence < minPrecedence))
+                return left;
+
+            int operator = tokens.getPosition();
+            tokens.advance();
+
+            // The operand on the right of a right associative operator can have operators of the same precedence.
+            int rightPrecedence = RIGHT_ASSOCIATIVE[operatorType] ? precedence : precedence + 1;
+            if (precedence == CONDITIONAL)
+            {
+                int middle = expression();
+                expect(TokenType.COLON, ":");
+                left = tree.addNode(NodeKind.CONDITIONAL, operator, left, middle, parse(rightPrecedence));
+            }
+            else
+                left = tree.addNode(NodeKind.BINARY, operator, left, parse(rightPrecedence));
+        }
+    }
+
+    /**
+     * Parses a prefix operator and its operand, a cast, or a postfix expression.
+     * */
+    private int unary()
+    {
+        TokenType type = tokens.getType();
+        int operator = tokens.getPosition();
+        if (type == TokenType.SIZEOF)
+        {
+            tokens.advance();
+            if (tokens.match(TokenType.LEFT_PARENTHESES) && isTypeName(1))
+            {
+                tokens.advance();
+                int typeName = typeName();
+                expect(TokenType.RIGHT_PARENTHESES, ")");
+                return tree.addNode(NodeKind.UNARY, operator, typeName);
+            }
+
+            return tree.addNode(NodeKind.UNARY, operator, unary());
+        }
+        else if (PREFIX_OPERATORS[type.ordinal()])
+        {
+            tokens.advance();
+            return tree.addNode(NodeKind.UNARY, operator, unary());
+        }
+        else if ((type == TokenType.LEFT_PARENTHESES) && isTypeName(1))
+        {
+            tokens.advance();
+            int typeName = typeName();
+            expect(TokenType.RIGHT_PARENTHESES, ")");
+            return tree.addNode(NodeKind.CAST, operator, typeName, unary());
+        }
+
+        return postfix(primary());
+    }
+
+    /**
+     * Parses the postfix operators following the specified expression.
+     * */
+    private int postfix(int node)
+    {
+        for (;;)
+        {
+            int operator = tokens.getPosition();
+            switch (tokens.getType())
+            {
+                case LEFT_BRACKET:
+                    tokens.advance();
+                    node = tree.addNode(NodeKind.BINARY, operator, node, expression());
+                    expect(TokenType.RIGHT_BRACKET, "]");
+                    break;
+                case LEFT_PARENTHESES:
+                    tokens.advance();
+                    node = call(operator, node);
+                    break;
+                case DOT:
+                case ARROW:
+                    tokens.advance();
+                    node = tree.addNode(NodeKind.BINARY, operator, node, member());
+                    break;
+                case INCREMENT:
+                case DECREMENT:
+                    tokens.advance();
+                    node = tree.addNode(NodeKind.POSTFIX, operator, node);
+                    break;
+                default:
+                    return node;
+            }
+        }
+    }
+
+    /**
+     * Parses the arguments of a call after its "(".
+     * */
+    private int call(int operator, int function)
+    {
+        int stackBase = nodeStackSize;
+        push(function);
+        if (!tokens.match(TokenType.RIGHT_PARENTHESES))
+        {
+            push(parse(ASSIGNMENT));
+            while (tokens.match(TokenType.COMMA))
+            {
+                tokens.advance();
+                push(parse(ASSIGNMENT));
+            }
+        }
+        expect(TokenType.RIGHT_PARENTHESES, ")");
+
+        int node = tree.addNode(NodeKind.CALL, operator, nodeStack, stackBase, nodeStackSize - stackBase);
+        nodeStackSize = stackBase;
+        return node;
+    }
+
+    /**
+     * Parses the member after a "." or a "->".
+     * */
+    private int member()
+    {
+        if (!tokens.match(TokenType.IDENTIFIER))
+            return unexpectedSymbol();
+
+        int node = tree.addLeaf(NodeKind.IDENTIFIER, tokens.getPosition());
+        tokens.advance();
+        return node;
+    }
+
+    /**
+     * Parses a primary expression with following production.
+     * <p>
+     * primary -> NUMBER | IDENTIFIER | ( expression )
+     * <p/>
+     * */
+    private int primary()
+    {
+        int node;
+        if (tokens.match(TokenType.NUMBER) || tokens.match(TokenType.IDENTIFIER))
+        {
+            node = tree.addLeaf(tokens.match(TokenType.NUMBER) ? NodeKind.NUMBER : NodeKind.IDENTIFIER, tokens.getPosition());
+            tokens.advance();
+        }
+        else if (tokens.match(TokenType.LEFT_PARENTHESES))
+        {
+            tokens.advance();
+            node = expression();
+            expect(TokenType.RIGHT_PARENTHESES, ")");
+        }
+        else
+            node = unexpectedSymbol();
+
+        return node;
+    }
+
+    /**
+     * Parses a type name made of keywords, tags and "*", which is known to start at the current token.
+     * */
+    private int typeName()
+    {
+        int node = tree.addLeaf(NodeKind.TYPE_NAME, tokens.getPosition());
+        while (TYPE_KEYWORDS[tokens.getType().ordinal()])
+        {
+            TokenType type = tokens.getType();
+            tokens.advance();
+            if (((type == TokenType.STRUCT) || (type == TokenType.UNION) || (type == TokenType.ENUM)) &&
+                tokens.match(TokenType.IDENTIFIER))
+                tokens.advance();
+        }
+        while (tokens.match(TokenType.TIMES) || tokens.match(TokenType.CONST) ||
+               tokens.match(TokenType.VOLATILE) || tokens.match(TokenType.RESTRICT))
+            tokens.advance();
+
+        return node;
+    }
+
+    /**
+     * Returns a value indicating whether a type name starts at the specified distance from the current token.
+     * */
+    private boolean isTypeName(int distance)
+    {
+        return TYPE_KEYWORDS[tokens.peekType(distance).ordinal()];
+    }
+
+    /**
+     * Consumes the specified closing token, or reports it is missing.
+     * */
+    private void expect(TokenType type, String symbol)
+    {
+        if (tokens.match(type))
+            tokens.advance();
+        else
+        {
+            isLegalStatement = false;
+            out.println("Line: " + tokens.getLine() + ", missing \"" + symbol + "\"");
+        }
+    }
+
+    /**
+     * Reports the current token which cannot start an operand, and returns an error node for it.
+     * */
+    private int unexpectedSymbol()
+    {
+        isLegalStatement = false;
+        out.println("Line: " + tokens.getLine() + ", unexpected symbol: \"" + tokens.getText() + "\".");
+        return tree.addLeaf(NodeKind.ERROR, tokens.getPosition());
+    }
+
+    private void push(int node)
+    {
+        if (nodeStackSize == nodeStack.length)
+            nodeStack = Arrays.copyOf(nodeStack, nodeStackSize * 2);
+
+        nodeStack[nodeStackSize++] = node;
+    }
+
+    /**
+     * A unit test method for the {@link PrattParser} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        byte[] source = InputSystem.File.readAllBytes(sourceFilePath);
+        String operators = "a = b += c ? d , e : f || g && h | i ^ j & k == l != m < n >> o - p / q % r;\n" +
+                           "x = -*p++ + ~!y-- * sizeof z + sizeof(unsigned long *) + (char)c;\n" +
+                           "s.f[i + 1](a, b = 2)->g(), --n;\n" +
+                           "a ? b : c ? d : e;\n" +
+                           "f(a, ;\n";
+
+        for (byte[] input : new byte[][] { source, operators.getBytes() })
+        {
+            TokenBuffer tokens = TokenBuffer.tokenize(input);
+            SyntaxTree tree = new SyntaxTree();
+            int root = new PrattParser(tokens, tree, System.out).statements();
+            System.out.print(tree.toString(root, tokens));
+            System.out.println();
+        }
+    }
+}
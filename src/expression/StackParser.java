@@ -0,0 +1,234 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link StackParser} class parses the grammar of {@link ImprovedParser} with the same diagnostics, without
+ * recursion: the productions being parsed are kept on an explicit stack of states allocated on the heap, so that neither
+ * the number of statements nor the nesting of the parentheses can overflow the stack of the thread.
+ * <p>
+ * The statements and the operands of a sum or a product are parsed by loops which reuse the same stack entry, so that
+ * the stack only grows with the nesting of the parentheses, 3 entries per level, and the memory used does not depend
+ * on the number of statements. The tokens are read from the {@link Lexer} as they are parsed.
+ * <p/>
+ * */
+public class StackParser
+{
+    // States of the parser. A state on the stack is the state to go back to when a production is parsed.
+    private static final int EXPRESSION = 0;
+    private static final int TERM = 1;
+    private static final int FACTOR = 2;
+    private static final int AFTER_TERM = 3;
+    private static final int AFTER_FACTOR = 4;
+    private static final int AFTER_PARENTHESIZED_EXPRESSION = 5;
+    private static final int END_OF_EXPRESSION = 6;
+
+    /** The initial capacity of the stack. */
+    private static final int INITIAL_STACK_CAPACITY = 64;
+
+    /** The lexer to tokenize text in the input stream. */
+    private Lexer lexer;
+
+    /** A boolean value indicating whether the statements is legal. */
+    private boolean isLegalStatement;
+
+    /** The states to go back to. */
+    private int[] stack;
+
+    /** Number of states in {@link #stack}. */
+    private int stackSize;
+
+    /**
+     * Initializes a new instance of {@link StackParser} with the specified {@link Lexer}.
+     * @param lexer The specified {@link Lexer}.
+     * */
+    public StackParser(Lexer lexer)
+    {
+        isLegalStatement = true;
+        this.lexer = lexer;
+        stack = new int[INITIAL_STACK_CAPACITY];
+        stackSize = 0;
+    }
+
+    /**
+     * Gets the number of entries the stack can hold without growing, which depends on the deepest nesting parsed.
+     * @return The capacity of the stack.
+     * */
+    public int getStackCapacity()
+    {
+        return stack.length;
+    }
+
+    /**
+     * Parses a "statements" with following production.
+     * <p>
+     * statements -> expression ; | expression ; statements
+     * <p/>
+     * */
+    @SuppressWarnings("Duplicates")
+    public void statements()
+    {
+        while (!lexer.match(TokenType.END_OF_FILE))
+        {
+            expression();
+
+            // If the next token following semicolon is not END_OF_FILE, then use the parse rule on the right.
+            // Else if the expression contains unknown symbol or unsupported operator, then it is an illegal statements.
+            // Else => the expression doesn't end with a semicolon, it is an illegal statements.
+            if (lexer.match(TokenType.SEMICOLON))
+            {
+                lexer.lookNextToken();
+                System.out.println("The statement is " + (isLegalStatement ? "legal" : "illegal"));
+                isLegalStatement = true;
+            }
+            else if (lexer.matchUnknownSymbol() ||
+                     lexer.match(TokenType.MINUS) ||
+                     lexer.match(TokenType.DIVIDE))
+            {
+                System.out.println("Error: unknown symbol: " + lexer.getSymbolText() + " at line: " + lexer.getLineNumber() + ".");
+                lexer.clearLine();
+            }
+            else
+            {
+                isLegalStatement = false;
+                System.out.println("Line " + lexer.getLineNumber() + ": missing \";\".");
+                lexer.clearLine();
+            }
+        }
+    }
+
+    /**
+     * Parses an "expression" with following productions, the recursions being replaced by the stack.
+     * <p>
+     * expression -> term (+ term)*
+     * term -> factor (* factor)*
+     * factor -> NUMBER | IDENTIFIER | ( expression )
+     * <p/>
+     * */
+    private void expression()
+    {
+        push(END_OF_EXPRESSION);
+        int state = EXPRESSION;
+        for (;;)
+        {
+            switch (state)
+            {
+                case EXPRESSION:
+                    push(AFTER_TERM);
+                    state = TERM;
+                    break;
+
+                case TERM:
+                    push(AFTER_FACTOR);
+                    state = FACTOR;
+                    break;
+
+                case FACTOR:
+                    if (lexer.match(TokenType.NUMBER) || lexer.match(TokenType.IDENTIFIER))
+                    {
+                        lexer.lookNextToken();
+                        state = pop();
+                    }
+                    else if (lexer.match(TokenType.LEFT_PARENTHESES))
+                    {
+                        lexer.lookNextToken();
+                        push(AFTER_PARENTHESIZED_EXPRESSION);
+                        state = EXPRESSION;
+                    }
+                    else
+                    {
+                        // Not number neither identifier.
+                        isLegalStatement = false;
+                        System.out.println("Line: " + lexer.getLineNumber() + ", unexpected symbol: \"" + lexer.getSymbolText() + "\".");
+                        state = pop();
+                    }
+                    break;
+
+                case AFTER_FACTOR:
+                    if (lexer.match(TokenType.TIMES))
+                    {
+                        lexer.lookNextToken();
+                        push(AFTER_FACTOR);
+                        state = FACTOR;
+                    }
+                    else
+                        state = pop();
+                    break;
+
+                case AFTER_TERM:
+                    if (lexer.match(TokenType.PLUS))
+                    {
+                        lexer.lookNextToken();
+                        push(AFTER_TERM);
+                        state = TERM;
+                        break;
+                    }
+
+                    if (lexer.matchUnknownSymbol())
+                    {
+                        isLegalStatement = false;
+                        System.out.println("Line " + lexer.getLineNumber() + ", unknown symbol \"" + lexer.getSymbolText() + "\"");
+                    }
+                    state = pop();
+                    break;
+
+                case AFTER_PARENTHESIZED_EXPRESSION:
+                    if (lexer.match(TokenType.RIGHT_PARENTHESES))
+                        lexer.lookNextToken();
+                    else
+                    {
+                        // There is a "(" without a ")".
+                        isLegalStatement = false;
+                        System.out.println("Line: " + lexer.getLineNumber() + ", missing \")\"");
+                    }
+                    state = pop();
+                    break;
+
+                default:
+                    return;
+            }
+        }
+    }
+
+    private void push(int state)
+    {
+        if (stackSize == stack.length)
+            stack = Arrays.copyOf(stack, stackSize * 2);
+
+        stack[stackSize++] = state;
+    }
+
+    private int pop()
+    {
+        return stack[--stackSize];
+    }
+
+    /**
+     * A unit test method for the {@link StackParser} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        FileInputStream sourceFile = new FileInputStream(sourceFilePath);
+        Lexer lexer = new Lexer(sourceFile);
+        StackParser parser = new StackParser(lexer);
+        parser.statements();
+        lexer.close();
+        sourceFile.close();
+
+        // Parentheses nested a million times, which would overflow the stack of a recursive parser.
+        int depth = 1000000;
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < depth; i++)
+            source.append('(');
+        source.append('1');
+        for (int i = 0; i < depth; i++)
+            source.append(" + 1)");
+        source.append(";\n");
+
+        parser = new StackParser(new Lexer(new ByteArrayInputStream(source.toString().getBytes())));
+        parser.statements();
+        System.out.println("Nesting depth: " + depth + ", stack capacity: " + parser.getStackCapacity());
+    }
+}
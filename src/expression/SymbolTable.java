@@ -0,0 +1,236 @@
+package expression;
+
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * The {@link SymbolTable} class interns the identifiers of a compilation: each distinct identifier gets a dense
+ * {@code int} id, starting from 0, so that later phases can keep per-symbol data in arrays indexed by the id.
+ * <p>
+ * The table is keyed directly on the bytes of a lexeme, for example in the input buffer of the reader, and uses open
+ * addressing with linear probing over primitive arrays. Interning an identifier seen before costs a hash and a probe,
+ * and allocates nothing. The text of a symbol is copied once into a byte pool, and its {@link String} is created only
+ * when {@link #getName(int)} is called for the first time.
+ * <p/>
+ * */
+public class SymbolTable
+{
+    /** The initial number of slots, which is a power of 2. */
+    private static final int INITIAL_SLOT_COUNT = 256;
+
+    /** The initial capacity of the byte pool. */
+    private static final int INITIAL_POOL_CAPACITY = 4096;
+
+    /** Ids of the symbols plus 1 indexed by their hashes, 0 for an empty slot. */
+    private int[] slots;
+
+    /** Hashes of the symbols. */
+    private int[] hashes;
+
+    /** Offsets of the texts of the symbols in the pool. */
+    private int[] offsets;
+
+    /** Lengths in bytes of the texts of the symbols. */
+    private int[] lengths;
+
+    /** Names of the symbols, which are created on request. */
+    private String[] names;
+
+    /** The texts of the symbols. */
+    private byte[] pool;
+
+    /** Number of bytes used in the pool. */
+    private int poolLength;
+
+    /** Number of symbols in the table. */
+    private int size;
+
+    /**
+     * Initializes a new instance of {@link SymbolTable} which is empty.
+     * */
+    public SymbolTable()
+    {
+        slots = new int[INITIAL_SLOT_COUNT];
+        hashes = new int[INITIAL_SLOT_COUNT / 2];
+        offsets = new int[INITIAL_SLOT_COUNT / 2];
+        lengths = new int[INITIAL_SLOT_COUNT / 2];
+        names = new String[INITIAL_SLOT_COUNT / 2];
+        pool = new byte[INITIAL_POOL_CAPACITY];
+        poolLength = 0;
+        size = 0;
+    }
+
+    /**
+     * Removes all the symbols, keeping the memory allocated for them.
+     * */
+    public void clear()
+    {
+        Arrays.fill(slots, 0);
+        Arrays.fill(names, 0, size, null);
+        poolLength = 0;
+        size = 0;
+    }
+
+    /**
+     * Gets the number of symbols in the table.
+     * @return The number of symbols in the table.
+     * */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the id of the symbol in the specified range of a buffer, adding the symbol to the table if it is not in it.
+     * @param buffer The buffer containing the symbol.
+     * @param offset Index of the first byte of the symbol in the buffer.
+     * @param length Length of the symbol in bytes.
+     * @return The id of the symbol.
+     * */
+    public int intern(byte[] buffer, int offset, int length)
+    {
+        int hash = hash(buffer, offset, length);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask)
+        {
+            int id = slots[i] - 1;
+            if (id < 0)
+            {
+                id = add(hash, buffer, offset, length);
+                slots[i] = id + 1;
+
+                // Keep the load factor under 1/2.
+                if (size * 2 > slots.length)
+                    rehash();
+                return id;
+            }
+
+            if (isSymbol(id, hash, buffer, offset, length))
+                return id;
+        }
+    }
+
+    /**
+     * Gets the id of the symbol in the specified range of a buffer.
+     * @param buffer The buffer containing the symbol.
+     * @param offset Index of the first byte of the symbol in the buffer.
+     * @param length Length of the symbol in bytes.
+     * @return The id of the symbol, or -1 if the symbol is not in the table.
+     * */
+    public int find(byte[] buffer, int offset, int length)
+    {
+        int hash = hash(buffer, offset, length);
+        int mask = slots.length - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask)
+        {
+            int id = slots[i] - 1;
+            if ((id < 0) || isSymbol(id, hash, buffer, offset, length))
+                return id;
+        }
+    }
+
+    /**
+     * Gets the id of the specified symbol, adding the symbol to the table if it is not in it.
+     * @param name The symbol.
+     * @return The id of the symbol.
+     * */
+    public int intern(String name)
+    {
+        byte[] text = name.getBytes(StandardCharsets.UTF_8);
+        return intern(text, 0, text.length);
+    }
+
+    /**
+     * Gets the name of the specified symbol.
+     * @param id The id of the symbol.
+     * @return The name of the symbol.
+     * */
+    public String getName(int id)
+    {
+        checkId(id);
+        if (names[id] == null)
+            names[id] = new String(pool, offsets[id], lengths[id], StandardCharsets.UTF_8);
+
+        return names[id];
+    }
+
+    /**
+     * Gets the length in bytes of the specified symbol.
+     * @param id The id of the symbol.
+     * @return The length in bytes of the symbol.
+     * */
+    public int getLength(int id)
+    {
+        checkId(id);
+        return lengths[id];
+    }
+
+    private void checkId(int id)
+    {
+        if ((id < 0) || (id >= size))
+            throw new IndexOutOfBoundsException("Symbol id: " + id + ", size: " + size + ".");
+    }
+
+    /**
+     * Returns a value indicating whether the given symbol has the given hash and text.
+     * */
+    private boolean isSymbol(int id, int hash, byte[] buffer, int offset, int length)
+    {
+        return (hashes[id] == hash) && (lengths[id] == length) &&
+               Arrays.equals(pool, offsets[id], offsets[id] + length, buffer, offset, offset + length);
+    }
+
+    /**
+     * Adds a symbol which is not in the table.
+     * @return The id of the symbol.
+     * */
+    private int add(int hash, byte[] buffer, int offset, int length)
+    {
+        if (size == hashes.length)
+        {
+            int capacity = size * 2;
+            hashes = Arrays.copyOf(hashes, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            names = Arrays.copyOf(names, capacity);
+        }
+        if (poolLength + length > pool.length)
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolLength + length));
+
+        System.arraycopy(buffer, offset, pool, poolLength, length);
+        hashes[size] = hash;
+        offsets[size] = poolLength;
+        lengths[size] = length;
+        poolLength += length;
+        return size++;
+    }
+
+    /**
+     * Doubles the number of slots, and puts the symbols back with their hashes.
+     * */
+    private void rehash()
+    {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++)
+        {
+            int i = hashes[id] & mask;
+            while (slots[i] != 0)
+                i = (i + 1) & mask;
+
+            slots[i] = id + 1;
+        }
+    }
+
+    /**
+     * Computes the FNV-1a hash of the given bytes, with its high bits mixed into the low bits used to index the slots.
+     * */
+    private static int hash(byte[] buffer, int offset, int length)
+    {
+        int hash = 0x811C9DC5;
+        for (int i = offset; i < offset + length; i++)
+            hash = (hash ^ buffer[i]) * 0x01000193;
+
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,336 @@
+package expression;
+
+import java.util.*;
+
+/**
+ * The {@link SyntaxTree} class stores the syntax trees of the statements parsed from a {@link TokenBuffer} in an arena
+ * of parallel {@code int} arrays: the ordinal of the {@link NodeKind}, the index of the token of the node in the token
+ * buffer, and the range of its children in a shared pool. A node is referred to by its {@code int} handle, and no object
+ * is created for a node, so that a tree of millions of nodes costs no object header, and can be walked by several
+ * passes.
+ * <p>
+ * The children of a node are added before the node, so that the handle of a node is greater than the handles of its
+ * children, and the root is the last node added. {@link #clear()} drops all the nodes and keeps the arrays, so that the
+ * same arena can be reused for the next translation unit.
+ * <p/>
+ * */
+public class SyntaxTree
+{
+    /** The token of a node that does not refer to a token. */
+    public static final int NO_TOKEN = -1;
+
+    /** The initial number of nodes. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Node kinds indexed by their ordinals. */
+    private static final NodeKind[] NODE_KINDS = NodeKind.values();
+
+    /** Ordinals of the node kinds. */
+    private int[] kinds;
+
+    /** Indexes of the tokens of the nodes. */
+    private int[] tokens;
+
+    /** Indexes in {@link #children} of the first children of the nodes. */
+    private int[] childStarts;
+
+    /** Numbers of children of the nodes. */
+    private int[] childCounts;
+
+    /** The children of all the nodes. */
+    private int[] children;
+
+    /** Number of nodes. */
+    private int size;
+
+    /** Number of children in {@link #children}. */
+    private int childrenSize;
+
+    /**
+     * Initializes a new instance of {@link SyntaxTree} which is empty.
+     * */
+    public SyntaxTree()
+    {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Initializes a new instance of {@link SyntaxTree} which is empty, with the specified initial number of nodes.
+     * @param initialCapacity The initial number of nodes.
+     * @exception IllegalArgumentException If {@code initialCapacity} is not positive.
+     * */
+    public SyntaxTree(int initialCapacity)
+    {
+        if (initialCapacity <= 0)
+            throw new IllegalArgumentException("Initial capacity must be positive.");
+
+        kinds = new int[initialCapacity];
+        tokens = new int[initialCapacity];
+        childStarts = new int[initialCapacity];
+        childCounts = new int[initialCapacity];
+        children = new int[initialCapacity];
+        size = 0;
+        childrenSize = 0;
+    }
+
+    /**
+     * Removes all the nodes, keeping the memory allocated for them.
+     * */
+    public void clear()
+    {
+        size = 0;
+        childrenSize = 0;
+    }
+
+    /**
+     * Gets the number of nodes.
+     * @return The number of nodes.
+     * */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds a node without children.
+     * @param kind The kind of the node.
+     * @param token Index of the token of the node, or {@link #NO_TOKEN}.
+     * @return The handle of the node.
+     * */
+    public int addLeaf(NodeKind kind, int token)
+    {
+        return add(kind, token, 0);
+    }
+
+    /**
+     * Adds a node with 1 child.
+     * @param kind The kind of the node.
+     * @param token Index of the token of the node, or {@link #NO_TOKEN}.
+     * @param child The handle of the child.
+     * @return The handle of the node.
+     * */
+    public int addNode(NodeKind kind, int token, int child)
+    {
+        checkNode(child);
+        int node = add(kind, token, 1);
+        children[childrenSize++] = child;
+        return node;
+    }
+
+    /**
+     * Adds a node with 2 children.
+     * @param kind The kind of the node.
+     * @param token Index of the token of the node, or {@link #NO_TOKEN}.
+     * @param left The handle of the first child.
+     * @param right The handle of the second child.
+     * @return The handle of the node.
+     * */
+    public int addNode(NodeKind kind, int token, int left, int right)
+    {
+        checkNode(left);
+        checkNode(right);
+        int node = add(kind, token, 2);
+        children[childrenSize++] = left;
+        children[childrenSize++] = right;
+        return node;
+    }
+
+    /**
+     * Adds a node with 3 children.
+     * @param kind The kind of the node.
+     * @param token Index of the token of the node, or {@link #NO_TOKEN}.
+     * @param first The handle of the first child.
+     * @param second The handle of the second child.
+     * @param third The handle of the third child.
+     * @return The handle of the node.
+     * */
+    public int addNode(NodeKind kind, int token, int first, int second, int third)
+    {
+        checkNode(first);
+        checkNode(second);
+        checkNode(third);
+        int node = add(kind, token, 3);
+        children[childrenSize++] = first;
+        children[childrenSize++] = second;
+        children[childrenSize++] = third;
+        return node;
+    }
+
+    /**
+     * Adds a node with the specified children.
+     * @param kind The kind of the node.
+     * @param token Index of the token of the node, or {@link #NO_TOKEN}.
+     * @param nodes The array containing the handles of the children.
+     * @param begin Index in {@code nodes} of the first child.
+     * @param count Number of children.
+     * @return The handle of the node.
+     * */
+    public int addNode(NodeKind kind, int token, int[] nodes, int begin, int count)
+    {
+        for (int i = begin; i < begin + count; i++)
+            checkNode(nodes[i]);
+
+        int node = add(kind, token, count);
+        System.arraycopy(nodes, begin, children, childrenSize, count);
+        childrenSize += count;
+        return node;
+    }
+
+    /**
+     * Adds a node, and reserves the room of its children.
+     * */
+    private int add(NodeKind kind, int token, int childCount)
+    {
+        if (size == kinds.length)
+        {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            childStarts = Arrays.copyOf(childStarts, capacity);
+            childCounts = Arrays.copyOf(childCounts, capacity);
+        }
+        if (childrenSize + childCount > children.length)
+            children = Arrays.copyOf(children, Math.max(children.length * 2, childrenSize + childCount));
+
+        kinds[size] = kind.ordinal();
+        tokens[size] = token;
+        childStarts[size] = childrenSize;
+        childCounts[size] = childCount;
+        return size++;
+    }
+
+    private void checkNode(int node)
+    {
+        if ((node < 0) || (node >= size))
+            throw new IndexOutOfBoundsException("Node: " + node + ", size: " + size + ".");
+    }
+
+    /**
+     * Gets the kind of the specified node.
+     * @param node The handle of the node.
+     * @return The kind of the node.
+     * */
+    public NodeKind getKind(int node)
+    {
+        checkNode(node);
+        return NODE_KINDS[kinds[node]];
+    }
+
+    /**
+     * Gets the index of the token of the specified node.
+     * @param node The handle of the node.
+     * @return The index of the token of the node, or {@link #NO_TOKEN}.
+     * */
+    public int getToken(int node)
+    {
+        checkNode(node);
+        return tokens[node];
+    }
+
+    /**
+     * Gets the number of children of the specified node.
+     * @param node The handle of the node.
+     * @return The number of children of the node.
+     * */
+    public int getChildCount(int node)
+    {
+        checkNode(node);
+        return childCounts[node];
+    }
+
+    /**
+     * Gets a child of the specified node.
+     * @param node The handle of the node.
+     * @param index Index of the child, from 0.
+     * @return The handle of the child.
+     * */
+    public int getChild(int node, int index)
+    {
+        checkNode(node);
+        if ((index < 0) || (index >= childCounts[node]))
+            throw new IndexOutOfBoundsException("Child: " + index + ", count: " + childCounts[node] + ".");
+
+        return children[childStarts[node] + index];
+    }
+
+    /**
+     * Formats the specified node and its descendants: a leaf as its symbol, an operator as a parenthesized prefix
+     * expression, a statement as its expression followed by ";", and the statements of a list on separate lines.
+     * @param node The handle of the node.
+     * @param tokenBuffer The tokens the tree is parsed from.
+     * @return The formatted tree.
+     * */
+    public String toString(int node, TokenBuffer tokenBuffer)
+    {
+        StringBuilder builder = new StringBuilder();
+        format(node, tokenBuffer, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Gets the name of the specified node when it is formatted as a prefix expression.
+     * */
+    private String getOperatorName(int node, TokenBuffer tokenBuffer)
+    {
+        switch (getKind(node))
+        {
+            case ERROR:
+                return "error";
+            case CALL:
+                return "call";
+            case CAST:
+                return "cast";
+            default:
+                return tokenBuffer.getText(tokens[node]);
+        }
+    }
+
+    /**
+     * Returns a value indicating whether the given token can be in a type name: a keyword, a tag, or a "*".
+     * */
+    private static boolean isTypeNameToken(TokenType type)
+    {
+        return (type == TokenType.IDENTIFIER) || (type == TokenType.TIMES) ||
+               ((type.ordinal() >= TokenType.AUTO.ordinal()) && (type.ordinal() < TokenType.LEFT_BRACKET.ordinal()));
+    }
+
+    private void format(int node, TokenBuffer tokenBuffer, StringBuilder builder)
+    {
+        switch (getKind(node))
+        {
+            case NUMBER:
+            case IDENTIFIER:
+                builder.append(tokenBuffer.getText(tokens[node]));
+                break;
+            case STATEMENT:
+                format(getChild(node, 0), tokenBuffer, builder);
+                builder.append(';');
+                break;
+            case STATEMENTS:
+                for (int i = 0; i < childCounts[node]; i++)
+                {
+                    format(getChild(node, i), tokenBuffer, builder);
+                    builder.append('\n');
+                }
+                break;
+            case TYPE_NAME:
+                for (int i = tokens[node]; isTypeNameToken(tokenBuffer.getType(i)); i++)
+                    builder.append((i == tokens[node]) ? "" : " ").append(tokenBuffer.getText(i));
+                break;
+            case POSTFIX:
+                builder.append('(');
+                format(getChild(node, 0), tokenBuffer, builder);
+                builder.append(' ').append(tokenBuffer.getText(tokens[node])).append(')');
+                break;
+            default:
+                builder.append('(').append(getOperatorName(node, tokenBuffer));
+                for (int i = 0; i < childCounts[node]; i++)
+                {
+                    builder.append(' ');
+                    format(getChild(node, i), tokenBuffer, builder);
+                }
+                builder.append(')');
+                break;
+        }
+    }
+}
@@ -0,0 +1,608 @@
+package expression;
+
+import InputSystem.*;
+
+import java.io.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * The {@link TokenBuffer} class stores a whole token stream as parallel primitive arrays: the ordinal of the
+ * {@link TokenType}, the offset and the length of the symbol in the source, and its line number. That is 13 bytes per
+ * token, and no object is created for a token. The text of a symbol is created from the source only when it is
+ * requested.
+ * <p>
+ * A cursor points to the current token. It can be moved forward, rewound to any position, and the tokens after it can
+ * be looked at, so that a parser can look ahead arbitrarily, or parse a token stream several times.
+ * <p/>
+ * The last token of a buffer filled by {@link #tokenize(byte[])} is always an {@link TokenType#END_OF_FILE}.
+ * */
+public class TokenBuffer
+{
+    /** The initial capacity of a buffer. */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /** Token types indexed by their ordinals. */
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    /** The source the tokens are scanned from. */
+    private final byte[] source;
+
+    /** Ordinals of the token types. */
+    private byte[] types;
+
+    /** Offsets of the symbols in the source. */
+    private int[] starts;
+
+    /** Lengths of the symbols in bytes. */
+    private int[] lengths;
+
+    /** Line numbers of the symbols. */
+    private int[] lines;
+
+    /** Number of tokens in the buffer. */
+    private int size;
+
+    /** Index of the current token. */
+    private int position;
+
+    /** Checks the numbers while scanning. */
+    private final NumberLiteral number;
+
+    /** Decodes the characters which are not ASCII while scanning. */
+    private final Utf8Decoder decoder;
+
+    /**
+     * Initializes a new instance of {@link TokenBuffer} with the specified source.
+     * @param source The source the tokens are scanned from.
+     * @exception NullPointerException If {@code source} is null.
+     * */
+    public TokenBuffer(byte[] source)
+    {
+        this(source, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Initializes a new instance of {@link TokenBuffer} with the specified source and initial capacity.
+     * @param source The source the tokens are scanned from.
+     * @param initialCapacity The number of tokens the buffer can hold before it grows.
+     * @exception NullPointerException If {@code source} is null.
+     * @exception IllegalArgumentException If {@code initialCapacity} is less than 1.
+     * */
+    public TokenBuffer(byte[] source, int initialCapacity)
+    {
+        if (source == null)
+            throw new NullPointerException("Source is null.");
+        if (initialCapacity < 1)
+            throw new IllegalArgumentException("Initial capacity must be positive.");
+
+        this.source = source;
+        types = new byte[initialCapacity];
+        starts = new int[initialCapacity];
+        lengths = new int[initialCapacity];
+        lines = new int[initialCapacity];
+        size = 0;
+        position = 0;
+        number = new NumberLiteral();
+        decoder = new Utf8Decoder();
+    }
+
+    /**
+     * Initializes a new instance of {@link TokenBuffer} sharing the tokens of the specified buffer.
+     * */
+    private TokenBuffer(TokenBuffer tokens, byte[] source)
+    {
+        this.source = source;
+        types = tokens.types;
+        starts = tokens.starts;
+        lengths = tokens.lengths;
+        lines = tokens.lines;
+        size = tokens.size;
+        position = tokens.position;
+        number = new NumberLiteral();
+        decoder = new Utf8Decoder();
+    }
+
+    /**
+     * Creates a buffer sharing the tokens of this buffer, with its own cursor at the same position, so that several
+     * threads can read the same tokens. The tokens must not be added or removed while the duplicate is used.
+     * @return The duplicate of this buffer.
+     * */
+    public TokenBuffer duplicate()
+    {
+        return new TokenBuffer(this, source);
+    }
+
+    /**
+     * Tokenizes the whole specified source.
+     * @param source The source to tokenize.
+     * @return A {@link TokenBuffer} containing all tokens of the source, followed by an {@link TokenType#END_OF_FILE}.
+     * @exception NullPointerException If {@code source} is null.
+     * */
+    public static TokenBuffer tokenize(byte[] source)
+    {
+        // About 1 token per 4 bytes of typical expressions.
+        TokenBuffer tokens = new TokenBuffer(source, Math.max(INITIAL_CAPACITY, source.length / 4));
+        int line = tokens.scan(0, source.length, 1);
+        tokens.add(TokenType.END_OF_FILE, source.length, 0, line);
+        return tokens;
+    }
+
+    /**
+     * Reads and tokenizes the whole specified file.
+     * @param path The path of the file.
+     * @return A {@link TokenBuffer} containing all tokens of the file, followed by an {@link TokenType#END_OF_FILE}.
+     * @exception IOException If an I/O error occurs.
+     * */
+    public static TokenBuffer tokenize(String path) throws IOException
+    {
+        return tokenize(InputSystem.File.readAllBytes(path));
+    }
+
+    /**
+     * Scans the specified range of the source with the DFA in {@link LexerTable}, and appends its tokens to this
+     * buffer. As the {@link Lexer} does, the symbol "end" at the end of a line is an {@link TokenType#END_OF_FILE},
+     * keywords are recognized, and a malformed number is an {@link TokenType#UNKNOWN_SYMBOL}.
+     * @param begin Offset of the first byte to scan.
+     * @param end Offset after the last byte to scan, which must not be inside a symbol.
+     * @param line Line number of the first byte to scan.
+     * @return Line number at the end of the range.
+     * */
+    public int scan(int begin, int end, int line)
+    {
+        int i = begin;
+        for (;;)
+        {
+            // Filter all the white spaces, counting lines. A NUL character is an unknown symbol, as in the Lexer.
+            for (; (i < end) && LexerTable.WHITE_SPACE_BYTES[source[i] & 0xFF]; i++)
+            {
+                if (source[i] == '\n')
+                    line++;
+            }
+            if (i == end)
+                return line;
+
+            // Run the DFA, and go back to the end of the longest match.
+            int state = LexerTable.START;
+            TokenType token = TokenType.UNKNOWN_SYMBOL;
+            int symbolEnd = i + 1;
+            for (int j = i; j < end; )
+            {
+                // Decode the characters which are not ASCII.
+                int charClass;
+                if (source[j] >= 0)
+                {
+                    charClass = LexerTable.getByteClass(source[j]);
+                    j++;
+                }
+                else
+                {
+                    charClass = LexerTable.getCharClass(decoder.decode(source, j, end));
+                    j += decoder.getLength();
+                }
+
+                state = LexerTable.getNextState(state, charClass);
+                if (state == LexerTable.ERROR)
+                    break;
+
+                TokenType acceptedToken = LexerTable.getAcceptedToken(state);
+                if (acceptedToken != null)
+                {
+                    token = acceptedToken;
+                    symbolEnd = j;
+                }
+            }
+
+            if (token == TokenType.IDENTIFIER)
+            {
+                if (isEndSymbol(i, symbolEnd, end))
+                    token = TokenType.END_OF_FILE;
+                else
+                    token = Keywords.getTokenType(source, i, symbolEnd - i);
+            }
+            else if ((token == TokenType.NUMBER) && (!number.parse(source, i, symbolEnd - i)))
+                token = TokenType.UNKNOWN_SYMBOL;
+
+            add(token, i, symbolEnd - i, line);
+            i = symbolEnd;
+        }
+    }
+
+    /**
+     * Returns a value indicating whether the symbol in the given range is "end", followed by the end of its line.
+     * */
+    private boolean isEndSymbol(int symbolStart, int symbolEnd, int end)
+    {
+        if ((symbolEnd - symbolStart != 3) ||
+            (source[symbolStart] != 'e') || (source[symbolStart + 1] != 'n') || (source[symbolStart + 2] != 'd'))
+            return false;
+
+        for (int i = symbolEnd; (i < end) && (source[i] != '\n'); i++)
+        {
+            if ((source[i] & 0xFF) > ' ')
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Appends a token to the buffer.
+     * @param type Type of the token.
+     * @param start Offset of the symbol in the source.
+     * @param length Length of the symbol in bytes.
+     * @param line Line number of the symbol.
+     * */
+    public void add(TokenType type, int start, int length, int line)
+    {
+        if (size == types.length)
+            grow();
+
+        types[size] = (byte)type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        lines[size] = line;
+        size++;
+    }
+
+    private void grow()
+    {
+        ensureCapacity(size * 2);
+    }
+
+    private void ensureCapacity(int capacity)
+    {
+        if (capacity <= types.length)
+            return;
+
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        lines = Arrays.copyOf(lines, capacity);
+    }
+
+    /**
+     * Sets the number of tokens in the buffer, growing the buffer if needed. Tokens added this way are set by
+     * {@link #copy(TokenBuffer, int, int)}.
+     * @param size The number of tokens.
+     * */
+    void setSize(int size)
+    {
+        ensureCapacity(size);
+        this.size = size;
+        position = Math.min(position, Math.max(size - 1, 0));
+    }
+
+    /**
+     * Copies all tokens of the specified buffer to this buffer, adding a value to their line numbers. Different
+     * threads can copy to disjoint ranges of the same buffer.
+     * @param tokens The buffer to copy from.
+     * @param index Index in this buffer of the first token copied.
+     * @param lineDelta Value added to the line numbers.
+     * */
+    void copy(TokenBuffer tokens, int index, int lineDelta)
+    {
+        int count = tokens.size;
+        System.arraycopy(tokens.types, 0, types, index, count);
+        System.arraycopy(tokens.starts, 0, starts, index, count);
+        System.arraycopy(tokens.lengths, 0, lengths, index, count);
+        for (int i = 0; i < count; i++)
+            lines[index + i] = tokens.lines[i] + lineDelta;
+    }
+
+    /**
+     * Replaces the tokens of a range by the tokens scanned again from an edited part of the source, and shifts the
+     * offsets and the line numbers of the tokens after the range. The tokens after the range are moved in place.
+     * @param begin Index of the first token replaced.
+     * @param end Index after the last token replaced.
+     * @param tokens The tokens replacing the range.
+     * @param offsetDelta Value added to the offsets of the tokens after the range.
+     * @param lineDelta Value added to the line numbers of the tokens after the range.
+     * */
+    void replace(int begin, int end, TokenBuffer tokens, int offsetDelta, int lineDelta)
+    {
+        int tailLength = size - end;
+        int index = begin + tokens.size;
+        if (index + tailLength > types.length)
+            ensureCapacity(Math.max(types.length + (types.length >> 1), index + tailLength));
+
+        System.arraycopy(types, end, types, index, tailLength);
+        System.arraycopy(starts, end, starts, index, tailLength);
+        System.arraycopy(lengths, end, lengths, index, tailLength);
+        System.arraycopy(lines, end, lines, index, tailLength);
+        copy(tokens, begin, 0);
+        size = index + tailLength;
+        position = Math.min(position, size - 1);
+
+        if (offsetDelta != 0)
+        {
+            for (int i = index; i < size; i++)
+                starts[i] += offsetDelta;
+        }
+        if (lineDelta != 0)
+        {
+            for (int i = index; i < size; i++)
+                lines[i] += lineDelta;
+        }
+    }
+
+    /**
+     * Creates a buffer sharing the tokens of this buffer, with another source containing the same symbols at the same
+     * offsets, such as a larger copy of the source.
+     * @param source The source.
+     * @return The buffer with the source.
+     * */
+    TokenBuffer withSource(byte[] source)
+    {
+        return new TokenBuffer(this, source);
+    }
+
+    /**
+     * Removes all tokens, and moves the cursor to the beginning.
+     * */
+    public void clear()
+    {
+        size = 0;
+        position = 0;
+    }
+
+    /**
+     * Gets the source the tokens are scanned from.
+     * @return The source the tokens are scanned from.
+     * */
+    public byte[] getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Gets the number of tokens in the buffer.
+     * @return The number of tokens in the buffer.
+     * */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the type of the specified token.
+     * @param index Index of the token.
+     * @return The type of the token.
+     * */
+    public TokenType getType(int index)
+    {
+        checkIndex(index);
+        return TOKEN_TYPES[types[index]];
+    }
+
+    /**
+     * Gets the offset in the source of the specified token.
+     * @param index Index of the token.
+     * @return The offset in the source of the token.
+     * */
+    public int getStart(int index)
+    {
+        checkIndex(index);
+        return starts[index];
+    }
+
+    /**
+     * Gets the length in bytes of the specified token.
+     * @param index Index of the token.
+     * @return The length in bytes of the token.
+     * */
+    public int getLength(int index)
+    {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    /**
+     * Gets the line number of the specified token.
+     * @param index Index of the token.
+     * @return The line number of the token.
+     * */
+    public int getLine(int index)
+    {
+        checkIndex(index);
+        return lines[index];
+    }
+
+    /**
+     * Gets the text of the specified token. The text of an {@link TokenType#END_OF_FILE} is {@link Lexer#END_SYMBOL}.
+     * @param index Index of the token.
+     * @return The text of the token.
+     * */
+    public String getText(int index)
+    {
+        checkIndex(index);
+        if (TOKEN_TYPES[types[index]] == TokenType.END_OF_FILE)
+            return Lexer.END_SYMBOL;
+
+        return new String(source, starts[index], lengths[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sets the given {@link Lexeme} to the symbol of the specified token, without copying it.
+     * @param index Index of the token.
+     * @param view The {@link Lexeme} to set.
+     * @return The given {@link Lexeme}.
+     * */
+    public Lexeme getView(int index, Lexeme view)
+    {
+        checkIndex(index);
+        return view.set(source, starts[index], lengths[index]);
+    }
+
+    /**
+     * Converts the specified {@link TokenType#NUMBER} token to its value. Values are not stored in the buffer, they are
+     * converted again from the source when they are requested.
+     * @param index Index of the token.
+     * @param number The {@link NumberLiteral} to set.
+     * @return The given {@link NumberLiteral}.
+     * */
+    public NumberLiteral getNumber(int index, NumberLiteral number)
+    {
+        checkIndex(index);
+        number.parse(source, starts[index], lengths[index]);
+        return number;
+    }
+
+    /**
+     * Interns the symbol of the specified token in the given {@link SymbolTable}, without copying it if the symbol is
+     * already in the table.
+     * @param index Index of the token.
+     * @param symbols The symbol table.
+     * @return The id of the symbol in {@code symbols}.
+     * */
+    public int getSymbolId(int index, SymbolTable symbols)
+    {
+        checkIndex(index);
+        return symbols.intern(source, starts[index], lengths[index]);
+    }
+
+    /**
+     * Gets the index of the first token after the line of the specified token, or the index of the last token if
+     * there is no such token.
+     * @param index Index of the token.
+     * @return The index of the first token of the next line.
+     * */
+    public int getNextLineIndex(int index)
+    {
+        checkIndex(index);
+        int line = lines[index];
+        while ((index < size - 1) && (lines[index] == line))
+            index++;
+
+        return index;
+    }
+
+    private void checkIndex(int index)
+    {
+        if ((index < 0) || (index >= size))
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size + ".");
+    }
+
+    /**
+     * Gets the index of the current token.
+     * @return The index of the current token.
+     * */
+    public int getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Moves the cursor to the specified token, before or after the current one.
+     * @param position Index of the token.
+     * */
+    public void setPosition(int position)
+    {
+        checkIndex(position);
+        this.position = position;
+    }
+
+    /**
+     * Moves the cursor to the first token.
+     * */
+    public void rewind()
+    {
+        position = 0;
+    }
+
+    /**
+     * Moves the cursor to the next token. The cursor stays on the last token.
+     * */
+    public void advance()
+    {
+        if (position < size - 1)
+            position++;
+    }
+
+    /**
+     * Moves the cursor to the first token after the line of the current token.
+     * */
+    public void skipLine()
+    {
+        position = getNextLineIndex(position);
+    }
+
+    /**
+     * Gets the type of the current token.
+     * @return The type of the current token.
+     * */
+    public TokenType getType()
+    {
+        return getType(position);
+    }
+
+    /**
+     * Gets the type of the token at the specified distance after the current token, or the type of the last token if
+     * the distance goes past it.
+     * @param distance Number of tokens after the current token, 0 for the current token.
+     * @return The type of the token.
+     * */
+    public TokenType peekType(int distance)
+    {
+        return getType((int)Math.min((long)position + distance, size - 1));
+    }
+
+    /**
+     * Gets a value indicating whether the current token is of the specified type.
+     * @param type The specified type.
+     * @return true if the current token is of the specified type, otherwise, false.
+     * */
+    public boolean match(TokenType type)
+    {
+        return getType(position) == type;
+    }
+
+    /**
+     * Gets a value indicating whether the current token is an unknown symbol for the expression grammar, as
+     * {@link Lexer#matchUnknownSymbol()} does.
+     * @return true if the current token is an unknown symbol, otherwise, false.
+     * */
+    public boolean matchUnknownSymbol()
+    {
+        TokenType type = getType(position);
+        return (type == TokenType.UNKNOWN_SYMBOL) || type.isPunctuator();
+    }
+
+    /**
+     * Gets the text of the current token.
+     * @return The text of the current token.
+     * */
+    public String getText()
+    {
+        return getText(position);
+    }
+
+    /**
+     * Gets the line number of the current token.
+     * @return The line number of the current token.
+     * */
+    public int getLine()
+    {
+        return getLine(position);
+    }
+
+    /**
+     * A unit test method for the {@link TokenBuffer} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        TokenBuffer tokens = tokenize(sourceFilePath);
+        for (int i = 0; i < tokens.size(); i++)
+            System.out.println("Line: " + tokens.getLine(i) + ", token: " + tokens.getType(i) + ", symbol: " + tokens.getText(i));
+
+        // The same token stream can be parsed several times.
+        for (int pass = 1; pass <= 2; pass++)
+        {
+            System.out.println();
+            System.out.println("Pass " + pass + ":");
+            tokens.rewind();
+            new ImprovedParser(new Lexer(tokens)).statements();
+        }
+    }
+}
@@ -11,6 +11,98 @@ public enum TokenType
     TIMES,
     LEFT_PARENTHESES,
     RIGHT_PARENTHESES,
-    NUMBER_OR_IDENTIFIER,
+    NUMBER,
+    IDENTIFIER,
     UNKNOWN_SYMBOL,
+
+    // C89/C99 keywords.
+    AUTO,
+    BREAK,
+    CASE,
+    CHAR,
+    CONST,
+    CONTINUE,
+    DEFAULT,
+    DO,
+    DOUBLE,
+    ELSE,
+    ENUM,
+    EXTERN,
+    FLOAT,
+    FOR,
+    GOTO,
+    IF,
+    INLINE,
+    INT,
+    LONG,
+    REGISTER,
+    RESTRICT,
+    RETURN,
+    SHORT,
+    SIGNED,
+    SIZEOF,
+    STATIC,
+    STRUCT,
+    SWITCH,
+    TYPEDEF,
+    UNION,
+    UNSIGNED,
+    VOID,
+    VOLATILE,
+    WHILE,
+    BOOL,
+    COMPLEX,
+    IMAGINARY,
+
+    // C99 operators and punctuators other than the ones above, which are not in the expression grammar.
+    LEFT_BRACKET,
+    RIGHT_BRACKET,
+    LEFT_BRACE,
+    RIGHT_BRACE,
+    DOT,
+    ARROW,
+    INCREMENT,
+    DECREMENT,
+    BITWISE_AND,
+    BITWISE_OR,
+    BITWISE_XOR,
+    BITWISE_NOT,
+    LOGICAL_AND,
+    LOGICAL_OR,
+    LOGICAL_NOT,
+    MODULO,
+    SHIFT_LEFT,
+    SHIFT_RIGHT,
+    LESS,
+    GREATER,
+    LESS_OR_EQUAL,
+    GREATER_OR_EQUAL,
+    EQUAL,
+    NOT_EQUAL,
+    QUESTION,
+    COLON,
+    COMMA,
+    ELLIPSIS,
+    ASSIGN,
+    TIMES_ASSIGN,
+    DIVIDE_ASSIGN,
+    MODULO_ASSIGN,
+    PLUS_ASSIGN,
+    MINUS_ASSIGN,
+    SHIFT_LEFT_ASSIGN,
+    SHIFT_RIGHT_ASSIGN,
+    AND_ASSIGN,
+    XOR_ASSIGN,
+    OR_ASSIGN;
+
+    /**
+     * Returns a value indicating whether this token is an operator or a punctuator of C which is not in the expression
+     * grammar of {@link BasicParser}, that is, any operator or punctuator other than ";", "+", "-", "*", "/", "(" and
+     * ")".
+     * @return true if this token is such an operator or punctuator, otherwise, false.
+     * */
+    public boolean isPunctuator()
+    {
+        return ordinal() >= LEFT_BRACKET.ordinal();
+    }
 }
@@ -0,0 +1,123 @@
+package expression;
+
+import java.io.*;
+import java.util.concurrent.*;
+
+/**
+ * The {@link TokenizerBenchmark} class compares the sequential {@link TokenBuffer#tokenize(byte[])} with the
+ * {@link ParallelTokenizer} on a large source, and checks that both produce the same token stream.
+ * <p>
+ * Usage: TokenizerBenchmark [source file | size in MB]. By default, a generated source of 256 MB of expression
+ * statements is used.
+ * <p/>
+ * */
+public final class TokenizerBenchmark
+{
+    /** Number of runs of each method that are not measured. */
+    private static final int WARM_UP_RUNS = 2;
+
+    /** Number of measured runs of each method. */
+    private static final int MEASURED_RUNS = 5;
+
+    /** The default size of the generated source in MB. */
+    private static final int DEFAULT_GENERATED_SIZE = 256;
+
+    /**
+     * This class should not be instantiated since it is designed to provide static methods only.
+     * */
+    private TokenizerBenchmark(){}
+
+    /**
+     * Generates the specified number of MB of expression statements.
+     * */
+    private static byte[] generateSource(int megabytes)
+    {
+        byte[] source = new byte[megabytes * 1024 * 1024];
+        int length = 0;
+        for (int line = 0; ; line++)
+        {
+            byte[] statement = ("a" + line + " + " + (line % 97) + " * (b" + (line % 13) + " + 42);\n").getBytes();
+            if (length + statement.length > source.length)
+                break;
+
+            System.arraycopy(statement, 0, source, length, statement.length);
+            length += statement.length;
+        }
+
+        // Pad the rest with spaces.
+        for (int i = length; i < source.length; i++)
+            source[i] = ' ';
+
+        return source;
+    }
+
+    private interface Tokenizer
+    {
+        TokenBuffer tokenize(byte[] source);
+    }
+
+    /**
+     * Runs one method and prints its result.
+     * @return The tokens of the last run.
+     * */
+    private static TokenBuffer run(String name, Tokenizer tokenizer, byte[] source)
+    {
+        TokenBuffer tokens = null;
+        long bestTime = Long.MAX_VALUE;
+        for (int i = 0; i < WARM_UP_RUNS + MEASURED_RUNS; i++)
+        {
+            tokens = null;
+            long start = System.nanoTime();
+            tokens = tokenizer.tokenize(source);
+            long time = System.nanoTime() - start;
+
+            if (i >= WARM_UP_RUNS)
+                bestTime = Math.min(bestTime, time);
+        }
+
+        double megabytesPerSecond = (source.length / (1024.0 * 1024.0)) / (bestTime / 1e9);
+        System.out.printf("%-12s tokens: %10d, time: %8.1f ms, throughput: %8.1f MB/s%n",
+                name, tokens.size(), bestTime / 1e6, megabytesPerSecond);
+        return tokens;
+    }
+
+    /**
+     * Returns a value indicating whether the given buffers contain the same tokens.
+     * */
+    private static boolean isSame(TokenBuffer tokens, TokenBuffer otherTokens)
+    {
+        if (tokens.size() != otherTokens.size())
+            return false;
+
+        for (int i = 0; i < tokens.size(); i++)
+        {
+            if ((tokens.getType(i) != otherTokens.getType(i)) ||
+                (tokens.getStart(i) != otherTokens.getStart(i)) ||
+                (tokens.getLength(i) != otherTokens.getLength(i)) ||
+                (tokens.getLine(i) != otherTokens.getLine(i)))
+                return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Runs the benchmark.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        byte[] source;
+        if ((args.length > 0) && (!args[0].matches("[0-9]+")))
+            source = InputSystem.File.readAllBytes(args[0]);
+        else
+            source = generateSource((args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_GENERATED_SIZE);
+
+        System.out.println("Input: " + source.length + " bytes, parallelism: " + ForkJoinPool.commonPool().getParallelism() + ".");
+
+        TokenBuffer sequentialTokens = run("sequential", TokenBuffer::tokenize, source);
+        ParallelTokenizer parallelTokenizer = new ParallelTokenizer();
+        TokenBuffer parallelTokens = run("parallel", parallelTokenizer::tokenize, source);
+
+        System.out.println("Same tokens: " + isSame(sequentialTokens, parallelTokens) + ".");
+    }
+}
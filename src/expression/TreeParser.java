@@ -0,0 +1,224 @@
+package expression;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The {@link TreeParser} class parses the grammar of {@link ImprovedParser} from a {@link TokenBuffer}, and builds the
+ * syntax tree of the statements in a {@link SyntaxTree}, so that the statements can be checked and compiled by several
+ * passes without parsing them again. The diagnostics are the same as the diagnostics of {@link ImprovedParser}, and are
+ * written to the specified stream.
+ * */
+public class TreeParser
+{
+    /** The tokens to parse. */
+    private final TokenBuffer tokens;
+
+    /** The tree to add the nodes to. */
+    private final SyntaxTree tree;
+
+    /** The stream to write the diagnostics to. */
+    private final PrintStream out;
+
+    /** A boolean value indicating whether the statements is legal. */
+    private boolean isLegalStatement;
+
+    /** The handles of the statements parsed. */
+    private int[] statementNodes;
+
+    /**
+     * Initializes a new instance of {@link TreeParser}.
+     * @param tokens The tokens to parse, from the position of their cursor.
+     * @param tree The tree to add the nodes to.
+     * @param out The stream to write the diagnostics to.
+     * @exception NullPointerException If an argument is null.
+     * */
+    public TreeParser(TokenBuffer tokens, SyntaxTree tree, PrintStream out)
+    {
+        if ((tokens == null) || (tree == null) || (out == null))
+            throw new NullPointerException("Tokens, tree and output stream cannot be null.");
+
+        this.tokens = tokens;
+        this.tree = tree;
+        this.out = out;
+        isLegalStatement = true;
+        statementNodes = new int[16];
+    }
+
+    /**
+     * Parses a "statements" with following production.
+     * <p>
+     * statements -> expression ; | expression ; statements
+     * <p/>
+     * @return The handle of the {@link NodeKind#STATEMENTS} node.
+     * */
+    public int statements()
+    {
+        return statements(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Parses the statements starting before the specified token, so that a token stream can be parsed in several
+     * parts. The last statement parsed may end after the token.
+     * @param end Index of the token before which the last statement starts.
+     * @return The handle of the {@link NodeKind#STATEMENTS} node.
+     * */
+    public int statements(int end)
+    {
+        int statementCount = 0;
+        while (!tokens.match(TokenType.END_OF_FILE) && (tokens.getPosition() < end))
+        {
+            int expression = expression();
+            int statement;
+
+            // The same rules as ImprovedParser, except that a statement that cannot be ended is an error node.
+            if (tokens.match(TokenType.SEMICOLON))
+            {
+                statement = tree.addNode(NodeKind.STATEMENT, tokens.getPosition(), expression);
+                tokens.advance();
+                out.println("The statement is " + (isLegalStatement ? "legal" : "illegal"));
+                isLegalStatement = true;
+            }
+            else if (tokens.matchUnknownSymbol() ||
+                     tokens.match(TokenType.MINUS) ||
+                     tokens.match(TokenType.DIVIDE))
+            {
+                statement = tree.addNode(NodeKind.ERROR, tokens.getPosition(), expression);
+                out.println("Error: unknown symbol: " + tokens.getText() + " at line: " + tokens.getLine() + ".");
+                tokens.skipLine();
+            }
+            else
+            {
+                statement = tree.addNode(NodeKind.ERROR, tokens.getPosition(), expression);
+                isLegalStatement = false;
+                out.println("Line " + tokens.getLine() + ": missing \";\".");
+                tokens.skipLine();
+            }
+
+            if (statementCount == statementNodes.length)
+                statementNodes = Arrays.copyOf(statementNodes, statementCount * 2);
+            statementNodes[statementCount++] = statement;
+        }
+
+        return tree.addNode(NodeKind.STATEMENTS, SyntaxTree.NO_TOKEN, statementNodes, 0, statementCount);
+    }
+
+    /**
+     * Gets a value indicating whether the next statement is legal so far. It is false after a statement ending with an
+     * unknown symbol, since {@link ImprovedParser} reports the next statement as illegal.
+     * @return true if the next statement is legal so far, otherwise, false.
+     * */
+    public boolean isLegalStatement()
+    {
+        return isLegalStatement;
+    }
+
+    /**
+     * Sets a value indicating whether the next statement is legal so far, to go on with the parse of another parser.
+     * @param isLegalStatement true if the next statement is legal so far, otherwise, false.
+     * */
+    public void setLegalStatement(boolean isLegalStatement)
+    {
+        this.isLegalStatement = isLegalStatement;
+    }
+
+    /**
+     * Parses an "expression" with following production.
+     * <p>
+     * expression -> term (+ term)*
+     * <p/>
+     * */
+    private int expression()
+    {
+        int node = term();
+
+        while (tokens.match(TokenType.PLUS))
+        {
+            int operator = tokens.getPosition();
+            tokens.advance();
+            node = tree.addNode(NodeKind.BINARY, operator, node, term());
+        }
+
+        if (tokens.matchUnknownSymbol())
+        {
+            isLegalStatement = false;
+            out.println("Line " + tokens.getLine() + ", unknown symbol \"" + tokens.getText() + "\"");
+        }
+
+        return node;
+    }
+
+    /**
+     * Parses an "term" with following production.
+     * <p>
+     * term -> factor (* factor)*
+     * <p/>
+     * */
+    private int term()
+    {
+        int node = factor();
+
+        while (tokens.match(TokenType.TIMES))
+        {
+            int operator = tokens.getPosition();
+            tokens.advance();
+            node = tree.addNode(NodeKind.BINARY, operator, node, factor());
+        }
+
+        return node;
+    }
+
+    /**
+     * Parses a "factor" with following production.
+     * <p>
+     * factor -> NUMBER | IDENTIFIER | ( expression )
+     * <p/>
+     * */
+    private int factor()
+    {
+        int node;
+        if (tokens.match(TokenType.NUMBER) || tokens.match(TokenType.IDENTIFIER))
+        {
+            node = tree.addLeaf(tokens.match(TokenType.NUMBER) ? NodeKind.NUMBER : NodeKind.IDENTIFIER, tokens.getPosition());
+            tokens.advance();
+        }
+        else if (tokens.match(TokenType.LEFT_PARENTHESES))
+        {
+            tokens.advance();
+            node = expression();
+
+            if (tokens.match(TokenType.RIGHT_PARENTHESES))
+                tokens.advance();
+            else
+            {
+                // There is a "(" without a ")".
+                isLegalStatement = false;
+                out.println("Line: " + tokens.getLine() + ", missing \")\"");
+            }
+        }
+        else
+        {
+            // Not number neither identifier.
+            node = tree.addLeaf(NodeKind.ERROR, tokens.getPosition());
+            isLegalStatement = false;
+            out.println("Line: " + tokens.getLine() + ", unexpected symbol: \"" + tokens.getText() + "\".");
+        }
+
+        return node;
+    }
+
+    /**
+     * A unit test method for the {@link TreeParser} class.
+     * */
+    public static void main(String[] args) throws IOException
+    {
+        String sourceFilePath = "./out/production/CCompiler/expression/parserTest.txt";
+        TokenBuffer tokens = TokenBuffer.tokenize(sourceFilePath);
+        SyntaxTree tree = new SyntaxTree();
+        int root = new TreeParser(tokens, tree, System.out).statements();
+
+        System.out.println();
+        System.out.println(tree.size() + " nodes:");
+        System.out.print(tree.toString(root, tokens));
+    }
+}